@@ -0,0 +1,304 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Benchmarks
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.benchmark;
+
+import esa.mo.mal.encoder.binary.BinaryStreamFactory;
+import esa.mo.mal.transport.gen.GENMessageHeader;
+import java.util.HashMap;
+import java.util.Map;
+import org.ccsds.moims.mo.mal.MALArea;
+import org.ccsds.moims.mo.mal.MALContextFactory;
+import org.ccsds.moims.mo.mal.MALException;
+import org.ccsds.moims.mo.mal.MALHelper;
+import org.ccsds.moims.mo.mal.MALOperation;
+import org.ccsds.moims.mo.mal.MALOperationStage;
+import org.ccsds.moims.mo.mal.MALService;
+import org.ccsds.moims.mo.mal.MALSubmitOperation;
+import org.ccsds.moims.mo.mal.encoding.MALElementStreamFactory;
+import org.ccsds.moims.mo.mal.structures.Blob;
+import org.ccsds.moims.mo.mal.structures.Duration;
+import org.ccsds.moims.mo.mal.structures.Element;
+import org.ccsds.moims.mo.mal.structures.EntityKey;
+import org.ccsds.moims.mo.mal.structures.EntityKeyList;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.mal.structures.IdentifierList;
+import org.ccsds.moims.mo.mal.structures.InteractionType;
+import org.ccsds.moims.mo.mal.structures.LongList;
+import org.ccsds.moims.mo.mal.structures.QoSLevel;
+import org.ccsds.moims.mo.mal.structures.SessionType;
+import org.ccsds.moims.mo.mal.structures.Time;
+import org.ccsds.moims.mo.mal.structures.UInteger;
+import org.ccsds.moims.mo.mal.structures.UIntegerList;
+import org.ccsds.moims.mo.mal.structures.UOctet;
+import org.ccsds.moims.mo.mal.structures.URI;
+import org.ccsds.moims.mo.mal.structures.UShort;
+import org.ccsds.moims.mo.mal.structures.UpdateHeader;
+import org.ccsds.moims.mo.mal.structures.UpdateHeaderList;
+import org.ccsds.moims.mo.mal.structures.UpdateType;
+
+/**
+ * The messages used by the encoding benchmarks. It defines a small benchmark area with one SUBMIT operation per
+ * payload, so that the GEN message body can find the element short forms of each body part exactly as it does for a
+ * generated service, and the stream factories of each encoding under test.
+ */
+public final class BenchmarkMessages
+{
+  /**
+   * The area number of the benchmark area.
+   */
+  public static final UShort AREA_NUMBER = new UShort(200);
+  /**
+   * The version of the benchmark area.
+   */
+  public static final UOctet AREA_VERSION = new UOctet((short) 1);
+  /**
+   * The service number of the benchmark service.
+   */
+  public static final UShort SERVICE_NUMBER = new UShort(1);
+  private static final String PROTOCOL_PREFIX = "malbench";
+  private static final String[] PAYLOADS =
+  {
+    "attributes", "lists", "composites"
+  };
+  private static final Element[][] BODIES =
+  {
+    createAttributes(), createLists(), createComposites()
+  };
+  private static final MALOperation[] OPERATIONS = new MALOperation[PAYLOADS.length];
+  private static boolean initialised = false;
+
+  private BenchmarkMessages()
+  {
+  }
+
+  /**
+   * Registers the MAL area structures and the benchmark area with the MAL. Only the first call has any effect.
+   *
+   * @throws MALException on registration error.
+   */
+  public static synchronized void init() throws MALException
+  {
+    if (!initialised)
+    {
+      initialised = true;
+
+      MALHelper.init(MALContextFactory.getElementFactoryRegistry());
+
+      final MALArea area = new MALArea(AREA_NUMBER, new Identifier("Benchmark"), AREA_VERSION);
+      final MALService service = new MALService(SERVICE_NUMBER, new Identifier("Payloads"));
+
+      for (int i = 0; i < PAYLOADS.length; i++)
+      {
+        final Element[] body = BODIES[i];
+        final Object[] shortForms = new Object[body.length];
+        for (int j = 0; j < body.length; j++)
+        {
+          shortForms[j] = body[j].getShortForm();
+        }
+
+        OPERATIONS[i] = new MALSubmitOperation(new UShort(i + 1),
+                new Identifier(PAYLOADS[i]),
+                false,
+                new UShort(1),
+                new MALOperationStage(MALSubmitOperation.SUBMIT_STAGE, shortForms, new Object[]
+                {
+                  shortForms[shortForms.length - 1]
+                }));
+        service.addOperation(OPERATIONS[i]);
+      }
+
+      area.addService(service);
+      MALContextFactory.registerArea(area);
+    }
+  }
+
+  /**
+   * Creates the stream factory of an encoding.
+   *
+   * @param encoding One of "binary", "bufferedbinary", "splitbinary", "fixedbinary", "spp", "string" or "line".
+   * @return the stream factory.
+   * @throws MALException on error.
+   */
+  public static MALElementStreamFactory createStreamFactory(final String encoding) throws MALException
+  {
+    final Map<String, String> properties = new HashMap<String, String>();
+    final String className;
+
+    if ("binary".equals(encoding))
+    {
+      className = "esa.mo.mal.encoder.binary.BinaryStreamFactory";
+    }
+    else if ("bufferedbinary".equals(encoding))
+    {
+      className = "esa.mo.mal.encoder.binary.BinaryStreamFactory";
+      properties.put(BinaryStreamFactory.BUFFERED_OUTPUT, "true");
+    }
+    else if ("splitbinary".equals(encoding))
+    {
+      className = "esa.mo.mal.encoder.binary.split.SplitBinaryStreamFactory";
+    }
+    else if ("fixedbinary".equals(encoding))
+    {
+      className = "esa.mo.mal.encoder.binary.fixed.FixedBinaryStreamFactory";
+    }
+    else if ("spp".equals(encoding))
+    {
+      className = "esa.mo.mal.encoder.spp.SPPBinaryStreamFactory";
+    }
+    else if ("string".equals(encoding))
+    {
+      className = "esa.mo.mal.encoder.string.StringStreamFactory";
+    }
+    else if ("line".equals(encoding))
+    {
+      className = "esa.mo.mal.encoder.line.LineStreamFactory";
+    }
+    else
+    {
+      throw new IllegalArgumentException("Unknown encoding: " + encoding);
+    }
+
+    final String protocol = PROTOCOL_PREFIX + encoding;
+    System.setProperty(MALElementStreamFactory.FACTORY_PROP_NAME_PREFIX + "." + protocol, className);
+
+    return MALElementStreamFactory.newFactory(protocol, properties);
+  }
+
+  /**
+   * Returns the operation of a payload.
+   *
+   * @param payload One of "attributes", "lists" or "composites".
+   * @return the operation.
+   */
+  public static MALOperation getOperation(final String payload)
+  {
+    return OPERATIONS[payloadIndex(payload)];
+  }
+
+  /**
+   * Returns the body elements of a payload.
+   *
+   * @param payload One of "attributes", "lists" or "composites".
+   * @return the body elements.
+   */
+  public static Element[] getBody(final String payload)
+  {
+    return BODIES[payloadIndex(payload)];
+  }
+
+  /**
+   * Creates a typical message header for a payload, as sent by a consumer to a provider.
+   *
+   * @param payload One of "attributes", "lists" or "composites".
+   * @param transactionId The transaction identifier.
+   * @return the header.
+   */
+  public static GENMessageHeader createHeader(final String payload, final long transactionId)
+  {
+    final IdentifierList domain = new IdentifierList();
+    domain.add(new Identifier("esa"));
+    domain.add(new Identifier("mission"));
+    domain.add(new Identifier("spacecraft1"));
+
+    return new GENMessageHeader(new URI("maltcp://192.168.1.10:61616/Consumer-Benchmark"),
+            new Blob(new byte[0]),
+            new URI("maltcp://192.168.1.20:61616/Provider-Benchmark"),
+            new Time(1420070400000L),
+            QoSLevel.ASSURED,
+            new UInteger(1),
+            domain,
+            new Identifier("GROUND"),
+            SessionType.LIVE,
+            new Identifier("LIVE"),
+            InteractionType.SUBMIT,
+            MALSubmitOperation.SUBMIT_STAGE,
+            transactionId,
+            AREA_NUMBER,
+            SERVICE_NUMBER,
+            new UShort(payloadIndex(payload) + 1),
+            AREA_VERSION,
+            false);
+  }
+
+  private static int payloadIndex(final String payload)
+  {
+    for (int i = 0; i < PAYLOADS.length; i++)
+    {
+      if (PAYLOADS[i].equals(payload))
+      {
+        return i;
+      }
+    }
+
+    throw new IllegalArgumentException("Unknown payload: " + payload);
+  }
+
+  private static Element[] createAttributes()
+  {
+    return new Element[]
+    {
+      new Identifier("Temperature.Sensor3"),
+      new UInteger(4000000000L),
+      new Time(1420070400123L),
+      new Duration(1.5),
+      new Blob(new byte[32]),
+      new URI("maltcp://192.168.1.20:61616/Provider-Benchmark")
+    };
+  }
+
+  private static Element[] createLists()
+  {
+    final IdentifierList names = new IdentifierList();
+    final UIntegerList counts = new UIntegerList();
+    final LongList values = new LongList();
+
+    for (int i = 0; i < 64; i++)
+    {
+      names.add(new Identifier("Parameter" + i));
+      counts.add(new UInteger(i * 1000L));
+      values.add(i * 1234567L);
+    }
+
+    return new Element[]
+    {
+      names, counts, values
+    };
+  }
+
+  private static Element[] createComposites()
+  {
+    final EntityKeyList keys = new EntityKeyList();
+    final UpdateHeaderList updates = new UpdateHeaderList();
+
+    for (int i = 0; i < 16; i++)
+    {
+      final EntityKey key = new EntityKey(new Identifier("Parameter" + i), (long) i, 0L, 0L);
+      keys.add(key);
+      updates.add(new UpdateHeader(new Time(1420070400000L + i), new URI("maltcp://192.168.1.20:61616/Provider-Benchmark"),
+              UpdateType.UPDATE, key));
+    }
+
+    return new Element[]
+    {
+      keys, updates
+    };
+  }
+}
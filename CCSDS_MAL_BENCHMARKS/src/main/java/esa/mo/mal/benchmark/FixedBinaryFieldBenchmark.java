@@ -0,0 +1,262 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Benchmarks
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.benchmark;
+
+import esa.mo.mal.encoder.binary.fixed.FixedBinaryDecoder;
+import esa.mo.mal.encoder.binary.fixed.FixedBinaryEncoder;
+import esa.mo.mal.encoder.binary.fixed.FixedBinaryEncoder.FixedStreamHolder;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.ccsds.moims.mo.mal.MALException;
+import org.ccsds.moims.mo.mal.structures.UInteger;
+import org.ccsds.moims.mo.mal.structures.UOctet;
+import org.ccsds.moims.mo.mal.structures.UShort;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the fixed length field codec of the fixed binary encoding, which the SPP encoding extends, with the previous
+ * implementation that allocated a ByteBuffer for each field written or read. The fields are those of a typical SPP
+ * message header, and allocation can be compared by running with the JMH gc profiler, -prof gc.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FixedBinaryFieldBenchmark
+{
+  /**
+   * The codec under test, the current one or the previous ByteBuffer based one.
+   */
+  @Param(
+  {
+    "current", "bytebuffer"
+  })
+  public String codec;
+
+  private final ByteArrayOutputStream baos = new ByteArrayOutputStream(256);
+  private final Long longValue = 1234567890123L;
+  private final Integer intValue = -12345678;
+  private final Short shortValue = -1234;
+  private final UInteger uintValue = new UInteger(3000000000L);
+  private final UShort ushortValue = new UShort(54321);
+  private final UOctet uoctetValue = new UOctet((short) 200);
+  private boolean byteBuffer;
+  private byte[] encodedFields;
+
+  /**
+   * Selects the codec and pre-encodes the fields for the decode benchmark.
+   *
+   * @throws MALException on error.
+   */
+  @Setup(Level.Trial)
+  public void setup() throws MALException
+  {
+    byteBuffer = "bytebuffer".equals(codec);
+    encodedFields = encodeFields().toByteArray();
+  }
+
+  /**
+   * Encodes the fields.
+   *
+   * @return the encoded fields.
+   * @throws MALException on error.
+   */
+  @Benchmark
+  public ByteArrayOutputStream encodeFields() throws MALException
+  {
+    baos.reset();
+
+    final FixedBinaryEncoder enc = byteBuffer ? new ByteBufferFixedBinaryEncoder(baos) : new FixedBinaryEncoder(baos);
+
+    for (int i = 0; i < 4; i++)
+    {
+      enc.encodeUOctet(uoctetValue);
+      enc.encodeUShort(ushortValue);
+      enc.encodeShort(shortValue);
+      enc.encodeUInteger(uintValue);
+      enc.encodeInteger(intValue);
+      enc.encodeLong(longValue);
+    }
+
+    return baos;
+  }
+
+  /**
+   * Decodes the fields.
+   *
+   * @return a sum of the decoded fields.
+   * @throws MALException on error.
+   */
+  @Benchmark
+  public long decodeFields() throws MALException
+  {
+    final FixedBinaryDecoder dec = byteBuffer ? new ByteBufferFixedBinaryDecoder(encodedFields)
+            : new FixedBinaryDecoder(encodedFields);
+    long sum = 0;
+
+    for (int i = 0; i < 4; i++)
+    {
+      sum += dec.decodeUOctet().getValue();
+      sum += dec.decodeUShort().getValue();
+      sum += dec.decodeShort();
+      sum += dec.decodeUInteger().getValue();
+      sum += dec.decodeInteger();
+      sum += dec.decodeLong();
+    }
+
+    return sum;
+  }
+
+  /**
+   * The previous encoder, which allocated a ByteBuffer per field.
+   */
+  private static final class ByteBufferFixedBinaryEncoder extends FixedBinaryEncoder
+  {
+    ByteBufferFixedBinaryEncoder(final OutputStream os)
+    {
+      super(new ByteBufferStreamHolder(os));
+    }
+  }
+
+  /**
+   * The previous stream holder.
+   */
+  private static final class ByteBufferStreamHolder extends FixedStreamHolder
+  {
+    ByteBufferStreamHolder(final OutputStream outputStream)
+    {
+      super(outputStream);
+    }
+
+    @Override
+    public void addUnsignedLong(long value) throws IOException
+    {
+      directAdd(java.nio.ByteBuffer.allocate(8).putLong(value).array());
+    }
+
+    @Override
+    public void addUnsignedLong32(long value) throws IOException
+    {
+      directAdd(java.nio.ByteBuffer.allocate(8).putLong(value).array(), 4, 4);
+    }
+
+    @Override
+    public void addUnsignedInt(int value) throws IOException
+    {
+      directAdd(java.nio.ByteBuffer.allocate(4).putInt(value).array());
+    }
+
+    @Override
+    public void addUnsignedInt16(int value) throws IOException
+    {
+      directAdd(java.nio.ByteBuffer.allocate(4).putInt(value).array(), 2, 2);
+    }
+
+    @Override
+    public void addUnsignedShort(int value) throws IOException
+    {
+      directAdd(java.nio.ByteBuffer.allocate(2).putShort((short) value).array());
+    }
+
+    @Override
+    public void addUnsignedShort8(short value) throws IOException
+    {
+      directAdd(java.nio.ByteBuffer.allocate(2).putShort(value).array()[1]);
+    }
+  }
+
+  /**
+   * The previous decoder, which wrapped the buffer in a ByteBuffer per field.
+   */
+  private static final class ByteBufferFixedBinaryDecoder extends FixedBinaryDecoder
+  {
+    ByteBufferFixedBinaryDecoder(final byte[] src)
+    {
+      super(new ByteBufferBufferHolder(src));
+    }
+
+    /**
+     * The previous buffer holder.
+     */
+    private static final class ByteBufferBufferHolder extends FixedBufferHolder
+    {
+      ByteBufferBufferHolder(final byte[] src)
+      {
+        super(null, src, 0, src.length);
+      }
+
+      @Override
+      public long getUnsignedLong() throws MALException
+      {
+        checkBuffer(8);
+        final int i = shiftOffsetAndReturnPrevious(8);
+        return java.nio.ByteBuffer.wrap(getBuf(), i, 8).getLong();
+      }
+
+      @Override
+      public long getUnsignedLong32() throws MALException
+      {
+        checkBuffer(4);
+        final int i = shiftOffsetAndReturnPrevious(4);
+        return java.nio.ByteBuffer.wrap(getBuf(), i, 4).getInt() & 0xFFFFFFFFL;
+      }
+
+      @Override
+      public int getUnsignedInt() throws MALException
+      {
+        checkBuffer(4);
+        final int i = shiftOffsetAndReturnPrevious(4);
+        return java.nio.ByteBuffer.wrap(getBuf(), i, 4).getInt();
+      }
+
+      @Override
+      public int getUnsignedInt16() throws MALException
+      {
+        checkBuffer(2);
+        final int i = shiftOffsetAndReturnPrevious(2);
+        return java.nio.ByteBuffer.wrap(getBuf(), i, 2).getShort() & 0xFFFF;
+      }
+
+      @Override
+      public int getUnsignedShort() throws MALException
+      {
+        checkBuffer(2);
+        final int i = shiftOffsetAndReturnPrevious(2);
+        return java.nio.ByteBuffer.wrap(getBuf(), i, 2).getShort();
+      }
+    }
+  }
+}
@@ -0,0 +1,182 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Benchmarks
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.benchmark;
+
+import esa.mo.mal.transport.gen.GENCompactMessageHeader;
+import esa.mo.mal.transport.gen.GENMessageHeader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+import org.ccsds.moims.mo.mal.MALException;
+import org.ccsds.moims.mo.mal.encoding.MALElementInputStream;
+import org.ccsds.moims.mo.mal.encoding.MALElementOutputStream;
+import org.ccsds.moims.mo.mal.encoding.MALElementStreamFactory;
+import org.ccsds.moims.mo.mal.encoding.MALEncodingContext;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the full message header with the compact header sent on a connection with compact headers enabled, once the
+ * first message has filled the dictionaries at both ends.
+ *
+ * The encode benchmarks report the encoded bytes as a secondary result, so the encoded size of a header is the
+ * encodedBytes rate divided by the operation rate. The line encoding writes elements field by field without calling
+ * their encode method, so it cannot use compact headers and is not measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GENCompactHeaderBenchmark
+{
+  /**
+   * The encoding under test.
+   */
+  @Param(
+  {
+    "binary", "bufferedbinary", "splitbinary", "fixedbinary", "spp", "string"
+  })
+  public String encoding;
+
+  private MALElementStreamFactory streamFactory;
+  private GENMessageHeader header;
+  private byte[] encodedHeader;
+  private GENCompactMessageHeader.Dictionary sendDictionary;
+  private GENCompactMessageHeader.Dictionary receiveDictionary;
+  private byte[] encodedCompactHeader;
+
+  /**
+   * Creates the stream factory, fills the dictionaries and pre-encodes the headers for the decode benchmarks.
+   *
+   * @throws MALException on error.
+   */
+  @Setup(Level.Trial)
+  public void setup() throws MALException
+  {
+    BenchmarkMessages.init();
+
+    streamFactory = BenchmarkMessages.createStreamFactory(encoding);
+    header = BenchmarkMessages.createHeader("attributes", 1234567L);
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    writeHeader(baos);
+    encodedHeader = baos.toByteArray();
+
+    // the first header of a connection defines the dictionary entries, the later ones only refer to them
+    sendDictionary = new GENCompactMessageHeader.Dictionary();
+    receiveDictionary = new GENCompactMessageHeader.Dictionary();
+    final byte[] firstHeader = GENCompactMessageHeader.encodeHeader(streamFactory, header, sendDictionary);
+    GENCompactMessageHeader.decodeHeader(streamFactory, receiveDictionary, firstHeader, 0, firstHeader.length);
+    encodedCompactHeader = GENCompactMessageHeader.encodeHeader(streamFactory, header, sendDictionary);
+  }
+
+  /**
+   * Secondary results of the encode benchmarks.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class EncodedSize
+  {
+    /**
+     * The number of bytes encoded.
+     */
+    public long encodedBytes;
+  }
+
+  /**
+   * Encodes the full message header.
+   *
+   * @param size The encoded size counter.
+   * @return the encoded header.
+   * @throws MALException on error.
+   */
+  @Benchmark
+  public ByteArrayOutputStream encodeHeader(EncodedSize size) throws MALException
+  {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream(256);
+    writeHeader(baos);
+    size.encodedBytes += baos.size();
+    return baos;
+  }
+
+  /**
+   * Decodes the full message header.
+   *
+   * @return the decoded header.
+   * @throws MALException on error.
+   */
+  @Benchmark
+  public Object decodeHeader() throws MALException
+  {
+    final GENMessageHeader hdr = new GENMessageHeader();
+    final MALElementInputStream is = streamFactory.createInputStream(new ByteArrayInputStream(encodedHeader));
+
+    return is.readElement(hdr, new MALEncodingContext(hdr, null, 0, null, null));
+  }
+
+  /**
+   * Encodes the message header in compact form.
+   *
+   * @param size The encoded size counter.
+   * @return the encoded header.
+   * @throws MALException on error.
+   */
+  @Benchmark
+  public byte[] encodeCompactHeader(EncodedSize size) throws MALException
+  {
+    final byte[] encoded = GENCompactMessageHeader.encodeHeader(streamFactory, header, sendDictionary);
+    size.encodedBytes += encoded.length;
+    return encoded;
+  }
+
+  /**
+   * Decodes the message header in compact form.
+   *
+   * @return the decoded header.
+   * @throws MALException on error.
+   */
+  @Benchmark
+  public Object decodeCompactHeader() throws MALException
+  {
+    return GENCompactMessageHeader.decodeHeader(streamFactory, receiveDictionary, encodedCompactHeader, 0,
+            encodedCompactHeader.length);
+  }
+
+  private void writeHeader(final ByteArrayOutputStream baos) throws MALException
+  {
+    final MALElementOutputStream os = streamFactory.createOutputStream(baos);
+    os.writeElement(header, new MALEncodingContext(header, null, 0, null, null));
+    os.close();
+  }
+}
@@ -0,0 +1,148 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Benchmarks
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.benchmark;
+
+import esa.mo.mal.transport.gen.GENMessage;
+import esa.mo.mal.transport.gen.GENMessageHeader;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+import org.ccsds.moims.mo.mal.MALException;
+import org.ccsds.moims.mo.mal.MALInteractionException;
+import org.ccsds.moims.mo.mal.encoding.MALElementOutputStream;
+import org.ccsds.moims.mo.mal.encoding.MALElementStreamFactory;
+import org.ccsds.moims.mo.mal.structures.Element;
+import org.ccsds.moims.mo.mal.transport.MALMessageBody;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures a full GEN message cycle: creating and encoding a message with its header as the GEN transport does before
+ * sending it, and decoding a received message including the lookup of its operation and all of its body elements.
+ *
+ * Allocation rates are obtained by running with the GC profiler, for example:
+ * {@code java -jar target/benchmarks.jar GENMessageBenchmark -prof gc}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GENMessageBenchmark
+{
+  /**
+   * The encoding under test.
+   */
+  @Param(
+  {
+    "binary", "bufferedbinary", "splitbinary", "fixedbinary", "spp", "string", "line"
+  })
+  public String encoding;
+
+  /**
+   * The body payload, see BenchmarkMessages.
+   */
+  @Param(
+  {
+    "attributes", "lists", "composites"
+  })
+  public String payload;
+
+  private MALElementStreamFactory streamFactory;
+  private Element[] body;
+  private byte[] encodedMessage;
+
+  /**
+   * Creates the stream factory and pre-encodes a message for the decode benchmark.
+   *
+   * @throws MALException on error.
+   * @throws MALInteractionException on error.
+   */
+  @Setup(Level.Trial)
+  public void setup() throws MALException, MALInteractionException
+  {
+    BenchmarkMessages.init();
+
+    streamFactory = BenchmarkMessages.createStreamFactory(encoding);
+    body = BenchmarkMessages.getBody(payload);
+    encodedMessage = encode().toByteArray();
+  }
+
+  /**
+   * Creates and encodes a message.
+   *
+   * @return the encoded message.
+   * @throws MALException on error.
+   * @throws MALInteractionException on error.
+   */
+  @Benchmark
+  public ByteArrayOutputStream encodeMessage() throws MALException, MALInteractionException
+  {
+    return encode();
+  }
+
+  /**
+   * Decodes a message and all of its body elements.
+   *
+   * @param bh The black hole for the decoded elements.
+   * @throws MALException on error.
+   */
+  @Benchmark
+  public void decodeMessage(Blackhole bh) throws MALException
+  {
+    final GENMessage msg = new GENMessage(false, true, new GENMessageHeader(), null, encodedMessage, streamFactory);
+    final MALMessageBody msgBody = msg.getBody();
+    final int count = msgBody.getElementCount();
+
+    for (int i = 0; i < count; i++)
+    {
+      bh.consume(msgBody.getBodyElement(i, null));
+    }
+
+    bh.consume(msg.getHeader());
+  }
+
+  private ByteArrayOutputStream encode() throws MALException, MALInteractionException
+  {
+    final GENMessage msg = new GENMessage(false,
+            BenchmarkMessages.createHeader(payload, 1234567L),
+            null,
+            BenchmarkMessages.getOperation(payload),
+            (Object[]) body);
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream(256);
+    final MALElementOutputStream enc = streamFactory.createOutputStream(baos);
+    msg.encodeMessage(streamFactory, enc, baos, true);
+
+    return baos;
+  }
+}
@@ -0,0 +1,202 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Benchmarks
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.benchmark;
+
+import esa.mo.mal.transport.gen.receivers.GENConcurrentMessageDispatcher;
+import esa.mo.mal.transport.gen.receivers.GENIncomingMessageDispatcher;
+import esa.mo.mal.transport.gen.receivers.GENIncomingMessageHolder;
+import esa.mo.mal.transport.gen.receivers.GENQueuedMessageDispatcher;
+import esa.mo.mal.transport.gen.receivers.GENStripedMessageDispatcher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the end to end throughput of the incoming message dispatchers of the generic transport. Each benchmark
+ * thread plays the role of a reception thread, dispatching a batch of messages spread over a number of transactions and
+ * then waiting for all of them to be processed.
+ *
+ * Run with an increasing number of threads to see how each dispatcher scales, for example:
+ * {@code java -jar target/benchmarks.jar GENMessageDispatcherBenchmark -t 1,2,4,8}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GENMessageDispatcherBenchmark
+{
+  private static final int BATCH_SIZE = 1000;
+  private static final int MAX_THREADS = 256;
+
+  /**
+   * The dispatcher implementation under test.
+   */
+  @Param(
+  {
+    "queued", "concurrent", "striped"
+  })
+  public String dispatcher;
+
+  /**
+   * The number of concurrent transactions per benchmark thread.
+   */
+  @Param(
+  {
+    "10", "1000"
+  })
+  public int transactions;
+
+  /**
+   * The number of processing threads given to the dispatcher.
+   */
+  @Param(
+  {
+    "16"
+  })
+  public int processingThreads;
+
+  /**
+   * The simulated work done by the message handler, in JMH tokens.
+   */
+  @Param(
+  {
+    "0", "100"
+  })
+  public int work;
+
+  private final AtomicInteger[] remaining = new AtomicInteger[MAX_THREADS];
+  private final AtomicInteger threadCounter = new AtomicInteger();
+  private GENIncomingMessageDispatcher messageDispatcher;
+
+  /**
+   * Creates the dispatcher under test.
+   */
+  @Setup(Level.Trial)
+  public void setup()
+  {
+    for (int i = 0; i < MAX_THREADS; i++)
+    {
+      remaining[i] = new AtomicInteger();
+    }
+
+    final int tokens = work;
+    final int transactionsPerThread = transactions;
+    final GENIncomingMessageDispatcher.GENIncomingMessageHandler handler
+            = new GENIncomingMessageDispatcher.GENIncomingMessageHandler()
+    {
+      @Override
+      public void processIncomingMessage(GENIncomingMessageHolder malMsg)
+      {
+        Blackhole.consumeCPU(tokens);
+        remaining[(int) (malMsg.transactionId / transactionsPerThread)].decrementAndGet();
+      }
+    };
+
+    if ("concurrent".equals(dispatcher))
+    {
+      messageDispatcher = new GENConcurrentMessageDispatcher(handler, processingThreads);
+    }
+    else if ("striped".equals(dispatcher))
+    {
+      messageDispatcher = new GENStripedMessageDispatcher(handler, processingThreads);
+    }
+    else
+    {
+      messageDispatcher = new GENQueuedMessageDispatcher(handler, processingThreads);
+    }
+  }
+
+  /**
+   * Closes the dispatcher under test.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown()
+  {
+    messageDispatcher.close();
+  }
+
+  /**
+   * Per thread state, holds the pre-built messages of the reception thread.
+   */
+  @State(Scope.Thread)
+  public static class ReceptionThread
+  {
+    int index;
+    GENIncomingMessageHolder[] messages;
+
+    /**
+     * Builds the messages of this thread, using a transaction id range unique to the thread.
+     *
+     * @param bench The benchmark.
+     */
+    @Setup(Level.Trial)
+    public void setup(GENMessageDispatcherBenchmark bench)
+    {
+      index = bench.threadCounter.getAndIncrement();
+      messages = new GENIncomingMessageHolder[BATCH_SIZE];
+
+      for (int i = 0; i < BATCH_SIZE; i++)
+      {
+        long transactionId = ((long) index * bench.transactions) + (i % bench.transactions);
+        messages[i] = new GENIncomingMessageHolder(transactionId, null, null);
+      }
+    }
+  }
+
+  /**
+   * Dispatches a batch of messages and waits for them to be processed.
+   *
+   * @param thread The per thread state.
+   */
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void dispatch(ReceptionThread thread)
+  {
+    final AtomicInteger counter = remaining[thread.index];
+    counter.addAndGet(BATCH_SIZE);
+
+    for (GENIncomingMessageHolder msg : thread.messages)
+    {
+      messageDispatcher.dispatch(msg);
+    }
+
+    while (0 < counter.get())
+    {
+      Thread.yield();
+    }
+  }
+}
@@ -0,0 +1,208 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Benchmarks
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.benchmark;
+
+import esa.mo.mal.transport.gen.GENMessage;
+import esa.mo.mal.transport.gen.GENMessageHeader;
+import esa.mo.mal.transport.gen.sending.GENConcurrentMessageSender;
+import esa.mo.mal.transport.gen.sending.GENMessageSender;
+import esa.mo.mal.transport.gen.sending.GENOutgoingMessageHolder;
+import esa.mo.mal.transport.gen.sending.GENPriorityMessageQueue;
+import esa.mo.mal.transport.gen.util.GENQueueLimit;
+import java.util.concurrent.TimeUnit;
+import org.ccsds.moims.mo.mal.MALException;
+import org.ccsds.moims.mo.mal.MALInteractionException;
+import org.ccsds.moims.mo.mal.structures.UInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the latency of high priority messages sent through a GENConcurrentMessageSender while a background thread
+ * keeps its queue full of low priority messages. The message sender only burns CPU, so the latency is the time spent
+ * waiting in the queue plus the time to send the message.
+ *
+ * The sample time mode reports the latency percentiles, for example:
+ * {@code java -jar target/benchmarks.jar GENSenderPriorityBenchmark}
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GENSenderPriorityBenchmark
+{
+  /**
+   * The number of priority levels of the queue, 1 for first in first out.
+   */
+  @Param(
+  {
+    "1", "8"
+  })
+  public int levels;
+
+  /**
+   * The aging period of the queue in milliseconds, 0 for no aging.
+   */
+  @Param(
+  {
+    "0", "10"
+  })
+  public long aging;
+
+  /**
+   * The number of low priority messages kept waiting in the queue.
+   */
+  @Param(
+  {
+    "1000"
+  })
+  public int backlog;
+
+  /**
+   * The simulated work of sending one message, in JMH tokens.
+   */
+  @Param(
+  {
+    "500"
+  })
+  public int work;
+
+  private GENConcurrentMessageSender sender;
+  private GENMessage highPriorityMessage;
+  private GENMessage lowPriorityMessage;
+  private byte[] encodedMessage;
+  private volatile boolean running;
+  private Thread loader;
+
+  /**
+   * Creates the sender and starts the background low priority load.
+   *
+   * @throws MALException on error.
+   * @throws MALInteractionException on error.
+   */
+  @Setup(Level.Trial)
+  public void setup() throws MALException, MALInteractionException
+  {
+    BenchmarkMessages.init();
+
+    highPriorityMessage = createMessage(7);
+    lowPriorityMessage = createMessage(0);
+    encodedMessage = new byte[256];
+
+    final int tokens = work;
+    sender = new GENConcurrentMessageSender(null, "bench", 1, Integer.MAX_VALUE,
+            new GENQueueLimit(0, 0, GENQueueLimit.POLICY_BLOCK),
+            new GENPriorityMessageQueue(levels, aging));
+    sender.addProcessor(new GENMessageSender()
+    {
+      @Override
+      public void sendEncodedMessage(GENOutgoingMessageHolder encodedMessage)
+      {
+        Blackhole.consumeCPU(tokens);
+      }
+
+      @Override
+      public void close()
+      {
+      }
+    }, "bench");
+
+    running = true;
+    loader = new Thread("GENSenderPriorityBenchmark loader")
+    {
+      @Override
+      public void run()
+      {
+        while (running)
+        {
+          if (sender.getQueuedMessageCount() < backlog)
+          {
+            sender.sendMessage(createHolder(lowPriorityMessage));
+          }
+          else
+          {
+            Thread.yield();
+          }
+        }
+      }
+    };
+    loader.setDaemon(true);
+    loader.start();
+  }
+
+  /**
+   * Stops the background load and the sender.
+   *
+   * @throws InterruptedException on error.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws InterruptedException
+  {
+    running = false;
+    loader.join();
+    sender.terminate();
+  }
+
+  /**
+   * Sends a high priority message and waits until it has been sent.
+   *
+   * @return the result of sending.
+   * @throws InterruptedException on error.
+   */
+  @Benchmark
+  public Boolean sendHighPriority() throws InterruptedException
+  {
+    final GENOutgoingMessageHolder holder = createHolder(highPriorityMessage);
+    sender.sendMessage(holder);
+
+    return holder.getResult();
+  }
+
+  private GENOutgoingMessageHolder createHolder(final GENMessage msg)
+  {
+    return new GENOutgoingMessageHolder("bench", "bench", null, true, msg, encodedMessage);
+  }
+
+  private static GENMessage createMessage(final long priority) throws MALException, MALInteractionException
+  {
+    final GENMessageHeader header = BenchmarkMessages.createHeader("attributes", 1L);
+    header.setPriority(new UInteger(priority));
+
+    return new GENMessage(false,
+            header,
+            null,
+            BenchmarkMessages.getOperation("attributes"),
+            (Object[]) BenchmarkMessages.getBody("attributes"));
+  }
+}
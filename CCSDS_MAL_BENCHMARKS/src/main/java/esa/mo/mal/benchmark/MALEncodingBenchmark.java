@@ -0,0 +1,212 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Benchmarks
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.benchmark;
+
+import esa.mo.mal.transport.gen.GENMessageHeader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+import org.ccsds.moims.mo.mal.MALException;
+import org.ccsds.moims.mo.mal.encoding.MALElementInputStream;
+import org.ccsds.moims.mo.mal.encoding.MALElementOutputStream;
+import org.ccsds.moims.mo.mal.encoding.MALElementStreamFactory;
+import org.ccsds.moims.mo.mal.encoding.MALEncodingContext;
+import org.ccsds.moims.mo.mal.structures.Element;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the encode and decode throughput of each encoding for the message header and for the body payloads of
+ * BenchmarkMessages, using the element streams directly as the GEN transport does.
+ *
+ * The encode benchmarks report the encoded bytes as a secondary result, so the encoded size of a payload is the
+ * encodedBytes rate divided by the operation rate. Allocation rates are obtained by running with the GC profiler, for
+ * example: {@code java -jar target/benchmarks.jar MALEncodingBenchmark -prof gc}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MALEncodingBenchmark
+{
+  /**
+   * The encoding under test.
+   */
+  @Param(
+  {
+    "binary", "bufferedbinary", "splitbinary", "fixedbinary", "spp", "string", "line"
+  })
+  public String encoding;
+
+  /**
+   * The body payload, see BenchmarkMessages.
+   */
+  @Param(
+  {
+    "attributes", "lists", "composites"
+  })
+  public String payload;
+
+  private MALElementStreamFactory streamFactory;
+  private GENMessageHeader header;
+  private Element[] body;
+  private MALEncodingContext ctx;
+  private byte[] encodedHeader;
+  private byte[] encodedBody;
+
+  /**
+   * Creates the stream factory and pre-encodes the header and body for the decode benchmarks.
+   *
+   * @throws MALException on error.
+   */
+  @Setup(Level.Trial)
+  public void setup() throws MALException
+  {
+    BenchmarkMessages.init();
+
+    streamFactory = BenchmarkMessages.createStreamFactory(encoding);
+    header = BenchmarkMessages.createHeader(payload, 1234567L);
+    body = BenchmarkMessages.getBody(payload);
+    ctx = new MALEncodingContext(header, BenchmarkMessages.getOperation(payload), 0, null, null);
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    writeHeader(baos);
+    encodedHeader = baos.toByteArray();
+
+    baos.reset();
+    writeBody(baos);
+    encodedBody = baos.toByteArray();
+  }
+
+  /**
+   * Secondary results of the encode benchmarks.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class EncodedSize
+  {
+    /**
+     * The number of bytes encoded.
+     */
+    public long encodedBytes;
+  }
+
+  /**
+   * Encodes the message header.
+   *
+   * @param size The encoded size counter.
+   * @return the encoded header.
+   * @throws MALException on error.
+   */
+  @Benchmark
+  public ByteArrayOutputStream encodeHeader(EncodedSize size) throws MALException
+  {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream(256);
+    writeHeader(baos);
+    size.encodedBytes += baos.size();
+    return baos;
+  }
+
+  /**
+   * Decodes the message header.
+   *
+   * @return the decoded header.
+   * @throws MALException on error.
+   */
+  @Benchmark
+  public Object decodeHeader() throws MALException
+  {
+    final GENMessageHeader hdr = new GENMessageHeader();
+    final MALElementInputStream is = streamFactory.createInputStream(new ByteArrayInputStream(encodedHeader));
+
+    return is.readElement(hdr, new MALEncodingContext(hdr, null, 0, null, null));
+  }
+
+  /**
+   * Encodes the body payload.
+   *
+   * @param size The encoded size counter.
+   * @return the encoded body.
+   * @throws MALException on error.
+   */
+  @Benchmark
+  public ByteArrayOutputStream encodeBody(EncodedSize size) throws MALException
+  {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream(256);
+    writeBody(baos);
+    size.encodedBytes += baos.size();
+    return baos;
+  }
+
+  /**
+   * Decodes the body payload.
+   *
+   * @param bh The black hole for the decoded elements.
+   * @throws MALException on error.
+   */
+  @Benchmark
+  public void decodeBody(Blackhole bh) throws MALException
+  {
+    final MALElementInputStream is = streamFactory.createInputStream(new ByteArrayInputStream(encodedBody));
+    final MALEncodingContext lctx = new MALEncodingContext(header, ctx.getOperation(), 0, null, null);
+
+    for (int i = 0; i < body.length; i++)
+    {
+      lctx.setBodyElementIndex(i);
+      bh.consume(is.readElement(body[i].createElement(), lctx));
+    }
+  }
+
+  private void writeHeader(final ByteArrayOutputStream baos) throws MALException
+  {
+    final MALElementOutputStream os = streamFactory.createOutputStream(baos);
+    os.writeElement(header, new MALEncodingContext(header, null, 0, null, null));
+    os.close();
+  }
+
+  private void writeBody(final ByteArrayOutputStream baos) throws MALException
+  {
+    final MALElementOutputStream os = streamFactory.createOutputStream(baos);
+    final MALEncodingContext lctx = new MALEncodingContext(header, ctx.getOperation(), 0, null, null);
+
+    for (int i = 0; i < body.length; i++)
+    {
+      lctx.setBodyElementIndex(i);
+      os.writeElement(body[i], lctx);
+    }
+
+    os.close();
+  }
+}
@@ -23,6 +23,7 @@ package esa.mo.mal.encoder.binary;
 import esa.mo.mal.encoder.gen.GENDecoder;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.List;
@@ -69,6 +70,40 @@ public class BinaryDecoder extends GENDecoder
     super(new BinaryBufferHolder(null, src, offset, src.length));
   }
 
+  /**
+   * Constructor.
+   *
+   * @param src Byte array to read from.
+   * @param offset index in array to start reading from.
+   * @param zeroCopy True if decoded Blobs, and the remaining encoded data, share the array rather than copy it.
+   */
+  public BinaryDecoder(final byte[] src, final int offset, final boolean zeroCopy)
+  {
+    super(new BinaryBufferHolder(null, src, offset, src.length, zeroCopy));
+  }
+
+  /**
+   * Constructor. Decodes the remaining contents of the buffer in place, without copying them.
+   *
+   * @param src Buffer to read from, from its position to its limit.
+   */
+  public BinaryDecoder(final ByteBuffer src)
+  {
+    super(createBufferHolder(src, false));
+  }
+
+  /**
+   * Constructor. Decodes the remaining contents of the buffer in place, without copying them.
+   *
+   * @param src Buffer to read from, from its position to its limit.
+   * @param zeroCopy True if decoded Blobs, and the remaining encoded data, share the backing array of the buffer rather
+   * than copy it. Buffers without an accessible array are always copied from.
+   */
+  public BinaryDecoder(final ByteBuffer src, final boolean zeroCopy)
+  {
+    super(createBufferHolder(src, zeroCopy));
+  }
+
   /**
    * Constructor.
    *
@@ -116,6 +151,18 @@ public class BinaryDecoder extends GENDecoder
     return null;
   }
 
+  @Override
+  public void skipNullableIdentifier() throws MALException
+  {
+    sourceBuffer.skipString();
+  }
+
+  @Override
+  public void skipNullableURI() throws MALException
+  {
+    sourceBuffer.skipString();
+  }
+
   @Override
   public URI decodeNullableURI() throws MALException
   {
@@ -134,7 +181,7 @@ public class BinaryDecoder extends GENDecoder
     final int len = sourceBuffer.getSignedInt();
     if (len >= 0)
     {
-      return new Blob(sourceBuffer.directGetBytes(len));
+      return sourceBuffer.directGetBlob(len);
     }
 
     return null;
@@ -155,8 +202,25 @@ public class BinaryDecoder extends GENDecoder
   @Override
   public byte[] getRemainingEncodedData() throws MALException
   {
-    BinaryBufferHolder dSourceBuffer = (BinaryBufferHolder)sourceBuffer;
-    return Arrays.copyOfRange(dSourceBuffer.buf, dSourceBuffer.offset, dSourceBuffer.contentLength);
+    return ((BinaryBufferHolder) sourceBuffer).getRemainingData();
+  }
+
+  @Override
+  public Blob getRemainingEncodedBlob() throws MALException
+  {
+    return ((BinaryBufferHolder) sourceBuffer).getRemainingBlob();
+  }
+
+  private static BufferHolder createBufferHolder(final ByteBuffer src, final boolean zeroCopy)
+  {
+    if (src.hasArray())
+    {
+      // heap buffers are read through their backing array
+      return new BinaryBufferHolder(null, src.array(),
+              src.arrayOffset() + src.position(), src.arrayOffset() + src.limit(), zeroCopy);
+    }
+
+    return new BinaryByteBufferHolder(src);
   }
 
   /**
@@ -170,6 +234,7 @@ public class BinaryDecoder extends GENDecoder
     protected int offset;
     protected int contentLength;
     protected boolean forceRealloc = false;
+    protected final boolean zeroCopy;
 
     /**
      * Constructor.
@@ -180,12 +245,32 @@ public class BinaryDecoder extends GENDecoder
      * @param length Length of readable data held in the array, which may be larger.
      */
     public BinaryBufferHolder(final java.io.InputStream is, final byte[] buf, final int offset, final int length)
+    {
+      this(is, buf, offset, length, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param is Input stream to read from.
+     * @param buf Source buffer to use.
+     * @param offset Buffer offset to read from next.
+     * @param length Length of readable data held in the array, which may be larger.
+     * @param zeroCopy True if Blobs share the source array rather than copy it, ignored when reading from a stream as
+     * its array is reused.
+     */
+    public BinaryBufferHolder(final java.io.InputStream is,
+            final byte[] buf,
+            final int offset,
+            final int length,
+            final boolean zeroCopy)
     {
       super();
       this.inputStream = is;
       this.buf = buf;
       this.offset = offset;
       this.contentLength = length;
+      this.zeroCopy = zeroCopy && (null == is);
     }
 
     @Override
@@ -204,6 +289,18 @@ public class BinaryDecoder extends GENDecoder
       return null;
     }
 
+    @Override
+    public void skipString() throws MALException
+    {
+      final int len = getSignedInt();
+
+      if (len > 0)
+      {
+        checkBuffer(len);
+        offset += len;
+      }
+    }
+
     @Override
     public long getSignedLong() throws MALException
     {
@@ -229,6 +326,23 @@ public class BinaryDecoder extends GENDecoder
     @Override
     public long getUnsignedLong() throws MALException
     {
+      if ((null != buf) && (10 <= (contentLength - offset)))
+      {
+        // the longest value is already loaded, so read straight from the array
+        final byte[] b = buf;
+        int pos = offset;
+        long value = 0L;
+        int i = 0;
+        long t;
+        while ((t = b[pos++]) < 0)
+        {
+          value |= (t & 0x7F) << i;
+          i += 7;
+        }
+        offset = pos;
+        return value | (t << i);
+      }
+
       long value = 0L;
       int i = 0;
       long b;
@@ -249,6 +363,53 @@ public class BinaryDecoder extends GENDecoder
     @Override
     public int getUnsignedInt() throws MALException
     {
+      if ((null != buf) && (5 <= (contentLength - offset)))
+      {
+        // the longest value is already loaded, so read straight from the array
+        final byte[] b = buf;
+        int pos = offset;
+        int value = b[pos++];
+        if (0 <= value)
+        {
+          offset = pos;
+          return value;
+        }
+
+        value &= 0x7F;
+        int t = b[pos++];
+        if (0 <= t)
+        {
+          offset = pos;
+          return value | (t << 7);
+        }
+
+        value |= (t & 0x7F) << 7;
+        t = b[pos++];
+        if (0 <= t)
+        {
+          offset = pos;
+          return value | (t << 14);
+        }
+
+        value |= (t & 0x7F) << 14;
+        t = b[pos++];
+        if (0 <= t)
+        {
+          offset = pos;
+          return value | (t << 21);
+        }
+
+        value |= (t & 0x7F) << 21;
+        t = b[pos++];
+        if (0 <= t)
+        {
+          offset = pos;
+          return value | (t << 28);
+        }
+
+        // malformed, longer than five bytes, so fall back to the general loop below
+      }
+
       int value = 0;
       int i = 0;
       int b;
@@ -292,6 +453,28 @@ public class BinaryDecoder extends GENDecoder
       return directGetBytes(getSignedInt());
     }
 
+    @Override
+    public Blob getBlob() throws MALException
+    {
+      return directGetBlob(getSignedInt());
+    }
+
+    @Override
+    public Blob directGetBlob(final int size) throws MALException
+    {
+      if (zeroCopy && (size >= 0))
+      {
+        checkBuffer(size);
+
+        // the Blob shares the source array, which the owner of the source must not modify while it is in use
+        final Blob v = new Blob(buf, offset, size);
+        offset += size;
+        return v;
+      }
+
+      return new Blob(directGetBytes(size));
+    }
+
     @Override
     public boolean getBool() throws MALException
     {
@@ -402,6 +585,31 @@ public class BinaryDecoder extends GENDecoder
       }
     }
 
+    /**
+     * Returns a copy of the data that has not yet been decoded.
+     *
+     * @return the remaining data.
+     */
+    protected byte[] getRemainingData()
+    {
+      return Arrays.copyOfRange(buf, offset, contentLength);
+    }
+
+    /**
+     * Returns a Blob holding the data that has not yet been decoded, sharing the source array if zero copy is set.
+     *
+     * @return the remaining data.
+     */
+    protected Blob getRemainingBlob()
+    {
+      if (zeroCopy)
+      {
+        return new Blob(buf, offset, contentLength - offset);
+      }
+
+      return new Blob(getRemainingData());
+    }
+
     /**
      * Returns the internal byte buffer.
      *
@@ -436,4 +644,81 @@ public class BinaryDecoder extends GENDecoder
       // no implementation for standard decoder
     }
   }
+
+  /**
+   * Buffer holder that reads from a ByteBuffer that has no accessible backing array, such as a direct buffer. The
+   * offset and content length hold absolute positions in the buffer.
+   */
+  protected static class BinaryByteBufferHolder extends BinaryBufferHolder
+  {
+    protected final ByteBuffer byteBuffer;
+
+    /**
+     * Constructor.
+     *
+     * @param byteBuffer Source buffer to read from, from its position to its limit.
+     */
+    public BinaryByteBufferHolder(final ByteBuffer byteBuffer)
+    {
+      super(null, null, byteBuffer.position(), byteBuffer.limit());
+      this.byteBuffer = byteBuffer;
+    }
+
+    @Override
+    public String getString() throws MALException
+    {
+      final int len = getSignedInt();
+
+      if (len >= 0)
+      {
+        return new String(directGetBytes(len), UTF8_CHARSET);
+      }
+      return null;
+    }
+
+    @Override
+    public byte get8() throws MALException
+    {
+      checkBuffer(1);
+
+      return byteBuffer.get(offset++);
+    }
+
+    @Override
+    public byte[] directGetBytes(final int size) throws MALException
+    {
+      if (size >= 0)
+      {
+        checkBuffer(size);
+
+        final byte[] v = new byte[size];
+        final ByteBuffer src = byteBuffer.duplicate();
+        src.position(offset);
+        src.get(v);
+        offset += size;
+        return v;
+      }
+
+      throw new IllegalArgumentException("Size must not be negative");
+    }
+
+    @Override
+    protected void checkBuffer(final int requiredLength) throws MALException
+    {
+      if ((contentLength - offset) < requiredLength)
+      {
+        throw new MALException("Unable to read required amount from source buffer");
+      }
+    }
+
+    @Override
+    protected byte[] getRemainingData()
+    {
+      final byte[] v = new byte[contentLength - offset];
+      final ByteBuffer src = byteBuffer.duplicate();
+      src.position(offset);
+      src.get(v);
+      return v;
+    }
+  }
 }
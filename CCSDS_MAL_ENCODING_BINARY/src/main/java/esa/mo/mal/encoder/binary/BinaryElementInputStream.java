@@ -47,6 +47,39 @@ public class BinaryElementInputStream extends esa.mo.mal.encoder.gen.GENElementI
     super(new BinaryDecoder(buf, offset));
   }
 
+  /**
+   * Constructor.
+   *
+   * @param buf Byte buffer to read from.
+   * @param offset Offset into buffer to start from.
+   * @param zeroCopy True if decoded Blobs share the buffer rather than copy it.
+   */
+  public BinaryElementInputStream(final byte[] buf, final int offset, final boolean zeroCopy)
+  {
+    super(new BinaryDecoder(buf, offset, zeroCopy));
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param buf Byte buffer to read from, from its position to its limit.
+   */
+  public BinaryElementInputStream(final java.nio.ByteBuffer buf)
+  {
+    super(new BinaryDecoder(buf));
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param buf Byte buffer to read from, from its position to its limit.
+   * @param zeroCopy True if decoded Blobs share the backing array of the buffer rather than copy it.
+   */
+  public BinaryElementInputStream(final java.nio.ByteBuffer buf, final boolean zeroCopy)
+  {
+    super(new BinaryDecoder(buf, zeroCopy));
+  }
+
   /**
    * Sub class constructor.
    *
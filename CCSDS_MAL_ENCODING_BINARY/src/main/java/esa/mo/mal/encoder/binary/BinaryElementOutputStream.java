@@ -26,19 +26,33 @@ package esa.mo.mal.encoder.binary;
  */
 public class BinaryElementOutputStream extends esa.mo.mal.encoder.gen.GENElementOutputStream
 {
+  private final boolean buffered;
+
   /**
    * Constructor.
    *
    * @param os Output stream to write to.
    */
   public BinaryElementOutputStream(final java.io.OutputStream os)
+  {
+    this(os, false);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param os Output stream to write to.
+   * @param buffered True if the encoder should buffer its output internally.
+   */
+  public BinaryElementOutputStream(final java.io.OutputStream os, final boolean buffered)
   {
     super(os);
+    this.buffered = buffered;
   }
 
   @Override
   protected esa.mo.mal.encoder.gen.GENEncoder createEncoder(java.io.OutputStream os)
   {
-    return new BinaryEncoder(os);
+    return new BinaryEncoder(os, buffered);
   }
 }
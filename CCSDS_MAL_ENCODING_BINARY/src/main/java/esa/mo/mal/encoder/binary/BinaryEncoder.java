@@ -45,6 +45,18 @@ public class BinaryEncoder extends GENEncoder
     super(new BinaryStreamHolder(os));
   }
 
+  /**
+   * Constructor.
+   *
+   * @param os Output stream to write to.
+   * @param buffered True if the encoded data should be collected in an internal buffer and written to the stream in
+   * large chunks. The data is only guaranteed to be in the stream after a flush or close.
+   */
+  public BinaryEncoder(final OutputStream os, final boolean buffered)
+  {
+    super(new BinaryStreamHolder(os, buffered));
+  }
+
   /**
    * Constructor for derived classes that have their own stream holder implementation that should be used.
    *
@@ -172,17 +184,37 @@ public class BinaryEncoder extends GENEncoder
 
   /**
    * Internal class for accessing the binary stream. Overridden by sub-classes to alter the low level encoding.
+   *
+   * In buffered mode the encoded bytes, including whole varints, are written into an internal array which is written to
+   * the stream when full, flushed or closed. Sub-classes that override the directAdd methods should not use buffered
+   * mode.
    */
   public static class BinaryStreamHolder extends StreamHolder
   {
+    private static final int BUFFER_SIZE = 8192;
+    private final byte[] buffer;
+    private int bufferPos = 0;
+
     /**
      * Constructor.
      *
      * @param outputStream the stream to encode in to.
      */
     public BinaryStreamHolder(OutputStream outputStream)
+    {
+      this(outputStream, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param outputStream the stream to encode in to.
+     * @param buffered True if the encoded data should be buffered internally.
+     */
+    public BinaryStreamHolder(OutputStream outputStream, boolean buffered)
     {
       super(outputStream);
+      this.buffer = buffered ? new byte[BUFFER_SIZE] : null;
     }
 
     @Override
@@ -244,6 +276,20 @@ public class BinaryEncoder extends GENEncoder
     @Override
     public void addUnsignedLong(long value) throws IOException
     {
+      if (null != buffer)
+      {
+        // at most 10 bytes, written straight into the buffer
+        ensureBufferSpace(10);
+
+        while ((value & -128L) != 0L)
+        {
+          buffer[bufferPos++] = (byte) (((int) value & 127) | 128);
+          value >>>= 7;
+        }
+        buffer[bufferPos++] = (byte) ((int) value & 127);
+        return;
+      }
+
       while ((value & -128L) != 0L)
       {
         directAdd((byte) (((int) value & 127) | 128));
@@ -261,6 +307,20 @@ public class BinaryEncoder extends GENEncoder
     @Override
     public void addUnsignedInt(int value) throws IOException
     {
+      if (null != buffer)
+      {
+        // at most 5 bytes, written straight into the buffer
+        ensureBufferSpace(5);
+
+        while ((value & -128) != 0)
+        {
+          buffer[bufferPos++] = (byte) ((value & 127) | 128);
+          value >>>= 7;
+        }
+        buffer[bufferPos++] = (byte) value;
+        return;
+      }
+
       while ((value & -128) != 0L)
       {
         directAdd((byte) ((value & 127) | 128));
@@ -317,5 +377,81 @@ public class BinaryEncoder extends GENEncoder
     {
       directAdd((byte) 0);
     }
+
+    @Override
+    public void directAdd(final byte[] value) throws IOException
+    {
+      directAdd(value, 0, value.length);
+    }
+
+    @Override
+    public void directAdd(final byte[] value, int os, int ln) throws IOException
+    {
+      if (null == buffer)
+      {
+        outputStream.write(value, os, ln);
+      }
+      else if (ln <= (buffer.length - bufferPos))
+      {
+        System.arraycopy(value, os, buffer, bufferPos, ln);
+        bufferPos += ln;
+      }
+      else
+      {
+        // too big for the remaining space, write what we have and then the value directly
+        flushBuffer();
+        outputStream.write(value, os, ln);
+      }
+    }
+
+    @Override
+    public void directAdd(final byte value) throws IOException
+    {
+      if (null == buffer)
+      {
+        outputStream.write(value);
+      }
+      else
+      {
+        ensureBufferSpace(1);
+        buffer[bufferPos++] = value;
+      }
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+      flushBuffer();
+      super.flush();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+      flushBuffer();
+      super.close();
+    }
+
+    /**
+     * Writes the contents of the internal buffer, if any, to the output stream.
+     *
+     * @throws IOException if there is an error writing to the stream.
+     */
+    protected void flushBuffer() throws IOException
+    {
+      if (0 < bufferPos)
+      {
+        outputStream.write(buffer, 0, bufferPos);
+        bufferPos = 0;
+      }
+    }
+
+    private void ensureBufferSpace(final int length) throws IOException
+    {
+      if ((buffer.length - bufferPos) < length)
+      {
+        flushBuffer();
+      }
+    }
   }
 }
@@ -20,9 +20,11 @@
  */
 package esa.mo.mal.encoder.binary;
 
+import esa.mo.mal.encoder.gen.GENBufferInputStreamFactory;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.Map;
 import org.ccsds.moims.mo.mal.MALException;
 import org.ccsds.moims.mo.mal.encoding.MALElementInputStream;
@@ -34,18 +36,44 @@ import org.ccsds.moims.mo.mal.structures.Blob;
 /**
  * Implements the MALElementStreamFactory interface for a binary encoding.
  */
-public class BinaryStreamFactory extends MALElementStreamFactory
+public class BinaryStreamFactory extends MALElementStreamFactory implements GENBufferInputStreamFactory
 {
+  /**
+   * Property to enable buffering of the encoded output inside the encoder, so that small fields such as those of the
+   * message header are written to the output stream in large chunks.
+   */
+  public static final String BUFFERED_OUTPUT = "esa.mo.mal.encoding.binary.bufferedOutput";
+  /**
+   * Property to enable zero copy decoding, where decoded Blobs and encoded message bodies share the array being decoded
+   * instead of copying their bytes out of it. They are then only valid while that array is, for a transport message
+   * until the message is freed, and must not be modified.
+   */
+  public static final String ZERO_COPY = "esa.mo.mal.encoding.binary.zeroCopy";
+  private boolean bufferedOutput = false;
+  private boolean zeroCopy = false;
+
   @Override
   protected void init(final String protocol, final Map properties) throws IllegalArgumentException, MALException
   {
-    // nothing required here
+    if ((null != properties)
+            && properties.containsKey(BUFFERED_OUTPUT)
+            && Boolean.parseBoolean((String) properties.get(BUFFERED_OUTPUT)))
+    {
+      bufferedOutput = true;
+    }
+
+    if ((null != properties)
+            && properties.containsKey(ZERO_COPY)
+            && Boolean.parseBoolean((String) properties.get(ZERO_COPY)))
+    {
+      zeroCopy = true;
+    }
   }
 
   @Override
   public MALElementInputStream createInputStream(final byte[] bytes, final int offset)
   {
-    return new BinaryElementInputStream(bytes, offset);
+    return new BinaryElementInputStream(bytes, offset, zeroCopy);
   }
 
   @Override
@@ -54,10 +82,16 @@ public class BinaryStreamFactory extends MALElementStreamFactory
     return new BinaryElementInputStream(is);
   }
 
+  @Override
+  public MALElementInputStream createInputStream(final ByteBuffer buffer) throws MALException
+  {
+    return new BinaryElementInputStream(buffer, zeroCopy);
+  }
+
   @Override
   public MALElementOutputStream createOutputStream(final OutputStream os) throws MALException
   {
-    return new BinaryElementOutputStream(os);
+    return new BinaryElementOutputStream(os, bufferedOutput);
   }
 
   @Override
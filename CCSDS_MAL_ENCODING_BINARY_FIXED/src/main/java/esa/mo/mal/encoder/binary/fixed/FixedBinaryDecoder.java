@@ -75,7 +75,8 @@ public class FixedBinaryDecoder extends esa.mo.mal.encoder.binary.BinaryDecoder
   }
 
   /**
-   * Internal class that implements the fixed length field decoding.
+   * Internal class that implements the fixed length field decoding. Fields are read most significant byte first
+   * straight from the buffer.
    */
   protected static class FixedBufferHolder extends BinaryBufferHolder
   {
@@ -95,42 +96,31 @@ public class FixedBinaryDecoder extends esa.mo.mal.encoder.binary.BinaryDecoder
     @Override
     public long getUnsignedLong() throws MALException
     {
-      checkBuffer(8);
-      final int i = shiftOffsetAndReturnPrevious(8);
-      return java.nio.ByteBuffer.wrap(getBuf(), i, 8).getLong();
+      return getBigEndian(8);
     }
 
     @Override
     public long getUnsignedLong32() throws MALException
     {
-      checkBuffer(4);
-
-      final int i = shiftOffsetAndReturnPrevious(4);
-      return java.nio.ByteBuffer.wrap(getBuf(), i, 4).getInt() & 0xFFFFFFFFL;
+      return getBigEndian(4);
     }
 
     @Override
     public int getUnsignedInt() throws MALException
     {
-      checkBuffer(4);
-      final int i = shiftOffsetAndReturnPrevious(4);
-      return java.nio.ByteBuffer.wrap(getBuf(), i, 4).getInt();
+      return (int) getBigEndian(4);
     }
 
     @Override
     public int getUnsignedInt16() throws MALException
     {
-      checkBuffer(2);
-      final int i = shiftOffsetAndReturnPrevious(2);
-      return java.nio.ByteBuffer.wrap(getBuf(), i, 2).getShort() & 0xFFFF;
+      return (int) getBigEndian(2);
     }
 
     @Override
     public int getUnsignedShort() throws MALException
     {
-      checkBuffer(2);
-      final int i = shiftOffsetAndReturnPrevious(2);
-      return java.nio.ByteBuffer.wrap(getBuf(), i, 2).getShort();
+      return (short) getBigEndian(2);
     }
 
     @Override
@@ -156,5 +146,28 @@ public class FixedBinaryDecoder extends esa.mo.mal.encoder.binary.BinaryDecoder
     {
       return getUnsignedLong();
     }
+
+    /**
+     * Reads an unsigned value stored most significant byte first.
+     *
+     * @param length the number of bytes to read, from 1 to 8.
+     * @return the value.
+     * @throws MALException if there are not enough bytes to read.
+     */
+    public long getBigEndian(final int length) throws MALException
+    {
+      checkBuffer(length);
+
+      final byte[] b = getBuf();
+      final int start = shiftOffsetAndReturnPrevious(length);
+      long value = 0;
+
+      for (int i = start; i < start + length; i++)
+      {
+        value = (value << 8) | (b[i] & 0xFF);
+      }
+
+      return value;
+    }
   }
 }
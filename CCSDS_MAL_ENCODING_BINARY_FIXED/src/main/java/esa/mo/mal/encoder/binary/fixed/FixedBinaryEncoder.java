@@ -49,10 +49,13 @@ public class FixedBinaryEncoder extends esa.mo.mal.encoder.binary.BinaryEncoder
   }
 
   /**
-   * Extends the StreamHolder class for handling fixed length, non-zig-zag encoded, fields.
+   * Extends the StreamHolder class for handling fixed length, non-zig-zag encoded, fields. Fields are written most
+   * significant byte first through a small array reused for every field, so that no array is allocated per field.
    */
   public static class FixedStreamHolder extends BinaryStreamHolder
   {
+    private final byte[] fieldBuffer = new byte[8];
+
     /**
      * Constructor.
      * 
@@ -84,37 +87,55 @@ public class FixedBinaryEncoder extends esa.mo.mal.encoder.binary.BinaryEncoder
     @Override
     public void addUnsignedLong(long value) throws IOException
     {
-      directAdd(java.nio.ByteBuffer.allocate(8).putLong(value).array());
+      addBigEndian(value, 8);
     }
 
     @Override
     public void addUnsignedLong32(long value) throws IOException
     {
-      directAdd(java.nio.ByteBuffer.allocate(8).putLong(value).array(), 4, 4);
+      addBigEndian(value, 4);
     }
 
     @Override
     public void addUnsignedInt(int value) throws IOException
     {
-      directAdd(java.nio.ByteBuffer.allocate(4).putInt(value).array());
+      addBigEndian(value, 4);
     }
 
     @Override
     public void addUnsignedInt16(int value) throws IOException
     {
-      directAdd(java.nio.ByteBuffer.allocate(4).putInt(value).array(), 2, 2);
+      addBigEndian(value, 2);
     }
 
     @Override
     public void addUnsignedShort(int value) throws IOException
     {
-      directAdd(java.nio.ByteBuffer.allocate(2).putShort((short)value).array());
+      addBigEndian(value, 2);
     }
 
     @Override
     public void addUnsignedShort8(short value) throws IOException
     {
-      directAdd(java.nio.ByteBuffer.allocate(2).putShort(value).array()[1]);
+      directAdd((byte) value);
+    }
+
+    /**
+     * Adds the low order bytes of a value, most significant byte first.
+     *
+     * @param value the value to encode.
+     * @param length the number of bytes to add, from 1 to 8.
+     * @throws IOException is there is a problem adding the value to the stream.
+     */
+    public void addBigEndian(long value, final int length) throws IOException
+    {
+      for (int i = length - 1; i >= 0; i--)
+      {
+        fieldBuffer[i] = (byte) value;
+        value >>>= 8;
+      }
+
+      directAdd(fieldBuffer, 0, length);
     }
   }
 }
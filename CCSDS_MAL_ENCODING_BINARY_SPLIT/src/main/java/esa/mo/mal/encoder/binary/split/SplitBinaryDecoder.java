@@ -173,7 +173,8 @@ public class SplitBinaryDecoder extends esa.mo.mal.encoder.binary.BinaryDecoder
   }
 
   /**
-   * Simple helper class for dealing with bit array. Smaller and faster than Java BitSet.
+   * Simple helper class for dealing with bit array. Smaller and faster than Java BitSet. The bits are read a long word
+   * at a time, bit n of the array being bit n % 8 of byte n / 8, to match the long word storage of the encoder.
    */
   protected static class BitGet
   {
@@ -181,7 +182,8 @@ public class SplitBinaryDecoder extends esa.mo.mal.encoder.binary.BinaryDecoder
     private final int bitBytesOffset;
     private final int bitBytesInUse;
     private int byteIndex = 0;
-    private int bitIndex = 0;
+    private long word = 0;
+    private int bitsInWord = 0;
 
     /**
      * Constructor.
@@ -204,19 +206,34 @@ public class SplitBinaryDecoder extends esa.mo.mal.encoder.binary.BinaryDecoder
      */
     public boolean pop()
     {
-      boolean rv = (byteIndex < bitBytesInUse) && ((bitBytes[byteIndex + bitBytesOffset] & (1 << bitIndex)) != 0);
-
-      if (7 == bitIndex)
+      if (0 == bitsInWord)
       {
-        bitIndex = 0;
-        ++byteIndex;
+        loadWord();
       }
-      else
+
+      boolean rv = (word & 1L) != 0;
+      word >>>= 1;
+      --bitsInWord;
+
+      return rv;
+    }
+
+    /**
+     * Loads the next long word of bits, least significant byte first, bits past the end of the array being '0'.
+     */
+    private void loadWord()
+    {
+      final int count = Math.min(8, bitBytesInUse - byteIndex);
+      long lWord = 0;
+
+      for (int i = 0; i < count; i++)
       {
-        ++bitIndex;
+        lWord |= (bitBytes[bitBytesOffset + byteIndex + i] & 0xFFL) << (i << 3);
       }
 
-      return rv;
+      word = lWord;
+      bitsInWord = 64;
+      byteIndex += 8;
     }
   }
 }
@@ -25,19 +25,33 @@ package esa.mo.mal.encoder.binary.split;
  */
 public class SplitBinaryElementOutputStream extends esa.mo.mal.encoder.binary.BinaryElementOutputStream
 {
+  private final boolean recycle;
+
   /**
    * Constructor.
    *
    * @param os Output stream to write to.
    */
   public SplitBinaryElementOutputStream(final java.io.OutputStream os)
+  {
+    this(os, false);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param os Output stream to write to.
+   * @param recycle True if the encoder should recycle its buffers across the encoders of the same thread.
+   */
+  public SplitBinaryElementOutputStream(final java.io.OutputStream os, final boolean recycle)
   {
     super(os);
+    this.recycle = recycle;
   }
 
   @Override
   protected esa.mo.mal.encoder.gen.GENEncoder createEncoder(java.io.OutputStream os)
   {
-    return new SplitBinaryEncoder(os);
+    return new SplitBinaryEncoder(os, recycle);
   }
 }
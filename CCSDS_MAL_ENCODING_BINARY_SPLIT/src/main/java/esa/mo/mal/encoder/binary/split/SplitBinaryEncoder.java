@@ -41,6 +41,17 @@ public class SplitBinaryEncoder extends esa.mo.mal.encoder.binary.BinaryEncoder
     super(new SplitStreamHolder(os));
   }
 
+  /**
+   * Constructor.
+   *
+   * @param os Output stream to write to.
+   * @param recycle True if the encoder should recycle its buffers across the encoders of the same thread.
+   */
+  public SplitBinaryEncoder(final OutputStream os, final boolean recycle)
+  {
+    super(new SplitStreamHolder(os, recycle));
+  }
+
   @Override
   public org.ccsds.moims.mo.mal.MALListEncoder createListEncoder(final java.util.List value) throws MALException
   {
@@ -102,15 +113,25 @@ public class SplitBinaryEncoder extends esa.mo.mal.encoder.binary.BinaryEncoder
   }
 
   /**
-   * Extends the StreamHolder class for handling splitting out the Boolean values.
+   * Extends the StreamHolder class for handling splitting out the Boolean values. The values are held until the
+   * holder is closed, then the bit field length and bit field are written with a single write followed by the values.
+   *
+   * Bits are stored in long words, bit n of the bit field being bit n % 64 of word n / 64, which are written out least
+   * significant byte first so that the encoding is the same as when stored in bytes.
+   *
+   * In recycling mode the bit words and value buffer are taken from the current thread when the holder is created and
+   * handed back when it is closed, so that encoding a message does not allocate them. A holder created while another
+   * is open on the same thread, such as for a wrapped body part, allocates its own.
    */
   public static class SplitStreamHolder extends BinaryStreamHolder
   {
-    private static final int BIT_BYTES_BLOCK_SIZE = 1024;
-    private final java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
-    private byte[] bitBytes = new byte[BIT_BYTES_BLOCK_SIZE];
-    private int bitBytesInUse = 0;
+    private static final int BIT_WORDS_BLOCK_SIZE = 128;
+    private static final int MAX_RECYCLED_SIZE = 1024 * 1024;
+    private static final ThreadLocal<SplitBuffers> RECYCLED_BUFFERS = new ThreadLocal<SplitBuffers>();
+    private final boolean recycle;
+    private SplitBuffers buffers;
     private int bitIndex = 0;
+    private int bitsInUse = 0;
 
     /**
      * Constructor.
@@ -118,16 +139,51 @@ public class SplitBinaryEncoder extends esa.mo.mal.encoder.binary.BinaryEncoder
      * @param outputStream The output stream to encode into.
      */
     public SplitStreamHolder(OutputStream outputStream)
+    {
+      this(outputStream, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param outputStream The output stream to encode into.
+     * @param recycle True if the buffers should be recycled across holders of the same thread.
+     */
+    public SplitStreamHolder(OutputStream outputStream, boolean recycle)
     {
       super(outputStream);
+      this.recycle = recycle;
+      this.buffers = recycle ? takeBuffers() : new SplitBuffers();
     }
 
     @Override
     public void close() throws IOException
     {
-      streamAddUnsignedInt(outputStream, bitBytesInUse);
-      outputStream.write(bitBytes, 0, bitBytesInUse);
-      baos.writeTo(outputStream);
+      if (null == buffers)
+      {
+        return;
+      }
+
+      final SplitBuffers lBuffers = buffers;
+      buffers = null;
+      final int bitBytesInUse = (bitsInUse + 7) >>> 3;
+
+      // gather the bit field length and the bit field so that they are written together
+      final byte[] head = lBuffers.getHead(5 + bitBytesInUse);
+      int pos = putUnsignedInt(head, 0, bitBytesInUse);
+
+      for (int i = 0; i < bitBytesInUse; i++)
+      {
+        head[pos++] = (byte) (lBuffers.bitWords[i >>> 3] >>> ((i & 7) << 3));
+      }
+
+      outputStream.write(head, 0, pos);
+      lBuffers.writeTo(outputStream);
+
+      if (recycle)
+      {
+        releaseBuffers(lBuffers, bitsInUse);
+      }
     }
 
     @Override
@@ -157,42 +213,109 @@ public class SplitBinaryEncoder extends esa.mo.mal.encoder.binary.BinaryEncoder
     @Override
     public void directAdd(final byte[] val) throws IOException
     {
-      baos.write(val);
+      buffers.write(val);
+    }
+
+    @Override
+    public void directAdd(final byte[] val, int os, int ln) throws IOException
+    {
+      buffers.write(val, os, ln);
     }
 
     @Override
     public void directAdd(final byte val) throws IOException
     {
-      baos.write(val);
+      buffers.write(val);
     }
 
-    private static void streamAddUnsignedInt(java.io.OutputStream os, int value) throws IOException
+    private static int putUnsignedInt(byte[] buf, int pos, int value)
     {
       while ((value & 0xFFFFFF80) != 0L)
       {
-        os.write((value & 0x7F) | 0x80);
+        buf[pos++] = (byte) ((value & 0x7F) | 0x80);
         value >>>= 7;
       }
-      os.write(value & 0x7F);
+      buf[pos++] = (byte) (value & 0x7F);
+      return pos;
     }
 
     private void setBit(int bitIndex)
     {
-      int byteIndex = bitIndex / 8;
+      final int wordIndex = bitIndex >>> 6;
+
+      if (buffers.bitWords.length <= wordIndex)
+      {
+        buffers.bitWords = java.util.Arrays.copyOf(buffers.bitWords,
+                ((wordIndex / BIT_WORDS_BLOCK_SIZE) + 1) * BIT_WORDS_BLOCK_SIZE);
+      }
+
+      if (bitsInUse <= bitIndex)
+      {
+        bitsInUse = bitIndex + 1;
+      }
+
+      buffers.bitWords[wordIndex] |= (1L << bitIndex);
+    }
+
+    private static SplitBuffers takeBuffers()
+    {
+      final SplitBuffers recycled = RECYCLED_BUFFERS.get();
 
-      int bytesRequired = byteIndex + 1;
-      if (bitBytesInUse < bytesRequired)
+      if (null == recycled)
       {
-        if (bitBytes.length < bytesRequired)
-        {
-          bitBytes = java.util.Arrays.copyOf(bitBytes, ((bytesRequired / BIT_BYTES_BLOCK_SIZE) + 1) * BIT_BYTES_BLOCK_SIZE);
-        }
+        return new SplitBuffers();
+      }
+
+      RECYCLED_BUFFERS.remove();
+      return recycled;
+    }
+
+    private static void releaseBuffers(SplitBuffers recycled, int bitsInUse)
+    {
+      // buffers grown by a large message are left to the garbage collector rather than held by the thread
+      if ((MAX_RECYCLED_SIZE < recycled.getCapacity()) || (MAX_RECYCLED_SIZE < recycled.bitWords.length * 8))
+      {
+        return;
+      }
+
+      java.util.Arrays.fill(recycled.bitWords, 0, (bitsInUse + 63) >>> 6, 0L);
+      recycled.reset();
+      RECYCLED_BUFFERS.set(recycled);
+    }
+  }
 
-        bitBytesInUse = bytesRequired;
+  /**
+   * Holds the encoded values and the bit words of a split stream holder.
+   */
+  private static final class SplitBuffers extends java.io.ByteArrayOutputStream
+  {
+    private long[] bitWords = new long[SplitStreamHolder.BIT_WORDS_BLOCK_SIZE];
+    private byte[] head = new byte[64];
+
+    /**
+     * Returns an array to gather the bit field into.
+     *
+     * @param size the size required.
+     * @return the array, at least of the size required.
+     */
+    private byte[] getHead(int size)
+    {
+      if (head.length < size)
+      {
+        head = new byte[size];
       }
 
-      bitIndex %= 8;
-      bitBytes[byteIndex] |= (1 << bitIndex);
+      return head;
+    }
+
+    /**
+     * Returns the size of the array holding the encoded values.
+     *
+     * @return the capacity.
+     */
+    private int getCapacity()
+    {
+      return buf.length;
     }
   }
 }
@@ -25,6 +25,27 @@ package esa.mo.mal.encoder.binary.split;
  */
 public class SplitBinaryStreamFactory extends esa.mo.mal.encoder.binary.BinaryStreamFactory
 {
+  /**
+   * Property to enable recycling of the encoder buffers, so that the bit field and values of each message are gathered
+   * in buffers reused by the encoders of the same thread rather than allocated per message.
+   */
+  public static final String RECYCLE_BUFFERS = "esa.mo.mal.encoding.binary.split.recycleBuffers";
+  private boolean recycleBuffers = false;
+
+  @Override
+  protected void init(final String protocol, final java.util.Map properties)
+          throws IllegalArgumentException, org.ccsds.moims.mo.mal.MALException
+  {
+    super.init(protocol, properties);
+
+    if ((null != properties)
+            && properties.containsKey(RECYCLE_BUFFERS)
+            && Boolean.parseBoolean((String) properties.get(RECYCLE_BUFFERS)))
+    {
+      recycleBuffers = true;
+    }
+  }
+
   @Override
   public org.ccsds.moims.mo.mal.encoding.MALElementInputStream createInputStream(final byte[] bytes, final int offset)
   {
@@ -42,6 +63,6 @@ public class SplitBinaryStreamFactory extends esa.mo.mal.encoder.binary.BinarySt
   public org.ccsds.moims.mo.mal.encoding.MALElementOutputStream createOutputStream(final java.io.OutputStream os)
           throws org.ccsds.moims.mo.mal.MALException
   {
-    return new SplitBinaryElementOutputStream(os);
+    return new SplitBinaryElementOutputStream(os, recycleBuffers);
   }
 }
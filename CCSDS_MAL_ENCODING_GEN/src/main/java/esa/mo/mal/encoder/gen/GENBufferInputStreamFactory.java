@@ -0,0 +1,42 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Encoder Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.encoder.gen;
+
+import java.nio.ByteBuffer;
+import org.ccsds.moims.mo.mal.MALException;
+import org.ccsds.moims.mo.mal.encoding.MALElementInputStream;
+
+/**
+ * Optional interface for stream factories that can decode directly from a ByteBuffer without first copying its
+ * contents. Transports that read into pooled buffers check for this interface on the stream factory.
+ */
+public interface GENBufferInputStreamFactory
+{
+  /**
+   * Creates an input stream that decodes the remaining contents of the buffer, from its position to its limit. The
+   * buffer must not be modified or reused while the returned stream, or any message body decoded from it, is in use.
+   *
+   * @param buffer The buffer to decode from.
+   * @return the new input stream.
+   * @throws MALException If the stream cannot be created.
+   */
+  MALElementInputStream createInputStream(ByteBuffer buffer) throws MALException;
+}
@@ -0,0 +1,75 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Encoder Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.encoder.gen;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.ccsds.moims.mo.mal.MALContextFactory;
+import org.ccsds.moims.mo.mal.MALElementFactory;
+
+/**
+ * A lock free cache in front of the MAL element factory registry. The registry is backed by a plain map that is shared
+ * by every decoding thread, so the factories found in it are copied into a concurrent map and later lookups of the same
+ * short form do not touch the registry.
+ *
+ * Only successful lookups are cached, so factories registered after a failed lookup are still found. The registry is
+ * global to the MAL, and so is this cache.
+ */
+public final class GENElementFactoryCache
+{
+  private static final ConcurrentMap<Object, MALElementFactory> FACTORIES
+          = new ConcurrentHashMap<Object, MALElementFactory>();
+
+  private GENElementFactoryCache()
+  {
+  }
+
+  /**
+   * Returns the element factory for a short form.
+   *
+   * @param shortForm The short form of the element type.
+   * @return the element factory or null if none is registered.
+   */
+  public static MALElementFactory lookupElementFactory(final Object shortForm)
+  {
+    MALElementFactory ef = FACTORIES.get(shortForm);
+
+    if (null == ef)
+    {
+      ef = MALContextFactory.getElementFactoryRegistry().lookupElementFactory(shortForm);
+
+      if (null != ef)
+      {
+        FACTORIES.put(shortForm, ef);
+      }
+    }
+
+    return ef;
+  }
+
+  /**
+   * Removes all cached factories, required if element factories are deregistered or replaced in the registry.
+   */
+  public static void clear()
+  {
+    FACTORIES.clear();
+  }
+}
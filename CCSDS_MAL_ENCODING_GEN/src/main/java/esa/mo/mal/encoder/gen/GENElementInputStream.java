@@ -20,13 +20,13 @@
  */
 package esa.mo.mal.encoder.gen;
 
-import org.ccsds.moims.mo.mal.MALContextFactory;
 import org.ccsds.moims.mo.mal.MALElementFactory;
 import org.ccsds.moims.mo.mal.MALException;
 import org.ccsds.moims.mo.mal.MALPubSubOperation;
 import org.ccsds.moims.mo.mal.encoding.MALElementInputStream;
 import org.ccsds.moims.mo.mal.encoding.MALEncodingContext;
 import org.ccsds.moims.mo.mal.structures.Attribute;
+import org.ccsds.moims.mo.mal.structures.Blob;
 import org.ccsds.moims.mo.mal.structures.Element;
 import org.ccsds.moims.mo.mal.structures.EntityKeyList;
 import org.ccsds.moims.mo.mal.structures.IdentifierList;
@@ -92,7 +92,7 @@ public abstract class GENElementInputStream implements MALElementInputStream
             }
             else
             {
-              Object sf = ctx.getOperation().getOperationStage(ctx.getHeader().getInteractionStage()).getElementShortForms()[ctx.getBodyElementIndex()];
+              Object sf = GENOperationStagePlan.getPlan(ctx).getShortForm(ctx.getBodyElementIndex());
 
               // element is defined as an abstract type
               if (null == sf)
@@ -116,7 +116,7 @@ public abstract class GENElementInputStream implements MALElementInputStream
             }
             else
             {
-              Object sf = ctx.getOperation().getOperationStage(ctx.getHeader().getInteractionStage()).getElementShortForms()[ctx.getBodyElementIndex()];
+              Object sf = GENOperationStagePlan.getPlan(ctx).getShortForm(ctx.getBodyElementIndex());
               
               // element is defined as an abstract type
               if (null == sf)
@@ -137,10 +137,8 @@ public abstract class GENElementInputStream implements MALElementInputStream
         {
           Long shortForm;
 
-          // dirty check to see if we are trying to decode an abstract Attribute (and not a list of them either)
-          Object[] finalEleShortForms = ctx.getOperation().getOperationStage(ctx.getHeader().getInteractionStage()).getLastElementShortForms();
-
-          if ((null != finalEleShortForms) && (Attribute._URI_TYPE_SHORT_FORM == finalEleShortForms.length) && ((((Long) finalEleShortForms[0]) & 0x800000L) == 0))
+          // check to see if we are trying to decode an abstract Attribute (and not a list of them either)
+          if (GENOperationStagePlan.getPlan(ctx).isLastElementAbstractAttribute())
           {
             Byte sf = dec.decodeNullableOctet();
             if (null == sf)
@@ -177,6 +175,18 @@ public abstract class GENElementInputStream implements MALElementInputStream
     return dec.getRemainingEncodedData();
   }
 
+  /**
+   * Returns a Blob holding the remaining encoded data for this stream, which may share the array being decoded rather
+   * than copy it. Expected to be used for creating an MAL encoded body object.
+   *
+   * @return a Blob holding the remaining encoded data for this stream.
+   * @throws MALException On error.
+   */
+  public Blob getRemainingEncodedBlob() throws MALException
+  {
+    return dec.getRemainingEncodedBlob();
+  }
+
   @Override
   public void close() throws MALException
   {
@@ -190,7 +200,7 @@ public abstract class GENElementInputStream implements MALElementInputStream
       return null;
     }
 
-    final MALElementFactory ef = MALContextFactory.getElementFactoryRegistry().lookupElementFactory(shortForm);
+    final MALElementFactory ef = GENElementFactoryCache.lookupElementFactory(shortForm);
 
     if (null == ef)
     {
@@ -26,10 +26,8 @@ import org.ccsds.moims.mo.mal.MALException;
 import org.ccsds.moims.mo.mal.MALPubSubOperation;
 import org.ccsds.moims.mo.mal.encoding.MALElementOutputStream;
 import org.ccsds.moims.mo.mal.encoding.MALEncodingContext;
-import org.ccsds.moims.mo.mal.structures.Attribute;
 import org.ccsds.moims.mo.mal.structures.Element;
 import org.ccsds.moims.mo.mal.structures.InteractionType;
-import org.ccsds.moims.mo.mal.structures.UOctet;
 
 /**
  * Extends the MALElementOutputStream interface to enable aware transport access to the encoded data stream.
@@ -91,7 +89,7 @@ public abstract class GENElementOutputStream implements MALElementOutputStream
               ((Element) element).encode(enc);
               return;
             case MALPubSubOperation._PUBLISH_STAGE:
-              if ((0 < ctx.getBodyElementIndex()) && (null == ctx.getOperation().getOperationStage(ctx.getHeader().getInteractionStage()).getElementShortForms()[ctx.getBodyElementIndex()]))
+              if ((0 < ctx.getBodyElementIndex()) && GENOperationStagePlan.getPlan(ctx).isAbstract(ctx.getBodyElementIndex()))
               {
                 encodeSubElement((Element) element, null, null);
               }
@@ -101,7 +99,7 @@ public abstract class GENElementOutputStream implements MALElementOutputStream
               }
               return;
             case MALPubSubOperation._NOTIFY_STAGE:
-              if ((1 < ctx.getBodyElementIndex()) && (null == ctx.getOperation().getOperationStage(ctx.getHeader().getInteractionStage()).getElementShortForms()[ctx.getBodyElementIndex()]))
+              if ((1 < ctx.getBodyElementIndex()) && GENOperationStagePlan.getPlan(ctx).isAbstract(ctx.getBodyElementIndex()))
               {
                 encodeSubElement((Element) element, null, null);
               }
@@ -121,8 +119,7 @@ public abstract class GENElementOutputStream implements MALElementOutputStream
             // encode the short form if it is not fixed in the operation
             final Element e = (Element) element;
 
-            UOctet stage = ctx.getHeader().getInteractionStage();
-            Object sf = ctx.getOperation().getOperationStage(stage).getElementShortForms()[ctx.getBodyElementIndex()];
+            Object sf = GENOperationStagePlan.getPlan(ctx).getShortForm(ctx.getBodyElementIndex());
 
             encodeSubElement(e, sf, ctx);
           }
@@ -134,6 +131,11 @@ public abstract class GENElementOutputStream implements MALElementOutputStream
   @Override
   public void flush() throws MALException
   {
+    if (null != enc)
+    {
+      enc.flush();
+    }
+
     try
     {
       dos.flush();
@@ -149,11 +151,12 @@ public abstract class GENElementOutputStream implements MALElementOutputStream
   {
     try
     {
-      dos.close();
+      // close the encoder first so that any data it holds is written before the stream is closed
       if (null != enc)
       {
         enc.close();
       }
+      dos.close();
     }
     catch (IOException ex)
     {
@@ -165,14 +168,8 @@ public abstract class GENElementOutputStream implements MALElementOutputStream
   {
     if (null == sf)
     {
-      // dirty check to see if we are trying to decode an abstract Attribute (and not a list of them either)
-      Object[] finalEleShortForms = null;
-      if (null != ctx)
-      {
-        finalEleShortForms = ctx.getOperation().getOperationStage(ctx.getHeader().getInteractionStage()).getLastElementShortForms();
-      }
-
-      if ((null != finalEleShortForms) && (Attribute._URI_TYPE_SHORT_FORM == finalEleShortForms.length) && ((((Long) finalEleShortForms[0]) & 0x800000L) == 0))
+      // check to see if we are trying to encode an abstract Attribute (and not a list of them either)
+      if ((null != ctx) && GENOperationStagePlan.getPlan(ctx).isLastElementAbstractAttribute())
       {
         enc.encodeNullableOctet(enc.internalEncodeAttributeType(e.getTypeShortForm().byteValue()));
       }
@@ -751,6 +751,23 @@ public abstract class GENEncoder implements MALListEncoder
     }
   }
 
+  /**
+   * Writes any data held by the stream holder to the underlying output stream and flushes it.
+   *
+   * @throws MALException If there is an error writing the data.
+   */
+  public void flush() throws MALException
+  {
+    try
+    {
+      outputStream.flush();
+    }
+    catch (IOException ex)
+    {
+      throw new MALException(ENCODING_EXCEPTION_STR, ex);
+    }
+  }
+
   @Override
   public void close()
   {
@@ -970,6 +987,16 @@ public abstract class GENEncoder implements MALListEncoder
       outputStream.write(value);
     }
 
+    /**
+     * Flushes the output stream. Stream holders that hold data internally should write it to the stream first.
+     *
+     * @throws IOException if there is an error.
+     */
+    public void flush() throws IOException
+    {
+      outputStream.flush();
+    }
+
     /**
      * Closes and flushes the output stream.
      *
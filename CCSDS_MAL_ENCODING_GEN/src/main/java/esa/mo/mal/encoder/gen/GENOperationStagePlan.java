@@ -0,0 +1,135 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Encoder Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.encoder.gen;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.ccsds.moims.mo.mal.MALOperationStage;
+import org.ccsds.moims.mo.mal.encoding.MALEncodingContext;
+import org.ccsds.moims.mo.mal.structures.Attribute;
+
+/**
+ * Holds what the encoders and decoders need to know about the body of an operation stage, worked out once per stage
+ * instead of for every body element: the short forms of the body elements, which of them are abstract and whether the
+ * last element is an abstract attribute.
+ *
+ * Plans are cached per operation stage for the life of the process, operation stages are held by their areas which are
+ * never unregistered.
+ */
+public final class GENOperationStagePlan
+{
+  private static final ConcurrentMap<MALOperationStage, GENOperationStagePlan> PLANS
+          = new ConcurrentHashMap<MALOperationStage, GENOperationStagePlan>();
+  private final Object[] shortForms;
+  private final boolean lastElementAbstractAttribute;
+
+  private GENOperationStagePlan(final MALOperationStage stage)
+  {
+    final Object[] sfs = stage.getElementShortForms();
+    this.shortForms = (null == sfs) ? new Object[0] : sfs;
+
+    // dirty check to see if the last element is an abstract Attribute (and not a list of them either)
+    final Object[] finalEleShortForms = stage.getLastElementShortForms();
+    this.lastElementAbstractAttribute = (null != finalEleShortForms)
+            && (Attribute._URI_TYPE_SHORT_FORM == finalEleShortForms.length)
+            && ((((Long) finalEleShortForms[0]) & 0x800000L) == 0);
+  }
+
+  /**
+   * Returns the plan of an operation stage.
+   *
+   * @param stage The operation stage.
+   * @return the plan.
+   */
+  public static GENOperationStagePlan getPlan(final MALOperationStage stage)
+  {
+    GENOperationStagePlan plan = PLANS.get(stage);
+
+    if (null == plan)
+    {
+      plan = new GENOperationStagePlan(stage);
+      final GENOperationStagePlan existing = PLANS.putIfAbsent(stage, plan);
+
+      if (null != existing)
+      {
+        plan = existing;
+      }
+    }
+
+    return plan;
+  }
+
+  /**
+   * Returns the plan of the operation stage of an encoding context, from its operation and the interaction stage of its
+   * header.
+   *
+   * @param ctx The encoding context.
+   * @return the plan.
+   */
+  public static GENOperationStagePlan getPlan(final MALEncodingContext ctx)
+  {
+    return getPlan(ctx.getOperation().getOperationStage(ctx.getHeader().getInteractionStage()));
+  }
+
+  /**
+   * Returns the number of body elements of the stage.
+   *
+   * @return the number of body elements.
+   */
+  public int getElementCount()
+  {
+    return shortForms.length;
+  }
+
+  /**
+   * Returns the short form of a body element, a Long for MAL elements, a String for XML elements, or null if the
+   * element is abstract.
+   *
+   * @param index The index of the body element.
+   * @return the short form.
+   */
+  public Object getShortForm(final int index)
+  {
+    return shortForms[index];
+  }
+
+  /**
+   * Returns true if the type of a body element is abstract and so its short form is encoded with it.
+   *
+   * @param index The index of the body element.
+   * @return True if abstract.
+   */
+  public boolean isAbstract(final int index)
+  {
+    return null == shortForms[index];
+  }
+
+  /**
+   * Returns true if the last body element is an abstract attribute, in which case its type is encoded as an attribute
+   * type octet rather than as a full short form.
+   *
+   * @return True if the last element is an abstract attribute.
+   */
+  public boolean isLastElementAbstractAttribute()
+  {
+    return lastElementAbstractAttribute;
+  }
+}
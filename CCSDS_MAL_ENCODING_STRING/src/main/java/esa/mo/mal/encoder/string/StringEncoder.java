@@ -201,6 +201,12 @@ public class StringEncoder extends GENEncoder
       buffer.append(STR_DELIM);
     }
 
+    @Override
+    public void flush() throws IOException
+    {
+      buffer.flush();
+    }
+
     @Override
     public void close() throws IOException
     {
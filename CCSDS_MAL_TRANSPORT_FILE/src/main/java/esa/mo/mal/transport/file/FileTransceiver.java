@@ -88,7 +88,7 @@ public class FileTransceiver implements esa.mo.mal.transport.gen.util.GENMessage
     java.io.FileOutputStream fos = new FileOutputStream(tmpFile);
     try
     {
-      fos.write(packetData.getEncodedMessage());
+      fos.write(packetData.getEncodedMessageBuffer(), 0, packetData.getEncodedMessageLength());
       fos.flush();
     }
     finally
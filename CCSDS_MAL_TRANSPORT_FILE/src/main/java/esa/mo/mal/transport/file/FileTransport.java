@@ -62,7 +62,7 @@ public class FileTransport extends GENTransport
   private static final String QOS_O_MESSAGE_DIRECTORY = "ccsds.mal.transport.file.outgoing.directory.name";
   private static final String QOS_DELETE_FILE = "ccsds.mal.transport.file.qos.delete";
   private final boolean deleteFiles;
-  private final Thread asyncPollThread;
+  private final GENMessagePoller<InputStream> asyncPollThread;
   private final String transportString;
   private final String filenameString;
   private final WatchService watcher;
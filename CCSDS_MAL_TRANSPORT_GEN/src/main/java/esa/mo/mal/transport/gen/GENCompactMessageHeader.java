@@ -0,0 +1,387 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.ccsds.moims.mo.mal.MALDecoder;
+import org.ccsds.moims.mo.mal.MALEncoder;
+import org.ccsds.moims.mo.mal.MALException;
+import org.ccsds.moims.mo.mal.encoding.MALElementInputStream;
+import org.ccsds.moims.mo.mal.encoding.MALElementOutputStream;
+import org.ccsds.moims.mo.mal.encoding.MALElementStreamFactory;
+import org.ccsds.moims.mo.mal.encoding.MALEncodingContext;
+import org.ccsds.moims.mo.mal.structures.*;
+
+/**
+ * A message header that is encoded against a dictionary of the strings already sent on a connection. The URIs, the
+ * domain identifiers, the network zone and the session name are the same for most messages of a connection, so each of
+ * them is sent in full only the first time and then as its index in the dictionary. All other fields are encoded as by
+ * GENMessageHeader.
+ *
+ * Each string field is encoded as an Integer reference: 0 for null, a positive value n for entry n-1 of the dictionary,
+ * or a negative value -n followed by the string itself when the string is sent for the first time and becomes entry
+ * n-1. The sender and the receiver of a connection each hold a dictionary, so headers must be decoded in the order that
+ * they were encoded.
+ *
+ * As the size of a compact header is not known until it is decoded, transports send it with its length in front of the
+ * encoded message body, as |header length|header|body|. A header length of FULL_HEADER instead marks a message that
+ * was encoded with its full header, as |FULL_HEADER|message|, for example one received from a peer that does not use
+ * compact headers, which leaves the dictionaries unchanged. Encodings that write elements without calling their encode
+ * method, such as the line encoding, cannot be used with compact headers.
+ */
+public class GENCompactMessageHeader extends GENMessageHeader
+{
+  /**
+   * The header length that marks a message encoded with its full header.
+   */
+  public static final int FULL_HEADER = -1;
+  private transient Dictionary dictionary;
+  private static final long serialVersionUID = 111111111111112L;
+
+  /**
+   * Constructor for decoding.
+   *
+   * @param dictionary The dictionary of the connection the header is received on.
+   */
+  public GENCompactMessageHeader(final Dictionary dictionary)
+  {
+    this.dictionary = dictionary;
+  }
+
+  /**
+   * Constructor for encoding, copies the fields of an existing header.
+   *
+   * @param source The header to copy.
+   * @param dictionary The dictionary of the connection the header is sent on.
+   */
+  public GENCompactMessageHeader(final GENMessageHeader source, final Dictionary dictionary)
+  {
+    super(source.URIFrom,
+            source.getAuthenticationId(),
+            source.URITo,
+            source.timestamp,
+            source.QoSlevel,
+            source.priority,
+            source.getDomain(),
+            source.getNetworkZone(),
+            source.session,
+            source.getSessionName(),
+            source.interactionType,
+            source.interactionStage,
+            source.transactionId,
+            source.serviceArea,
+            source.service,
+            source.operation,
+            source.areaVersion,
+            source.isErrorMessage);
+
+    this.dictionary = dictionary;
+  }
+
+  /**
+   * Encodes a header in compact form.
+   *
+   * @param streamFactory The stream factory to use for encoding.
+   * @param header The header to encode.
+   * @param dictionary The dictionary of the connection the header is sent on.
+   * @return the encoded header.
+   * @throws MALException On encoding error.
+   */
+  public static byte[] encodeHeader(final MALElementStreamFactory streamFactory,
+          final GENMessageHeader header,
+          final Dictionary dictionary) throws MALException
+  {
+    final GENCompactMessageHeader compactHeader = new GENCompactMessageHeader(header, dictionary);
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream(64);
+    final MALElementOutputStream enc = streamFactory.createOutputStream(baos);
+
+    enc.writeElement(compactHeader, new MALEncodingContext(compactHeader, null, 0, null, null));
+    enc.close();
+
+    return baos.toByteArray();
+  }
+
+  /**
+   * Decodes a header in compact form.
+   *
+   * @param streamFactory The stream factory to use for decoding.
+   * @param dictionary The dictionary of the connection the header is received on.
+   * @param packet The array holding the encoded header.
+   * @param offset The offset of the header in the array.
+   * @param length The length of the encoded header.
+   * @return the decoded header.
+   * @throws MALException On decoding error.
+   */
+  public static GENCompactMessageHeader decodeHeader(final MALElementStreamFactory streamFactory,
+          final Dictionary dictionary,
+          final byte[] packet,
+          final int offset,
+          final int length) throws MALException
+  {
+    final GENCompactMessageHeader compactHeader = new GENCompactMessageHeader(dictionary);
+    final MALElementInputStream enc = streamFactory.createInputStream(new ByteArrayInputStream(packet, offset, length));
+
+    return (GENCompactMessageHeader) enc.readElement(compactHeader,
+            new MALEncodingContext(compactHeader, null, 0, null, null));
+  }
+
+  @Override
+  public Element createElement()
+  {
+    return new GENCompactMessageHeader(dictionary);
+  }
+
+  @Override
+  public void encode(final MALEncoder encoder) throws MALException
+  {
+    encodeString(encoder, (null == URIFrom) ? null : URIFrom.getValue());
+    encoder.encodeNullableBlob(authenticationId);
+    encodeString(encoder, (null == URITo) ? null : URITo.getValue());
+    encoder.encodeNullableTime(timestamp);
+    encoder.encodeNullableElement(QoSlevel);
+    encoder.encodeNullableUInteger(priority);
+
+    if (null == domain)
+    {
+      encoder.encodeInteger(0);
+    }
+    else
+    {
+      encoder.encodeInteger(domain.size() + 1);
+      for (Identifier id : domain)
+      {
+        encodeString(encoder, (null == id) ? null : id.getValue());
+      }
+    }
+
+    encodeString(encoder, (null == networkZone) ? null : networkZone.getValue());
+    encoder.encodeNullableElement(session);
+    encodeString(encoder, (null == sessionName) ? null : sessionName.getValue());
+    encoder.encodeNullableElement(interactionType);
+    encoder.encodeNullableUOctet(interactionStage);
+    encoder.encodeNullableLong(transactionId);
+    encoder.encodeNullableUShort(serviceArea);
+    encoder.encodeNullableUShort(service);
+    encoder.encodeNullableUShort(operation);
+    encoder.encodeNullableUOctet(areaVersion);
+    encoder.encodeNullableBoolean(isErrorMessage);
+  }
+
+  @Override
+  public Element decode(final MALDecoder decoder) throws MALException
+  {
+    String str = decodeString(decoder);
+    URIFrom = (null == str) ? null : new URI(str);
+    authenticationId = decoder.decodeNullableBlob();
+    str = decodeString(decoder);
+    URITo = (null == str) ? null : new URI(str);
+    timestamp = decoder.decodeNullableTime();
+    QoSlevel = (QoSLevel) decoder.decodeNullableElement(QoSLevel.BESTEFFORT);
+    priority = decoder.decodeNullableUInteger();
+
+    final int domainSize = decoder.decodeInteger() - 1;
+    if (0 > domainSize)
+    {
+      domain = null;
+    }
+    else
+    {
+      domain = new IdentifierList(domainSize);
+      for (int i = 0; i < domainSize; i++)
+      {
+        str = decodeString(decoder);
+        domain.add((null == str) ? null : new Identifier(str));
+      }
+    }
+
+    str = decodeString(decoder);
+    networkZone = (null == str) ? null : new Identifier(str);
+    session = (SessionType) decoder.decodeNullableElement(SessionType.LIVE);
+    str = decodeString(decoder);
+    sessionName = (null == str) ? null : new Identifier(str);
+    interactionType = (InteractionType) decoder.decodeNullableElement(InteractionType.SEND);
+    interactionStage = decoder.decodeNullableUOctet();
+    transactionId = decoder.decodeNullableLong();
+    serviceArea = decoder.decodeNullableUShort();
+    service = decoder.decodeNullableUShort();
+    operation = decoder.decodeNullableUShort();
+    areaVersion = decoder.decodeNullableUOctet();
+    isErrorMessage = decoder.decodeNullableBoolean();
+
+    return this;
+  }
+
+  private void encodeString(final MALEncoder encoder, final String value) throws MALException
+  {
+    if (null == value)
+    {
+      encoder.encodeInteger(0);
+    }
+    else
+    {
+      final Integer index = dictionary.indexOf(value);
+
+      if (null != index)
+      {
+        encoder.encodeInteger(index + 1);
+      }
+      else
+      {
+        encoder.encodeInteger(-(dictionary.add(value) + 1));
+        encoder.encodeString(value);
+      }
+    }
+  }
+
+  private String decodeString(final MALDecoder decoder) throws MALException
+  {
+    final int ref = decoder.decodeInteger();
+
+    if (0 == ref)
+    {
+      return null;
+    }
+
+    if (0 < ref)
+    {
+      return dictionary.get(ref - 1);
+    }
+
+    final String value = decoder.decodeString();
+    dictionary.put(-ref - 1, value);
+
+    return value;
+  }
+
+  /**
+   * The strings sent or received on one connection. A sending dictionary gives each new string the next free index and
+   * a receiving dictionary stores it at the same index, so the two stay the same as long as headers are decoded in the
+   * order they were encoded. Once a dictionary is full new strings are sent in full every time.
+   *
+   * A dictionary is only used from the thread that encodes, or decodes, the headers of its connection.
+   */
+  public static final class Dictionary
+  {
+    /**
+     * The default maximum number of entries of a dictionary.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+    private final int maxEntries;
+    private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+    private final List<String> entries = new ArrayList<String>();
+
+    /**
+     * Constructor.
+     */
+    public Dictionary()
+    {
+      this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxEntries The maximum number of entries, the same value must be used at both ends of a connection.
+     */
+    public Dictionary(final int maxEntries)
+    {
+      this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the index of a string in a sending dictionary.
+     *
+     * @param value The string.
+     * @return the index or null if the string has not been added.
+     */
+    public Integer indexOf(final String value)
+    {
+      return indexes.get(value);
+    }
+
+    /**
+     * Adds a string to a sending dictionary.
+     *
+     * @param value The string.
+     * @return the index of the new entry, or the maximum number of entries if the dictionary is full.
+     */
+    public int add(final String value)
+    {
+      final int index = entries.size();
+
+      if (index >= maxEntries)
+      {
+        return maxEntries;
+      }
+
+      entries.add(value);
+      indexes.put(value, index);
+
+      return index;
+    }
+
+    /**
+     * Returns an entry of a receiving dictionary.
+     *
+     * @param index The index of the entry.
+     * @return the string.
+     * @throws MALException If there is no such entry.
+     */
+    public String get(final int index) throws MALException
+    {
+      if (index >= entries.size())
+      {
+        throw new MALException("Unknown compact header dictionary index: " + index);
+      }
+
+      return entries.get(index);
+    }
+
+    /**
+     * Stores an entry sent in full in a receiving dictionary.
+     *
+     * @param index The index of the entry.
+     * @param value The string.
+     * @throws MALException If the index is not the next free index.
+     */
+    public void put(final int index, final String value) throws MALException
+    {
+      if (index >= maxEntries)
+      {
+        // sent in full because the sending dictionary is full
+        return;
+      }
+
+      if (index != entries.size())
+      {
+        throw new MALException("Compact header dictionary out of step, expected index " + entries.size()
+                + " but received " + index);
+      }
+
+      entries.add(value);
+    }
+  }
+}
@@ -0,0 +1,220 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The endpoints of a transport, by MAL local name and by transport routing name. Endpoints are added and removed on the
+ * threads of the application while the processing threads of the transport look them up for every incoming message, so
+ * lookups take no lock.
+ *
+ * The routing names are held in a hash table that is replaced rather than modified when an endpoint is added or
+ * removed. It can be searched with the routing part of a URI given as a range of the URI string, which is hashed and
+ * compared in place so that routing a message does not create a string.
+ */
+public class GENEndpointRegistry
+{
+  private final ConcurrentMap<String, GENEndpoint> localNames = new ConcurrentHashMap<String, GENEndpoint>();
+  private final Map<String, GENEndpoint> routingNames = new HashMap<String, GENEndpoint>();
+  private volatile RoutingTable routingTable = new RoutingTable(routingNames);
+
+  /**
+   * Returns an endpoint by its MAL local name.
+   *
+   * @param localName The local name.
+   * @return the endpoint or null if not found.
+   */
+  public GENEndpoint getByLocalName(final String localName)
+  {
+    return localNames.get(localName);
+  }
+
+  /**
+   * Returns an endpoint by its routing name.
+   *
+   * @param routingName The routing name.
+   * @return the endpoint or null if not found.
+   */
+  public GENEndpoint getByRoutingName(final String routingName)
+  {
+    return routingTable.get(routingName, 0, routingName.length());
+  }
+
+  /**
+   * Returns the endpoint whose routing name is a range of a URI.
+   *
+   * @param uriValue The URI.
+   * @param start The index of the first character of the routing part of the URI.
+   * @param end The index after the last character of the routing part of the URI.
+   * @return the endpoint or null if not found.
+   */
+  public GENEndpoint getByRoutingPart(final String uriValue, final int start, final int end)
+  {
+    return routingTable.get(uriValue, start, end);
+  }
+
+  /**
+   * Returns true if there are no endpoints.
+   *
+   * @return True if empty.
+   */
+  public boolean isEmpty()
+  {
+    return localNames.isEmpty();
+  }
+
+  /**
+   * Returns any one of the endpoints.
+   *
+   * @return an endpoint, or null if there are none.
+   */
+  public GENEndpoint getAny()
+  {
+    for (GENEndpoint endpoint : localNames.values())
+    {
+      return endpoint;
+    }
+
+    return null;
+  }
+
+  /**
+   * Adds an endpoint.
+   *
+   * @param endpoint The endpoint, registered with its local name and routing name.
+   */
+  public synchronized void add(final GENEndpoint endpoint)
+  {
+    localNames.put(endpoint.getLocalName(), endpoint);
+    routingNames.put(endpoint.getRoutingName(), endpoint);
+    routingTable = new RoutingTable(routingNames);
+  }
+
+  /**
+   * Removes an endpoint by its local name.
+   *
+   * @param localName The local name.
+   * @return the removed endpoint, or null if not found.
+   */
+  public synchronized GENEndpoint remove(final String localName)
+  {
+    final GENEndpoint endpoint = localNames.remove(localName);
+
+    if (null != endpoint)
+    {
+      routingNames.remove(endpoint.getRoutingName());
+      routingTable = new RoutingTable(routingNames);
+    }
+
+    return endpoint;
+  }
+
+  /**
+   * Removes all endpoints.
+   *
+   * @return the removed endpoints.
+   */
+  public synchronized List<GENEndpoint> removeAll()
+  {
+    final List<GENEndpoint> endpoints = new ArrayList<GENEndpoint>(localNames.values());
+
+    localNames.clear();
+    routingNames.clear();
+    routingTable = new RoutingTable(routingNames);
+
+    return endpoints;
+  }
+
+  /**
+   * An open addressing hash table of routing names that is never modified once published. Names are hashed as by
+   * String.hashCode so that the hash of a range of a URI can be worked out without creating the substring.
+   */
+  private static final class RoutingTable
+  {
+    private final String[] names;
+    private final GENEndpoint[] endpoints;
+    private final int mask;
+
+    RoutingTable(final Map<String, GENEndpoint> source)
+    {
+      // keep the table at most half full so that probes stay short
+      int capacity = 8;
+      while (capacity < source.size() * 2)
+      {
+        capacity <<= 1;
+      }
+
+      this.names = new String[capacity];
+      this.endpoints = new GENEndpoint[capacity];
+      this.mask = capacity - 1;
+
+      for (Map.Entry<String, GENEndpoint> entry : source.entrySet())
+      {
+        int index = index(entry.getKey().hashCode());
+
+        while (null != names[index])
+        {
+          index = (index + 1) & mask;
+        }
+
+        names[index] = entry.getKey();
+        endpoints[index] = entry.getValue();
+      }
+    }
+
+    GENEndpoint get(final String value, final int start, final int end)
+    {
+      int hash = 0;
+      for (int i = start; i < end; i++)
+      {
+        hash = 31 * hash + value.charAt(i);
+      }
+
+      final int length = end - start;
+      int index = index(hash);
+
+      while (null != names[index])
+      {
+        final String name = names[index];
+
+        if ((name.length() == length) && name.regionMatches(0, value, start, length))
+        {
+          return endpoints[index];
+        }
+
+        index = (index + 1) & mask;
+      }
+
+      return null;
+    }
+
+    private int index(final int hash)
+    {
+      return ((hash * 0x9E3779B9) >>> 16) & mask;
+    }
+  }
+}
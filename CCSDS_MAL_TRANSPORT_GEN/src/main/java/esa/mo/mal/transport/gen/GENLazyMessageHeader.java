@@ -0,0 +1,289 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen;
+
+import esa.mo.mal.encoder.gen.GENDecoder;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.logging.Level;
+import org.ccsds.moims.mo.mal.MALDecoder;
+import org.ccsds.moims.mo.mal.MALEncoder;
+import org.ccsds.moims.mo.mal.MALException;
+import org.ccsds.moims.mo.mal.encoding.MALElementInputStream;
+import org.ccsds.moims.mo.mal.encoding.MALElementStreamFactory;
+import org.ccsds.moims.mo.mal.encoding.MALEncodingContext;
+import org.ccsds.moims.mo.mal.structures.*;
+
+/**
+ * A message header that is decoded in two phases. On reception only the fields needed to route and dispatch the message
+ * are decoded, the URIs, the interaction and the operation fields, together with the small fixed size fields. The
+ * authentication id, the domain, the network zone and the session name are passed over without being created and are
+ * decoded from the retained packet the first time any of them is accessed, normally on the thread that processes the
+ * message. Only the deferred fields are decoded then, the fields already decoded are passed over.
+ *
+ * If the deferred fields cannot be decoded they are left null and decodeDeferredFields throws the failure, on every
+ * call, so that the transport rejects the message when it processes it rather than delivering it without them.
+ *
+ * The packet must not be changed until the deferred fields have been decoded. The message that holds the header decodes
+ * them before returning a pooled buffer. Decoders that are not derived from GENDecoder cannot pass over fields, with
+ * those the header is decoded in full on reception.
+ */
+public class GENLazyMessageHeader extends GENMessageHeader
+{
+  private final transient MALElementStreamFactory streamFactory;
+  private transient byte[] packet;
+  private final transient int offset;
+  private final transient int length;
+  private transient volatile boolean deferred = false;
+  private transient MALException failure = null;
+  private static final long serialVersionUID = 111111111111113L;
+
+  /**
+   * Constructor.
+   *
+   * @param streamFactory The stream factory used to decode the deferred fields.
+   * @param packet The array holding the encoded header.
+   * @param offset The offset of the header in the array.
+   * @param length The length of the encoded message from the offset.
+   */
+  public GENLazyMessageHeader(final MALElementStreamFactory streamFactory,
+          final byte[] packet,
+          final int offset,
+          final int length)
+  {
+    this.streamFactory = streamFactory;
+    this.packet = packet;
+    this.offset = offset;
+    this.length = length;
+  }
+
+  /**
+   * Decodes the deferred fields if they have not yet been decoded. Called before the message is processed and before
+   * the packet that holds the header is reused.
+   *
+   * @throws MALException if the deferred fields could not be decoded.
+   */
+  public void decodeDeferredFields() throws MALException
+  {
+    if (deferred)
+    {
+      synchronized (this)
+      {
+        if (deferred)
+        {
+          try
+          {
+            final DeferredFieldsDecoder fields = new DeferredFieldsDecoder();
+            final MALElementInputStream enc
+                    = streamFactory.createInputStream(new ByteArrayInputStream(packet, offset, length));
+            enc.readElement(fields, new MALEncodingContext(fields, null, 0, null, null));
+          }
+          catch (MALException ex)
+          {
+            failure = ex;
+          }
+          catch (RuntimeException ex)
+          {
+            failure = new MALException("Error decoding deferred message header fields", ex);
+          }
+
+          packet = null;
+          deferred = false;
+        }
+      }
+    }
+
+    if (null != failure)
+    {
+      throw failure;
+    }
+  }
+
+  /**
+   * Decodes the deferred fields from an accessor that cannot throw the failure, the message is rejected by the
+   * transport when it is processed and meanwhile the fields are null.
+   */
+  private void decodeFromAccessor()
+  {
+    try
+    {
+      decodeDeferredFields();
+    }
+    catch (MALException ex)
+    {
+      GENTransport.LOGGER.log(Level.FINE, "GEN Error decoding deferred message header fields", ex);
+    }
+  }
+
+  @Override
+  public Blob getAuthenticationId()
+  {
+    decodeFromAccessor();
+    return super.getAuthenticationId();
+  }
+
+  @Override
+  public void setAuthenticationId(final Blob authenticationId)
+  {
+    decodeFromAccessor();
+    super.setAuthenticationId(authenticationId);
+  }
+
+  @Override
+  public IdentifierList getDomain()
+  {
+    decodeFromAccessor();
+    return super.getDomain();
+  }
+
+  @Override
+  public void setDomain(final IdentifierList domain)
+  {
+    decodeFromAccessor();
+    super.setDomain(domain);
+  }
+
+  @Override
+  public Identifier getNetworkZone()
+  {
+    decodeFromAccessor();
+    return super.getNetworkZone();
+  }
+
+  @Override
+  public void setNetworkZone(final Identifier networkZone)
+  {
+    decodeFromAccessor();
+    super.setNetworkZone(networkZone);
+  }
+
+  @Override
+  public Identifier getSessionName()
+  {
+    decodeFromAccessor();
+    return super.getSessionName();
+  }
+
+  @Override
+  public void setSessionName(final Identifier sessionName)
+  {
+    decodeFromAccessor();
+    super.setSessionName(sessionName);
+  }
+
+  @Override
+  public Element createElement()
+  {
+    return new GENLazyMessageHeader(streamFactory, packet, offset, length);
+  }
+
+  @Override
+  public void encode(final MALEncoder encoder) throws MALException
+  {
+    decodeDeferredFields();
+    super.encode(encoder);
+  }
+
+  @Override
+  public Element decode(final MALDecoder decoder) throws MALException
+  {
+    if (!(decoder instanceof GENDecoder) || (null == packet))
+    {
+      return super.decode(decoder);
+    }
+
+    final GENDecoder dec = (GENDecoder) decoder;
+
+    URIFrom = dec.decodeNullableURI();
+    dec.skipNullableBlob();
+    URITo = dec.decodeNullableURI();
+    timestamp = dec.decodeNullableTime();
+    QoSlevel = (QoSLevel) dec.decodeNullableElement(QoSLevel.BESTEFFORT);
+    priority = dec.decodeNullableUInteger();
+    dec.skipNullableIdentifierList();
+    dec.skipNullableIdentifier();
+    session = (SessionType) dec.decodeNullableElement(SessionType.LIVE);
+    dec.skipNullableIdentifier();
+    interactionType = (InteractionType) dec.decodeNullableElement(InteractionType.SEND);
+    interactionStage = dec.decodeNullableUOctet();
+    transactionId = dec.decodeNullableLong();
+    serviceArea = dec.decodeNullableUShort();
+    service = dec.decodeNullableUShort();
+    operation = dec.decodeNullableUShort();
+    areaVersion = dec.decodeNullableUOctet();
+    isErrorMessage = dec.decodeNullableBoolean();
+
+    deferred = true;
+
+    return this;
+  }
+
+  @Override
+  public String toString()
+  {
+    decodeFromAccessor();
+    return super.toString();
+  }
+
+  private void writeObject(final ObjectOutputStream out) throws IOException
+  {
+    try
+    {
+      decodeDeferredFields();
+    }
+    catch (MALException ex)
+    {
+      throw new IOException("Unable to serialise message header", ex);
+    }
+
+    out.defaultWriteObject();
+  }
+
+  /**
+   * Decodes the deferred fields of the header into it, passing over the fields in between that were already decoded.
+   */
+  private final class DeferredFieldsDecoder extends GENMessageHeader
+  {
+    private static final long serialVersionUID = 111111111111114L;
+
+    @Override
+    public Element decode(final MALDecoder decoder) throws MALException
+    {
+      // the fields of the decoder itself are inherited too, so those of the header are named in full
+      final GENDecoder dec = (GENDecoder) decoder;
+
+      dec.skipNullableURI();
+      GENLazyMessageHeader.this.authenticationId = dec.decodeNullableBlob();
+      dec.skipNullableURI();
+      dec.decodeNullableTime();
+      dec.decodeNullableElement(QoSLevel.BESTEFFORT);
+      dec.decodeNullableUInteger();
+      GENLazyMessageHeader.this.domain = (IdentifierList) dec.decodeNullableElement(new IdentifierList());
+      GENLazyMessageHeader.this.networkZone = dec.decodeNullableIdentifier();
+      dec.decodeNullableElement(SessionType.LIVE);
+      GENLazyMessageHeader.this.sessionName = dec.decodeNullableIdentifier();
+
+      // the remaining fields were decoded on reception
+      return this;
+    }
+  }
+}
@@ -27,8 +27,12 @@ import esa.mo.mal.transport.gen.body.GENNotifyBody;
 import esa.mo.mal.transport.gen.body.GENPublishBody;
 import esa.mo.mal.transport.gen.body.GENPublishRegisterBody;
 import esa.mo.mal.transport.gen.body.GENRegisterBody;
+import esa.mo.mal.encoder.gen.GENBufferInputStreamFactory;
+import esa.mo.mal.transport.gen.util.GENBufferPool;
+import esa.mo.mal.transport.gen.util.GENOperationCache;
 import java.io.ByteArrayInputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.Map;
 import org.ccsds.moims.mo.mal.MALArea;
 import org.ccsds.moims.mo.mal.MALContextFactory;
@@ -58,6 +62,8 @@ public class GENMessage implements MALMessage, java.io.Serializable
   protected final Map qosProperties;
   protected final boolean wrapBodyParts;
   protected MALOperation operation = null;
+  private transient ByteBuffer pooledBuffer = null;
+  private transient GENBufferPool bufferPool = null;
   private static final long serialVersionUID = 222222222222222L;
 
   /**
@@ -79,6 +85,16 @@ public class GENMessage implements MALMessage, java.io.Serializable
     this.header = header;
     if (null == operation)
     {
+      this.operation = GENOperationCache.lookupOperation(this.header);
+    }
+    else
+    {
+      this.operation = operation;
+    }
+
+    if (null == this.operation)
+    {
+      // not registered, work out which part is unknown for the error
       MALArea area = MALContextFactory.lookupArea(this.header.getServiceArea(), this.header.getAreaVersion());
       if (null == area)
       {
@@ -97,10 +113,7 @@ public class GENMessage implements MALMessage, java.io.Serializable
         throw new MALInteractionException(new MALStandardError(MALHelper.UNSUPPORTED_OPERATION_ERROR_NUMBER, null));
       }
     }
-    else
-    {
-      this.operation = operation;
-    }
+
     this.body = createMessageBody(body);
     this.qosProperties = qosProperties;
     this.wrapBodyParts = wrapBodyParts;
@@ -142,6 +155,62 @@ public class GENMessage implements MALMessage, java.io.Serializable
     this.body = createMessageBody(encFactory, enc);
   }
 
+  /**
+   * Constructor. The body of the message is decoded directly from the buffer when the stream factory supports it, so
+   * the buffer is held until the message is freed and then returned to the pool.
+   *
+   * @param wrapBodyParts True if the encoded body parts should be wrapped in BLOBs.
+   * @param readHeader True if the header should be read from the packet.
+   * @param header An instance of the header class to use.
+   * @param qosProperties The QoS properties for this message.
+   * @param packet The message in encoded form, from its position to its limit.
+   * @param bufferPool The pool to return the packet buffer to when freed, may be null.
+   * @param encFactory The stream factory to use for decoding.
+   * @throws MALException On decoding error.
+   */
+  public GENMessage(final boolean wrapBodyParts,
+          final boolean readHeader,
+          final GENMessageHeader header,
+          final Map qosProperties,
+          final ByteBuffer packet,
+          final GENBufferPool bufferPool,
+          final MALElementStreamFactory encFactory) throws MALException
+  {
+    this.qosProperties = qosProperties;
+    this.wrapBodyParts = wrapBodyParts;
+    this.pooledBuffer = packet;
+    this.bufferPool = bufferPool;
+
+    final MALElementInputStream enc;
+    if (encFactory instanceof GENBufferInputStreamFactory)
+    {
+      enc = ((GENBufferInputStreamFactory) encFactory).createInputStream(packet);
+    }
+    else if (packet.hasArray())
+    {
+      enc = encFactory.createInputStream(new ByteArrayInputStream(packet.array(),
+              packet.arrayOffset() + packet.position(), packet.remaining()));
+    }
+    else
+    {
+      final byte[] data = new byte[packet.remaining()];
+      packet.duplicate().get(data);
+      enc = encFactory.createInputStream(new ByteArrayInputStream(data));
+    }
+
+    if (readHeader)
+    {
+      MALEncodingContext ctx = new MALEncodingContext(header, null, 0, qosProperties, qosProperties);
+      this.header = (GENMessageHeader) enc.readElement(header, ctx);
+    }
+    else
+    {
+      this.header = header;
+    }
+
+    this.body = createMessageBody(encFactory, enc);
+  }
+
   /**
    * Constructor.
    *
@@ -199,7 +268,29 @@ public class GENMessage implements MALMessage, java.io.Serializable
   @Override
   public void free() throws MALException
   {
-    // do nothing in the GEN case.
+    final ByteBuffer buf;
+
+    synchronized (this)
+    {
+      buf = pooledBuffer;
+      pooledBuffer = null;
+    }
+
+    // return the receive buffer, if any, the body must not be decoded after this
+    if ((null != buf) && (null != bufferPool))
+    {
+      try
+      {
+        if (header instanceof GENLazyMessageHeader)
+        {
+          ((GENLazyMessageHeader) header).decodeDeferredFields();
+        }
+      }
+      finally
+      {
+        bufferPool.release(buf);
+      }
+    }
   }
 
   /**
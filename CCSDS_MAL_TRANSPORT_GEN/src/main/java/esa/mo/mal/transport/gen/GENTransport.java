@@ -20,21 +20,46 @@
  */
 package esa.mo.mal.transport.gen;
 
+import esa.mo.mal.transport.gen.receivers.GENBoundedMessageDispatcher;
+import esa.mo.mal.transport.gen.receivers.GENConcurrentMessageDispatcher;
 import esa.mo.mal.transport.gen.receivers.GENIncomingMessageDecoder;
+import esa.mo.mal.transport.gen.receivers.GENIncomingMessageDispatcher;
 import esa.mo.mal.transport.gen.receivers.GENIncomingMessageHolder;
+import esa.mo.mal.transport.gen.receivers.GENQueuedMessageDispatcher;
+import esa.mo.mal.transport.gen.receivers.GENStripedMessageDispatcher;
 import esa.mo.mal.transport.gen.sending.GENConcurrentMessageSender;
 import esa.mo.mal.transport.gen.sending.GENMessageSender;
 import esa.mo.mal.transport.gen.sending.GENOutgoingMessageHolder;
+import esa.mo.mal.transport.gen.sending.GENOutgoingMessageListener;
+import esa.mo.mal.transport.gen.sending.GENPriorityMessageQueue;
+import esa.mo.mal.transport.gen.sending.GENStreamedMessageEncoder;
+import esa.mo.mal.transport.gen.util.GENBufferPool;
+import esa.mo.mal.transport.gen.util.GENExecutorFactory;
 import esa.mo.mal.transport.gen.util.GENHelper;
-import java.io.ByteArrayOutputStream;
+import esa.mo.mal.transport.gen.util.GENOutputBufferPool;
+import esa.mo.mal.transport.gen.util.GENOutputBufferPool.GENOutputBuffer;
+import esa.mo.mal.transport.gen.util.GENPlatformExecutorFactory;
+import esa.mo.mal.transport.gen.util.GENQueueLimit;
+import esa.mo.mal.transport.gen.util.GENReconnectPolicy;
+import esa.mo.mal.transport.gen.util.GENVirtualExecutorFactory;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.management.ObjectName;
 import org.ccsds.moims.mo.mal.*;
 import org.ccsds.moims.mo.mal.encoding.MALElementOutputStream;
 import org.ccsds.moims.mo.mal.encoding.MALElementStreamFactory;
@@ -66,6 +91,135 @@ public abstract class GENTransport implements MALTransport
    * System property to control the number of connections per client.
    */
   public static final String NUM_CLIENT_CONNS_PROPERTY = "org.ccsds.moims.mo.mal.transport.gen.numconnections";
+  /**
+   * System property to select the incoming message dispatcher, one of queued (the default), concurrent or striped.
+   */
+  public static final String DISPATCHER_PROPERTY = "org.ccsds.moims.mo.mal.transport.gen.dispatcher";
+  /**
+   * System property to control the number of threads that decode incoming messages. Messages from the same reception
+   * handler are always decoded by the same thread. A value of 0 decodes messages on the thread that receives them.
+   */
+  public static final String DECODER_THREADS_PROPERTY = "org.ccsds.moims.mo.mal.transport.gen.decoderthreads";
+  /**
+   * System property to control whether sending a message returns before it has been written to the underlying
+   * transport. Send failures are then reported to the message listener of the sending endpoint.
+   */
+  public static final String ASYNC_SEND_PROPERTY = "org.ccsds.moims.mo.mal.transport.gen.asyncsend";
+  /**
+   * System property to control the maximum number of queued messages sent together in one batch, if the message sender
+   * supports it. The default of 1 disables batching.
+   */
+  public static final String SEND_BATCH_SIZE_PROPERTY = "org.ccsds.moims.mo.mal.transport.gen.sendbatchsize";
+  /**
+   * System property to control the maximum number of encoded bytes sent together in one batch.
+   */
+  public static final String SEND_BATCH_BYTES_PROPERTY = "org.ccsds.moims.mo.mal.transport.gen.sendbatchbytes";
+  /**
+   * System property to control the number of priority levels of the queues of outgoing messages. Messages are sent
+   * from the highest message priority level first. The default of 1 sends messages in the order they are queued.
+   */
+  public static final String SEND_PRIORITY_LEVELS_PROPERTY = "org.ccsds.moims.mo.mal.transport.gen.sendprioritylevels";
+  /**
+   * System property to control the period in milliseconds after which a queued outgoing message is treated as one
+   * priority level higher, so that low priority messages are not held back for ever. The default of 0 disables aging.
+   */
+  public static final String SEND_PRIORITY_AGING_PROPERTY = "org.ccsds.moims.mo.mal.transport.gen.sendpriorityaging";
+  /**
+   * System property to control which messages are kept on the same connection when there is more than one connection
+   * to a URI: none, transaction or source. With transaction, or source, the messages of a transaction, or of a sending
+   * endpoint, are sent in order on one connection. The default of none sends each message on the first free connection.
+   */
+  public static final String SEND_AFFINITY_PROPERTY = "org.ccsds.moims.mo.mal.transport.gen.sendaffinity";
+  /**
+   * System property to control the number of pooled buffers kept for reading incoming messages, for transports that
+   * support it. The default of 0 disables pooling, so each incoming message is read into a new array.
+   */
+  public static final String RECEIVE_BUFFERS_PROPERTY = "org.ccsds.moims.mo.mal.transport.gen.receivebuffers";
+  /**
+   * System property to control whether the pooled receive buffers are direct buffers.
+   */
+  public static final String DIRECT_BUFFERS_PROPERTY = "org.ccsds.moims.mo.mal.transport.gen.directbuffers";
+  /**
+   * System property to control whether the headers of incoming messages are decoded in two phases. When enabled only
+   * the fields needed for routing are decoded on reception, the authentication id, domain, network zone and session
+   * name are decoded when first accessed.
+   */
+  public static final String LAZY_HEADERS_PROPERTY = "org.ccsds.moims.mo.mal.transport.gen.lazyheaders";
+  /**
+   * System property to control the maximum number of messages queued for sending to each remote URI. The default of 0
+   * means no limit.
+   */
+  public static final String OUTGOING_QUEUE_MESSAGES_PROPERTY
+          = "org.ccsds.moims.mo.mal.transport.gen.outgoingqueuemessages";
+  /**
+   * System property to control the maximum number of encoded bytes queued for sending to each remote URI. The default of
+   * 0 means no limit.
+   */
+  public static final String OUTGOING_QUEUE_BYTES_PROPERTY = "org.ccsds.moims.mo.mal.transport.gen.outgoingqueuebytes";
+  /**
+   * System property to control what happens to a message sent when the outgoing queue is full: block, reject or
+   * dropoldest. The default is block.
+   */
+  public static final String OUTGOING_QUEUE_POLICY_PROPERTY = "org.ccsds.moims.mo.mal.transport.gen.outgoingqueuepolicy";
+  /**
+   * System property to control the maximum number of received messages waiting to be processed. The default of 0 means
+   * no limit.
+   */
+  public static final String INCOMING_QUEUE_MESSAGES_PROPERTY
+          = "org.ccsds.moims.mo.mal.transport.gen.incomingqueuemessages";
+  /**
+   * System property to control the maximum number of encoded bytes of received messages waiting to be processed. The
+   * default of 0 means no limit.
+   */
+  public static final String INCOMING_QUEUE_BYTES_PROPERTY = "org.ccsds.moims.mo.mal.transport.gen.incomingqueuebytes";
+  /**
+   * System property to control what happens to a received message when the incoming queue is full: block, which holds
+   * up the reception of further messages, reject or dropoldest. The default is block.
+   */
+  public static final String INCOMING_QUEUE_POLICY_PROPERTY = "org.ccsds.moims.mo.mal.transport.gen.incomingqueuepolicy";
+  /**
+   * System property to control whether the metrics of the transport are registered as an MBean with the platform MBean
+   * server. The default is true.
+   */
+  public static final String JMX_PROPERTY = "org.ccsds.moims.mo.mal.transport.gen.jmx";
+  /**
+   * System property to select how the threads of the transport are created: platform (the default), virtual, or the
+   * class name of a GENExecutorFactory implementation. Virtual threads fall back to platform threads on JVMs that do not
+   * support them.
+   */
+  public static final String EXECUTOR_FACTORY_PROPERTY = "org.ccsds.moims.mo.mal.transport.gen.executorfactory";
+  /**
+   * System property to control whether the platform threads of the transport are daemon threads. The default is false.
+   */
+  public static final String DAEMON_THREADS_PROPERTY = "org.ccsds.moims.mo.mal.transport.gen.daemonthreads";
+  /**
+   * System property to control whether message senders that lose their connection reconnect in the background, keeping
+   * their pending messages, instead of failing them. The default is false.
+   */
+  public static final String RECONNECT_PROPERTY = "org.ccsds.moims.mo.mal.transport.gen.reconnect";
+  /**
+   * System property to set the delay before the first reconnection attempt in milliseconds. The default is 100.
+   */
+  public static final String RECONNECT_DELAY_PROPERTY = "org.ccsds.moims.mo.mal.transport.gen.reconnectdelay";
+  /**
+   * System property to set the maximum delay between reconnection attempts in milliseconds. The default is 30000.
+   */
+  public static final String RECONNECT_MAX_DELAY_PROPERTY = "org.ccsds.moims.mo.mal.transport.gen.reconnectmaxdelay";
+  /**
+   * System property to set how long pending messages are kept while reconnecting in milliseconds. The default is 60000.
+   */
+  public static final String RECONNECT_RETENTION_PROPERTY = "org.ccsds.moims.mo.mal.transport.gen.reconnectretention";
+  /**
+   * System property to set the maximum number of encoded bytes kept while reconnecting, 0 for no limit other than the
+   * outgoing queue limit. The default is 0.
+   */
+  public static final String RECONNECT_RETENTION_BYTES_PROPERTY
+          = "org.ccsds.moims.mo.mal.transport.gen.reconnectretentionbytes";
+  /**
+   * System property to set the encoded size in bytes above which a message is not held encoded in memory but encoded
+   * by the message sender as it is sent, if the message senders support it. The default is 0, which disables this.
+   */
+  public static final String STREAM_THRESHOLD_PROPERTY = "org.ccsds.moims.mo.mal.transport.gen.streamthreshold";
   /**
    * Charset used for converting the encoded message into a string for debugging.
    */
@@ -74,6 +228,10 @@ public abstract class GENTransport implements MALTransport
    * Logger
    */
   public static final java.util.logging.Logger LOGGER = Logger.getLogger("org.ccsds.moims.mo.mal.transport.gen");
+  /**
+   * The maximum number of free encoding buffers kept by each transport.
+   */
+  protected static final int MAX_POOLED_OUTPUT_BUFFERS = 64;
   /**
    * Used to create random local names for endpoints.
    */
@@ -120,17 +278,37 @@ public abstract class GENTransport implements MALTransport
    */
   protected final boolean logFullDebug;
   /**
-   * The string used to represent this protocol.
+   * True if sending a message should not wait for the message to be written to the underlying transport.
    */
-  protected final String protocol;
+  protected final boolean asyncSend;
+  /**
+   * True if the headers of incoming messages are decoded in two phases.
+   */
+  protected final boolean lazyHeaders;
+  /**
+   * True if the metrics are registered with the platform MBean server.
+   */
+  protected final boolean jmxEnabled;
+  /**
+   * The factory of the threads and executors of this transport.
+   */
+  protected final GENExecutorFactory executorFactory;
+  /**
+   * How message senders reconnect, null if they do not.
+   */
+  protected final GENReconnectPolicy reconnectPolicy;
   /**
-   * Map of string MAL names to endpoints.
+   * The metrics of this transport.
    */
-  protected final Map<String, GENEndpoint> endpointMalMap = new HashMap<String, GENEndpoint>();
+  protected final GENTransportMetrics metrics = new GENTransportMetrics(this);
   /**
-   * Map of string transport routing names to endpoints.
+   * The string used to represent this protocol.
+   */
+  protected final String protocol;
+  /**
+   * The endpoints by MAL name and by transport routing name.
    */
-  protected final Map<String, GENEndpoint> endpointRoutingMap = new HashMap<String, GENEndpoint>();
+  protected final GENEndpointRegistry endpoints = new GENEndpointRegistry();
   /**
    * Map of QoS properties.
    */
@@ -147,27 +325,82 @@ public abstract class GENTransport implements MALTransport
    */
   private final int inputProcessorThreads;
   /**
-   * The thread that receives incoming message from the underlying transport. All incoming raw data packets are
-   * processed by this thread.
+   * The maximum number of messages sent in one batch by the message senders.
+   */
+  private final int sendBatchSize;
+  /**
+   * The maximum number of encoded bytes sent in one batch by the message senders.
+   */
+  private final int sendBatchBytes;
+  /**
+   * The number of priority levels of the queues of outgoing messages.
+   */
+  private final int sendPriorityLevels;
+  /**
+   * The aging period of the queues of outgoing messages in milliseconds.
+   */
+  private final long sendPriorityAging;
+  /**
+   * The affinity mode of the message senders.
+   */
+  private final int sendAffinity;
+  /**
+   * The maximum number of messages queued for sending to each remote URI, 0 for no limit.
+   */
+  private final int outgoingQueueMessages;
+  /**
+   * The maximum number of encoded bytes queued for sending to each remote URI, 0 for no limit.
    */
-  private final ExecutorService asyncInputReceptionProcessor;
+  private final long outgoingQueueBytes;
   /**
-   * The thread pool of input message processors. All incoming messages are processed by this thread pool after they
-   * have been decoded by the asyncInputReceptionProcessor thread.
+   * The overflow policy of the outgoing queues.
    */
-  private final ExecutorService asyncInputDataProcessors;
+  private final int outgoingQueuePolicy;
   /**
-   * The map of message queues, segregated by transaction id.
+   * The encoded size above which messages are streamed, 0 if they are never streamed.
    */
-  private final Map<Long, GENIncomingMessageProcessor> transactionQueues = new HashMap<Long, GENIncomingMessageProcessor>();
+  private final int streamThreshold;
+  /**
+   * The threads that receive incoming message from the underlying transport. All incoming raw data packets are
+   * decoded by these threads, partitioned by reception handler. Empty if messages are decoded on the receiving thread.
+   */
+  private final ExecutorService[] asyncInputReceptionProcessors;
+  /**
+   * The dispatcher of input messages. All incoming messages are passed to its processing threads after they have been
+   * decoded by the asyncInputReceptionProcessors threads.
+   */
+  private final GENBoundedMessageDispatcher incomingMessageDispatcher;
+  /**
+   * The pool of buffers for reading incoming messages, null if pooling is disabled. Buffers are returned to the pool
+   * when the message decoded from them is freed.
+   */
+  private final GENBufferPool receiveBufferPool;
+  /**
+   * The pool of buffers that outgoing messages are encoded into.
+   */
+  private final GENOutputBufferPool outputBufferPool = new GENOutputBufferPool(MAX_POOLED_OUTPUT_BUFFERS);
   /**
    * Map of outgoing channels. This associates a URI to a transport resource that is able to send messages to this URI.
    */
   private final Map<String, GENConcurrentMessageSender> outgoingDataChannels = Collections.synchronizedMap(new HashMap<String, GENConcurrentMessageSender>());
+  /**
+   * Map of the connections being established, by root URI. Senders to a URI that is being connected to wait for the
+   * pending connection instead of opening their own, and are not blocked by connections to other URIs.
+   */
+  private final ConcurrentMap<String, FutureTask<GENConcurrentMessageSender>> pendingConnections
+          = new ConcurrentHashMap<String, FutureTask<GENConcurrentMessageSender>>();
   /**
    * The stream factory used for encoding and decoding messages.
    */
   private final MALElementStreamFactory streamFactory;
+  /**
+   * Informs the sending endpoint of messages that could not be sent when sending asynchronously.
+   */
+  private final GENOutgoingMessageListener transmitErrorNotifier = new GENTransmitErrorNotifier();
+  /**
+   * The name the metrics are registered under, null if not registered.
+   */
+  private ObjectName metricsName = null;
   /**
    * The base string for URL for this protocol.
    */
@@ -218,8 +451,19 @@ public abstract class GENTransport implements MALTransport
     boolean lLogFullDebug = false;
     boolean lWrapBodyParts = wrapBodyParts;
     boolean lInProcessSupport = true;
+    boolean lAsyncSend = false;
+    boolean lLazyHeaders = false;
+    boolean lJmxEnabled = true;
     int lInputProcessorThreads = 100;
     int lNumConnections = 1;
+    int lSendBatchSize = 1;
+    int lSendBatchBytes = 65536;
+    int lSendPriorityLevels = 1;
+    long lSendPriorityAging = 0;
+    String lSendAffinity = null;
+    int lOutgoingQueueMessages = 0;
+    long lOutgoingQueueBytes = 0;
+    String lOutgoingQueuePolicy = null;
 
     // decode configuration
     if (properties != null)
@@ -239,6 +483,21 @@ public abstract class GENTransport implements MALTransport
         lInProcessSupport = Boolean.parseBoolean((String) properties.get(INPROC_PROPERTY));
       }
 
+      if (properties.containsKey(ASYNC_SEND_PROPERTY))
+      {
+        lAsyncSend = Boolean.parseBoolean((String) properties.get(ASYNC_SEND_PROPERTY));
+      }
+
+      if (properties.containsKey(LAZY_HEADERS_PROPERTY))
+      {
+        lLazyHeaders = Boolean.parseBoolean((String) properties.get(LAZY_HEADERS_PROPERTY));
+      }
+
+      if (properties.containsKey(JMX_PROPERTY))
+      {
+        lJmxEnabled = Boolean.parseBoolean((String) properties.get(JMX_PROPERTY));
+      }
+
       // number of internal threads that process incoming MAL packets
       if (properties.containsKey(INPUT_PROCESSORS_PROPERTY))
       {
@@ -250,16 +509,75 @@ public abstract class GENTransport implements MALTransport
       {
         lNumConnections = Integer.parseInt((String) properties.get(NUM_CLIENT_CONNS_PROPERTY));
       }
+
+      // batching of queued outgoing messages
+      if (properties.containsKey(SEND_BATCH_SIZE_PROPERTY))
+      {
+        lSendBatchSize = Integer.parseInt((String) properties.get(SEND_BATCH_SIZE_PROPERTY));
+      }
+
+      if (properties.containsKey(SEND_BATCH_BYTES_PROPERTY))
+      {
+        lSendBatchBytes = Integer.parseInt((String) properties.get(SEND_BATCH_BYTES_PROPERTY));
+      }
+
+      // priority scheduling of queued outgoing messages
+      if (properties.containsKey(SEND_PRIORITY_LEVELS_PROPERTY))
+      {
+        lSendPriorityLevels = Integer.parseInt((String) properties.get(SEND_PRIORITY_LEVELS_PROPERTY));
+      }
+
+      if (properties.containsKey(SEND_PRIORITY_AGING_PROPERTY))
+      {
+        lSendPriorityAging = Long.parseLong((String) properties.get(SEND_PRIORITY_AGING_PROPERTY));
+      }
+
+      // connection affinity of outgoing messages
+      if (properties.containsKey(SEND_AFFINITY_PROPERTY))
+      {
+        lSendAffinity = (String) properties.get(SEND_AFFINITY_PROPERTY);
+      }
+
+      // limits of the queues of outgoing messages
+      if (properties.containsKey(OUTGOING_QUEUE_MESSAGES_PROPERTY))
+      {
+        lOutgoingQueueMessages = Integer.parseInt((String) properties.get(OUTGOING_QUEUE_MESSAGES_PROPERTY));
+      }
+
+      if (properties.containsKey(OUTGOING_QUEUE_BYTES_PROPERTY))
+      {
+        lOutgoingQueueBytes = Long.parseLong((String) properties.get(OUTGOING_QUEUE_BYTES_PROPERTY));
+      }
+
+      if (properties.containsKey(OUTGOING_QUEUE_POLICY_PROPERTY))
+      {
+        lOutgoingQueuePolicy = (String) properties.get(OUTGOING_QUEUE_POLICY_PROPERTY);
+      }
     }
 
     this.logFullDebug = lLogFullDebug;
     this.wrapBodyParts = lWrapBodyParts;
     this.inProcessSupport = lInProcessSupport;
+    this.asyncSend = lAsyncSend;
+    this.lazyHeaders = lLazyHeaders;
+    this.jmxEnabled = lJmxEnabled;
     this.inputProcessorThreads = lInputProcessorThreads;
     this.numConnections = lNumConnections;
-
-    this.asyncInputReceptionProcessor = Executors.newSingleThreadExecutor();
-    this.asyncInputDataProcessors = Executors.newFixedThreadPool(inputProcessorThreads);
+    this.sendBatchSize = lSendBatchSize;
+    this.sendBatchBytes = lSendBatchBytes;
+    this.sendPriorityLevels = lSendPriorityLevels;
+    this.sendPriorityAging = lSendPriorityAging;
+    this.sendAffinity = GENConcurrentMessageSender.parseAffinity(lSendAffinity);
+    this.outgoingQueueMessages = lOutgoingQueueMessages;
+    this.outgoingQueueBytes = lOutgoingQueueBytes;
+    this.outgoingQueuePolicy = GENQueueLimit.parsePolicy(lOutgoingQueuePolicy);
+
+    this.executorFactory = createExecutorFactory(properties);
+    this.reconnectPolicy = createReconnectPolicy(properties);
+    this.streamThreshold = parseStreamThreshold(properties);
+    this.asyncInputReceptionProcessors = createReceptionProcessors(properties);
+    this.incomingMessageDispatcher = createMessageDispatcher(properties, inputProcessorThreads);
+    this.receiveBufferPool = createReceiveBufferPool(properties);
 
     LOGGER.log(Level.FINE, "GEN Wrapping body parts set to  : {0}", this.wrapBodyParts);
   }
@@ -313,8 +631,19 @@ public abstract class GENTransport implements MALTransport
     boolean lLogFullDebug = false;
     boolean lWrapBodyParts = wrapBodyParts;
     boolean lInProcessSupport = true;
+    boolean lAsyncSend = false;
+    boolean lLazyHeaders = false;
+    boolean lJmxEnabled = true;
     int lInputProcessorThreads = 100;
     int lNumConnections = 1;
+    int lSendBatchSize = 1;
+    int lSendBatchBytes = 65536;
+    int lSendPriorityLevels = 1;
+    long lSendPriorityAging = 0;
+    String lSendAffinity = null;
+    int lOutgoingQueueMessages = 0;
+    long lOutgoingQueueBytes = 0;
+    String lOutgoingQueuePolicy = null;
 
     // decode configuration
     if (properties != null)
@@ -334,6 +663,21 @@ public abstract class GENTransport implements MALTransport
         lInProcessSupport = Boolean.parseBoolean((String) properties.get(INPROC_PROPERTY));
       }
 
+      if (properties.containsKey(ASYNC_SEND_PROPERTY))
+      {
+        lAsyncSend = Boolean.parseBoolean((String) properties.get(ASYNC_SEND_PROPERTY));
+      }
+
+      if (properties.containsKey(LAZY_HEADERS_PROPERTY))
+      {
+        lLazyHeaders = Boolean.parseBoolean((String) properties.get(LAZY_HEADERS_PROPERTY));
+      }
+
+      if (properties.containsKey(JMX_PROPERTY))
+      {
+        lJmxEnabled = Boolean.parseBoolean((String) properties.get(JMX_PROPERTY));
+      }
+
       // number of internal threads that process incoming MAL packets
       if (properties.containsKey(INPUT_PROCESSORS_PROPERTY))
       {
@@ -345,16 +689,75 @@ public abstract class GENTransport implements MALTransport
       {
         lNumConnections = Integer.parseInt((String) properties.get(NUM_CLIENT_CONNS_PROPERTY));
       }
+
+      // batching of queued outgoing messages
+      if (properties.containsKey(SEND_BATCH_SIZE_PROPERTY))
+      {
+        lSendBatchSize = Integer.parseInt((String) properties.get(SEND_BATCH_SIZE_PROPERTY));
+      }
+
+      if (properties.containsKey(SEND_BATCH_BYTES_PROPERTY))
+      {
+        lSendBatchBytes = Integer.parseInt((String) properties.get(SEND_BATCH_BYTES_PROPERTY));
+      }
+
+      // priority scheduling of queued outgoing messages
+      if (properties.containsKey(SEND_PRIORITY_LEVELS_PROPERTY))
+      {
+        lSendPriorityLevels = Integer.parseInt((String) properties.get(SEND_PRIORITY_LEVELS_PROPERTY));
+      }
+
+      if (properties.containsKey(SEND_PRIORITY_AGING_PROPERTY))
+      {
+        lSendPriorityAging = Long.parseLong((String) properties.get(SEND_PRIORITY_AGING_PROPERTY));
+      }
+
+      // connection affinity of outgoing messages
+      if (properties.containsKey(SEND_AFFINITY_PROPERTY))
+      {
+        lSendAffinity = (String) properties.get(SEND_AFFINITY_PROPERTY);
+      }
+
+      // limits of the queues of outgoing messages
+      if (properties.containsKey(OUTGOING_QUEUE_MESSAGES_PROPERTY))
+      {
+        lOutgoingQueueMessages = Integer.parseInt((String) properties.get(OUTGOING_QUEUE_MESSAGES_PROPERTY));
+      }
+
+      if (properties.containsKey(OUTGOING_QUEUE_BYTES_PROPERTY))
+      {
+        lOutgoingQueueBytes = Long.parseLong((String) properties.get(OUTGOING_QUEUE_BYTES_PROPERTY));
+      }
+
+      if (properties.containsKey(OUTGOING_QUEUE_POLICY_PROPERTY))
+      {
+        lOutgoingQueuePolicy = (String) properties.get(OUTGOING_QUEUE_POLICY_PROPERTY);
+      }
     }
 
     this.logFullDebug = lLogFullDebug;
     this.wrapBodyParts = lWrapBodyParts;
     this.inProcessSupport = lInProcessSupport;
+    this.asyncSend = lAsyncSend;
+    this.lazyHeaders = lLazyHeaders;
+    this.jmxEnabled = lJmxEnabled;
     this.inputProcessorThreads = lInputProcessorThreads;
     this.numConnections = lNumConnections;
-
-    asyncInputReceptionProcessor = Executors.newSingleThreadExecutor();
-    asyncInputDataProcessors = Executors.newFixedThreadPool(inputProcessorThreads);
+    this.sendBatchSize = lSendBatchSize;
+    this.sendBatchBytes = lSendBatchBytes;
+    this.sendPriorityLevels = lSendPriorityLevels;
+    this.sendPriorityAging = lSendPriorityAging;
+    this.sendAffinity = GENConcurrentMessageSender.parseAffinity(lSendAffinity);
+    this.outgoingQueueMessages = lOutgoingQueueMessages;
+    this.outgoingQueueBytes = lOutgoingQueueBytes;
+    this.outgoingQueuePolicy = GENQueueLimit.parsePolicy(lOutgoingQueuePolicy);
+
+    executorFactory = createExecutorFactory(properties);
+    reconnectPolicy = createReconnectPolicy(properties);
+    streamThreshold = parseStreamThreshold(properties);
+    asyncInputReceptionProcessors = createReceptionProcessors(properties);
+    incomingMessageDispatcher = createMessageDispatcher(properties, inputProcessorThreads);
+    receiveBufferPool = createReceiveBufferPool(properties);
 
     LOGGER.log(Level.FINE, "GEN Wrapping body parts set to  : {0}", this.wrapBodyParts);
   }
@@ -373,40 +776,87 @@ public abstract class GENTransport implements MALTransport
     }
 
     uriBase = protocolString + protocolDelim + createTransportAddress() + serviceDelim;
+
+    if (jmxEnabled)
+    {
+      registerMetrics(protocolString);
+    }
+  }
+
+  /**
+   * Returns the factory of the threads and executors of this transport.
+   *
+   * @return the executor factory.
+   */
+  public GENExecutorFactory getExecutorFactory()
+  {
+    return executorFactory;
+  }
+
+  /**
+   * Returns how message senders reconnect after losing their connection.
+   *
+   * @return the reconnection policy, null if they do not reconnect.
+   */
+  public GENReconnectPolicy getReconnectPolicy()
+  {
+    return reconnectPolicy;
+  }
+
+  /**
+   * Returns the metrics of this transport.
+   *
+   * @return the metrics.
+   */
+  public GENTransportMetrics getMetrics()
+  {
+    return metrics;
   }
 
   @Override
   public MALEndpoint createEndpoint(final String localName, final Map qosProperties) throws MALException
   {
     final String strRoutingName = getLocalName(localName, qosProperties);
-    GENEndpoint endpoint = endpointRoutingMap.get(strRoutingName);
 
-    if (null == endpoint)
+    synchronized (endpoints)
     {
-      LOGGER.log(Level.INFO, "GEN Creating endpoint {0} : {1}", new Object[]
+      GENEndpoint endpoint = endpoints.getByRoutingName(strRoutingName);
+
+      if (null == endpoint)
       {
-        localName, strRoutingName
-      });
-      endpoint = internalCreateEndpoint(localName, strRoutingName, qosProperties);
-      endpointMalMap.put(localName, endpoint);
-      endpointRoutingMap.put(strRoutingName, endpoint);
-    }
+        LOGGER.log(Level.INFO, "GEN Creating endpoint {0} : {1}", new Object[]
+        {
+          localName, strRoutingName
+        });
+        endpoint = internalCreateEndpoint(localName, strRoutingName, qosProperties);
+        endpoints.add(endpoint);
+      }
 
-    return endpoint;
+      return endpoint;
+    }
   }
 
   @Override
   public MALEndpoint getEndpoint(final String localName) throws IllegalArgumentException
   {
-    return endpointMalMap.get(localName);
+    return endpoints.getByLocalName(localName);
   }
 
   @Override
   public MALEndpoint getEndpoint(final URI uri) throws IllegalArgumentException
   {
-    String endpointUriPart = getRoutingPart(uri.getValue());
+    return getEndpointByURI(uri.getValue());
+  }
 
-    return endpointRoutingMap.get(endpointUriPart);
+  /**
+   * Returns the local endpoint that a URI routes to, without extracting the routing part of the URI.
+   *
+   * @param uriValue The URI value.
+   * @return the endpoint or null if the URI is not for a local endpoint.
+   */
+  protected GENEndpoint getEndpointByURI(final String uriValue)
+  {
+    return endpoints.getByRoutingPart(uriValue, getRoutingPartStart(uriValue), getRoutingPartEnd(uriValue));
   }
 
   /**
@@ -440,88 +890,279 @@ public abstract class GENTransport implements MALTransport
    */
   public GENMessage createMessage(final byte[] packet) throws MALException
   {
-    return new GENMessage(wrapBodyParts, true, new GENMessageHeader(), qosProperties, packet, getStreamFactory());
+    final GENMessageHeader header = lazyHeaders
+            ? new GENLazyMessageHeader(getStreamFactory(), packet, 0, packet.length)
+            : new GENMessageHeader();
+
+    return new GENMessage(wrapBodyParts, true, header, qosProperties, packet, getStreamFactory());
   }
 
   /**
-   * On reception of an IO stream this method should be called. This is the main reception entry point into the generic
-   * transport for stream based transports.
+   * Overridable internal method for the creation of receiving messages from a pooled buffer. The buffer is returned to
+   * the receive buffer pool when the message is freed.
    *
-   * @param receptionHandler The reception handler to pass them to.
-   * @param decoder The class responsible for decoding the message from the incoming connection
+   * @param packet The input packet to use, from its position to its limit.
+   * @return The new message.
+   * @throws MALException on Error.
    */
-  public void receive(final GENReceptionHandler receptionHandler, final GENIncomingMessageDecoder decoder)
+  public GENMessage createMessage(final ByteBuffer packet) throws MALException
   {
-    asyncInputReceptionProcessor.submit(new GENIncomingMessageReceiver(this, receptionHandler, decoder));
+    // a direct buffer has no array to decode the deferred fields from
+    final GENMessageHeader header = (lazyHeaders && packet.hasArray())
+            ? new GENLazyMessageHeader(getStreamFactory(), packet.array(), packet.arrayOffset() + packet.position(),
+                    packet.remaining())
+            : new GENMessageHeader();
+
+    return new GENMessage(wrapBodyParts, true, header, qosProperties, packet, receiveBufferPool, getStreamFactory());
   }
 
   /**
-   * The main exit point for messages from this transport.
+   * Creates a received message whose header has already been decoded, for transports that send the header separately
+   * from the body.
    *
-   * @param multiSendHandle A context handle for multi send
-   * @param lastForHandle True if that is the last message in a multi send for the handle
-   * @param msg The message to send.
-   * @throws MALTransmitErrorException On transmit error.
+   * @param header The decoded header.
+   * @param ios The input stream holding the encoded body.
+   * @return The new message.
+   * @throws MALException on Error.
    */
-  public void sendMessage(final Object multiSendHandle,
-          final boolean lastForHandle,
-          final GENMessage msg) throws MALTransmitErrorException
+  public GENMessage createMessage(final GENMessageHeader header, final java.io.InputStream ios) throws MALException
   {
-    // first check if its actually a message to ourselves
-    String endpointUriPart = getRoutingPart(msg.getHeader().getURITo().getValue());
+    return new GENMessage(wrapBodyParts, false, header, qosProperties, ios, getStreamFactory());
+  }
 
-    if (inProcessSupport && endpointRoutingMap.containsKey(endpointUriPart))
-    {
-      LOGGER.log(Level.FINE, "GEN routing msg internally to {0}", new Object[]
-      {
-        endpointUriPart
-      });
+  /**
+   * Creates a received message whose header has already been decoded from a pooled buffer. The buffer is returned to
+   * the receive buffer pool when the message is freed.
+   *
+   * @param header The decoded header.
+   * @param packet The buffer holding the encoded body, from its position to its limit.
+   * @return The new message.
+   * @throws MALException on Error.
+   */
+  public GENMessage createMessage(final GENMessageHeader header, final ByteBuffer packet) throws MALException
+  {
+    return new GENMessage(wrapBodyParts, false, header, qosProperties, packet, receiveBufferPool, getStreamFactory());
+  }
 
-      // if local then just send internally
-      receiveIncomingMessage(new GENIncomingMessageHolder(msg.getHeader().getTransactionId(), msg, new PacketToString(null)));
-    }
-    else
+  /**
+   * Returns the number of received messages waiting to be processed.
+   *
+   * @return the number of messages.
+   */
+  public int getIncomingQueuedMessageCount()
+  {
+    return incomingMessageDispatcher.getQueuedMessageCount();
+  }
+
+  /**
+   * Returns the number of encoded bytes of the received messages waiting to be processed, for messages whose encoded
+   * length is known.
+   *
+   * @return the number of bytes.
+   */
+  public long getIncomingQueuedByteCount()
+  {
+    return incomingMessageDispatcher.getQueuedByteCount();
+  }
+
+  /**
+   * Returns the number of messages waiting to be sent, for all remote URIs.
+   *
+   * @return the number of messages.
+   */
+  public int getOutgoingQueuedMessageCount()
+  {
+    int count = 0;
+
+    synchronized (outgoingDataChannels)
     {
-      try
+      for (GENConcurrentMessageSender sender : outgoingDataChannels.values())
       {
-        // get the root URI, (e.g. tcpip://10.0.0.1:61616 )
-        String destinationURI = msg.getHeader().getURITo().getValue();
-        String remoteRootURI = getRootURI(destinationURI);
+        count += sender.getQueuedMessageCount();
+      }
+    }
 
-        LOGGER.log(Level.FINE, "GEN sending msg. Target root URI: {0} full URI:{1}", new Object[]
-        {
+    return count;
+  }
+
+  /**
+   * Returns the number of encoded bytes waiting to be sent, for all remote URIs.
+   *
+   * @return the number of bytes.
+   */
+  public long getOutgoingQueuedByteCount()
+  {
+    long count = 0;
+
+    synchronized (outgoingDataChannels)
+    {
+      for (GENConcurrentMessageSender sender : outgoingDataChannels.values())
+      {
+        count += sender.getQueuedByteCount();
+      }
+    }
+
+    return count;
+  }
+
+  /**
+   * Returns the number of messages waiting to be sent to each remote URI.
+   *
+   * @return the number of messages by remote root URI.
+   */
+  public Map<String, Integer> getOutgoingQueueDepths()
+  {
+    final Map<String, Integer> depths = new TreeMap<String, Integer>();
+
+    synchronized (outgoingDataChannels)
+    {
+      for (Map.Entry<String, GENConcurrentMessageSender> entry : outgoingDataChannels.entrySet())
+      {
+        depths.put(entry.getKey(), entry.getValue().getQueuedMessageCount());
+      }
+    }
+
+    return depths;
+  }
+
+  /**
+   * Returns the number of transactions that have received messages queued or being processed.
+   *
+   * @return the number of transactions.
+   */
+  public int getActiveTransactionCount()
+  {
+    return incomingMessageDispatcher.getActiveTransactionCount();
+  }
+
+  /**
+   * Returns the pool of buffers for reading incoming messages.
+   *
+   * @return the pool, or null if receive buffer pooling is not enabled.
+   */
+  public GENBufferPool getReceiveBufferPool()
+  {
+    return receiveBufferPool;
+  }
+
+  /**
+   * On reception of an IO stream this method should be called. This is the main reception entry point into the generic
+   * transport for stream based transports.
+   *
+   * @param receptionHandler The reception handler to pass them to.
+   * @param decoder The class responsible for decoding the message from the incoming connection
+   */
+  public void receive(final GENReceptionHandler receptionHandler, final GENIncomingMessageDecoder decoder)
+  {
+    final GENIncomingMessageReceiver receiver = new GENIncomingMessageReceiver(this, receptionHandler, decoder);
+
+    if (0 == asyncInputReceptionProcessors.length)
+    {
+      receiver.run();
+    }
+    else
+    {
+      int index = 0;
+
+      // messages from the same connection must be decoded in order so always use the same thread for a handler,
+      // transports without reception handlers all share the first thread
+      if ((null != receptionHandler) && (1 < asyncInputReceptionProcessors.length))
+      {
+        index = (System.identityHashCode(receptionHandler) & 0x7FFFFFFF) % asyncInputReceptionProcessors.length;
+      }
+
+      asyncInputReceptionProcessors[index].submit(receiver);
+    }
+  }
+
+  /**
+   * The main exit point for messages from this transport.
+   *
+   * @param multiSendHandle A context handle for multi send
+   * @param lastForHandle True if that is the last message in a multi send for the handle
+   * @param msg The message to send.
+   * @throws MALTransmitErrorException On transmit error.
+   */
+  public void sendMessage(final Object multiSendHandle,
+          final boolean lastForHandle,
+          final GENMessage msg) throws MALTransmitErrorException
+  {
+    // first check if its actually a message to ourselves
+    final GENEndpoint localEndpoint = inProcessSupport ? getEndpointByURI(msg.getHeader().getURITo().getValue()) : null;
+
+    if (null != localEndpoint)
+    {
+      LOGGER.log(Level.FINE, "GEN routing msg internally to {0}", new Object[]
+      {
+        localEndpoint.getRoutingName()
+      });
+
+      // if local then just send internally
+      receiveIncomingMessage(new GENIncomingMessageHolder(msg.getHeader().getTransactionId(), msg, new PacketToString(null)));
+    }
+    else
+    {
+      try
+      {
+        // get the root URI, (e.g. tcpip://10.0.0.1:61616 )
+        String destinationURI = msg.getHeader().getURITo().getValue();
+        String remoteRootURI = getRootURI(destinationURI);
+
+        LOGGER.log(Level.FINE, "GEN sending msg. Target root URI: {0} full URI:{1}", new Object[]
+        {
           remoteRootURI, destinationURI
         });
 
         // get outgoing channel
         GENConcurrentMessageSender dataSender = manageCommunicationChannel(msg, false, null);
 
-        GENOutgoingMessageHolder outgoingPacket = internalEncodeMessage(remoteRootURI, destinationURI, multiSendHandle, lastForHandle, dataSender.getTargetURI(), msg);
-
-        dataSender.sendMessage(outgoingPacket);
+        final long encodeStart = System.nanoTime();
+        GENOutgoingMessageHolder outgoingPacket = internalEncodeMessage(remoteRootURI, destinationURI, multiSendHandle, lastForHandle, dataSender.getTargetURI(), msg, dataSender.supportsStreaming());
+        final long encodeNanos = System.nanoTime() - encodeStart;
 
-        if (!outgoingPacket.getResult())
+        if (!dataSender.sendMessage(outgoingPacket))
         {
-          // data was not sent succesfully, throw an exception for the
-          // higher MAL layers
+          // the message was not queued, the outgoing queue is full or closed
           throw new MALTransmitErrorException(msg.getHeader(), new MALStandardError(MALHelper.DELIVERY_FAILED_ERROR_NUMBER, null), null);
         }
 
-        LOGGER.log(Level.FINE, "GEN finished Sending data to {0}", remoteRootURI);
+        metrics.messageSent(remoteRootURI, outgoingPacket.getEncodedMessageLength(), encodeNanos);
+
+        if (asyncSend)
+        {
+          // do not wait for the data to be sent, any failure is reported to the sending endpoint
+          outgoingPacket.setListener(transmitErrorNotifier);
+
+          LOGGER.log(Level.FINE, "GEN queued data for sending to {0}", remoteRootURI);
+        }
+        else
+        {
+          if (!outgoingPacket.getResult())
+          {
+            // data was not sent succesfully, throw an exception for the
+            // higher MAL layers
+            throw new MALTransmitErrorException(msg.getHeader(), new MALStandardError(MALHelper.DELIVERY_FAILED_ERROR_NUMBER, null), null);
+          }
+
+          LOGGER.log(Level.FINE, "GEN finished Sending data to {0}", remoteRootURI);
+        }
       }
       catch (MALTransmitErrorException e)
       {
         // this stops any true MAL exceptoins getting caught by the generic catch all below
+        metrics.errorRaised(e.getStandardError().getErrorNumber());
         throw e;
       }
       catch (InterruptedException e)
       {
         LOGGER.log(Level.SEVERE, "Interrupted while waiting for data reply", e);
+        metrics.errorRaised(MALHelper.INTERNAL_ERROR_NUMBER);
         throw new MALTransmitErrorException(msg.getHeader(), new MALStandardError(MALHelper.INTERNAL_ERROR_NUMBER, null), null);
       }
       catch (Exception t)
       {
         LOGGER.log(Level.SEVERE, "GEN could not send message!", t);
+        metrics.errorRaised(MALHelper.INTERNAL_ERROR_NUMBER);
         throw new MALTransmitErrorException(msg.getHeader(), new MALStandardError(MALHelper.INTERNAL_ERROR_NUMBER, null), null);
       }
     }
@@ -548,6 +1189,7 @@ public abstract class GENTransport implements MALTransport
       GENConcurrentMessageSender commsChannel = outgoingDataChannels.get(localUriTo);
       if (commsChannel != null)
       {
+        metrics.connectionsClosed(commsChannel.getNumberOfProcessors());
         commsChannel.terminate();
         outgoingDataChannels.remove(localUriTo);
       }
@@ -574,19 +1216,66 @@ public abstract class GENTransport implements MALTransport
   {
     LOGGER.log(Level.WARNING, "GEN Communication Error with {0} ", uriTo);
 
+    connectionLost(uriTo, receptionHandler);
+  }
+
+  /**
+   * Used to inform the transport that the other end closed a connection, for example because it restarted. If message
+   * senders reconnect only the connection is closed, and the message senders using it reconnect once they find it
+   * closed, otherwise all communication channels with the destination are closed as for a communication error. A
+   * connection that is not used by the communication channel, such as a surplus one, is closed on its own.
+   *
+   * @param uriTo the remote URI of the connection.
+   * @param receptionHandler the reception handler of the connection.
+   */
+  public void connectionLost(String uriTo, GENReceptionHandler receptionHandler)
+  {
+    if ((null != reconnectPolicy) && (null != receptionHandler))
+    {
+      receptionHandler.close();
+      return;
+    }
+
+    if ((null != receptionHandler) && (null != receptionHandler.getMessageSender()))
+    {
+      final String remoteURI = (null != uriTo) ? uriTo : receptionHandler.getRemoteURI();
+      final GENConcurrentMessageSender commsChannel = (null != remoteURI) ? outgoingDataChannels.get(remoteURI) : null;
+
+      if ((null != commsChannel) && !commsChannel.hasProcessor(receptionHandler.getMessageSender()))
+      {
+        receptionHandler.close();
+        return;
+      }
+    }
+
     closeConnection(uriTo, receptionHandler);
   }
 
+  /**
+   * Opens a new connection to a URI to replace one that a message sender has lost. Called by the reconnecting sender
+   * without holding any transport lock.
+   *
+   * @param msg A message being sent to the URI, used for error reporting, may be null.
+   * @param remoteRootURI the remote root URI
+   * @return the message sender of the new connection
+   * @throws MALException in case the URI cannot be connected to
+   * @throws MALTransmitErrorException in case of communication problems
+   */
+  public GENMessageSender reconnectMessageSender(GENMessage msg, String remoteRootURI) throws MALException, MALTransmitErrorException
+  {
+    LOGGER.log(Level.FINE, "GEN reconnecting to URI:{0}", remoteRootURI);
+
+    return createMessageSender(msg, remoteRootURI);
+  }
+
   @Override
   public void deleteEndpoint(final String localName) throws MALException
   {
-    final GENEndpoint endpoint = endpointMalMap.get(localName);
+    final GENEndpoint endpoint = endpoints.remove(localName);
 
     if (null != endpoint)
     {
       LOGGER.log(Level.INFO, "GEN Deleting endpoint", localName);
-      endpointMalMap.remove(localName);
-      endpointRoutingMap.remove(endpoint.getRoutingName());
       endpoint.close();
     }
   }
@@ -594,27 +1283,36 @@ public abstract class GENTransport implements MALTransport
   @Override
   public void close() throws MALException
   {
-    for (Map.Entry<String, GENEndpoint> entry : endpointMalMap.entrySet())
+    for (GENEndpoint endpoint : endpoints.removeAll())
     {
-      entry.getValue().close();
+      endpoint.close();
     }
 
-    endpointMalMap.clear();
-    endpointRoutingMap.clear();
-
-    asyncInputReceptionProcessor.shutdown();
-    asyncInputDataProcessors.shutdown();
+    for (ExecutorService receptionProcessor : asyncInputReceptionProcessors)
+    {
+      receptionProcessor.shutdown();
+    }
+    incomingMessageDispatcher.close();
 
     LOGGER.fine("Closing outgoing channels");
+    for (FutureTask<GENConcurrentMessageSender> connection : pendingConnections.values())
+    {
+      // release any senders waiting for a connection
+      connection.cancel(false);
+    }
+
     for (Map.Entry<String, GENConcurrentMessageSender> entry : outgoingDataChannels.entrySet())
     {
       final GENConcurrentMessageSender sender = entry.getValue();
 
+      metrics.connectionsClosed(sender.getNumberOfProcessors());
       sender.terminate();
     }
 
     outgoingDataChannels.clear();
     LOGGER.fine("Closed outgoing channels");
+
+    unregisterMetrics();
   }
 
   /**
@@ -629,42 +1327,7 @@ public abstract class GENTransport implements MALTransport
       malMsg.malMsg.getHeader().getTransactionId(), malMsg.smsg
     });
 
-    synchronized (transactionQueues)
-    {
-      GENIncomingMessageProcessor proc = transactionQueues.get(malMsg.transactionId);
-
-      if (null == proc)
-      {
-        proc = new GENIncomingMessageProcessor(malMsg);
-        transactionQueues.put(malMsg.transactionId, proc);
-        asyncInputDataProcessors.submit(proc);
-      }
-      else
-      {
-        if (proc.addMessage(malMsg))
-        {
-          // need to resubmit this to the processing threads
-          asyncInputDataProcessors.submit(proc);
-        }
-      }
-
-      Set<Long> transactionsToRemove = new HashSet<Long>();
-      for (Map.Entry<Long, GENIncomingMessageProcessor> entrySet : transactionQueues.entrySet())
-      {
-        Long key = entrySet.getKey();
-        GENIncomingMessageProcessor lproc = entrySet.getValue();
-
-        if (lproc.isFinished())
-        {
-          transactionsToRemove.add(key);
-        }
-      }
-
-      for (Long transId : transactionsToRemove)
-      {
-        transactionQueues.remove(transId);
-      }
-    }
+    incomingMessageDispatcher.dispatch(malMsg);
   }
 
   /**
@@ -683,9 +1346,26 @@ public abstract class GENTransport implements MALTransport
         msg.getHeader().getTransactionId(), smsg
       });
 
-      String endpointUriPart = getRoutingPart(msg.getHeader().getURITo().getValue());
+      if (msg.getHeader() instanceof GENLazyMessageHeader)
+      {
+        try
+        {
+          ((GENLazyMessageHeader) msg.getHeader()).decodeDeferredFields();
+        }
+        catch (MALException ex)
+        {
+          LOGGER.log(Level.WARNING, "GEN Unable to decode message header : {0}", smsg);
+          LOGGER.log(Level.FINE, "GEN Unable to decode message header", ex);
+          returnErrorMessage(null,
+                  msg,
+                  MALHelper.BAD_ENCODING_ERROR_NUMBER,
+                  "GEN Unable to decode message header: " + ex.getMessage());
+          return;
+        }
+      }
 
-      final GENEndpoint oSkel = endpointRoutingMap.get(endpointUriPart);
+      final String uriTo = msg.getHeader().getURITo().getValue();
+      final GENEndpoint oSkel = getEndpointByURI(uriTo);
 
       if (null != oSkel)
       {
@@ -697,6 +1377,8 @@ public abstract class GENTransport implements MALTransport
       }
       else
       {
+        final String endpointUriPart = getRoutingPart(uriTo);
+
         LOGGER.log(Level.WARNING, "GEN Message handler NOT FOUND {0} : {1}", new Object[]
         {
           endpointUriPart, smsg
@@ -779,10 +1461,12 @@ public abstract class GENTransport implements MALTransport
       {
         final MALMessageHeader srcHdr = oriMsg.getHeader();
 
-        if ((null == ep) && (!endpointMalMap.isEmpty()))
-        {
-          GENEndpoint endpoint = endpointMalMap.entrySet().iterator().next().getValue();
+        metrics.errorRaised(errorNumber);
+
+        final GENEndpoint endpoint = (null == ep) ? endpoints.getAny() : null;
 
+        if (null != endpoint)
+        {
           final GENMessage retMsg = (GENMessage) endpoint.createMessage(srcHdr.getAuthenticationId(),
                   srcHdr.getURIFrom(),
                   new Time(new Date().getTime()),
@@ -873,15 +1557,37 @@ public abstract class GENTransport implements MALTransport
    */
   public String getRoutingPart(String uriValue)
   {
-    String endpointUriPart = uriValue;
-    final int iFirst = nthIndexOf(endpointUriPart, serviceDelim, serviceDelimCounter);
-    int iSecond = supportsRouting ? endpointUriPart.indexOf(routingDelim) : endpointUriPart.length();
+    return uriValue.substring(getRoutingPartStart(uriValue), getRoutingPartEnd(uriValue));
+  }
+
+  /**
+   * Returns the index of the first character of the routing part of the URI. Transports that change the routing part
+   * override this and getRoutingPartEnd rather than getRoutingPart, so that endpoints can be found without creating the
+   * routing part.
+   *
+   * @param uriValue The URI value
+   * @return the index of the start of the routing part
+   */
+  protected int getRoutingPartStart(String uriValue)
+  {
+    return nthIndexOf(uriValue, serviceDelim, serviceDelimCounter) + 1;
+  }
+
+  /**
+   * Returns the index after the last character of the routing part of the URI.
+   *
+   * @param uriValue The URI value
+   * @return the index of the end of the routing part
+   */
+  protected int getRoutingPartEnd(String uriValue)
+  {
+    int iSecond = supportsRouting ? uriValue.indexOf(routingDelim) : uriValue.length();
     if (0 > iSecond)
     {
-      iSecond = endpointUriPart.length();
+      iSecond = uriValue.length();
     }
 
-    return endpointUriPart.substring(iFirst + 1, iSecond);
+    return iSecond;
   }
 
   /**
@@ -936,7 +1642,7 @@ public abstract class GENTransport implements MALTransport
    * @return returns an existing or newly created message sender
    * @throws MALTransmitErrorException in case of communication problems
    */
-  protected synchronized GENConcurrentMessageSender manageCommunicationChannel(GENMessage msg, boolean isIncomingMsgDirection, GENReceptionHandler receptionHandler) throws MALTransmitErrorException
+  protected GENConcurrentMessageSender manageCommunicationChannel(GENMessage msg, boolean isIncomingMsgDirection, GENReceptionHandler receptionHandler) throws MALTransmitErrorException
   {
     GENConcurrentMessageSender sender = null;
 
@@ -969,28 +1675,7 @@ public abstract class GENTransport implements MALTransport
       if (null == sender)
       {
         // we do not have any channel for this URI
-        // try to create a set of connections to this URI 
-        LOGGER.log(Level.INFO, "GEN received request to create connections to URI:{0}", remoteRootURI);
-
-        try
-        {
-          // create new sender for this URI
-          sender = registerMessageSender(createMessageSender(msg, remoteRootURI), remoteRootURI);
-
-          LOGGER.log(Level.FINE, "GEN opening {0}", numConnections);
-
-          for (int i = 1; i < numConnections; i++)
-          {
-            // insert new processor (message sender) to root data sender for the URI
-            sender.addProcessor(createMessageSender(msg, remoteRootURI), remoteRootURI);
-          }
-        }
-        catch (MALException e)
-        {
-          LOGGER.log(Level.WARNING, "GEN could not connect to :" + remoteRootURI, e);
-          throw new MALTransmitErrorException(msg.getHeader(),
-                  new MALStandardError(MALHelper.DESTINATION_UNKNOWN_ERROR_NUMBER, null), null);
-        }
+        sender = awaitCommunicationChannel(msg, remoteRootURI);
       }
     }
 
@@ -998,102 +1683,644 @@ public abstract class GENTransport implements MALTransport
   }
 
   /**
-   * Registers a message sender for a given root URI. If this is the first data sender for the URI, it also creates a
-   * GENConcurrentMessageSender to manage all the senders. If there are already enough connections (numConnections) to
-   * the given URI the method does not register the sender. This ensures that we will have at maximum numConnections to
-   * the target root URI.
+   * Returns the communication channel to a URI once it is connected. Only one connection attempt is made at a time for
+   * each URI, it is run by the first caller and any other caller for the same URI waits for its outcome. Connections to
+   * different URIs are established in parallel, so a slow or unreachable destination does not delay the others.
    *
-   * @param dataTransmitter The data sender that is able to send messages to the URI
+   * @param msg The message to be sent
    * @param remoteRootURI the remote root URI
-   * @return returns the GENConcurrentMessageSender for this URI.
+   * @return returns the newly created message sender
+   * @throws MALTransmitErrorException in case of communication problems
    */
-  protected synchronized GENConcurrentMessageSender registerMessageSender(GENMessageSender dataTransmitter, String remoteRootURI)
+  private GENConcurrentMessageSender awaitCommunicationChannel(final GENMessage msg, final String remoteRootURI) throws MALTransmitErrorException
   {
-    //check if we already have a communication channel for this URI
-    GENConcurrentMessageSender dataSender = outgoingDataChannels.get(remoteRootURI);
-    if (dataSender != null)
+    FutureTask<GENConcurrentMessageSender> connection = new FutureTask<GENConcurrentMessageSender>(new Callable<GENConcurrentMessageSender>()
     {
-      //we already have a communication channel for this URI
-      //check if we have enough connections for the URI, if not then add the data sender 
-      if (dataSender.getNumberOfProcessors() < numConnections)
+      @Override
+      public GENConcurrentMessageSender call() throws Exception
       {
-        LOGGER.log(Level.FINE, "GEN registering data sender for URI:{0}", remoteRootURI);
-        // insert new processor (message sender) to root data sender for the URI
-        dataSender.addProcessor(dataTransmitter, remoteRootURI);
+        return createCommunicationChannel(msg, remoteRootURI);
+      }
+    });
+
+    final FutureTask<GENConcurrentMessageSender> pending = pendingConnections.putIfAbsent(remoteRootURI, connection);
+
+    if (null == pending)
+    {
+      try
+      {
+        connection.run();
+      }
+      finally
+      {
+        pendingConnections.remove(remoteRootURI, connection);
       }
     }
     else
     {
-      //we do not have a communication channel, create a data sender manager and add the first data sender
-      // create new sender manager for this URI
-      LOGGER.log(Level.FINE, "GEN creating data sender manager for URI:{0}", remoteRootURI);
-      dataSender = new GENConcurrentMessageSender(this, remoteRootURI);
-
-      LOGGER.log(Level.FINE, "GEN registering data sender for URI:{0}", remoteRootURI);
-      outgoingDataChannels.put(remoteRootURI, dataSender);
+      LOGGER.log(Level.FINE, "GEN waiting for pending connection to URI:{0}", remoteRootURI);
+      connection = pending;
+    }
 
-      // insert new processor (message sender) to root data sender for the URI
-      dataSender.addProcessor(dataTransmitter, remoteRootURI);
+    try
+    {
+      return connection.get();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new MALTransmitErrorException(msg.getHeader(),
+              new MALStandardError(MALHelper.INTERNAL_ERROR_NUMBER, null), null);
     }
+    catch (ExecutionException e)
+    {
+      final Throwable cause = e.getCause();
+
+      if (cause instanceof MALTransmitErrorException)
+      {
+        // report the error against this message, the connection may have been opened for another one
+        throw new MALTransmitErrorException(msg.getHeader(),
+                ((MALTransmitErrorException) cause).getStandardError(), null);
+      }
 
-    return dataSender;
+      LOGGER.log(Level.WARNING, "GEN could not connect to :" + remoteRootURI, cause);
+      throw new MALTransmitErrorException(msg.getHeader(),
+              new MALStandardError(MALHelper.DESTINATION_UNKNOWN_ERROR_NUMBER, null), null);
+    }
   }
 
   /**
-   * Internal method for encoding the message.
+   * Creates and registers the set of connections to a URI. Called without holding any transport lock.
    *
-   * @param destinationRootURI The destination root URI.
-   * @param destinationURI The complete destination URI.
-   * @param multiSendHandle Handle for multi send messages.
-   * @param lastForHandle true if last message in a multi send.
-   * @param targetURI The target URI.
-   * @param msg The message to send.
-   * @return The message holder for the outgoing message.
-   * @throws Exception if an error.
+   * @param msg The message to be sent
+   * @param remoteRootURI the remote root URI
+   * @return returns the newly created message sender
+   * @throws MALException in case the URI cannot be connected to
+   * @throws MALTransmitErrorException in case of communication problems
    */
-  protected GENOutgoingMessageHolder internalEncodeMessage(final String destinationRootURI,
-          final String destinationURI,
-          final Object multiSendHandle,
-          final boolean lastForHandle,
-          final String targetURI,
-          final GENMessage msg) throws Exception
+  private GENConcurrentMessageSender createCommunicationChannel(GENMessage msg, String remoteRootURI) throws MALException, MALTransmitErrorException
   {
-    // encode the message
-    try
+    // the channel may have been registered since the caller looked for it
+    GENConcurrentMessageSender sender = outgoingDataChannels.get(remoteRootURI);
+
+    if (null == sender)
     {
-      final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-      final MALElementOutputStream enc = getStreamFactory().createOutputStream(baos);
-      msg.encodeMessage(getStreamFactory(), enc, baos, true);
-      byte[] data = baos.toByteArray();
+      // try to create a set of connections to this URI
+      LOGGER.log(Level.INFO, "GEN received request to create connections to URI:{0}", remoteRootURI);
 
-      // message is encoded!
-      LOGGER.log(Level.FINE, "GEN Sending data to {0} : {1}", new Object[]
-      {
-        targetURI, new PacketToString(data)
-      });
+      // create new sender for this URI
+      sender = registerOutgoingMessageSender(createMessageSender(msg, remoteRootURI), remoteRootURI);
 
-      return new GENOutgoingMessageHolder(destinationRootURI, destinationURI, multiSendHandle, lastForHandle, msg, data);
-    }
-    catch (MALException ex)
-    {
-      LOGGER.log(Level.SEVERE, "GEN could not encode message!", ex);
-      throw new MALTransmitErrorException(msg.getHeader(), new MALStandardError(MALHelper.BAD_ENCODING_ERROR_NUMBER, null), null);
+      LOGGER.log(Level.FINE, "GEN opening {0}", numConnections);
+
+      // inbound connections from the URI may have been registered meanwhile
+      for (int i = 1; (i < numConnections) && (sender.getNumberOfProcessors() < numConnections); i++)
+      {
+        // insert new processor (message sender) to root data sender for the URI
+        sender = registerOutgoingMessageSender(createMessageSender(msg, remoteRootURI), remoteRootURI);
+      }
     }
+
+    return sender;
   }
 
   /**
-   * Creates the part of the URL specific to this transport instance.
+   * Registers a newly connected message sender for a URI, closing it if the URI already has enough connections.
    *
-   * @return The transport specific address part.
-   * @throws MALException On error
-   */
+   * @param dataTransmitter The data sender that is able to send messages to the URI
+   * @param remoteRootURI the remote root URI
+   * @return returns the GENConcurrentMessageSender for this URI.
+   */
+  private GENConcurrentMessageSender registerOutgoingMessageSender(GENMessageSender dataTransmitter, String remoteRootURI)
+  {
+    synchronized (outgoingDataChannels)
+    {
+      final GENConcurrentMessageSender dataSender = outgoingDataChannels.get(remoteRootURI);
+
+      if ((null != dataSender) && (dataSender.getNumberOfProcessors() >= numConnections))
+      {
+        LOGGER.log(Level.FINE, "GEN closing surplus data sender for URI:{0}", remoteRootURI);
+        dataTransmitter.close();
+        return dataSender;
+      }
+
+      return registerMessageSender(dataTransmitter, remoteRootURI);
+    }
+  }
+
+  /**
+   * Registers a message sender for a given root URI. If this is the first data sender for the URI, it also creates a
+   * GENConcurrentMessageSender to manage all the senders. If there are already enough connections (numConnections) to
+   * the given URI the method does not register the sender. This ensures that we will have at maximum numConnections to
+   * the target root URI. An unregistered inbound connection stays open to receive messages, an unregistered outbound
+   * one is closed by createCommunicationChannel.
+   *
+   * @param dataTransmitter The data sender that is able to send messages to the URI
+   * @param remoteRootURI the remote root URI
+   * @return returns the GENConcurrentMessageSender for this URI.
+   */
+  protected GENConcurrentMessageSender registerMessageSender(GENMessageSender dataTransmitter, String remoteRootURI)
+  {
+    synchronized (outgoingDataChannels)
+    {
+      //check if we already have a communication channel for this URI
+      GENConcurrentMessageSender dataSender = outgoingDataChannels.get(remoteRootURI);
+      if (dataSender != null)
+      {
+        //we already have a communication channel for this URI
+        //check if we have enough connections for the URI, if not then add the data sender 
+        if (dataSender.getNumberOfProcessors() < numConnections)
+        {
+          LOGGER.log(Level.FINE, "GEN registering data sender for URI:{0}", remoteRootURI);
+          // insert new processor (message sender) to root data sender for the URI
+          dataSender.addProcessor(dataTransmitter, remoteRootURI);
+          metrics.connectionsOpened(1);
+        }
+      }
+      else
+      {
+        //we do not have a communication channel, create a data sender manager and add the first data sender
+        // create new sender manager for this URI
+        LOGGER.log(Level.FINE, "GEN creating data sender manager for URI:{0}", remoteRootURI);
+        dataSender = new GENConcurrentMessageSender(this, remoteRootURI, sendBatchSize, sendBatchBytes,
+                new GENQueueLimit(outgoingQueueMessages, outgoingQueueBytes, outgoingQueuePolicy),
+                new GENPriorityMessageQueue(sendPriorityLevels, sendPriorityAging), sendAffinity);
+
+        LOGGER.log(Level.FINE, "GEN registering data sender for URI:{0}", remoteRootURI);
+        outgoingDataChannels.put(remoteRootURI, dataSender);
+
+        // insert new processor (message sender) to root data sender for the URI
+        dataSender.addProcessor(dataTransmitter, remoteRootURI);
+        metrics.connectionsOpened(1);
+      }
+
+      return dataSender;
+    }
+  }
+
+  /**
+   * Internal method for encoding the message.
+   *
+   * @param destinationRootURI The destination root URI.
+   * @param destinationURI The complete destination URI.
+   * @param multiSendHandle Handle for multi send messages.
+   * @param lastForHandle true if last message in a multi send.
+   * @param targetURI The target URI.
+   * @param msg The message to send.
+   * @return The message holder for the outgoing message.
+   * @throws Exception if an error.
+   */
+  protected GENOutgoingMessageHolder internalEncodeMessage(final String destinationRootURI,
+          final String destinationURI,
+          final Object multiSendHandle,
+          final boolean lastForHandle,
+          final String targetURI,
+          final GENMessage msg) throws Exception
+  {
+    return internalEncodeMessage(destinationRootURI, destinationURI, multiSendHandle, lastForHandle, targetURI, msg, false);
+  }
+
+  /**
+   * Internal method for encoding the message. If the message may be streamed and its encoding exceeds the stream
+   * threshold, the partial encoding is discarded and the message is instead encoded by the message sender as it is
+   * sent, so that at most the threshold is held in memory. Streamed messages are always encoded with their header, even
+   * if the message senders encode headers themselves, so that they can be decoded as they arrive without depending on
+   * the state of the connection.
+   *
+   * @param destinationRootURI The destination root URI.
+   * @param destinationURI The complete destination URI.
+   * @param multiSendHandle Handle for multi send messages.
+   * @param lastForHandle true if last message in a multi send.
+   * @param targetURI The target URI.
+   * @param msg The message to send.
+   * @param streamable True if the message senders of the target URI support streamed messages.
+   * @return The message holder for the outgoing message.
+   * @throws Exception if an error.
+   */
+  protected GENOutgoingMessageHolder internalEncodeMessage(final String destinationRootURI,
+          final String destinationURI,
+          final Object multiSendHandle,
+          final boolean lastForHandle,
+          final String targetURI,
+          final GENMessage msg,
+          final boolean streamable) throws Exception
+  {
+    // encode the message into a pooled buffer, which is released once the message has been sent
+    final GENOutputBuffer buffer = outputBufferPool.acquire();
+
+    try
+    {
+      if (streamable && (0 < streamThreshold))
+      {
+        final StreamThresholdOutputStream los = new StreamThresholdOutputStream(buffer, streamThreshold);
+
+        try
+        {
+          msg.encodeMessage(getStreamFactory(), getStreamFactory().createOutputStream(los), los, !isHeaderEncodedBySender());
+        }
+        catch (MALException ex)
+        {
+          if (!StreamThresholdOutputStream.isThresholdExceeded(ex))
+          {
+            throw ex;
+          }
+
+          buffer.release();
+
+          LOGGER.log(Level.FINE, "GEN Streaming message larger than {0} bytes to {1}", new Object[]
+          {
+            streamThreshold, targetURI
+          });
+
+          return new GENOutgoingMessageHolder(destinationRootURI, destinationURI, multiSendHandle, lastForHandle, msg,
+                  new GENStreamedMessageEncoder()
+          {
+            @Override
+            public void encodeMessage(OutputStream os) throws MALException
+            {
+              msg.encodeMessage(getStreamFactory(), getStreamFactory().createOutputStream(os), os, true);
+            }
+          }, streamThreshold);
+        }
+      }
+      else
+      {
+        final MALElementOutputStream enc = getStreamFactory().createOutputStream(buffer);
+        msg.encodeMessage(getStreamFactory(), enc, buffer, !isHeaderEncodedBySender());
+      }
+
+      // message is encoded!
+      LOGGER.log(Level.FINE, "GEN Sending data to {0} : {1}", new Object[]
+      {
+        targetURI, new PacketToString(logFullDebug ? buffer.toByteArray() : null)
+      });
+
+      return new GENOutgoingMessageHolder(destinationRootURI, destinationURI, multiSendHandle, lastForHandle, msg, buffer);
+    }
+    catch (MALException ex)
+    {
+      buffer.release();
+      LOGGER.log(Level.SEVERE, "GEN could not encode message!", ex);
+      throw new MALTransmitErrorException(msg.getHeader(), new MALStandardError(MALHelper.BAD_ENCODING_ERROR_NUMBER, null), null);
+    }
+  }
+
+  /**
+   * Returns true if the message senders of this transport encode the message header themselves, for example against
+   * the state of their connection, in which case the transport only encodes the message body.
+   *
+   * @return True if the header is encoded by the message sender.
+   */
+  protected boolean isHeaderEncodedBySender()
+  {
+    return false;
+  }
+
+  /**
+   * Creates the executor factory selected by the QoS properties.
+   *
+   * @param properties The QoS properties.
+   * @return the executor factory.
+   * @throws MALException If a factory class cannot be created.
+   */
+  private GENExecutorFactory createExecutorFactory(final java.util.Map properties) throws MALException
+  {
+    String factoryType = null;
+    boolean daemonThreads = false;
+
+    if (null != properties)
+    {
+      if (properties.containsKey(EXECUTOR_FACTORY_PROPERTY))
+      {
+        factoryType = (String) properties.get(EXECUTOR_FACTORY_PROPERTY);
+      }
+
+      if (properties.containsKey(DAEMON_THREADS_PROPERTY))
+      {
+        daemonThreads = Boolean.parseBoolean((String) properties.get(DAEMON_THREADS_PROPERTY));
+      }
+    }
+
+    LOGGER.log(Level.FINE, "GEN Executor factory set to : {0}", factoryType);
+
+    if ((null == factoryType) || "platform".equalsIgnoreCase(factoryType))
+    {
+      return new GENPlatformExecutorFactory(daemonThreads);
+    }
+
+    if ("virtual".equalsIgnoreCase(factoryType))
+    {
+      if (GENVirtualExecutorFactory.isSupported())
+      {
+        return new GENVirtualExecutorFactory();
+      }
+
+      LOGGER.warning("GEN Virtual threads are not supported by this JVM, using platform threads");
+      return new GENPlatformExecutorFactory(daemonThreads);
+    }
+
+    try
+    {
+      return (GENExecutorFactory) Class.forName(factoryType).getConstructor(Map.class).newInstance(properties);
+    }
+    catch (Exception ex)
+    {
+      throw new MALException("GEN could not create executor factory: " + factoryType, ex);
+    }
+  }
+
+  /**
+   * Creates the reconnection policy selected by the QoS properties.
+   *
+   * @param properties The QoS properties.
+   * @return the reconnection policy, null if message senders do not reconnect.
+   */
+  private static GENReconnectPolicy createReconnectPolicy(final java.util.Map properties)
+  {
+    if ((null == properties) || !Boolean.parseBoolean((String) properties.get(RECONNECT_PROPERTY)))
+    {
+      return null;
+    }
+
+    long delay = 100;
+    long maxDelay = 30000;
+    long retention = 60000;
+    long retentionBytes = 0;
+
+    if (properties.containsKey(RECONNECT_DELAY_PROPERTY))
+    {
+      delay = Long.parseLong((String) properties.get(RECONNECT_DELAY_PROPERTY));
+    }
+
+    if (properties.containsKey(RECONNECT_MAX_DELAY_PROPERTY))
+    {
+      maxDelay = Long.parseLong((String) properties.get(RECONNECT_MAX_DELAY_PROPERTY));
+    }
+
+    if (properties.containsKey(RECONNECT_RETENTION_PROPERTY))
+    {
+      retention = Long.parseLong((String) properties.get(RECONNECT_RETENTION_PROPERTY));
+    }
+
+    if (properties.containsKey(RECONNECT_RETENTION_BYTES_PROPERTY))
+    {
+      retentionBytes = Long.parseLong((String) properties.get(RECONNECT_RETENTION_BYTES_PROPERTY));
+    }
+
+    LOGGER.log(Level.FINE, "GEN Reconnection retention set to : {0} ms", retention);
+
+    return new GENReconnectPolicy(delay, maxDelay, retention, retentionBytes);
+  }
+
+  /**
+   * Reads the stream threshold from the QoS properties.
+   *
+   * @param properties The QoS properties.
+   * @return the threshold, 0 if messages are not streamed.
+   */
+  private static int parseStreamThreshold(final java.util.Map properties)
+  {
+    int threshold = 0;
+
+    if ((null != properties) && properties.containsKey(STREAM_THRESHOLD_PROPERTY))
+    {
+      threshold = Integer.parseInt((String) properties.get(STREAM_THRESHOLD_PROPERTY));
+    }
+
+    LOGGER.log(Level.FINE, "GEN Stream threshold set to : {0}", threshold);
+
+    return Math.max(0, threshold);
+  }
+
+  /**
+   * Creates the decoding threads, one single threaded executor per thread so that each preserves reception order.
+   *
+   * @param properties The QoS properties.
+   * @return the decoding executors.
+   */
+  private ExecutorService[] createReceptionProcessors(final java.util.Map properties)
+  {
+    int decoderThreads = 1;
+
+    if ((null != properties) && properties.containsKey(DECODER_THREADS_PROPERTY))
+    {
+      decoderThreads = Integer.parseInt((String) properties.get(DECODER_THREADS_PROPERTY));
+    }
+
+    LOGGER.log(Level.FINE, "GEN Incoming message decoder threads set to : {0}", decoderThreads);
+
+    final ExecutorService[] processors = new ExecutorService[Math.max(0, decoderThreads)];
+
+    for (int i = 0; i < processors.length; i++)
+    {
+      processors[i] = executorFactory.newExecutor("GEN message decoder " + i, 1);
+    }
+
+    return processors;
+  }
+
+  /**
+   * Creates the pool of receive buffers if it is enabled by the QoS properties.
+   *
+   * @param properties The QoS properties.
+   * @return the pool, or null if not enabled.
+   */
+  private GENBufferPool createReceiveBufferPool(final java.util.Map properties)
+  {
+    int receiveBuffers = 0;
+    boolean directBuffers = false;
+
+    if (null != properties)
+    {
+      if (properties.containsKey(RECEIVE_BUFFERS_PROPERTY))
+      {
+        receiveBuffers = Integer.parseInt((String) properties.get(RECEIVE_BUFFERS_PROPERTY));
+      }
+
+      if (properties.containsKey(DIRECT_BUFFERS_PROPERTY))
+      {
+        directBuffers = Boolean.parseBoolean((String) properties.get(DIRECT_BUFFERS_PROPERTY));
+      }
+    }
+
+    LOGGER.log(Level.FINE, "GEN Receive buffer pool size set to : {0}", receiveBuffers);
+
+    if (0 < receiveBuffers)
+    {
+      return new GENBufferPool(GENBufferPool.DEFAULT_BUFFER_SIZE, receiveBuffers, directBuffers);
+    }
+
+    return null;
+  }
+
+  /**
+   * Creates the incoming message dispatcher selected by the QoS properties.
+   *
+   * @param properties The QoS properties.
+   * @param inputProcessorThreads The number of processing threads.
+   * @return the new dispatcher.
+   */
+  private GENBoundedMessageDispatcher createMessageDispatcher(final java.util.Map properties,
+          final int inputProcessorThreads)
+  {
+    String dispatcherType = null;
+    int queueMessages = 0;
+    long queueBytes = 0;
+    String queuePolicy = null;
+
+    if (null != properties)
+    {
+      if (properties.containsKey(DISPATCHER_PROPERTY))
+      {
+        dispatcherType = (String) properties.get(DISPATCHER_PROPERTY);
+      }
+
+      if (properties.containsKey(INCOMING_QUEUE_MESSAGES_PROPERTY))
+      {
+        queueMessages = Integer.parseInt((String) properties.get(INCOMING_QUEUE_MESSAGES_PROPERTY));
+      }
+
+      if (properties.containsKey(INCOMING_QUEUE_BYTES_PROPERTY))
+      {
+        queueBytes = Long.parseLong((String) properties.get(INCOMING_QUEUE_BYTES_PROPERTY));
+      }
+
+      if (properties.containsKey(INCOMING_QUEUE_POLICY_PROPERTY))
+      {
+        queuePolicy = (String) properties.get(INCOMING_QUEUE_POLICY_PROPERTY);
+      }
+    }
+
+    final GENIncomingMessageDispatcher.GENIncomingMessageHandler handler
+            = new GENIncomingMessageDispatcher.GENIncomingMessageHandler()
+    {
+      @Override
+      public void processIncomingMessage(GENIncomingMessageHolder malMsg)
+      {
+        // skip messages dropped from a full queue
+        if (malMsg.claim())
+        {
+          GENTransport.this.processIncomingMessage(malMsg.malMsg, malMsg.smsg);
+        }
+      }
+    };
+
+    final GENIncomingMessageDispatcher.GENIncomingMessageHandler overflowHandler
+            = new GENIncomingMessageDispatcher.GENIncomingMessageHandler()
+    {
+      @Override
+      public void processIncomingMessage(GENIncomingMessageHolder malMsg)
+      {
+        discardIncomingMessage(malMsg.malMsg);
+      }
+    };
+
+    LOGGER.log(Level.FINE, "GEN Incoming message dispatcher set to : {0}", dispatcherType);
+
+    final GENIncomingMessageDispatcher dispatcher;
+
+    if ("concurrent".equalsIgnoreCase(dispatcherType))
+    {
+      dispatcher = new GENConcurrentMessageDispatcher(handler, inputProcessorThreads, executorFactory);
+    }
+    else if ("striped".equalsIgnoreCase(dispatcherType))
+    {
+      dispatcher = new GENStripedMessageDispatcher(handler, inputProcessorThreads, executorFactory);
+    }
+    else
+    {
+      dispatcher = new GENQueuedMessageDispatcher(handler, inputProcessorThreads, executorFactory);
+    }
+
+    return new GENBoundedMessageDispatcher(dispatcher,
+            new GENQueueLimit(queueMessages, queueBytes, GENQueueLimit.parsePolicy(queuePolicy)),
+            overflowHandler);
+  }
+
+  /**
+   * Discards a received message that did not fit in the incoming queue, returning an error to its sender if it expects
+   * a reply.
+   *
+   * @param msg The discarded message.
+   */
+  protected void discardIncomingMessage(final GENMessage msg)
+  {
+    LOGGER.log(Level.WARNING, "GEN Incoming queue full, discarding message : {0}", msg.getHeader());
+
+    try
+    {
+      returnErrorMessage(null, msg, MALHelper.DELIVERY_FAILED_ERROR_NUMBER, "GEN Incoming message queue full");
+    }
+    catch (MALException ex)
+    {
+      LOGGER.log(Level.SEVERE, "GEN Error occurred when return error data : {0}", ex);
+    }
+
+    try
+    {
+      msg.free();
+    }
+    catch (MALException ex)
+    {
+      LOGGER.log(Level.WARNING, "GEN Error occurred when freeing discarded message : {0}", ex);
+    }
+  }
+
+  /**
+   * Registers the metrics of this transport with the platform MBean server, under a name made of the protocol and the
+   * URI base of the transport. Failures are logged and otherwise ignored.
+   *
+   * @param protocolString The protocol part of the URI base.
+   */
+  private void registerMetrics(final String protocolString)
+  {
+    try
+    {
+      final ObjectName name = new ObjectName("esa.mo.mal.transport.gen:type=GENTransport,protocol="
+              + ObjectName.quote(protocolString) + ",uri=" + ObjectName.quote(uriBase));
+
+      ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+      metricsName = name;
+    }
+    catch (Exception ex)
+    {
+      LOGGER.log(Level.WARNING, "GEN could not register transport metrics : {0}", ex);
+    }
+  }
+
+  /**
+   * Removes the metrics of this transport from the platform MBean server if registered.
+   */
+  private void unregisterMetrics()
+  {
+    if (null != metricsName)
+    {
+      try
+      {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+      }
+      catch (Exception ex)
+      {
+        LOGGER.log(Level.WARNING, "GEN could not unregister transport metrics : {0}", ex);
+      }
+
+      metricsName = null;
+    }
+  }
+
+  /**
+   * Creates the part of the URL specific to this transport instance.
+   *
+   * @return The transport specific address part.
+   * @throws MALException On error
+   */
   protected abstract String createTransportAddress() throws MALException;
 
   /**
    * Method to be implemented by the transport in order to return a message sender capable if sending messages to a
    * target root URI.
    *
-   * @param msg the message to be send
+   * @param msg the message to be send, null if a lost connection is being replaced without a GENMessage to send
    * @param remoteRootURI the remote root URI.
    * @return returns a message sender capable of sending messages to the target URI
    * @throws MALException in case of error trying to create the communication channel
@@ -1136,13 +2363,20 @@ public abstract class GENTransport implements MALTransport
     {
       try
       {
+        final long decodeStart = System.nanoTime();
         GENIncomingMessageHolder msg = decoder.decodeAndCreateMessage();
+        final long decodeNanos = System.nanoTime() - decodeStart;
         GENTransport.LOGGER.log(Level.FINE, "GEN Receving message : {0} : {1}", new Object[]
         {
           msg.malMsg.getHeader().getTransactionId(), msg.smsg
         });
         //register communication channel if needed
         transport.manageCommunicationChannel(msg.malMsg, true, receptionHandler);
+
+        final String remoteURI = (null == receptionHandler) ? null : receptionHandler.getRemoteURI();
+        transport.metrics.messageReceived((null != remoteURI) ? remoteURI
+                : transport.getRootURI(msg.malMsg.getHeader().getURIFrom().getValue()),
+                msg.encodedLength, decodeNanos);
         transport.receiveIncomingMessage(msg);
       }
       catch (MALException e)
@@ -1159,85 +2393,114 @@ public abstract class GENTransport implements MALTransport
   }
 
   /**
-   * This Runnable task is responsible for processing the already decoded message. It holds a queue of messages split on
-   * transaction id so that messages with the same transaction id get processed in reception order.
-   *
+   * Listener used for asynchronous sends. It passes send failures to the message listener of the endpoint the message
+   * was sent from, as the original caller has already returned.
    */
-  private final class GENIncomingMessageProcessor implements Runnable
+  private final class GENTransmitErrorNotifier implements GENOutgoingMessageListener
   {
-    private final Queue<GENIncomingMessageHolder> malMsgs = new ArrayDeque<GENIncomingMessageHolder>();
-    private boolean finished = false;
-
-    /**
-     * Constructor
-     *
-     * @param malMsg The MAL message.
-     */
-    public GENIncomingMessageProcessor(final GENIncomingMessageHolder malMsg)
+    @Override
+    public void messageSent(GENOutgoingMessageHolder message, boolean successful)
     {
-      malMsgs.add(malMsg);
-    }
+      if (successful)
+      {
+        return;
+      }
 
-    /**
-     * Adds a message to the internal queue. If the thread associated with this executor has finished it resets the flag
-     * and returns true to indicate that it should be resubmitted for more processing to the Executor pool.
-     *
-     * @param malMsg The decoded message.
-     * @return True if this needs to be resubmitted to the processing executor pool.
-     */
-    public synchronized boolean addMessage(final GENIncomingMessageHolder malMsg)
-    {
-      malMsgs.add(malMsg);
+      final MALMessageHeader hdr = message.getOriginalMessage().getHeader();
+      final GENEndpoint endpoint = getEndpointByURI(hdr.getURIFrom().getValue());
 
-      if (finished)
-      {
-        finished = false;
+      metrics.errorRaised(MALHelper.DELIVERY_FAILED_ERROR_NUMBER);
 
-        // need to resubmit this to the processing threads
-        return true;
+      if ((null != endpoint) && (null != endpoint.getMessageListener()))
+      {
+        endpoint.getMessageListener().onTransmitError(endpoint,
+                hdr,
+                new MALStandardError(MALHelper.DELIVERY_FAILED_ERROR_NUMBER, null),
+                message.getOriginalMessage().getQoSProperties());
+      }
+      else
+      {
+        LOGGER.log(Level.WARNING, "GEN could not send message to {0} and no endpoint to inform : {1}", new Object[]
+        {
+          message.getDestinationURI(), hdr
+        });
       }
-
-      return false;
     }
+  }
+
+  /**
+   * Passes on at most a threshold number of bytes, failing the write that would exceed it so that the encoding of a
+   * large message is abandoned early.
+   */
+  private static final class StreamThresholdOutputStream extends FilterOutputStream
+  {
+    private final int threshold;
+    private int count = 0;
 
     /**
-     * Returns true if this thread has finished processing its queue.
+     * Constructor.
      *
-     * @return True if finished processing queue.
+     * @param out the stream to pass the bytes on to.
+     * @param threshold the number of bytes that may be written.
      */
-    public boolean isFinished()
+    private StreamThresholdOutputStream(OutputStream out, int threshold)
     {
-      return finished;
+      super(out);
+      this.threshold = threshold;
     }
 
     @Override
-    public void run()
+    public void write(int b) throws IOException
+    {
+      checkThreshold(1);
+      out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
     {
-      GENIncomingMessageHolder msg;
+      checkThreshold(len);
+      out.write(b, off, len);
+    }
 
-      synchronized (this)
+    private void checkThreshold(int len) throws IOException
+    {
+      if (len > threshold - count)
       {
-        msg = malMsgs.poll();
+        throw new StreamThresholdExceededException();
       }
 
-      while (null != msg)
-      {
-        // send message for further processing and routing
-        processIncomingMessage(msg.malMsg, msg.smsg);
+      count += len;
+    }
 
-        synchronized (this)
+    /**
+     * Returns true if the exception, or one of its causes, was raised because the threshold was exceeded.
+     *
+     * @param ex the exception.
+     * @return true if the threshold was exceeded.
+     */
+    private static boolean isThresholdExceeded(Throwable ex)
+    {
+      for (Throwable t = ex; null != t; t = t.getCause())
+      {
+        if (t instanceof StreamThresholdExceededException)
         {
-          msg = malMsgs.poll();
-
-          if (null == msg)
-          {
-            finished = true;
-          }
+          return true;
         }
       }
+
+      return false;
     }
   }
 
+  /**
+   * Raised when the stream threshold is exceeded.
+   */
+  private static final class StreamThresholdExceededException extends IOException
+  {
+    private static final long serialVersionUID = 1L;
+  }
+
   /**
    * Converts the packet to a string form for logging.
    *
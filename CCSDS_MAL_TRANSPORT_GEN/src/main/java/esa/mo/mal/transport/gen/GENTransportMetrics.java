@@ -0,0 +1,271 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen;
+
+import esa.mo.mal.transport.gen.util.GENHistogram;
+import esa.mo.mal.transport.gen.util.GENStripedCounters;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.ccsds.moims.mo.mal.structures.UInteger;
+
+/**
+ * The metrics of a transport. Messages are counted against the root URI they are sent to or received from using
+ * striped counters, and encode and decode times are recorded in fixed bucket histograms, so that recording does not
+ * lock or allocate once a remote URI has been seen. Queue depths are read from the transport when asked for.
+ */
+public class GENTransportMetrics implements GENTransportMetricsMXBean
+{
+  private static final int MESSAGES_IN = 0;
+  private static final int BYTES_IN = 1;
+  private static final int MESSAGES_OUT = 2;
+  private static final int BYTES_OUT = 3;
+  private final GENTransport transport;
+  private final ConcurrentMap<String, GENStripedCounters> traffic
+          = new ConcurrentHashMap<String, GENStripedCounters>();
+  private final ConcurrentMap<Long, AtomicLong> errors = new ConcurrentHashMap<Long, AtomicLong>();
+  private final GENHistogram encodeTimes = new GENHistogram();
+  private final GENHistogram decodeTimes = new GENHistogram();
+  private final AtomicLong connectionsOpened = new AtomicLong();
+  private final AtomicLong connectionsClosed = new AtomicLong();
+
+  /**
+   * Constructor.
+   *
+   * @param transport The transport the metrics are for.
+   */
+  public GENTransportMetrics(final GENTransport transport)
+  {
+    this.transport = transport;
+  }
+
+  /**
+   * Records a received message.
+   *
+   * @param remoteRootURI The root URI it was received from.
+   * @param length The encoded length of the message, 0 if not known.
+   * @param decodeNanos The time taken to decode it.
+   */
+  public void messageReceived(final String remoteRootURI, final int length, final long decodeNanos)
+  {
+    final GENStripedCounters counters = getTraffic(remoteRootURI);
+
+    counters.increment(MESSAGES_IN);
+    counters.add(BYTES_IN, length);
+    decodeTimes.record(decodeNanos);
+  }
+
+  /**
+   * Records a message queued for sending.
+   *
+   * @param remoteRootURI The root URI it is sent to.
+   * @param length The encoded length of the message.
+   * @param encodeNanos The time taken to encode it.
+   */
+  public void messageSent(final String remoteRootURI, final int length, final long encodeNanos)
+  {
+    final GENStripedCounters counters = getTraffic(remoteRootURI);
+
+    counters.increment(MESSAGES_OUT);
+    counters.add(BYTES_OUT, length);
+    encodeTimes.record(encodeNanos);
+  }
+
+  /**
+   * Records opened connections.
+   *
+   * @param count The number of connections.
+   */
+  public void connectionsOpened(final int count)
+  {
+    connectionsOpened.addAndGet(count);
+  }
+
+  /**
+   * Records closed connections.
+   *
+   * @param count The number of connections.
+   */
+  public void connectionsClosed(final int count)
+  {
+    connectionsClosed.addAndGet(count);
+  }
+
+  /**
+   * Records an error raised to the caller or returned to a remote sender.
+   *
+   * @param errorNumber The MAL error number.
+   */
+  public void errorRaised(final UInteger errorNumber)
+  {
+    final Long key = (null == errorNumber) ? 0L : errorNumber.getValue();
+    AtomicLong count = errors.get(key);
+
+    if (null == count)
+    {
+      count = new AtomicLong();
+      final AtomicLong existing = errors.putIfAbsent(key, count);
+
+      if (null != existing)
+      {
+        count = existing;
+      }
+    }
+
+    count.incrementAndGet();
+  }
+
+  @Override
+  public String getURIBase()
+  {
+    return transport.uriBase;
+  }
+
+  @Override
+  public Map<String, Long> getMessagesIn()
+  {
+    return getTraffic(MESSAGES_IN);
+  }
+
+  @Override
+  public Map<String, Long> getBytesIn()
+  {
+    return getTraffic(BYTES_IN);
+  }
+
+  @Override
+  public Map<String, Long> getMessagesOut()
+  {
+    return getTraffic(MESSAGES_OUT);
+  }
+
+  @Override
+  public Map<String, Long> getBytesOut()
+  {
+    return getTraffic(BYTES_OUT);
+  }
+
+  @Override
+  public Map<String, Integer> getOutgoingQueueDepths()
+  {
+    return transport.getOutgoingQueueDepths();
+  }
+
+  @Override
+  public int getIncomingQueueDepth()
+  {
+    return transport.getIncomingQueuedMessageCount();
+  }
+
+  @Override
+  public int getActiveTransactions()
+  {
+    return transport.getActiveTransactionCount();
+  }
+
+  @Override
+  public long[] getEncodeTimes()
+  {
+    return encodeTimes.getCounts();
+  }
+
+  @Override
+  public long[] getDecodeTimes()
+  {
+    return decodeTimes.getCounts();
+  }
+
+  @Override
+  public long[] getTimeBucketLimits()
+  {
+    return GENHistogram.getBucketLimits();
+  }
+
+  @Override
+  public double getMeanEncodeTime()
+  {
+    return encodeTimes.getMeanMicros();
+  }
+
+  @Override
+  public double getMeanDecodeTime()
+  {
+    return decodeTimes.getMeanMicros();
+  }
+
+  @Override
+  public long getConnectionsOpened()
+  {
+    return connectionsOpened.get();
+  }
+
+  @Override
+  public long getConnectionsClosed()
+  {
+    return connectionsClosed.get();
+  }
+
+  @Override
+  public Map<Long, Long> getErrors()
+  {
+    final Map<Long, Long> counts = new TreeMap<Long, Long>();
+
+    for (Map.Entry<Long, AtomicLong> entry : errors.entrySet())
+    {
+      counts.put(entry.getKey(), entry.getValue().get());
+    }
+
+    return counts;
+  }
+
+  private GENStripedCounters getTraffic(final String remoteRootURI)
+  {
+    final String key = (null == remoteRootURI) ? "" : remoteRootURI;
+    GENStripedCounters counters = traffic.get(key);
+
+    if (null == counters)
+    {
+      counters = new GENStripedCounters(4);
+      final GENStripedCounters existing = traffic.putIfAbsent(key, counters);
+
+      if (null != existing)
+      {
+        counters = existing;
+      }
+    }
+
+    return counters;
+  }
+
+  private Map<String, Long> getTraffic(final int counter)
+  {
+    final Map<String, Long> counts = new TreeMap<String, Long>();
+
+    for (Map.Entry<String, GENStripedCounters> entry : traffic.entrySet())
+    {
+      counts.put(entry.getKey(), entry.getValue().sum(counter));
+    }
+
+    return counts;
+  }
+}
@@ -0,0 +1,142 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen;
+
+import java.util.Map;
+
+/**
+ * The management interface of the metrics of a transport, registered with the platform MBean server for each transport
+ * instance. Remote URIs are root URIs, times are in microseconds.
+ */
+public interface GENTransportMetricsMXBean
+{
+  /**
+   * Returns the URI base of the transport.
+   *
+   * @return the URI base.
+   */
+  String getURIBase();
+
+  /**
+   * Returns the number of messages received from each remote URI.
+   *
+   * @return the counts by remote URI.
+   */
+  Map<String, Long> getMessagesIn();
+
+  /**
+   * Returns the number of encoded bytes received from each remote URI, for messages whose encoded length is known.
+   *
+   * @return the counts by remote URI.
+   */
+  Map<String, Long> getBytesIn();
+
+  /**
+   * Returns the number of messages queued for sending to each remote URI.
+   *
+   * @return the counts by remote URI.
+   */
+  Map<String, Long> getMessagesOut();
+
+  /**
+   * Returns the number of encoded bytes queued for sending to each remote URI.
+   *
+   * @return the counts by remote URI.
+   */
+  Map<String, Long> getBytesOut();
+
+  /**
+   * Returns the number of messages waiting to be sent to each remote URI.
+   *
+   * @return the queue depths by remote URI.
+   */
+  Map<String, Integer> getOutgoingQueueDepths();
+
+  /**
+   * Returns the number of received messages waiting to be processed.
+   *
+   * @return the queue depth.
+   */
+  int getIncomingQueueDepth();
+
+  /**
+   * Returns the number of transactions that have received messages queued or being processed.
+   *
+   * @return the number of transactions.
+   */
+  int getActiveTransactions();
+
+  /**
+   * Returns the histogram of the times taken to encode outgoing messages.
+   *
+   * @return the count of each bucket, see getTimeBucketLimits.
+   */
+  long[] getEncodeTimes();
+
+  /**
+   * Returns the histogram of the times taken to decode incoming messages.
+   *
+   * @return the count of each bucket, see getTimeBucketLimits.
+   */
+  long[] getDecodeTimes();
+
+  /**
+   * Returns the exclusive upper limits of the buckets of the time histograms.
+   *
+   * @return the limits in microseconds.
+   */
+  long[] getTimeBucketLimits();
+
+  /**
+   * Returns the mean time taken to encode an outgoing message.
+   *
+   * @return the mean time.
+   */
+  double getMeanEncodeTime();
+
+  /**
+   * Returns the mean time taken to decode an incoming message.
+   *
+   * @return the mean time.
+   */
+  double getMeanDecodeTime();
+
+  /**
+   * Returns the number of connections opened.
+   *
+   * @return the count.
+   */
+  long getConnectionsOpened();
+
+  /**
+   * Returns the number of connections closed.
+   *
+   * @return the count.
+   */
+  long getConnectionsClosed();
+
+  /**
+   * Returns the number of errors raised or returned by the transport, by MAL error number.
+   *
+   * @return the counts by error number.
+   */
+  Map<Long, Long> getErrors();
+}
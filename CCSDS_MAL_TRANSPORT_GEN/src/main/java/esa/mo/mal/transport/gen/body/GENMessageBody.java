@@ -20,8 +20,11 @@
  */
 package esa.mo.mal.transport.gen.body;
 
+import esa.mo.mal.encoder.gen.GENElementFactoryCache;
 import esa.mo.mal.encoder.gen.GENElementInputStream;
+import esa.mo.mal.encoder.gen.GENOperationStagePlan;
 import esa.mo.mal.transport.gen.GENTransport;
+import esa.mo.mal.transport.gen.util.GENOperationCache;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -137,7 +140,7 @@ public class GENMessageBody implements MALMessageBody, java.io.Serializable
   {
     if (!decodedBody && (encBodyElements instanceof GENElementInputStream))
     {
-      return new MALEncodedBody(new Blob(((GENElementInputStream) encBodyElements).getRemainingEncodedData()));
+      return new MALEncodedBody(((GENElementInputStream) encBodyElements).getRemainingEncodedBlob());
     }
     else
     {
@@ -222,7 +225,7 @@ public class GENMessageBody implements MALMessageBody, java.io.Serializable
       if (count == 1)
       {
         ctx.setBodyElementIndex(0);
-        Object sf = ctx.getOperation().getOperationStage(stage).getElementShortForms()[0];
+        Object sf = GENOperationStagePlan.getPlan(ctx.getOperation().getOperationStage(stage)).getShortForm(0);
         encodeBodyPart(streamFactory, enc, wrappedBodyParts, sf, getBodyElement(0, null), ctx);
       }
       else if (count > 1)
@@ -248,7 +251,7 @@ public class GENMessageBody implements MALMessageBody, java.io.Serializable
 
             if (!ctx.getHeader().getIsErrorMessage())
             {
-              sf = ctx.getOperation().getOperationStage(stage).getElementShortForms()[i];
+              sf = GENOperationStagePlan.getPlan(ctx.getOperation().getOperationStage(stage)).getShortForm(i);
             }
           }
           encodeBodyPart(streamFactory, benc, wrappedBodyParts, sf, getBodyElement(i, null), ctx);
@@ -370,6 +373,12 @@ public class GENMessageBody implements MALMessageBody, java.io.Serializable
       {
         if (null == ctx.getOperation())
         {
+          ctx.setOperation(GENOperationCache.lookupOperation(ctx.getHeader()));
+        }
+
+        if (null == ctx.getOperation())
+        {
+          // not registered, work out which part is unknown for the log
           MALMessageHeader header = ctx.getHeader();
           MALArea area = MALContextFactory.lookupArea(header.getServiceArea(), header.getAreaVersion());
           if (null != area)
@@ -414,14 +423,14 @@ public class GENMessageBody implements MALMessageBody, java.io.Serializable
         }
         else
         {
-          bodyPartCount = ctx.getOperation().getOperationStage(ctx.getHeader().getInteractionStage()).getElementShortForms().length;
+          bodyPartCount = GENOperationStagePlan.getPlan(ctx).getElementCount();
         }
         GENTransport.LOGGER.log(Level.FINE, "GEN Message decoding body ... pc ({0})", bodyPartCount);
         messageParts = new Object[bodyPartCount];
 
         if (bodyPartCount == 1)
         {
-          Object sf = ctx.getOperation().getOperationStage(ctx.getHeader().getInteractionStage()).getElementShortForms()[0];
+          Object sf = GENOperationStagePlan.getPlan(ctx).getShortForm(0);
           messageParts[0] = decodeBodyPart(encBodyElements, ctx, sf);
         }
         else if (bodyPartCount > 1)
@@ -435,6 +444,8 @@ public class GENMessageBody implements MALMessageBody, java.io.Serializable
             benc = encFactory.createInputStream(bais);
           }
 
+          final GENOperationStagePlan plan = ctx.getHeader().getIsErrorMessage() ? null : GENOperationStagePlan.getPlan(ctx);
+
           for (int i = 0; i < bodyPartCount; i++)
           {
             GENTransport.LOGGER.log(Level.FINE, "GEN Message decoding body part : {0}", i);
@@ -442,9 +453,9 @@ public class GENMessageBody implements MALMessageBody, java.io.Serializable
 
             ctx.setBodyElementIndex(i);
 
-            if (!ctx.getHeader().getIsErrorMessage())
+            if (null != plan)
             {
-              sf = ctx.getOperation().getOperationStage(ctx.getHeader().getInteractionStage()).getElementShortForms()[i];
+              sf = plan.getShortForm(i);
             }
 
             messageParts[i] = decodeBodyPart(benc, ctx, sf);
@@ -489,8 +500,7 @@ public class GENMessageBody implements MALMessageBody, java.io.Serializable
       {
         Long shortForm = (Long) sf;
         GENTransport.LOGGER.log(Level.FINER, "GEN Message decoding body part : Type = {0}", shortForm);
-        final MALElementFactory ef
-                = MALContextFactory.getElementFactoryRegistry().lookupElementFactory(shortForm);
+        final MALElementFactory ef = GENElementFactoryCache.lookupElementFactory(shortForm);
         if (null != ef)
         {
           element = (Element) ef.createElement();
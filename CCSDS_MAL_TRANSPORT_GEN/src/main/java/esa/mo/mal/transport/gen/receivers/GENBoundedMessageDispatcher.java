@@ -0,0 +1,200 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen.receivers;
+
+import esa.mo.mal.transport.gen.util.GENQueueLimit;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+
+/**
+ * A dispatcher that counts and limits the messages queued in another dispatcher, across all of its transactions. When
+ * the limit is reached the reception thread either waits, has the new message rejected, or has the oldest queued
+ * messages dropped, depending on the overflow policy of the limit. Rejected and dropped messages are passed to an
+ * overflow handler instead of being processed.
+ *
+ * The handler of the wrapped dispatcher must claim each message before processing it, and skip it if the claim fails
+ * because the message has been dropped.
+ */
+public class GENBoundedMessageDispatcher implements GENIncomingMessageDispatcher
+{
+  private final GENIncomingMessageDispatcher dispatcher;
+  private final GENQueueLimit queueLimit;
+  private final GENIncomingMessageHandler overflowHandler;
+  /**
+   * The queued messages in dispatch order, only kept for the drop oldest policy. Processed messages are removed lazily.
+   */
+  private final Queue<GENIncomingMessageHolder> queued = new ArrayDeque<GENIncomingMessageHolder>();
+  private int pruneSize = 64;
+
+  /**
+   * Constructor.
+   *
+   * @param dispatcher The dispatcher that processes the messages.
+   * @param queueLimit The limit on the queued messages.
+   * @param overflowHandler The handler for rejected and dropped messages.
+   */
+  public GENBoundedMessageDispatcher(final GENIncomingMessageDispatcher dispatcher,
+          final GENQueueLimit queueLimit,
+          final GENIncomingMessageHandler overflowHandler)
+  {
+    this.dispatcher = dispatcher;
+    this.queueLimit = queueLimit;
+    this.overflowHandler = overflowHandler;
+  }
+
+  @Override
+  public void dispatch(final GENIncomingMessageHolder malMsg)
+  {
+    final int size = malMsg.encodedLength;
+
+    switch (queueLimit.getPolicy())
+    {
+      case GENQueueLimit.POLICY_REJECT:
+        if (!queueLimit.tryAcquire(size))
+        {
+          overflow(malMsg);
+          return;
+        }
+        break;
+      case GENQueueLimit.POLICY_DROP_OLDEST:
+        while (!queueLimit.tryAcquire(size))
+        {
+          final GENIncomingMessageHolder oldest = pollOldest();
+
+          if (null == oldest)
+          {
+            // everything queued is being processed, so let this one in
+            queueLimit.forceAcquire(size);
+            break;
+          }
+
+          if (oldest.claim())
+          {
+            overflowHandler.processIncomingMessage(oldest);
+          }
+        }
+
+        synchronized (queued)
+        {
+          queued.add(malMsg);
+          pruneProcessed();
+        }
+        break;
+      default:
+        try
+        {
+          if (!queueLimit.acquire(size))
+          {
+            overflow(malMsg);
+            return;
+          }
+        }
+        catch (InterruptedException ex)
+        {
+          Thread.currentThread().interrupt();
+          overflow(malMsg);
+          return;
+        }
+    }
+
+    malMsg.setQueueLimit(queueLimit);
+    dispatcher.dispatch(malMsg);
+  }
+
+  /**
+   * Returns the number of messages waiting to be processed.
+   *
+   * @return the number of messages.
+   */
+  public int getQueuedMessageCount()
+  {
+    return queueLimit.getMessageCount();
+  }
+
+  /**
+   * Returns the number of encoded bytes of the messages waiting to be processed, for messages whose length is known.
+   *
+   * @return the number of bytes.
+   */
+  public long getQueuedByteCount()
+  {
+    return queueLimit.getByteCount();
+  }
+
+  @Override
+  public int getActiveTransactionCount()
+  {
+    return dispatcher.getActiveTransactionCount();
+  }
+
+  @Override
+  public void close()
+  {
+    queueLimit.close();
+    dispatcher.close();
+  }
+
+  private void overflow(final GENIncomingMessageHolder malMsg)
+  {
+    // claim it so that any later attempt to process it is skipped
+    malMsg.claim();
+    overflowHandler.processIncomingMessage(malMsg);
+  }
+
+  private GENIncomingMessageHolder pollOldest()
+  {
+    synchronized (queued)
+    {
+      GENIncomingMessageHolder oldest = queued.poll();
+
+      while ((null != oldest) && oldest.isClaimed())
+      {
+        oldest = queued.poll();
+      }
+
+      return oldest;
+    }
+  }
+
+  private void pruneProcessed()
+  {
+    while ((null != queued.peek()) && queued.peek().isClaimed())
+    {
+      queued.poll();
+    }
+
+    // a stalled transaction can keep processed messages behind its own in the queue, so sweep those out whenever
+    // the queue has doubled in size since the last sweep
+    if (queued.size() > pruneSize)
+    {
+      for (Iterator<GENIncomingMessageHolder> it = queued.iterator(); it.hasNext();)
+      {
+        if (it.next().isClaimed())
+        {
+          it.remove();
+        }
+      }
+
+      pruneSize = Math.max(64, 2 * queued.size());
+    }
+  }
+}
@@ -0,0 +1,190 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen.receivers;
+
+import esa.mo.mal.transport.gen.util.GENExecutorFactory;
+import esa.mo.mal.transport.gen.util.GENPlatformExecutorFactory;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A message dispatcher that holds its per transaction message queues in a concurrent map. There is no global lock and
+ * no scanning of the map, each transaction queue removes itself from the map when it has no more messages to process.
+ *
+ * Messages with the same transaction id are processed in reception order on the shared thread pool.
+ */
+public class GENConcurrentMessageDispatcher implements GENIncomingMessageDispatcher
+{
+  /**
+   * Key used for messages that have no transaction id, as the concurrent map does not support null keys.
+   */
+  private static final Long NULL_TRANSACTION_ID = Long.MIN_VALUE;
+  /**
+   * The handler that processes the messages.
+   */
+  private final GENIncomingMessageHandler handler;
+  /**
+   * The thread pool of input message processors.
+   */
+  private final ExecutorService asyncInputDataProcessors;
+  /**
+   * The map of active message queues, segregated by transaction id.
+   */
+  private final ConcurrentMap<Long, GENTransactionProcessor> transactionQueues
+          = new ConcurrentHashMap<Long, GENTransactionProcessor>();
+
+  /**
+   * Constructor.
+   *
+   * @param handler The handler that processes the messages.
+   * @param inputProcessorThreads The number of threads in the processing pool.
+   */
+  public GENConcurrentMessageDispatcher(final GENIncomingMessageHandler handler, final int inputProcessorThreads)
+  {
+    this(handler, inputProcessorThreads, GENPlatformExecutorFactory.DEFAULT);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param handler The handler that processes the messages.
+   * @param inputProcessorThreads The number of threads in the processing pool.
+   * @param executorFactory The factory of the processing pool.
+   */
+  public GENConcurrentMessageDispatcher(final GENIncomingMessageHandler handler,
+          final int inputProcessorThreads,
+          final GENExecutorFactory executorFactory)
+  {
+    this.handler = handler;
+    this.asyncInputDataProcessors = executorFactory.newExecutor("GEN message processor", inputProcessorThreads);
+  }
+
+  @Override
+  public void dispatch(final GENIncomingMessageHolder malMsg)
+  {
+    final Long key = (null == malMsg.transactionId) ? NULL_TRANSACTION_ID : malMsg.transactionId;
+
+    while (true)
+    {
+      GENTransactionProcessor proc = transactionQueues.get(key);
+
+      if (null == proc)
+      {
+        proc = new GENTransactionProcessor(key, malMsg);
+
+        if (null == transactionQueues.putIfAbsent(key, proc))
+        {
+          asyncInputDataProcessors.submit(proc);
+          return;
+        }
+      }
+      else if (proc.addMessage(malMsg))
+      {
+        return;
+      }
+
+      // the processor we found has just removed itself or another thread has registered one first, try again
+    }
+  }
+
+  @Override
+  public int getActiveTransactionCount()
+  {
+    return transactionQueues.size();
+  }
+
+  @Override
+  public void close()
+  {
+    asyncInputDataProcessors.shutdown();
+  }
+
+  /**
+   * This Runnable task processes the messages of a single transaction in reception order. Once its queue is empty it
+   * removes itself from the transaction map and refuses any more messages, so that the dispatcher creates a new one.
+   */
+  private final class GENTransactionProcessor implements Runnable
+  {
+    private final Long key;
+    private final Queue<GENIncomingMessageHolder> malMsgs = new ArrayDeque<GENIncomingMessageHolder>();
+    private boolean finished = false;
+
+    /**
+     * Constructor
+     *
+     * @param key The transaction key used in the transaction map.
+     * @param malMsg The MAL message.
+     */
+    public GENTransactionProcessor(final Long key, final GENIncomingMessageHolder malMsg)
+    {
+      this.key = key;
+      malMsgs.add(malMsg);
+    }
+
+    /**
+     * Adds a message to the internal queue if this processor is still active.
+     *
+     * @param malMsg The decoded message.
+     * @return True if the message was added, false if this processor has finished and been removed.
+     */
+    public synchronized boolean addMessage(final GENIncomingMessageHolder malMsg)
+    {
+      if (finished)
+      {
+        return false;
+      }
+
+      malMsgs.add(malMsg);
+      return true;
+    }
+
+    @Override
+    public void run()
+    {
+      GENIncomingMessageHolder msg;
+
+      synchronized (this)
+      {
+        msg = malMsgs.poll();
+      }
+
+      while (null != msg)
+      {
+        // send message for further processing and routing
+        handler.processIncomingMessage(msg);
+
+        synchronized (this)
+        {
+          msg = malMsgs.poll();
+
+          if (null == msg)
+          {
+            finished = true;
+            transactionQueues.remove(key, this);
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,85 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen.receivers;
+
+import esa.mo.mal.transport.gen.GENMessage;
+import esa.mo.mal.transport.gen.GENReceptionHandler;
+import esa.mo.mal.transport.gen.GENTransport;
+import esa.mo.mal.transport.gen.util.GENBufferPool;
+import java.nio.ByteBuffer;
+import org.ccsds.moims.mo.mal.MALException;
+
+/**
+ * Factory class for decoders of messages held in buffers taken from the receive buffer pool of the transport.
+ */
+public class GENIncomingByteBufferMessageDecoderFactory implements GENIncomingMessageDecoderFactory<ByteBuffer>
+{
+  @Override
+  public GENIncomingMessageDecoder createDecoder(GENTransport transport, GENReceptionHandler receptionHandler, ByteBuffer messageSource)
+  {
+    return new GENIncomingByteBufferMessageDecoder(transport, messageSource);
+  }
+
+  /**
+   * Implementation of the GENIncomingMessageDecoder class for newly arrived MAL Messages in pooled buffers. The buffer
+   * is owned by the created message, or returned to the pool straight away if the message cannot be decoded.
+   */
+  public static final class GENIncomingByteBufferMessageDecoder implements GENIncomingMessageDecoder
+  {
+    private final GENTransport transport;
+    private final ByteBuffer rawMessage;
+
+    /**
+     * Constructor
+     *
+     * @param transport Containing transport.
+     * @param rawMessage The raw message
+     */
+    public GENIncomingByteBufferMessageDecoder(final GENTransport transport, ByteBuffer rawMessage)
+    {
+      this.transport = transport;
+      this.rawMessage = rawMessage;
+    }
+
+    @Override
+    public GENIncomingMessageHolder decodeAndCreateMessage() throws MALException
+    {
+      GENTransport.PacketToString smsg = transport.new PacketToString(null);
+
+      try
+      {
+        int length = rawMessage.remaining();
+        GENMessage malMsg = transport.createMessage(rawMessage);
+        return new GENIncomingMessageHolder(malMsg.getHeader().getTransactionId(), malMsg, smsg, length);
+      }
+      catch (MALException ex)
+      {
+        GENBufferPool pool = transport.getReceiveBufferPool();
+        if (null != pool)
+        {
+          pool.release(rawMessage);
+        }
+
+        throw ex;
+      }
+    }
+  }
+}
@@ -61,7 +61,7 @@ public class GENIncomingByteMessageDecoderFactory implements GENIncomingMessageD
     {
       GENTransport.PacketToString smsg = transport.new PacketToString(rawMessage);
       GENMessage malMsg = transport.createMessage(rawMessage);
-      return new GENIncomingMessageHolder(malMsg.getHeader().getTransactionId(), malMsg, smsg);
+      return new GENIncomingMessageHolder(malMsg.getHeader().getTransactionId(), malMsg, smsg, rawMessage.length);
     }
   }
 }
@@ -0,0 +1,122 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen.receivers;
+
+import esa.mo.mal.transport.gen.GENCompactMessageHeader;
+import esa.mo.mal.transport.gen.GENMessage;
+import esa.mo.mal.transport.gen.GENReceptionHandler;
+import esa.mo.mal.transport.gen.GENTransport;
+import esa.mo.mal.transport.gen.util.GENBufferPool;
+import java.nio.ByteBuffer;
+import org.ccsds.moims.mo.mal.MALException;
+
+/**
+ * Factory class for decoders of messages held in buffers taken from the receive buffer pool of the transport whose
+ * header is encoded in compact form, as |header length|header|body|, or in full as |FULL_HEADER|message|. The factory
+ * holds the header dictionary of one connection so a new factory must be used for each connection.
+ */
+public class GENIncomingCompactByteBufferMessageDecoderFactory implements GENIncomingMessageDecoderFactory<ByteBuffer>
+{
+  private final GENCompactMessageHeader.Dictionary dictionary = new GENCompactMessageHeader.Dictionary();
+
+  @Override
+  public GENIncomingMessageDecoder createDecoder(GENTransport transport, GENReceptionHandler receptionHandler, ByteBuffer messageSource)
+  {
+    return new GENIncomingCompactByteBufferMessageDecoder(transport, dictionary, messageSource);
+  }
+
+  /**
+   * Implementation of the GENIncomingMessageDecoder class for newly arrived MAL Messages in pooled buffers with a
+   * compact header. The buffer is owned by the created message, or returned to the pool straight away if the message
+   * cannot be decoded.
+   */
+  public static final class GENIncomingCompactByteBufferMessageDecoder implements GENIncomingMessageDecoder
+  {
+    private final GENTransport transport;
+    private final GENCompactMessageHeader.Dictionary dictionary;
+    private final ByteBuffer rawMessage;
+
+    /**
+     * Constructor
+     *
+     * @param transport Containing transport.
+     * @param dictionary The header dictionary of the connection.
+     * @param rawMessage The raw message
+     */
+    public GENIncomingCompactByteBufferMessageDecoder(final GENTransport transport,
+            final GENCompactMessageHeader.Dictionary dictionary,
+            ByteBuffer rawMessage)
+    {
+      this.transport = transport;
+      this.dictionary = dictionary;
+      this.rawMessage = rawMessage;
+    }
+
+    @Override
+    public GENIncomingMessageHolder decodeAndCreateMessage() throws MALException
+    {
+      GENTransport.PacketToString smsg = transport.new PacketToString(null);
+
+      try
+      {
+        int length = rawMessage.remaining();
+        int headerLength = rawMessage.getInt();
+
+        if (GENCompactMessageHeader.FULL_HEADER == headerLength)
+        {
+          GENMessage malMsg = transport.createMessage(rawMessage);
+          return new GENIncomingMessageHolder(malMsg.getHeader().getTransactionId(), malMsg, smsg, length);
+        }
+
+        GENCompactMessageHeader header;
+
+        if (rawMessage.hasArray())
+        {
+          header = GENCompactMessageHeader.decodeHeader(transport.getStreamFactory(), dictionary,
+                  rawMessage.array(), rawMessage.arrayOffset() + rawMessage.position(), headerLength);
+        }
+        else
+        {
+          byte[] data = new byte[headerLength];
+          rawMessage.duplicate().get(data);
+          header = GENCompactMessageHeader.decodeHeader(transport.getStreamFactory(), dictionary,
+                  data, 0, headerLength);
+        }
+
+        // the body follows the header
+        rawMessage.position(rawMessage.position() + headerLength);
+
+        GENMessage malMsg = transport.createMessage(header, rawMessage);
+        return new GENIncomingMessageHolder(malMsg.getHeader().getTransactionId(), malMsg, smsg, length);
+      }
+      catch (MALException ex)
+      {
+        GENBufferPool pool = transport.getReceiveBufferPool();
+        if (null != pool)
+        {
+          pool.release(rawMessage);
+        }
+
+        throw ex;
+      }
+    }
+  }
+}
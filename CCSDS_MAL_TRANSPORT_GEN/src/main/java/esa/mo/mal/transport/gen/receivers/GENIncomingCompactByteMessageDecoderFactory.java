@@ -0,0 +1,94 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen.receivers;
+
+import esa.mo.mal.transport.gen.GENCompactMessageHeader;
+import esa.mo.mal.transport.gen.GENMessage;
+import esa.mo.mal.transport.gen.GENReceptionHandler;
+import esa.mo.mal.transport.gen.GENTransport;
+import java.io.ByteArrayInputStream;
+import org.ccsds.moims.mo.mal.MALException;
+
+/**
+ * Factory class for decoders of messages in byte array format whose header is encoded in compact form, as
+ * |header length|header|body|, or with their full header as |FULL_HEADER|message|. The factory holds the header
+ * dictionary of one connection so a new factory must be used for each connection.
+ */
+public class GENIncomingCompactByteMessageDecoderFactory implements GENIncomingMessageDecoderFactory<byte[]>
+{
+  private final GENCompactMessageHeader.Dictionary dictionary = new GENCompactMessageHeader.Dictionary();
+
+  @Override
+  public GENIncomingMessageDecoder createDecoder(GENTransport transport, GENReceptionHandler receptionHandler, byte[] messageSource)
+  {
+    return new GENIncomingCompactByteMessageDecoder(transport, dictionary, messageSource);
+  }
+
+  /**
+   * Implementation of the GENIncomingMessageDecoder class for newly arrived MAL Messages in byte array format with a
+   * compact header.
+   */
+  public static final class GENIncomingCompactByteMessageDecoder implements GENIncomingMessageDecoder
+  {
+    private final GENTransport transport;
+    private final GENCompactMessageHeader.Dictionary dictionary;
+    private final byte[] rawMessage;
+
+    /**
+     * Constructor
+     *
+     * @param transport Containing transport.
+     * @param dictionary The header dictionary of the connection.
+     * @param rawMessage The raw message
+     */
+    public GENIncomingCompactByteMessageDecoder(final GENTransport transport,
+            final GENCompactMessageHeader.Dictionary dictionary,
+            byte[] rawMessage)
+    {
+      this.transport = transport;
+      this.dictionary = dictionary;
+      this.rawMessage = rawMessage;
+    }
+
+    @Override
+    public GENIncomingMessageHolder decodeAndCreateMessage() throws MALException
+    {
+      GENTransport.PacketToString smsg = transport.new PacketToString(rawMessage);
+
+      int headerLength = ((rawMessage[0] & 0xFF) << 24) | ((rawMessage[1] & 0xFF) << 16)
+              | ((rawMessage[2] & 0xFF) << 8) | (rawMessage[3] & 0xFF);
+
+      if (GENCompactMessageHeader.FULL_HEADER == headerLength)
+      {
+        GENMessage malMsg = transport.createMessage(new ByteArrayInputStream(rawMessage, 4, rawMessage.length - 4));
+        return new GENIncomingMessageHolder(malMsg.getHeader().getTransactionId(), malMsg, smsg, rawMessage.length);
+      }
+
+      int bodyOffset = 4 + headerLength;
+
+      GENCompactMessageHeader header = GENCompactMessageHeader.decodeHeader(transport.getStreamFactory(), dictionary,
+              rawMessage, 4, headerLength);
+      GENMessage malMsg = transport.createMessage(header,
+              new ByteArrayInputStream(rawMessage, bodyOffset, rawMessage.length - bodyOffset));
+      return new GENIncomingMessageHolder(malMsg.getHeader().getTransactionId(), malMsg, smsg, rawMessage.length);
+    }
+  }
+}
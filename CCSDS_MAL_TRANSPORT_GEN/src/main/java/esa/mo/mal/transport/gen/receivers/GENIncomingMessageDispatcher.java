@@ -0,0 +1,61 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen.receivers;
+
+/**
+ * Interface for the classes that take decoded incoming messages and pass them on for processing. Implementations must
+ * ensure that messages with the same transaction id are processed in reception order, messages of different
+ * transactions may be processed in parallel.
+ */
+public interface GENIncomingMessageDispatcher
+{
+  /**
+   * Queues a decoded message for processing.
+   *
+   * @param malMsg The decoded message.
+   */
+  void dispatch(GENIncomingMessageHolder malMsg);
+
+  /**
+   * Returns the number of transactions that currently have messages queued or being processed.
+   *
+   * @return the number of active transactions.
+   */
+  int getActiveTransactionCount();
+
+  /**
+   * Stops the processing threads of this dispatcher.
+   */
+  void close();
+
+  /**
+   * Simple interface used by the dispatcher to pass a message on for processing.
+   */
+  public static interface GENIncomingMessageHandler
+  {
+    /**
+     * Processes a message, called from one of the processing threads of the dispatcher.
+     *
+     * @param malMsg The decoded message.
+     */
+    void processIncomingMessage(GENIncomingMessageHolder malMsg);
+  }
+}
@@ -22,9 +22,13 @@ package esa.mo.mal.transport.gen.receivers;
 
 import esa.mo.mal.transport.gen.GENMessage;
 import esa.mo.mal.transport.gen.GENTransport;
+import esa.mo.mal.transport.gen.util.GENQueueLimit;
 
 /**
  * Simple structure class for holding related aspects of a decoded MAL message.
+ *
+ * A queued message is claimed once, either by the thread that processes it or by a dispatcher that drops it from a full
+ * queue, and claiming it gives back its room in the queue.
  */
 public final class GENIncomingMessageHolder
 {
@@ -40,6 +44,12 @@ public final class GENIncomingMessageHolder
    * A string representation for debug tracing.
    */
   public final GENTransport.PacketToString smsg;
+  /**
+   * The encoded length of the message, 0 if not known.
+   */
+  public final int encodedLength;
+  private GENQueueLimit queueLimit = null;
+  private boolean claimed = false;
 
   /**
    * Constructor.
@@ -49,9 +59,75 @@ public final class GENIncomingMessageHolder
    * @param smsg A string representation for debug tracing.
    */
   public GENIncomingMessageHolder(final Long transactionId, final GENMessage malMsg, final GENTransport.PacketToString smsg)
+  {
+    this(transactionId, malMsg, smsg, 0);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param transactionId the message transaction id.
+   * @param malMsg The decoded MAL message.
+   * @param smsg A string representation for debug tracing.
+   * @param encodedLength The encoded length of the message.
+   */
+  public GENIncomingMessageHolder(final Long transactionId,
+          final GENMessage malMsg,
+          final GENTransport.PacketToString smsg,
+          final int encodedLength)
   {
     this.transactionId = transactionId;
     this.malMsg = malMsg;
     this.smsg = smsg;
+    this.encodedLength = encodedLength;
+  }
+
+  /**
+   * Claims the message for processing or dropping, giving back its room in the queue it was held in.
+   *
+   * @return True if claimed, false if the message has already been claimed.
+   */
+  public boolean claim()
+  {
+    final GENQueueLimit limit;
+
+    synchronized (this)
+    {
+      if (claimed)
+      {
+        return false;
+      }
+
+      claimed = true;
+      limit = queueLimit;
+      queueLimit = null;
+    }
+
+    if (null != limit)
+    {
+      limit.release(encodedLength);
+    }
+
+    return true;
+  }
+
+  /**
+   * Returns true if the message has been claimed.
+   *
+   * @return True if claimed.
+   */
+  public synchronized boolean isClaimed()
+  {
+    return claimed;
+  }
+
+  /**
+   * Records the limit of the queue the message is held in, whose room is given back when the message is claimed.
+   *
+   * @param queueLimit The queue limit.
+   */
+  synchronized void setQueueLimit(final GENQueueLimit queueLimit)
+  {
+    this.queueLimit = queueLimit;
   }
 }
@@ -0,0 +1,214 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen.receivers;
+
+import esa.mo.mal.transport.gen.util.GENExecutorFactory;
+import esa.mo.mal.transport.gen.util.GENPlatformExecutorFactory;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * The default message dispatcher. It holds a map of message queues, segregated by transaction id, protected by a single
+ * lock. Each queue is submitted to a shared thread pool when it has messages to process. Finished queues are removed
+ * from the map on the next dispatch.
+ */
+public class GENQueuedMessageDispatcher implements GENIncomingMessageDispatcher
+{
+  /**
+   * The handler that processes the messages.
+   */
+  private final GENIncomingMessageHandler handler;
+  /**
+   * The thread pool of input message processors.
+   */
+  private final ExecutorService asyncInputDataProcessors;
+  /**
+   * The map of message queues, segregated by transaction id.
+   */
+  private final Map<Long, GENIncomingMessageProcessor> transactionQueues = new HashMap<Long, GENIncomingMessageProcessor>();
+
+  /**
+   * Constructor.
+   *
+   * @param handler The handler that processes the messages.
+   * @param inputProcessorThreads The number of threads in the processing pool.
+   */
+  public GENQueuedMessageDispatcher(final GENIncomingMessageHandler handler, final int inputProcessorThreads)
+  {
+    this(handler, inputProcessorThreads, GENPlatformExecutorFactory.DEFAULT);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param handler The handler that processes the messages.
+   * @param inputProcessorThreads The number of threads in the processing pool.
+   * @param executorFactory The factory of the processing pool.
+   */
+  public GENQueuedMessageDispatcher(final GENIncomingMessageHandler handler,
+          final int inputProcessorThreads,
+          final GENExecutorFactory executorFactory)
+  {
+    this.handler = handler;
+    this.asyncInputDataProcessors = executorFactory.newExecutor("GEN message processor", inputProcessorThreads);
+  }
+
+  @Override
+  public void dispatch(final GENIncomingMessageHolder malMsg)
+  {
+    synchronized (transactionQueues)
+    {
+      GENIncomingMessageProcessor proc = transactionQueues.get(malMsg.transactionId);
+
+      if (null == proc)
+      {
+        proc = new GENIncomingMessageProcessor(malMsg);
+        transactionQueues.put(malMsg.transactionId, proc);
+        asyncInputDataProcessors.submit(proc);
+      }
+      else
+      {
+        if (proc.addMessage(malMsg))
+        {
+          // need to resubmit this to the processing threads
+          asyncInputDataProcessors.submit(proc);
+        }
+      }
+
+      Set<Long> transactionsToRemove = new HashSet<Long>();
+      for (Map.Entry<Long, GENIncomingMessageProcessor> entrySet : transactionQueues.entrySet())
+      {
+        Long key = entrySet.getKey();
+        GENIncomingMessageProcessor lproc = entrySet.getValue();
+
+        if (lproc.isFinished())
+        {
+          transactionsToRemove.add(key);
+        }
+      }
+
+      for (Long transId : transactionsToRemove)
+      {
+        transactionQueues.remove(transId);
+      }
+    }
+  }
+
+  @Override
+  public int getActiveTransactionCount()
+  {
+    synchronized (transactionQueues)
+    {
+      return transactionQueues.size();
+    }
+  }
+
+  @Override
+  public void close()
+  {
+    asyncInputDataProcessors.shutdown();
+  }
+
+  /**
+   * This Runnable task is responsible for processing the already decoded message. It holds a queue of messages split on
+   * transaction id so that messages with the same transaction id get processed in reception order.
+   *
+   */
+  private final class GENIncomingMessageProcessor implements Runnable
+  {
+    private final Queue<GENIncomingMessageHolder> malMsgs = new ArrayDeque<GENIncomingMessageHolder>();
+    private boolean finished = false;
+
+    /**
+     * Constructor
+     *
+     * @param malMsg The MAL message.
+     */
+    public GENIncomingMessageProcessor(final GENIncomingMessageHolder malMsg)
+    {
+      malMsgs.add(malMsg);
+    }
+
+    /**
+     * Adds a message to the internal queue. If the thread associated with this executor has finished it resets the flag
+     * and returns true to indicate that it should be resubmitted for more processing to the Executor pool.
+     *
+     * @param malMsg The decoded message.
+     * @return True if this needs to be resubmitted to the processing executor pool.
+     */
+    public synchronized boolean addMessage(final GENIncomingMessageHolder malMsg)
+    {
+      malMsgs.add(malMsg);
+
+      if (finished)
+      {
+        finished = false;
+
+        // need to resubmit this to the processing threads
+        return true;
+      }
+
+      return false;
+    }
+
+    /**
+     * Returns true if this thread has finished processing its queue.
+     *
+     * @return True if finished processing queue.
+     */
+    public synchronized boolean isFinished()
+    {
+      return finished;
+    }
+
+    @Override
+    public void run()
+    {
+      GENIncomingMessageHolder msg;
+
+      synchronized (this)
+      {
+        msg = malMsgs.poll();
+      }
+
+      while (null != msg)
+      {
+        // send message for further processing and routing
+        handler.processIncomingMessage(msg);
+
+        synchronized (this)
+        {
+          msg = malMsgs.poll();
+
+          if (null == msg)
+          {
+            finished = true;
+          }
+        }
+      }
+    }
+  }
+}
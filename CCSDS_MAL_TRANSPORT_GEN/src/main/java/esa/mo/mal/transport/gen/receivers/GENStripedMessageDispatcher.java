@@ -0,0 +1,184 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen.receivers;
+
+import esa.mo.mal.transport.gen.util.GENExecutorFactory;
+import esa.mo.mal.transport.gen.util.GENPlatformExecutorFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A message dispatcher that uses a fixed set of single threaded executors. The transaction id of a message selects the
+ * executor, so all messages of a transaction are processed in reception order by the same thread, and the only per
+ * transaction state held is a count of its messages in flight, used to report the active transactions.
+ *
+ * A slow message blocks the other transactions that hash to the same executor, so this dispatcher suits message
+ * handlers that return quickly.
+ */
+public class GENStripedMessageDispatcher implements GENIncomingMessageDispatcher
+{
+  /**
+   * Key used for messages that have no transaction id, as the concurrent map does not support null keys.
+   */
+  private static final Long NULL_TRANSACTION_ID = Long.MIN_VALUE;
+  /**
+   * The handler that processes the messages.
+   */
+  private final GENIncomingMessageHandler handler;
+  /**
+   * The serial executors, one per stripe.
+   */
+  private final ExecutorService[] stripes;
+  /**
+   * The number of messages queued or being processed, by transaction id. A transaction is removed once its count
+   * reaches zero.
+   */
+  private final ConcurrentMap<Long, AtomicInteger> inFlight = new ConcurrentHashMap<Long, AtomicInteger>();
+
+  /**
+   * Constructor.
+   *
+   * @param handler The handler that processes the messages.
+   * @param stripeCount The number of serial executors to use.
+   */
+  public GENStripedMessageDispatcher(final GENIncomingMessageHandler handler, final int stripeCount)
+  {
+    this(handler, stripeCount, GENPlatformExecutorFactory.DEFAULT);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param handler The handler that processes the messages.
+   * @param stripeCount The number of serial executors to use.
+   * @param executorFactory The factory of the serial executors.
+   */
+  public GENStripedMessageDispatcher(final GENIncomingMessageHandler handler,
+          final int stripeCount,
+          final GENExecutorFactory executorFactory)
+  {
+    this.handler = handler;
+    this.stripes = new ExecutorService[stripeCount];
+
+    for (int i = 0; i < stripeCount; i++)
+    {
+      stripes[i] = executorFactory.newExecutor("GEN message stripe " + i, 1);
+    }
+  }
+
+  @Override
+  public void dispatch(final GENIncomingMessageHolder malMsg)
+  {
+    final Long key = (null == malMsg.transactionId) ? NULL_TRANSACTION_ID : malMsg.transactionId;
+    final AtomicInteger count = acquire(key);
+
+    stripes[stripeIndex(malMsg.transactionId)].submit(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        try
+        {
+          handler.processIncomingMessage(malMsg);
+        }
+        finally
+        {
+          if (0 == count.decrementAndGet())
+          {
+            inFlight.remove(key, count);
+          }
+        }
+      }
+    });
+  }
+
+  @Override
+  public int getActiveTransactionCount()
+  {
+    return inFlight.size();
+  }
+
+  @Override
+  public void close()
+  {
+    for (ExecutorService stripe : stripes)
+    {
+      stripe.shutdown();
+    }
+  }
+
+  /**
+   * Increments the in flight count of a transaction, registering it if it has none.
+   *
+   * @param key The transaction key.
+   * @return the count that was incremented.
+   */
+  private AtomicInteger acquire(final Long key)
+  {
+    while (true)
+    {
+      final AtomicInteger count = inFlight.get(key);
+
+      if (null == count)
+      {
+        final AtomicInteger created = new AtomicInteger(1);
+
+        if (null == inFlight.putIfAbsent(key, created))
+        {
+          return created;
+        }
+      }
+      else
+      {
+        int c = count.get();
+
+        // a count of zero has been or is being removed from the map, so it cannot be reused
+        while (0 < c)
+        {
+          if (count.compareAndSet(c, c + 1))
+          {
+            return count;
+          }
+
+          c = count.get();
+        }
+      }
+
+      // the count we found has just been released or another thread has registered one first, try again
+    }
+  }
+
+  private int stripeIndex(final Long transactionId)
+  {
+    if (null == transactionId)
+    {
+      return 0;
+    }
+
+    // spread the bits as transaction ids are often sequential
+    long h = transactionId * 0x9E3779B97F4A7C15L;
+    int i = (int) (h ^ (h >>> 32));
+
+    return (i & 0x7FFFFFFF) % stripes.length;
+  }
+}
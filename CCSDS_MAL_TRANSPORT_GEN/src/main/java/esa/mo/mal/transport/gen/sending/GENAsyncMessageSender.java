@@ -0,0 +1,38 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen.sending;
+
+/**
+ * Extension of the message sender interface for low level transports that queue messages and write them later, such
+ * as the NIO connections of the TCPIP transport. As such a sender does not know if a message could be written when
+ * sendEncodedMessage returns, it informs a listener of the result of each message once it has been written, or once
+ * the connection has failed before it could be. The encoded message is held by the sender until then.
+ */
+public interface GENAsyncMessageSender extends GENMessageSender
+{
+  /**
+   * Sets the listener informed of the result of the messages passed to sendEncodedMessage. It is called from the thread
+   * of the sender so should return quickly. If no listener is set the sender sets the result of the messages itself.
+   *
+   * @param listener the listener.
+   */
+  void setSendListener(GENOutgoingMessageListener listener);
+}
@@ -0,0 +1,39 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen.sending;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Extension of the message sender interface for low level transports that can send several messages in one go, for
+ * example with a single write and flush.
+ */
+public interface GENBatchMessageSender extends GENMessageSender
+{
+  /**
+   * Sends a batch of encoded messages to the client in the order supplied.
+   *
+   * @param encodedMessages the messages to send.
+   * @throws IOException in case the messages cannot be sent to the client
+   */
+  void sendEncodedMessages(List<GENOutgoingMessageHolder> encodedMessages) throws IOException;
+}
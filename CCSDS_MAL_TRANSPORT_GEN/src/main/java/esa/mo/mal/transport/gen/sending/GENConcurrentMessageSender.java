@@ -20,21 +20,30 @@
  */
 package esa.mo.mal.transport.gen.sending;
 
+import esa.mo.mal.transport.gen.GENMessage;
 import esa.mo.mal.transport.gen.GENTransport;
 import static esa.mo.mal.transport.gen.GENTransport.LOGGER;
+import esa.mo.mal.transport.gen.util.GENExecutorFactory;
+import esa.mo.mal.transport.gen.util.GENPlatformExecutorFactory;
+import esa.mo.mal.transport.gen.util.GENQueueLimit;
+import esa.mo.mal.transport.gen.util.GENReconnectPolicy;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
+import org.ccsds.moims.mo.mal.MALException;
+import org.ccsds.moims.mo.mal.structures.URI;
+import org.ccsds.moims.mo.mal.transport.MALMessage;
+import org.ccsds.moims.mo.mal.transport.MALMessageHeader;
+import org.ccsds.moims.mo.mal.transport.MALTransmitErrorException;
 
 import java.io.IOException;
 import static java.lang.Thread.interrupted;
 
 /**
- * This class manages a set of threads that are able to send messages via transceivers. It uses a blocking queue from
- * where all threads consume messages to be sent. The worker threads are created via the addProcessor method which is
+ * This class manages a set of threads that are able to send messages via transceivers. It uses a priority queue from
+ * where all threads consume messages to be sent, the most urgent first. The worker threads are created via the addProcessor method which is
  * called when a new connection is associated to a given URI by the transport.
  *
  * Each object of this class is associated with a URI at the transport level.
@@ -44,13 +53,52 @@ import static java.lang.Thread.interrupted;
  * It accepts requests to send the message, which is done via the worker threads. A reply is provided indicating if the
  * message was sent successfully or not.
  *
+ * If the message sender supports it, a worker thread takes all the messages waiting in the queue, up to a configured
+ * message count and byte size, and sends them as a single batch. Streamed messages, which are encoded as they are sent,
+ * are always sent on their own.
+ *
+ * The queue may be limited by message count and encoded bytes. When it is full the caller either waits, has its
+ * message rejected, or has the oldest of the least urgent queued messages dropped, depending on the overflow policy of
+ * the limit. Rejected and dropped messages are given a failed result.
+ *
+ * Threads taking messages from a shared queue may send the messages of one transaction out of order on different
+ * connections. With an affinity mode each thread has its own queue instead, and messages are hashed by their
+ * transaction id, or by their source URI, to one of a fixed set of slots that is bound to one thread. The messages of
+ * a slot are therefore sent in order on one connection while other slots use the other connections. A slot is only
+ * moved to another thread, when threads are added, once none of its messages are queued or being sent.
+ *
+ * If the transport has a reconnection policy, a thread that loses its connection keeps the messages it was sending and
+ * reconnects in the background while the queued messages wait, see GENReconnectPolicy. Only once it gives up is the
+ * transport informed of the communication error.
+ *
+ * A GENAsyncMessageSender only queues the messages it is given, so the result of each message is set once the sender
+ * reports it written. Messages it reports dropped because its connection failed are failed, or with a reconnection
+ * policy queued again to be sent once the connection is replaced.
+ *
  */
 public class GENConcurrentMessageSender
 {
+  /**
+   * Affinity mode where all threads take messages from a shared queue.
+   */
+  public static final int AFFINITY_NONE = 0;
+  /**
+   * Affinity mode where messages with the same transaction id are sent on the same connection.
+   */
+  public static final int AFFINITY_TRANSACTION = 1;
+  /**
+   * Affinity mode where messages from the same source URI are sent on the same connection.
+   */
+  public static final int AFFINITY_SOURCE = 2;
+  /**
+   * number of affinity slots, a power of two
+   */
+  private static final int AFFINITY_SLOTS = 256;
+
   /**
    * input message queue
    */
-  private final BlockingQueue<GENOutgoingMessageHolder> outgoingQueue;
+  private final GENPriorityMessageQueue outgoingQueue;
 
   /**
    * the list of processing threads that send the messages
@@ -67,6 +115,51 @@ public class GENConcurrentMessageSender
    */
   private final String targetURI;
 
+  /**
+   * maximum number of messages sent in one batch, 1 disables batching
+   */
+  private final int maxBatchSize;
+
+  /**
+   * maximum number of encoded bytes sent in one batch, the batch is closed once this is reached
+   */
+  private final int maxBatchBytes;
+
+  /**
+   * the limit on the messages and bytes held in the queue
+   */
+  private final GENQueueLimit queueLimit;
+
+  /**
+   * the affinity mode, one of the AFFINITY constants
+   */
+  private final int affinity;
+
+  /**
+   * the index in processingThreads of the thread each affinity slot is bound to
+   */
+  private final int[] slotProcessors;
+
+  /**
+   * the number of messages of each affinity slot that are queued or being sent, also the lock for the slots
+   */
+  private final int[] slotMessages;
+
+  /**
+   * the factory of the processing threads
+   */
+  private final GENExecutorFactory executorFactory;
+
+  /**
+   * how lost connections are replaced, null if they are not
+   */
+  private final GENReconnectPolicy reconnectPolicy;
+
+  /**
+   * the number of threads that have lost their connection and are reconnecting
+   */
+  private final AtomicInteger reconnectingThreads = new AtomicInteger();
+
   /**
    * Creates a new instance. Typically each instance is associated with a given URI.
    *
@@ -75,10 +168,104 @@ public class GENConcurrentMessageSender
    */
   public GENConcurrentMessageSender(GENTransport transport, String targetURI)
   {
-    outgoingQueue = new LinkedBlockingQueue<GENOutgoingMessageHolder>();
+    this(transport, targetURI, 1, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Creates a new instance that sends queued messages in batches. Typically each instance is associated with a given
+   * URI.
+   *
+   * @param transport reference to the transport
+   * @param targetURI
+   * @param maxBatchSize maximum number of messages sent in one batch, 1 disables batching
+   * @param maxBatchBytes maximum number of encoded bytes sent in one batch
+   */
+  public GENConcurrentMessageSender(GENTransport transport, String targetURI, int maxBatchSize, int maxBatchBytes)
+  {
+    this(transport, targetURI, maxBatchSize, maxBatchBytes, new GENQueueLimit(0, 0, GENQueueLimit.POLICY_BLOCK));
+  }
+
+  /**
+   * Creates a new instance that sends queued messages in batches from a limited queue. Typically each instance is
+   * associated with a given URI.
+   *
+   * @param transport reference to the transport
+   * @param targetURI
+   * @param maxBatchSize maximum number of messages sent in one batch, 1 disables batching
+   * @param maxBatchBytes maximum number of encoded bytes sent in one batch
+   * @param queueLimit the limit on the messages and bytes held in the queue, not shared with other senders
+   */
+  public GENConcurrentMessageSender(GENTransport transport, String targetURI, int maxBatchSize, int maxBatchBytes,
+          GENQueueLimit queueLimit)
+  {
+    this(transport, targetURI, maxBatchSize, maxBatchBytes, queueLimit, new GENPriorityMessageQueue(1, 0));
+  }
+
+  /**
+   * Creates a new instance that sends queued messages in batches from a limited priority queue. Typically each instance
+   * is associated with a given URI.
+   *
+   * @param transport reference to the transport
+   * @param targetURI
+   * @param maxBatchSize maximum number of messages sent in one batch, 1 disables batching
+   * @param maxBatchBytes maximum number of encoded bytes sent in one batch
+   * @param queueLimit the limit on the messages and bytes held in the queue, not shared with other senders
+   * @param outgoingQueue the queue of messages to send, not shared with other senders
+   */
+  public GENConcurrentMessageSender(GENTransport transport, String targetURI, int maxBatchSize, int maxBatchBytes,
+          GENQueueLimit queueLimit, GENPriorityMessageQueue outgoingQueue)
+  {
+    this(transport, targetURI, maxBatchSize, maxBatchBytes, queueLimit, outgoingQueue, AFFINITY_NONE);
+  }
+
+  /**
+   * Creates a new instance that sends queued messages in batches from limited priority queues, keeping messages with
+   * the same affinity key on the same connection. Typically each instance is associated with a given URI.
+   *
+   * @param transport reference to the transport
+   * @param targetURI
+   * @param maxBatchSize maximum number of messages sent in one batch, 1 disables batching
+   * @param maxBatchBytes maximum number of encoded bytes sent in one batch
+   * @param queueLimit the limit on the messages and bytes held in the queues, not shared with other senders
+   * @param outgoingQueue the queue of messages to send, used by the first thread and copied for the others if there is
+   * affinity, not shared with other senders
+   * @param affinity the affinity mode, one of the AFFINITY constants
+   */
+  public GENConcurrentMessageSender(GENTransport transport, String targetURI, int maxBatchSize, int maxBatchBytes,
+          GENQueueLimit queueLimit, GENPriorityMessageQueue outgoingQueue, int affinity)
+  {
+    this.outgoingQueue = outgoingQueue;
     processingThreads = Collections.synchronizedList(new ArrayList<GENSenderThread>());
     this.transport = transport;
     this.targetURI = targetURI;
+    this.maxBatchSize = Math.max(1, maxBatchSize);
+    this.maxBatchBytes = maxBatchBytes;
+    this.queueLimit = queueLimit;
+    this.affinity = affinity;
+    this.slotProcessors = new int[(AFFINITY_NONE == affinity) ? 0 : AFFINITY_SLOTS];
+    this.slotMessages = new int[slotProcessors.length];
+    this.executorFactory = (null == transport) ? GENPlatformExecutorFactory.DEFAULT : transport.getExecutorFactory();
+    this.reconnectPolicy = (null == transport) ? null : transport.getReconnectPolicy();
+  }
+
+  /**
+   * Returns the affinity mode for a mode name, one of none, transaction or source.
+   *
+   * @param name The mode name, may be null.
+   * @return the mode, or AFFINITY_NONE if the name is null or not known.
+   */
+  public static int parseAffinity(final String name)
+  {
+    if ("transaction".equalsIgnoreCase(name))
+    {
+      return AFFINITY_TRANSACTION;
+    }
+    else if ("source".equalsIgnoreCase(name))
+    {
+      return AFFINITY_SOURCE;
+    }
+
+    return AFFINITY_NONE;
   }
 
   /**
@@ -87,8 +274,9 @@ public class GENConcurrentMessageSender
    * block waiting for an indication if the message was sent successfully or not.
    *
    * @param message the message to be sent.
+   * @return false if the message was not queued, in which case its result has already been set.
    */
-  public void sendMessage(GENOutgoingMessageHolder message)
+  public boolean sendMessage(GENOutgoingMessageHolder message)
   {
     if (processingThreads.isEmpty())
     {
@@ -97,18 +285,277 @@ public class GENConcurrentMessageSender
       LOGGER.log(Level.SEVERE, "No active processors in this processing queue!");
       message.setResult(Boolean.FALSE);
 
-      return;
+      return false;
     }
 
-    boolean inserted = outgoingQueue.add(message);
+    if (isDisconnected()
+            && (reconnectPolicy.getRetentionBytes() - message.getEncodedMessageLength() < queueLimit.getByteCount()))
+    {
+      LOGGER.log(Level.WARNING, "Retention budget full for URI:{0} rejecting message", targetURI);
+      message.setResult(Boolean.FALSE);
+
+      return false;
+    }
+
+    if (!acquireQueueSpace(message))
+    {
+      message.setResult(Boolean.FALSE);
+
+      return false;
+    }
+
+    final GENPriorityMessageQueue queue = getQueue(message);
+    if (null == queue)
+    {
+      // terminated since the check above
+      queueLimit.release(message.getEncodedMessageLength());
+      message.setResult(Boolean.FALSE);
+
+      return false;
+    }
+
+    boolean inserted = queue.add(message);
     if (!inserted)
     {
       // log error. According to the specification (see *add* call
       // documentation) this will always return true, or throw an
       // exception
       LOGGER.log(Level.SEVERE, "Could not insert message to processing queue");
+      queueLimit.release(message.getEncodedMessageLength());
+      releaseSlot(message);
       message.setResult(Boolean.FALSE);
     }
+
+    return inserted;
+  }
+
+  /**
+   * Returns the number of messages waiting in the queue.
+   *
+   * @return the number of queued messages.
+   */
+  public int getQueuedMessageCount()
+  {
+    return queueLimit.getMessageCount();
+  }
+
+  /**
+   * Returns the number of encoded bytes waiting in the queue.
+   *
+   * @return the number of queued bytes.
+   */
+  public long getQueuedByteCount()
+  {
+    return queueLimit.getByteCount();
+  }
+
+  /**
+   * Returns true if all the threads are reconnecting, so nothing is being sent.
+   *
+   * @return true if disconnected.
+   */
+  private boolean isDisconnected()
+  {
+    return (null != reconnectPolicy) && (reconnectingThreads.get() >= processingThreads.size());
+  }
+
+  /**
+   * Fails a message that is no longer queued.
+   *
+   * @param message the message.
+   */
+  private void failQueuedMessage(GENOutgoingMessageHolder message)
+  {
+    queueLimit.release(message.getEncodedMessageLength());
+    releaseSlot(message);
+    message.setResult(Boolean.FALSE);
+  }
+
+  /**
+   * Queues a message again that an asynchronous message sender of a thread has dropped, unless the thread has been
+   * terminated.
+   *
+   * @param thread the thread the message was sent by.
+   * @param message the message.
+   * @return true if queued, false if the thread has been terminated.
+   */
+  private synchronized boolean requeue(GENSenderThread thread, GENOutgoingMessageHolder message)
+  {
+    if (!processingThreads.contains(thread))
+    {
+      return false;
+    }
+
+    queueLimit.forceAcquire(message.getEncodedMessageLength());
+    thread.queue.requeue(message);
+
+    return true;
+  }
+
+  /**
+   * Returns the queue to add a message to, binding the affinity slot of the message to a thread if none of its messages
+   * are queued or being sent.
+   *
+   * @param message the message to be queued.
+   * @return the queue, or null if there are no threads.
+   */
+  private GENPriorityMessageQueue getQueue(GENOutgoingMessageHolder message)
+  {
+    if (AFFINITY_NONE == affinity)
+    {
+      return outgoingQueue;
+    }
+
+    final int slot = getAffinitySlot(message.getOriginalMessage());
+
+    synchronized (slotMessages)
+    {
+      final int count = processingThreads.size();
+
+      if (0 == count)
+      {
+        return null;
+      }
+
+      if ((0 == slotMessages[slot]) || (slotProcessors[slot] >= count))
+      {
+        // nothing of the slot is in flight so it can move without reordering its messages
+        slotProcessors[slot] = slot % count;
+      }
+
+      ++slotMessages[slot];
+      message.setAffinitySlot(slot);
+
+      return processingThreads.get(slotProcessors[slot]).queue;
+    }
+  }
+
+  /**
+   * Returns the affinity slot of a message from its transaction id or its source URI.
+   *
+   * @param msg the message, may be null.
+   * @return the slot.
+   */
+  private int getAffinitySlot(MALMessage msg)
+  {
+    int hash = 0;
+
+    if (null != msg)
+    {
+      final MALMessageHeader header = msg.getHeader();
+
+      if (AFFINITY_SOURCE == affinity)
+      {
+        final URI from = header.getURIFrom();
+        hash = ((null == from) || (null == from.getValue())) ? 0 : from.getValue().hashCode();
+      }
+      else
+      {
+        final Long transactionId = header.getTransactionId();
+        hash = (null == transactionId) ? 0 : transactionId.hashCode();
+      }
+    }
+
+    // spread the hash so that consecutive transaction ids fall in different slots
+    return ((hash * 0x9E3779B9) >>> 24) & (AFFINITY_SLOTS - 1);
+  }
+
+  /**
+   * Releases the affinity slot of a message that has been sent, dropped or failed.
+   *
+   * @param message the message.
+   */
+  private void releaseSlot(GENOutgoingMessageHolder message)
+  {
+    final int slot = message.getAffinitySlot();
+
+    if (0 <= slot)
+    {
+      synchronized (slotMessages)
+      {
+        --slotMessages[slot];
+      }
+    }
+  }
+
+  /**
+   * Removes the oldest message of the least urgent level of the first thread queue holding one.
+   *
+   * @return the message or null if all queues are empty.
+   */
+  private GENOutgoingMessageHolder pollLeastUrgent()
+  {
+    if (AFFINITY_NONE == affinity)
+    {
+      return outgoingQueue.pollLeastUrgent();
+    }
+
+    synchronized (processingThreads)
+    {
+      for (GENSenderThread t : processingThreads)
+      {
+        final GENOutgoingMessageHolder message = t.queue.pollLeastUrgent();
+
+        if (null != message)
+        {
+          return message;
+        }
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Takes room in the queue for a message according to the overflow policy of the queue limit.
+   *
+   * @param message the message to be queued.
+   * @return true if there is room for the message.
+   */
+  private boolean acquireQueueSpace(GENOutgoingMessageHolder message)
+  {
+    final int size = message.getEncodedMessageLength();
+
+    switch (queueLimit.getPolicy())
+    {
+      case GENQueueLimit.POLICY_REJECT:
+        if (queueLimit.tryAcquire(size))
+        {
+          return true;
+        }
+
+        LOGGER.log(Level.WARNING, "Outgoing queue full for URI:{0} rejecting message", targetURI);
+        return false;
+      case GENQueueLimit.POLICY_DROP_OLDEST:
+        while (!queueLimit.tryAcquire(size))
+        {
+          GENOutgoingMessageHolder oldest = pollLeastUrgent();
+
+          if (null == oldest)
+          {
+            // the room is held by messages about to be queued, so let this one in
+            queueLimit.forceAcquire(size);
+            break;
+          }
+
+          LOGGER.log(Level.WARNING, "Outgoing queue full for URI:{0} dropping oldest least urgent message", targetURI);
+          queueLimit.release(oldest.getEncodedMessageLength());
+          releaseSlot(oldest);
+          oldest.setResult(Boolean.FALSE);
+        }
+
+        return true;
+      default:
+        try
+        {
+          return queueLimit.acquire(size);
+        }
+        catch (InterruptedException ex)
+        {
+          Thread.currentThread().interrupt();
+          return false;
+        }
+    }
   }
 
   /**
@@ -120,8 +567,9 @@ public class GENConcurrentMessageSender
    */
   public synchronized int addProcessor(GENMessageSender messageSender, String uriTo)
   {
-    // create new thread
-    GENSenderThread procThread = new GENSenderThread(messageSender, uriTo);
+    // create new thread, with its own queue if there is affinity
+    GENSenderThread procThread = new GENSenderThread(messageSender, uriTo,
+            ((AFFINITY_NONE == affinity) || processingThreads.isEmpty()) ? outgoingQueue : outgoingQueue.newQueue());
 
     // keep reference to thread
     processingThreads.add(procThread);
@@ -138,6 +586,32 @@ public class GENConcurrentMessageSender
     return processingThreads.size();
   }
 
+  /**
+   * Returns true if all the connections can send streamed messages, which are encoded as they are sent.
+   *
+   * @return true if streamed messages can be sent.
+   */
+  public boolean supportsStreaming()
+  {
+    synchronized (processingThreads)
+    {
+      if (processingThreads.isEmpty())
+      {
+        return false;
+      }
+
+      for (GENSenderThread t : processingThreads)
+      {
+        if (!(t.messageSender instanceof GENStreamingMessageSender))
+        {
+          return false;
+        }
+      }
+    }
+
+    return true;
+  }
+
   /**
    * Returns the URI this class sends to.
    *
@@ -158,9 +632,31 @@ public class GENConcurrentMessageSender
     return processingThreads.size();
   }
 
+  /**
+   * Returns true if a message sender is used by one of the processors.
+   *
+   * @param messageSender The message sender.
+   * @return true if the message sender is in use.
+   */
+  public boolean hasProcessor(GENMessageSender messageSender)
+  {
+    synchronized (processingThreads)
+    {
+      for (GENSenderThread t : processingThreads)
+      {
+        if (t.messageSender == messageSender)
+        {
+          return true;
+        }
+      }
+    }
+
+    return false;
+  }
+
   /**
    * This method will shutdown all processing threads (by calling their interrupt method) which will result in all of
-   * them closing their sockets and terminating their processing.
+   * them closing their sockets and terminating their processing. Messages still waiting in the queues are failed.
    *
    * Typically Called by the transport in order to shutdown all processing threads and close all remote connections.
    */
@@ -168,26 +664,49 @@ public class GENConcurrentMessageSender
   {
     LOGGER.log(Level.INFO, "Terminating all processing threads for sender for URI:{0}", targetURI);
 
+    final List<GENPriorityMessageQueue> queues = new ArrayList<GENPriorityMessageQueue>();
+    queues.add(outgoingQueue);
+
     for (GENSenderThread t : processingThreads)
     {
       // this will cause all threads to terminate
       LOGGER.log(Level.FINE, "Terminating sender processing thread for URI:{0}", t.getUriTo());
       t.interrupt();
+
+      if (!queues.contains(t.queue))
+      {
+        queues.add(t.queue);
+      }
     }
 
     // clear the references to active threads
     processingThreads.clear();
+
+    // release any callers waiting for room in the queue
+    queueLimit.close();
+
+    // the threads only fail the messages they were sending, the queued ones would otherwise never get a result
+    for (GENPriorityMessageQueue queue : queues)
+    {
+      GENOutgoingMessageHolder messageHolder;
+
+      while (null != (messageHolder = queue.poll()))
+      {
+        failQueuedMessage(messageHolder);
+      }
+    }
   }
 
   /**
-   * This thread will listen for outgoing messages through a blocking queue and send them through a transceiver. In case
-   * of communication problems it will inform the transport and terminate.
+   * This processor runs on its own thread, created by the executor factory of the transport. It will listen for
+   * outgoing messages through a blocking queue and send them through a transceiver. In case of communication problems
+   * it will inform the transport and terminate.
    *
    * In any case, a reply is send back to the originator of the request using a blocking queue from the outgoing
    * message.
    *
    */
-  private class GENSenderThread extends Thread
+  private class GENSenderThread implements Runnable, GENOutgoingMessageListener
   {
     /**
      * The destination URI
@@ -195,55 +714,136 @@ public class GENConcurrentMessageSender
     private final String uriTo;
 
     /**
-     * The message sender
+     * The message sender, replaced when reconnecting
      */
-    private final GENMessageSender messageSender;
+    private GENMessageSender messageSender;
+
+    /**
+     * The queue the messages are taken from
+     */
+    private final GENPriorityMessageQueue queue;
+
+    /**
+     * The thread the processor runs on
+     */
+    private final Thread thread;
+
+    /**
+     * A streamed message taken from the queue while filling a batch, sent after the batch
+     */
+    private GENOutgoingMessageHolder heldBack = null;
 
     /**
      * Constructor
      *
      * @param messageSender
      * @param uriTo
+     * @param queue
      */
-    public GENSenderThread(GENMessageSender messageSender, String uriTo)
+    public GENSenderThread(GENMessageSender messageSender, String uriTo, GENPriorityMessageQueue queue)
     {
       this.uriTo = uriTo;
-      this.messageSender = messageSender;
-      setName(getClass().getName() + " URI:" + uriTo);
+      this.queue = queue;
+      setMessageSender(messageSender);
+      this.thread = executorFactory.newThread(getClass().getName() + " URI:" + uriTo, this);
+    }
+
+    /**
+     * Starts the thread of the processor.
+     */
+    public void start()
+    {
+      thread.start();
+    }
+
+    /**
+     * Interrupts the thread of the processor, which then terminates.
+     */
+    public void interrupt()
+    {
+      thread.interrupt();
     }
 
     @Override
     public void run()
     {
       boolean bContinue = true;
+      final boolean batching = (1 < maxBatchSize) && (messageSender instanceof GENBatchMessageSender);
+      final List<GENOutgoingMessageHolder> batch = new ArrayList<GENOutgoingMessageHolder>();
 
       // read forever while not interrupted
       while (bContinue && !interrupted())
       {
-        GENOutgoingMessageHolder messageHolder = null;
         try
         {
-          messageHolder = outgoingQueue.take();
+          // a batch kept over a reconnection is sent again first
+          if (batch.isEmpty())
+          {
+            GENOutgoingMessageHolder first = heldBack;
+            heldBack = null;
+
+            if (null == first)
+            {
+              first = queue.take();
+              queueLimit.release(first.getEncodedMessageLength());
+            }
 
-          messageSender.sendEncodedMessage(messageHolder);
+            batch.add(first);
 
-          //send back reply that the message was sent succesfully
-          messageHolder.setResult(Boolean.TRUE);
+            if (batching && !first.isStreamed())
+            {
+              fillBatch(batch);
+            }
+          }
+
+          boolean sent = true;
+
+          if (batch.get(0).isStreamed())
+          {
+            sent = sendStreamedMessage(batch.get(0));
+          }
+          else if (1 == batch.size())
+          {
+            messageSender.sendEncodedMessage(batch.get(0));
+          }
+          else
+          {
+            ((GENBatchMessageSender) messageSender).sendEncodedMessages(batch);
+          }
+
+          //send back reply that the messages were sent succesfully, or for a streamed message whether it was encoded
+          if (batch.get(0).isStreamed() || !(messageSender instanceof GENAsyncMessageSender))
+          {
+            for (GENOutgoingMessageHolder messageHolder : batch)
+            {
+              releaseSlot(messageHolder);
+              messageHolder.setResult(sent ? Boolean.TRUE : Boolean.FALSE);
+            }
+          }
+
+          batch.clear();
         }
         catch (IOException e)
         {
           LOGGER.log(Level.WARNING, "Cannot send packet to destination:{0} informing transport", uriTo);
           LOGGER.log(Level.FINE, "Cannot send packet to destination:{0} informing transport", e);
 
-          //send back reply that the message was not sent successfully
-          if (null != messageHolder)
+          try
           {
-            messageHolder.setResult(Boolean.FALSE);
-          }
+            if ((null == reconnectPolicy) || !reconnect(batch))
+            {
+              failBatch(batch);
 
-          //inform transport about communication error 
-          transport.communicationError(uriTo, null);
-          bContinue = false;
+              //inform transport about communication error 
+              transport.communicationError(uriTo, null);
+              bContinue = false;
+            }
+          }
+          catch (InterruptedException ex)
+          {
+            // finish processing
+            bContinue = false;
+          }
         }
         catch (InterruptedException e)
         {
@@ -252,10 +852,224 @@ public class GENConcurrentMessageSender
         }
       }
 
+      //send back reply that any messages still held were not sent successfully
+      if (null != heldBack)
+      {
+        batch.add(heldBack);
+        heldBack = null;
+      }
+
+      failBatch(batch);
+
       // finished processing, close connection if not already closed
       messageSender.close();
     }
 
+    /**
+     * Completes a message that an asynchronous message sender has written, or dropped as its connection failed. With a
+     * reconnection policy a dropped message is queued again, to be sent once the connection is replaced.
+     *
+     * @param messageHolder the message.
+     * @param successful true if the message was written.
+     */
+    @Override
+    public void messageSent(GENOutgoingMessageHolder messageHolder, boolean successful)
+    {
+      if (!successful && (null != reconnectPolicy) && requeue(this, messageHolder))
+      {
+        return;
+      }
+
+      releaseSlot(messageHolder);
+      messageHolder.setResult(successful ? Boolean.TRUE : Boolean.FALSE);
+    }
+
+    /**
+     * Sets the message sender, registering for its results if it is asynchronous.
+     *
+     * @param messageSender the message sender.
+     */
+    private void setMessageSender(GENMessageSender messageSender)
+    {
+      if (messageSender instanceof GENAsyncMessageSender)
+      {
+        ((GENAsyncMessageSender) messageSender).setSendListener(this);
+      }
+
+      this.messageSender = messageSender;
+    }
+
+    /**
+     * Sends a streamed message, which the message sender encodes as it sends it.
+     *
+     * @param messageHolder the message.
+     * @return true if sent, false if the message could not be encoded or the sender cannot stream.
+     * @throws IOException in case the message cannot be sent.
+     */
+    private boolean sendStreamedMessage(GENOutgoingMessageHolder messageHolder) throws IOException
+    {
+      if (messageSender instanceof GENStreamingMessageSender)
+      {
+        return ((GENStreamingMessageSender) messageSender).sendStreamedMessage(messageHolder);
+      }
+
+      LOGGER.log(Level.WARNING, "Message sender for destination:{0} cannot send streamed messages", uriTo);
+      return false;
+    }
+
+    /**
+     * Replaces the lost connection, waiting between attempts as set by the reconnection policy. The messages of the
+     * batch and of the queue are kept meanwhile, except those retained for longer than the retention window or beyond
+     * the retention byte budget, which are failed.
+     *
+     * @param batch the messages that were being sent.
+     * @return true if reconnected, false if the retention window passed without a connection.
+     * @throws InterruptedException if interrupted while waiting, the thread is then terminating.
+     */
+    private boolean reconnect(List<GENOutgoingMessageHolder> batch) throws InterruptedException
+    {
+      final MALMessage originalMessage = batch.isEmpty() ? null : batch.get(0).getOriginalMessage();
+      final GENMessage msg = (originalMessage instanceof GENMessage) ? (GENMessage) originalMessage : null;
+      final long retentionNanos = reconnectPolicy.getRetentionMillis() * 1000000L;
+      final long giveUpTime = System.nanoTime() + retentionNanos;
+
+      messageSender.close();
+      reconnectingThreads.incrementAndGet();
+
+      try
+      {
+        for (int attempt = 0;; attempt++)
+        {
+          final long delay = reconnectPolicy.getDelay(attempt);
+
+          if (0 < System.nanoTime() + (delay * 1000000L) - giveUpTime)
+          {
+            LOGGER.log(Level.WARNING, "Could not reconnect to destination:{0} within the retention window", uriTo);
+            return false;
+          }
+
+          Thread.sleep(delay);
+          expireRetained(batch, System.nanoTime() - retentionNanos);
+
+          try
+          {
+            setMessageSender(transport.reconnectMessageSender(msg, uriTo));
+
+            LOGGER.log(Level.INFO, "Reconnected to destination:{0} after {1} attempts", new Object[]
+            {
+              uriTo, attempt + 1
+            });
+
+            return true;
+          }
+          catch (MALException ex)
+          {
+            LOGGER.log(Level.FINE, "Reconnection attempt to destination:" + uriTo + " failed", ex);
+          }
+          catch (MALTransmitErrorException ex)
+          {
+            LOGGER.log(Level.FINE, "Reconnection attempt to destination:" + uriTo + " failed", ex);
+          }
+        }
+      }
+      finally
+      {
+        reconnectingThreads.decrementAndGet();
+      }
+    }
+
+    /**
+     * Fails the retained messages queued before the expiry time, and while no thread is sending, the least urgent
+     * queued messages beyond the retention byte budget.
+     *
+     * @param batch the messages that were being sent.
+     * @param expiryTime the value of System.nanoTime before which messages expire.
+     */
+    private void expireRetained(List<GENOutgoingMessageHolder> batch, long expiryTime)
+    {
+      for (int i = batch.size() - 1; i >= 0; i--)
+      {
+        final GENOutgoingMessageHolder messageHolder = batch.get(i);
+
+        if (0 > messageHolder.getQueuedTime() - expiryTime)
+        {
+          batch.remove(i);
+          releaseSlot(messageHolder);
+          messageHolder.setResult(Boolean.FALSE);
+        }
+      }
+
+      // a shared queue is left to the threads that are still sending
+      if ((AFFINITY_NONE != affinity) || isDisconnected())
+      {
+        GENOutgoingMessageHolder messageHolder;
+
+        while (null != (messageHolder = queue.pollQueuedBefore(expiryTime)))
+        {
+          failQueuedMessage(messageHolder);
+        }
+      }
+
+      if (isDisconnected())
+      {
+        GENOutgoingMessageHolder messageHolder;
+
+        while ((reconnectPolicy.getRetentionBytes() < queueLimit.getByteCount())
+                && (null != (messageHolder = pollLeastUrgent())))
+        {
+          failQueuedMessage(messageHolder);
+        }
+      }
+    }
+
+    /**
+     * Fails the messages of a batch and empties it.
+     *
+     * @param batch the batch.
+     */
+    private void failBatch(List<GENOutgoingMessageHolder> batch)
+    {
+      for (GENOutgoingMessageHolder messageHolder : batch)
+      {
+        releaseSlot(messageHolder);
+        messageHolder.setResult(Boolean.FALSE);
+      }
+
+      batch.clear();
+    }
+
+    /**
+     * Adds any messages already waiting in the queue to the batch, without blocking, until the batch limits are reached
+     * or a streamed message is taken, which is held back to be sent after the batch.
+     *
+     * @param batch the batch, holding at least one message.
+     */
+    private void fillBatch(List<GENOutgoingMessageHolder> batch)
+    {
+      int batchBytes = batch.get(0).getEncodedMessageLength();
+
+      while ((batch.size() < maxBatchSize) && (batchBytes < maxBatchBytes))
+      {
+        GENOutgoingMessageHolder messageHolder = queue.poll();
+
+        if (null == messageHolder)
+        {
+          break;
+        }
+
+        queueLimit.release(messageHolder.getEncodedMessageLength());
+
+        if (messageHolder.isStreamed())
+        {
+          heldBack = messageHolder;
+          break;
+        }
+
+        batch.add(messageHolder);
+        batchBytes += messageHolder.getEncodedMessageLength();
+      }
+    }
+
     /**
      * Returns the destination URI being sent to.
      *
@@ -20,24 +20,40 @@
  */
 package esa.mo.mal.transport.gen.sending;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.logging.Level;
+import esa.mo.mal.transport.gen.util.GENOutputBufferPool.GENOutputBuffer;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
 
-import static esa.mo.mal.transport.gen.GENTransport.LOGGER;
+import org.ccsds.moims.mo.mal.MALException;
 import org.ccsds.moims.mo.mal.transport.MALMessage;
 
 /**
- * This class holds the message to be sent in encoded format and a reply queue that the internal sender of the message
- * can listen to in order to be informed if the message was successfully sent or not.
+ * This class holds the message to be sent in encoded format and the result of sending it. The originator of the message
+ * can either block waiting for the result or register a listener to be informed if the message was successfully sent or
+ * not.
+ *
+ * The encoded message may be held in a pooled output buffer, in which case senders should use getEncodedMessageBuffer
+ * and getEncodedMessageLength to avoid a copy. The pooled buffer is released once the result is set.
+ *
+ * A streamed message is not held encoded at all, it is encoded by a GENStreamingMessageSender as it is sent and its
+ * length is only an estimate used for queue accounting, so streamed messages are only queued for such senders.
  *
  */
 public class GENOutgoingMessageHolder
 {
   /**
-   * The reply queue
+   * Released once the result is known
    */
-  private final BlockingQueue<Boolean> replyQueue;
+  private final CountDownLatch replyLatch;
+  /**
+   * The result of sending the message, null until known
+   */
+  private Boolean result = null;
+  /**
+   * The listener to inform of the result, may be NULL
+   */
+  private GENOutgoingMessageListener listener = null;
 
   /**
    * The destination root URI, holds the connection level URI
@@ -60,12 +76,32 @@ public class GENOutgoingMessageHolder
    */
   private final MALMessage originalMessage;
   /**
-   * The encoded message
+   * The encoded message, created on demand if the message is held in a pooled buffer
+   */
+  private byte[] encodedMessage;
+  /**
+   * The length of the encoded message
    */
-  private final byte[] encodedMessage;
+  private final int encodedMessageLength;
+  /**
+   * The pooled buffer holding the encoded message, null if not pooled or once released
+   */
+  private GENOutputBuffer encodedBuffer = null;
+  /**
+   * The encoder of a streamed message, null if the message is held encoded
+   */
+  private final GENStreamedMessageEncoder streamedEncoder;
+  /**
+   * The time the message was queued for sending, in nanoseconds, used for aging by the priority queue
+   */
+  private long queuedTime;
+  /**
+   * The affinity slot the message is queued under, -1 if the sender has no affinity
+   */
+  private int affinitySlot = -1;
 
   /**
-   * Will construct a new object and create a new internal reply queue.
+   * Will construct a new object with no result.
    *
    * @param destinationRootURI The destination root URI, holds the connection level URI.
    * @param destinationURI The complete destination URI.
@@ -81,13 +117,74 @@ public class GENOutgoingMessageHolder
           final MALMessage originalMessage,
           byte[] encodedMessage)
   {
-    replyQueue = new LinkedBlockingQueue<Boolean>();
+    replyLatch = new CountDownLatch(1);
     this.destinationRootURI = destinationRootURI;
     this.destinationURI = destinationURI;
     this.multiSendHandle = multiSendHandle;
     this.lastForHandle = lastForHandle;
     this.originalMessage = originalMessage;
     this.encodedMessage = encodedMessage;
+    this.encodedMessageLength = encodedMessage.length;
+    this.streamedEncoder = null;
+  }
+
+  /**
+   * Will construct a new object with no result, holding the encoded message in a pooled buffer.
+   *
+   * @param destinationRootURI The destination root URI, holds the connection level URI.
+   * @param destinationURI The complete destination URI.
+   * @param multiSendHandle The message handle for multi-send messages, may be NULL.
+   * @param lastForHandle True if this is the last message in the multi-send for the supplied handle.
+   * @param originalMessage The un-encoded message to be sent
+   * @param encodedBuffer The buffer holding the encoded message, released when the result is set
+   */
+  public GENOutgoingMessageHolder(final String destinationRootURI,
+          final String destinationURI,
+          final Object multiSendHandle,
+          final boolean lastForHandle,
+          final MALMessage originalMessage,
+          GENOutputBuffer encodedBuffer)
+  {
+    replyLatch = new CountDownLatch(1);
+    this.destinationRootURI = destinationRootURI;
+    this.destinationURI = destinationURI;
+    this.multiSendHandle = multiSendHandle;
+    this.lastForHandle = lastForHandle;
+    this.originalMessage = originalMessage;
+    this.encodedMessage = null;
+    this.encodedMessageLength = encodedBuffer.size();
+    this.encodedBuffer = encodedBuffer;
+    this.streamedEncoder = null;
+  }
+
+  /**
+   * Will construct a new object with no result, for a message that is encoded as it is sent.
+   *
+   * @param destinationRootURI The destination root URI, holds the connection level URI.
+   * @param destinationURI The complete destination URI.
+   * @param multiSendHandle The message handle for multi-send messages, may be NULL.
+   * @param lastForHandle True if this is the last message in the multi-send for the supplied handle.
+   * @param originalMessage The un-encoded message to be sent
+   * @param streamedEncoder The encoder of the message
+   * @param estimatedLength The estimated length of the encoded message
+   */
+  public GENOutgoingMessageHolder(final String destinationRootURI,
+          final String destinationURI,
+          final Object multiSendHandle,
+          final boolean lastForHandle,
+          final MALMessage originalMessage,
+          GENStreamedMessageEncoder streamedEncoder,
+          int estimatedLength)
+  {
+    replyLatch = new CountDownLatch(1);
+    this.destinationRootURI = destinationRootURI;
+    this.destinationURI = destinationURI;
+    this.multiSendHandle = multiSendHandle;
+    this.lastForHandle = lastForHandle;
+    this.originalMessage = originalMessage;
+    this.encodedMessage = null;
+    this.encodedMessageLength = estimatedLength;
+    this.streamedEncoder = streamedEncoder;
   }
 
   /**
@@ -98,23 +195,65 @@ public class GENOutgoingMessageHolder
    */
   public Boolean getResult() throws InterruptedException
   {
-    return replyQueue.take();
+    replyLatch.await();
+
+    synchronized (this)
+    {
+      return result;
+    }
   }
 
   /**
-   * Sets the result indicating if the message was sent successfully.
+   * Sets the result indicating if the message was sent successfully, releases any thread blocked in getResult and
+   * informs the listener if there is one.
    *
    * @param result TRUE if the message was successfully sent and FALSE if there was a communication or internal problem.
    */
   public void setResult(Boolean result)
   {
-    boolean inserted = replyQueue.add(result);
-    if (!inserted)
+    final GENOutgoingMessageListener lListener;
+    final GENOutputBuffer lEncodedBuffer;
+
+    synchronized (this)
+    {
+      this.result = result;
+      lListener = listener;
+      lEncodedBuffer = encodedBuffer;
+      encodedBuffer = null;
+    }
+
+    if (null != lEncodedBuffer)
     {
-      // log error. According to the specification (see *add* call
-      // documentation) this will always return true, or throw an
-      // exception
-      LOGGER.log(Level.SEVERE, "Could not insert result to processing queue", new Throwable());
+      lEncodedBuffer.release();
+    }
+
+    replyLatch.countDown();
+
+    if (null != lListener)
+    {
+      lListener.messageSent(this, result);
+    }
+  }
+
+  /**
+   * Sets the listener to be informed of the result instead of blocking in getResult. If the result is already known the
+   * listener is informed immediately.
+   *
+   * @param listener the listener.
+   */
+  public void setListener(GENOutgoingMessageListener listener)
+  {
+    final Boolean lResult;
+
+    synchronized (this)
+    {
+      this.listener = listener;
+      lResult = result;
+    }
+
+    if ((null != lResult) && (null != listener))
+    {
+      listener.messageSent(this, lResult);
     }
   }
 
@@ -169,12 +308,105 @@ public class GENOutgoingMessageHolder
   }
 
   /**
-   * Getter for the encoded message to be sent
+   * Returns true if the message is encoded as it is sent rather than held encoded.
+   *
+   * @return true if streamed.
+   */
+  public boolean isStreamed()
+  {
+    return null != streamedEncoder;
+  }
+
+  /**
+   * Encodes a streamed message to a stream.
+   *
+   * @param os the stream to encode to.
+   * @throws MALException in case the message cannot be encoded or written.
+   */
+  public void encodeMessage(OutputStream os) throws MALException
+  {
+    streamedEncoder.encodeMessage(os);
+  }
+
+  /**
+   * Getter for the encoded message to be sent. If the message is held in a pooled buffer this returns a copy, if it is
+   * streamed this returns null.
    *
    * @return the encoded message
    */
-  public byte[] getEncodedMessage()
+  public synchronized byte[] getEncodedMessage()
+  {
+    if ((null == encodedMessage) && (null != encodedBuffer))
+    {
+      encodedMessage = Arrays.copyOf(encodedBuffer.getBuffer(), encodedMessageLength);
+    }
+
+    return encodedMessage;
+  }
+
+  /**
+   * Getter for the array holding the encoded message, which may be larger than the message. The contents are only valid
+   * until the result is set.
+   *
+   * @return the array holding the encoded message from index zero to getEncodedMessageLength
+   */
+  public synchronized byte[] getEncodedMessageBuffer()
   {
+    if (null != encodedBuffer)
+    {
+      return encodedBuffer.getBuffer();
+    }
+
     return encodedMessage;
   }
+
+  /**
+   * Getter for the length of the encoded message
+   *
+   * @return the length of the encoded message
+   */
+  public int getEncodedMessageLength()
+  {
+    return encodedMessageLength;
+  }
+
+  /**
+   * Getter for the time the message was queued for sending
+   *
+   * @return the value of System.nanoTime when queued
+   */
+  long getQueuedTime()
+  {
+    return queuedTime;
+  }
+
+  /**
+   * Setter for the time the message was queued for sending
+   *
+   * @param queuedTime the value of System.nanoTime when queued
+   */
+  void setQueuedTime(long queuedTime)
+  {
+    this.queuedTime = queuedTime;
+  }
+
+  /**
+   * Getter for the affinity slot the message is queued under
+   *
+   * @return the slot, -1 if none
+   */
+  int getAffinitySlot()
+  {
+    return affinitySlot;
+  }
+
+  /**
+   * Setter for the affinity slot the message is queued under
+   *
+   * @param affinitySlot the slot
+   */
+  void setAffinitySlot(int affinitySlot)
+  {
+    this.affinitySlot = affinitySlot;
+  }
 }
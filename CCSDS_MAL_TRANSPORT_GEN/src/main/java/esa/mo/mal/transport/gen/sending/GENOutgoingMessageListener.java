@@ -0,0 +1,36 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen.sending;
+
+/**
+ * Interface for classes that want to be informed when the sending of an outgoing message has completed.
+ */
+public interface GENOutgoingMessageListener
+{
+  /**
+   * Called once the sender has attempted to send the message. This is normally called from the sending thread so
+   * implementations should return quickly.
+   *
+   * @param message The outgoing message.
+   * @param successful True if the message was successfully sent.
+   */
+  void messageSent(GENOutgoingMessageHolder message, boolean successful);
+}
@@ -0,0 +1,251 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen.sending;
+
+import java.util.ArrayDeque;
+import org.ccsds.moims.mo.mal.structures.UInteger;
+import org.ccsds.moims.mo.mal.transport.MALMessage;
+
+/**
+ * The queue of messages waiting to be sent to a URI. Messages are held in a number of levels by the priority in their
+ * header, a higher priority value being more urgent, and are taken from the most urgent level first. Priorities at or
+ * above the top level share the top level, and messages with no priority go in the bottom level. With a single level
+ * the queue is first in first out.
+ *
+ * So that a busy urgent level cannot hold back the others for ever, each level is aged: the message at the head of a
+ * level is treated as one level more urgent for each aging period that it has waited. Within a level messages are
+ * taken in the order they were queued.
+ */
+public class GENPriorityMessageQueue
+{
+  private final ArrayDeque<GENOutgoingMessageHolder>[] levels;
+  private final long agingNanos;
+  private int size = 0;
+
+  /**
+   * Constructor.
+   *
+   * @param levelCount The number of priority levels, 1 for first in first out.
+   * @param agingMillis The aging period in milliseconds, 0 or less for no aging.
+   */
+  @SuppressWarnings("unchecked")
+  public GENPriorityMessageQueue(final int levelCount, final long agingMillis)
+  {
+    this.levels = new ArrayDeque[Math.max(1, levelCount)];
+    this.agingNanos = (0 < agingMillis) ? agingMillis * 1000000L : Long.MAX_VALUE;
+
+    for (int i = 0; i < levels.length; i++)
+    {
+      levels[i] = new ArrayDeque<GENOutgoingMessageHolder>();
+    }
+  }
+
+  /**
+   * Creates an empty queue with the same number of levels and aging period, subclasses that change how messages are
+   * levelled should return an instance of themselves.
+   *
+   * @return the new queue.
+   */
+  public GENPriorityMessageQueue newQueue()
+  {
+    return new GENPriorityMessageQueue(levels.length, (Long.MAX_VALUE == agingNanos) ? 0 : agingNanos / 1000000L);
+  }
+
+  /**
+   * Adds a message to the queue.
+   *
+   * @param message the message.
+   * @return always true.
+   */
+  public synchronized boolean add(final GENOutgoingMessageHolder message)
+  {
+    message.setQueuedTime(System.nanoTime());
+    levels[getLevel(message)].add(message);
+    ++size;
+    notify();
+
+    return true;
+  }
+
+  /**
+   * Puts back a message that was taken from the queue but could not be sent. It keeps the time it was first queued and
+   * is placed ahead of the messages of its level that were queued after it.
+   *
+   * @param message the message.
+   */
+  public synchronized void requeue(final GENOutgoingMessageHolder message)
+  {
+    final ArrayDeque<GENOutgoingMessageHolder> level = levels[getLevel(message)];
+    final ArrayDeque<GENOutgoingMessageHolder> older = new ArrayDeque<GENOutgoingMessageHolder>();
+
+    while ((null != level.peek()) && (0 > level.peek().getQueuedTime() - message.getQueuedTime()))
+    {
+      older.push(level.poll());
+    }
+
+    level.push(message);
+
+    while (!older.isEmpty())
+    {
+      level.push(older.pop());
+    }
+
+    ++size;
+    notify();
+  }
+
+  /**
+   * Removes the next message to send, waiting until there is one.
+   *
+   * @return the message.
+   * @throws InterruptedException if interrupted while waiting.
+   */
+  public synchronized GENOutgoingMessageHolder take() throws InterruptedException
+  {
+    while (0 == size)
+    {
+      wait();
+    }
+
+    return next();
+  }
+
+  /**
+   * Removes the next message to send if there is one.
+   *
+   * @return the message or null if the queue is empty.
+   */
+  public synchronized GENOutgoingMessageHolder poll()
+  {
+    return (0 == size) ? null : next();
+  }
+
+  /**
+   * Removes the oldest message of the least urgent level, the one to drop when the queue is full.
+   *
+   * @return the message or null if the queue is empty.
+   */
+  public synchronized GENOutgoingMessageHolder pollLeastUrgent()
+  {
+    for (ArrayDeque<GENOutgoingMessageHolder> level : levels)
+    {
+      final GENOutgoingMessageHolder message = level.poll();
+
+      if (null != message)
+      {
+        --size;
+        return message;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Removes a message that was queued before a given time, the oldest of its level.
+   *
+   * @param queuedBefore the value of System.nanoTime the message must have been queued before.
+   * @return the message or null if no level has such a message at its head.
+   */
+  public synchronized GENOutgoingMessageHolder pollQueuedBefore(final long queuedBefore)
+  {
+    for (ArrayDeque<GENOutgoingMessageHolder> level : levels)
+    {
+      final GENOutgoingMessageHolder head = level.peek();
+
+      if ((null != head) && (0 > head.getQueuedTime() - queuedBefore))
+      {
+        --size;
+        return level.poll();
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Returns the number of queued messages.
+   *
+   * @return the size.
+   */
+  public synchronized int size()
+  {
+    return size;
+  }
+
+  /**
+   * Returns the level of a message, overridable to take other header fields into account.
+   *
+   * @param message the message.
+   * @return the level, from 0 for the least urgent to the number of levels minus one.
+   */
+  protected int getLevel(final GENOutgoingMessageHolder message)
+  {
+    if (1 == levels.length)
+    {
+      return 0;
+    }
+
+    final MALMessage msg = message.getOriginalMessage();
+    final UInteger priority = (null == msg) ? null : msg.getHeader().getPriority();
+
+    if (null == priority)
+    {
+      return 0;
+    }
+
+    return (int) Math.min(priority.getValue(), levels.length - 1);
+  }
+
+  private GENOutgoingMessageHolder next()
+  {
+    if (1 == levels.length)
+    {
+      --size;
+      return levels[0].poll();
+    }
+
+    int best = 0;
+    long bestLevel = Long.MIN_VALUE;
+    final boolean aging = Long.MAX_VALUE != agingNanos;
+    final long now = aging ? System.nanoTime() : 0;
+
+    for (int i = levels.length - 1; i >= 0; i--)
+    {
+      final GENOutgoingMessageHolder head = levels[i].peek();
+
+      if (null != head)
+      {
+        // ties go to the more urgent level as it is checked first
+        final long effectiveLevel = !aging ? i : i + (Math.max(0, now - head.getQueuedTime()) / agingNanos);
+
+        if (effectiveLevel > bestLevel)
+        {
+          best = i;
+          bestLevel = effectiveLevel;
+        }
+      }
+    }
+
+    --size;
+    return levels[best].poll();
+  }
+}
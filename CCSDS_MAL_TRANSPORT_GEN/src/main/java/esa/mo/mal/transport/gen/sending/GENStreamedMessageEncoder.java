@@ -0,0 +1,39 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen.sending;
+
+import java.io.OutputStream;
+import org.ccsds.moims.mo.mal.MALException;
+
+/**
+ * Encodes a message on demand, used for messages too large to be held encoded in memory which are instead encoded by
+ * the message sender straight to the connection.
+ */
+public interface GENStreamedMessageEncoder
+{
+  /**
+   * Encodes the message to a stream. The stream may be closed once the message is encoded.
+   *
+   * @param os the stream to encode to.
+   * @throws MALException in case the message cannot be encoded or written.
+   */
+  void encodeMessage(OutputStream os) throws MALException;
+}
@@ -0,0 +1,41 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen.sending;
+
+import java.io.IOException;
+
+/**
+ * Extension of the message sender interface for low level transports that can send a message while it is being
+ * encoded, so that large messages need not be held encoded in memory.
+ */
+public interface GENStreamingMessageSender extends GENMessageSender
+{
+  /**
+   * Sends a streamed message to the client, encoding it with GENOutgoingMessageHolder.encodeMessage. If the message
+   * cannot be encoded the partially sent message is abandoned in a way the client discards and the connection remains
+   * usable.
+   *
+   * @param streamedMessage the message to send.
+   * @return true if the message was sent, false if it could not be encoded.
+   * @throws IOException in case the message cannot be sent to the client
+   */
+  boolean sendStreamedMessage(GENOutgoingMessageHolder streamedMessage) throws IOException;
+}
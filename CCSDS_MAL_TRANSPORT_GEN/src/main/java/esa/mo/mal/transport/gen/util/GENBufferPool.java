@@ -0,0 +1,119 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen.util;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A simple pool of fixed size ByteBuffers used by transports to read incoming frames without allocating a new array for
+ * each message.
+ *
+ * Requests larger than the pooled buffer size are given a buffer of their own which is not returned to the pool. Buffers
+ * that are never released are simply garbage collected, the pool allocates new ones when it is empty.
+ */
+public class GENBufferPool
+{
+  /**
+   * The default size of the pooled buffers.
+   */
+  public static final int DEFAULT_BUFFER_SIZE = 65536;
+  private final int bufferSize;
+  private final int maxPooled;
+  private final boolean direct;
+  private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<ByteBuffer>();
+  private final AtomicInteger pooledCount = new AtomicInteger();
+
+  /**
+   * Constructor.
+   *
+   * @param bufferSize The size of the pooled buffers.
+   * @param maxPooled The maximum number of free buffers held by the pool.
+   * @param direct True if direct buffers should be allocated.
+   */
+  public GENBufferPool(final int bufferSize, final int maxPooled, final boolean direct)
+  {
+    this.bufferSize = bufferSize;
+    this.maxPooled = maxPooled;
+    this.direct = direct;
+  }
+
+  /**
+   * Returns a buffer with its position set to zero and its limit set to the requested size.
+   *
+   * @param size The required size.
+   * @return the buffer.
+   */
+  public ByteBuffer acquire(final int size)
+  {
+    ByteBuffer buf = null;
+
+    if (size <= bufferSize)
+    {
+      buf = buffers.poll();
+
+      if (null != buf)
+      {
+        pooledCount.decrementAndGet();
+      }
+      else
+      {
+        buf = allocate(bufferSize);
+      }
+    }
+    else
+    {
+      buf = allocate(size);
+    }
+
+    buf.clear();
+    buf.limit(size);
+
+    return buf;
+  }
+
+  /**
+   * Returns a buffer to the pool. The buffer must not be used by the caller afterwards.
+   *
+   * @param buf The buffer to return.
+   */
+  public void release(final ByteBuffer buf)
+  {
+    if ((null != buf) && (bufferSize == buf.capacity()))
+    {
+      if (pooledCount.incrementAndGet() <= maxPooled)
+      {
+        buffers.add(buf);
+      }
+      else
+      {
+        pooledCount.decrementAndGet();
+      }
+    }
+  }
+
+  private ByteBuffer allocate(final int size)
+  {
+    return direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+  }
+}
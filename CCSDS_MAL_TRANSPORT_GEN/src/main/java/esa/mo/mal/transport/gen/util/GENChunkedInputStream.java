@@ -0,0 +1,203 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen.util;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream that reads a sequence of length prefixed chunks written by GENChunkedOutputStream, returning the data
+ * of the chunks as it arrives so that the sequence need not be held whole in memory. The stream ends at the END chunk,
+ * or at the ABORTED chunk in which case isAborted returns true and the data read so far must be discarded.
+ *
+ * As decoders usually wrap the exceptions of the stream they read from, the first failure of the underlying stream, or
+ * of the sequence exceeding its maximum length, is kept and thrown again by skipToEnd.
+ */
+public class GENChunkedInputStream extends InputStream
+{
+  private final DataInputStream in;
+  private final long maxLength;
+  private final byte[] single = new byte[1];
+  private long totalLength = 0;
+  private int remaining = 0;
+  private boolean ended = false;
+  private boolean aborted = false;
+  private IOException failure = null;
+
+  /**
+   * Constructor.
+   *
+   * @param in The stream to read the chunks from.
+   * @param maxLength The maximum total length of the chunks of the sequence.
+   */
+  public GENChunkedInputStream(final DataInputStream in, final long maxLength)
+  {
+    this.in = in;
+    this.maxLength = maxLength;
+  }
+
+  @Override
+  public int read() throws IOException
+  {
+    return (-1 == read(single, 0, 1)) ? -1 : (single[0] & 0xFF);
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) throws IOException
+  {
+    if (0 == len)
+    {
+      return 0;
+    }
+
+    if (!nextChunk())
+    {
+      return -1;
+    }
+
+    try
+    {
+      final int count = in.read(b, off, Math.min(len, remaining));
+
+      if (0 > count)
+      {
+        throw new EOFException();
+      }
+
+      remaining -= count;
+      return count;
+    }
+    catch (IOException ex)
+    {
+      throw fail(ex);
+    }
+  }
+
+  @Override
+  public int available()
+  {
+    return remaining;
+  }
+
+  /**
+   * Reads and discards the rest of the sequence, so that the underlying stream is positioned after it.
+   *
+   * @throws IOException if the underlying stream failed or the sequence exceeds its maximum length.
+   */
+  public void skipToEnd() throws IOException
+  {
+    final byte[] discard = new byte[8192];
+
+    while (nextChunk())
+    {
+      final int count = Math.min(remaining, discard.length);
+
+      try
+      {
+        in.readFully(discard, 0, count);
+      }
+      catch (IOException ex)
+      {
+        throw fail(ex);
+      }
+
+      remaining -= count;
+    }
+  }
+
+  /**
+   * Returns true if the sequence ended with an ABORTED chunk.
+   *
+   * @return true if aborted.
+   */
+  public boolean isAborted()
+  {
+    return aborted;
+  }
+
+  @Override
+  public void close()
+  {
+    // the underlying stream carries further data so it is not closed
+  }
+
+  private boolean nextChunk() throws IOException
+  {
+    if (null != failure)
+    {
+      throw failure;
+    }
+
+    while (0 == remaining)
+    {
+      if (ended)
+      {
+        return false;
+      }
+
+      final int length;
+
+      try
+      {
+        length = in.readInt();
+      }
+      catch (IOException ex)
+      {
+        throw fail(ex);
+      }
+
+      if (GENChunkedOutputStream.END == length)
+      {
+        ended = true;
+      }
+      else if (GENChunkedOutputStream.ABORTED == length)
+      {
+        ended = true;
+        aborted = true;
+      }
+      else if (0 > length)
+      {
+        throw fail(new IOException("Invalid chunk length: " + length));
+      }
+      else
+      {
+        totalLength += length;
+
+        if (maxLength < totalLength)
+        {
+          throw fail(new IOException("Chunked data exceeds the maximum length of " + maxLength + " bytes"));
+        }
+
+        remaining = length;
+      }
+    }
+
+    return true;
+  }
+
+  private IOException fail(final IOException ex)
+  {
+    failure = ex;
+    return ex;
+  }
+}
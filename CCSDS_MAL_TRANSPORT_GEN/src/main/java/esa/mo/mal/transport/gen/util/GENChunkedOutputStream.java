@@ -0,0 +1,206 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen.util;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream that frames its data as a sequence of length prefixed chunks, |length|data|, gathered in a bounded
+ * buffer, so that data whose total length is not known in advance can be sent without holding it whole in memory. The
+ * sequence is ended by a chunk of length END, or by a chunk of length ABORTED if the writer could not complete it, in
+ * which case the reader discards the chunks it has received.
+ *
+ * Flushing does not end the current chunk, so that encoders that flush between fields do not fragment the data, and
+ * closing ends the sequence without closing the underlying stream. As encoders usually wrap the exceptions of the
+ * stream they write to, isFailed tells whether a failure came from the underlying stream.
+ */
+public class GENChunkedOutputStream extends OutputStream
+{
+  /**
+   * The length of the chunk ending a sequence.
+   */
+  public static final int END = 0;
+  /**
+   * The length of the chunk ending a sequence that is to be discarded.
+   */
+  public static final int ABORTED = -1;
+  private final DataOutputStream out;
+  private final byte[] chunk;
+  private int count = 0;
+  private boolean finished = false;
+  private boolean failed = false;
+
+  /**
+   * Constructor.
+   *
+   * @param out The stream to write the chunks to.
+   * @param chunkSize The size of the chunk buffer.
+   */
+  public GENChunkedOutputStream(final DataOutputStream out, final int chunkSize)
+  {
+    this.out = out;
+    this.chunk = new byte[chunkSize];
+  }
+
+  @Override
+  public void write(final int b) throws IOException
+  {
+    ensureOpen();
+
+    if (chunk.length == count)
+    {
+      writeChunk();
+    }
+
+    chunk[count++] = (byte) b;
+  }
+
+  @Override
+  public void write(final byte[] b, final int off, final int len) throws IOException
+  {
+    ensureOpen();
+
+    if (len >= chunk.length)
+    {
+      // large arrays, such as Blob contents, are written as a chunk of their own rather than copied
+      writeChunk();
+      writeChunk(b, off, len);
+      return;
+    }
+
+    if (len > (chunk.length - count))
+    {
+      writeChunk();
+    }
+
+    System.arraycopy(b, off, chunk, count, len);
+    count += len;
+  }
+
+  @Override
+  public void flush() throws IOException
+  {
+    // the current chunk is kept until it is full or the sequence ends
+  }
+
+  /**
+   * Writes any buffered data and ends the sequence. Does nothing if the sequence has already ended.
+   *
+   * @throws IOException if the underlying stream cannot be written to.
+   */
+  public void finish() throws IOException
+  {
+    if (!finished)
+    {
+      writeChunk();
+      writeLength(END);
+      finished = true;
+    }
+  }
+
+  /**
+   * Discards any buffered data and ends the sequence so that the reader discards it. Does nothing if the sequence has
+   * already ended.
+   *
+   * @throws IOException if the underlying stream cannot be written to.
+   */
+  public void abort() throws IOException
+  {
+    if (!finished)
+    {
+      count = 0;
+      writeLength(ABORTED);
+      finished = true;
+    }
+  }
+
+  /**
+   * Returns true if the sequence has been ended.
+   *
+   * @return true if finished or aborted.
+   */
+  public boolean isFinished()
+  {
+    return finished;
+  }
+
+  /**
+   * Returns true if writing to the underlying stream failed, in which case the sequence cannot be ended.
+   *
+   * @return true if failed.
+   */
+  public boolean isFailed()
+  {
+    return failed;
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    finish();
+  }
+
+  private void writeChunk() throws IOException
+  {
+    if (0 < count)
+    {
+      writeChunk(chunk, 0, count);
+      count = 0;
+    }
+  }
+
+  private void writeChunk(final byte[] b, final int off, final int len) throws IOException
+  {
+    try
+    {
+      out.writeInt(len);
+      out.write(b, off, len);
+    }
+    catch (IOException ex)
+    {
+      failed = true;
+      throw ex;
+    }
+  }
+
+  private void writeLength(final int len) throws IOException
+  {
+    try
+    {
+      out.writeInt(len);
+    }
+    catch (IOException ex)
+    {
+      failed = true;
+      throw ex;
+    }
+  }
+
+  private void ensureOpen() throws IOException
+  {
+    if (finished)
+    {
+      throw new IOException("Chunk sequence already ended");
+    }
+  }
+}
@@ -0,0 +1,54 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen.util;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Creates the threads and executors of a transport, so that its threading model can be chosen by configuration. Long
+ * running loops, such as message pollers and senders, each run on their own thread from newThread. Pools of workers,
+ * such as the decoders and the message processors, are created by newExecutor and shut down by the transport when it
+ * is closed, so an implementation sharing a pool between transports should return a view of it that ignores shutdown.
+ *
+ * Implementations are selected by the executor factory QoS property of the transport. Other than the provided ones
+ * they must be public classes with a public constructor taking the QoS property map.
+ */
+public interface GENExecutorFactory
+{
+  /**
+   * Creates a thread that is not started.
+   *
+   * @param name The name of the thread.
+   * @param task The task the thread runs.
+   * @return the new thread.
+   */
+  Thread newThread(String name, Runnable task);
+
+  /**
+   * Creates an executor with a fixed number of threads. An executor with one thread runs its tasks in the order they
+   * are submitted.
+   *
+   * @param name The name of the executor, used to name its threads.
+   * @param threadCount The number of threads.
+   * @return the new executor.
+   */
+  ExecutorService newExecutor(String name, int threadCount);
+}
@@ -0,0 +1,114 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen.util;
+
+/**
+ * A histogram of durations with fixed buckets, recorded from many threads without locking. Bucket 0 counts durations
+ * below one microsecond and bucket n counts durations from 2^(n-1) up to 2^n microseconds, the last bucket also counts
+ * all longer durations.
+ */
+public final class GENHistogram
+{
+  /**
+   * The number of buckets.
+   */
+  public static final int BUCKET_COUNT = 24;
+  private final GENStripedCounters counters = new GENStripedCounters(BUCKET_COUNT + 1);
+
+  /**
+   * Records a duration.
+   *
+   * @param nanos The duration in nanoseconds.
+   */
+  public void record(final long nanos)
+  {
+    final long micros = nanos / 1000;
+    final int bucket = (0 >= micros) ? 0 : Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+
+    counters.increment(bucket);
+    counters.add(BUCKET_COUNT, nanos);
+  }
+
+  /**
+   * Returns the counts of the buckets.
+   *
+   * @return the counts, one per bucket.
+   */
+  public long[] getCounts()
+  {
+    final long[] counts = new long[BUCKET_COUNT];
+
+    for (int i = 0; i < BUCKET_COUNT; i++)
+    {
+      counts[i] = counters.sum(i);
+    }
+
+    return counts;
+  }
+
+  /**
+   * Returns the number of recorded durations.
+   *
+   * @return the count.
+   */
+  public long getCount()
+  {
+    long count = 0;
+
+    for (int i = 0; i < BUCKET_COUNT; i++)
+    {
+      count += counters.sum(i);
+    }
+
+    return count;
+  }
+
+  /**
+   * Returns the mean of the recorded durations.
+   *
+   * @return the mean in microseconds, 0 if nothing has been recorded.
+   */
+  public double getMeanMicros()
+  {
+    final long count = getCount();
+
+    return (0 == count) ? 0 : (counters.sum(BUCKET_COUNT) / 1000.0) / count;
+  }
+
+  /**
+   * Returns the upper limits of the buckets.
+   *
+   * @return the exclusive upper limit of each bucket in microseconds, Long.MAX_VALUE for the last bucket.
+   */
+  public static long[] getBucketLimits()
+  {
+    final long[] limits = new long[BUCKET_COUNT];
+
+    for (int i = 0; i < BUCKET_COUNT - 1; i++)
+    {
+      limits[i] = 1L << i;
+    }
+
+    limits[BUCKET_COUNT - 1] = Long.MAX_VALUE;
+
+    return limits;
+  }
+}
@@ -32,7 +32,7 @@ import static esa.mo.mal.transport.gen.GENTransport.LOGGER;
 /**
  * This utility class creates a thread to pull encoded messages from a transceiver. It receives messages from it and
  * then forwards the incoming message to an asynchronous processor in order to return immediately and not hold the
- * calling thread while the message is processed.
+ * calling thread while the message is processed. The thread is created by the executor factory of the transport.
  *
  * In case of a communication problem it informs the transport and/or closes the resource
  *
@@ -40,7 +40,7 @@ import static esa.mo.mal.transport.gen.GENTransport.LOGGER;
  *
  * @param <T> The type of the encoded messages.
  */
-public class GENMessagePoller<T> extends Thread implements GENReceptionHandler
+public class GENMessagePoller<T> implements Runnable, GENReceptionHandler
 {
   /**
    * Reference to the transport
@@ -59,6 +59,10 @@ public class GENMessagePoller<T> extends Thread implements GENReceptionHandler
    * thread after its creation
    */
   private volatile String remoteURI = null;
+  /**
+   * the thread the poller runs on
+   */
+  private final Thread thread;
 
   /**
    * Constructor.
@@ -76,7 +80,7 @@ public class GENMessagePoller<T> extends Thread implements GENReceptionHandler
     this.transport = transport;
     this.messageSender = messageSender;
     this.messageReceiver = new MessageAdapter<T>(transport, this, messageReceiver, decoderFactory);
-    setName(getClass().getName());
+    this.thread = transport.getExecutorFactory().newThread(getClass().getName(), this);
   }
 
   /**
@@ -91,7 +95,23 @@ public class GENMessagePoller<T> extends Thread implements GENReceptionHandler
     this.transport = transport;
     this.messageSender = messageSender;
     this.messageReceiver = messageReceiver;
-    setName(getClass().getName());
+    this.thread = transport.getExecutorFactory().newThread(getClass().getName(), this);
+  }
+
+  /**
+   * Starts the thread of the poller.
+   */
+  public void start()
+  {
+    thread.start();
+  }
+
+  /**
+   * Interrupts the thread of the poller, which then closes the connection and terminates.
+   */
+  public void interrupt()
+  {
+    thread.interrupt();
   }
 
   @Override
@@ -100,7 +120,7 @@ public class GENMessagePoller<T> extends Thread implements GENReceptionHandler
     boolean bContinue = true;
 
     // handles message reads from this client
-    while (bContinue && !interrupted())
+    while (bContinue && !Thread.interrupted())
     {
       try
       {
@@ -120,7 +140,7 @@ public class GENMessagePoller<T> extends Thread implements GENReceptionHandler
       {
         LOGGER.log(Level.INFO, "Client closing connection: {0}", remoteURI);
 
-        transport.closeConnection(remoteURI, this);
+        transport.connectionLost(remoteURI, this);
         close();
 
         //and terminate
@@ -149,7 +169,7 @@ public class GENMessagePoller<T> extends Thread implements GENReceptionHandler
   public void setRemoteURI(String remoteURI)
   {
     this.remoteURI = remoteURI;
-    setName(getClass().getName() + " URI:" + remoteURI);
+    thread.setName(getClass().getName() + " URI:" + remoteURI);
   }
 
   @Override
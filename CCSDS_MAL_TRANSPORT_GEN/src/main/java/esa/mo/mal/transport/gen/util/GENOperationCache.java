@@ -0,0 +1,235 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen.util;
+
+import org.ccsds.moims.mo.mal.MALArea;
+import org.ccsds.moims.mo.mal.MALContextFactory;
+import org.ccsds.moims.mo.mal.MALOperation;
+import org.ccsds.moims.mo.mal.MALService;
+import org.ccsds.moims.mo.mal.structures.UOctet;
+import org.ccsds.moims.mo.mal.structures.UShort;
+import org.ccsds.moims.mo.mal.transport.MALMessageHeader;
+
+/**
+ * A cache of the operations of received and sent messages, so that the service and operation of a message are resolved
+ * with a single probe of a table keyed on the area, area version, service and operation numbers packed into a long.
+ *
+ * The table is replaced rather than modified when an operation is added, so lookups take no lock and allocate nothing.
+ * Only operations that are found are cached, so areas and services registered after a failed lookup are found by the
+ * next one. Each entry also holds the area it was resolved from, and is only used while the MAL still returns that same
+ * area instance, so an area that is registered again is resolved again rather than served from the cache. The area
+ * registry of the MAL is global, and so is this cache.
+ */
+public final class GENOperationCache
+{
+  private static final Object LOCK = new Object();
+  private static volatile Table table = new Table(64);
+
+  private GENOperationCache()
+  {
+  }
+
+  /**
+   * Returns the operation of a message header.
+   *
+   * @param header The message header.
+   * @return the operation, or null if its area, service or operation is not registered.
+   */
+  public static MALOperation lookupOperation(final MALMessageHeader header)
+  {
+    return lookupOperation(header.getServiceArea(), header.getAreaVersion(), header.getService(),
+            header.getOperation());
+  }
+
+  /**
+   * Returns an operation.
+   *
+   * @param area The area number.
+   * @param version The area version.
+   * @param service The service number.
+   * @param operation The operation number.
+   * @return the operation, or null if its area, service or operation is not registered.
+   */
+  public static MALOperation lookupOperation(final UShort area,
+          final UOctet version,
+          final UShort service,
+          final UShort operation)
+  {
+    if ((null == area) || (null == version) || (null == service) || (null == operation))
+    {
+      return null;
+    }
+
+    final long key = ((long) area.getValue() << 40)
+            | ((long) version.getValue() << 32)
+            | ((long) service.getValue() << 16)
+            | operation.getValue();
+
+    final MALArea malArea = MALContextFactory.lookupArea(area, version);
+
+    if (null == malArea)
+    {
+      return null;
+    }
+
+    MALOperation op = table.get(key, malArea);
+
+    if (null == op)
+    {
+      op = resolveOperation(malArea, service, operation);
+
+      if (null != op)
+      {
+        synchronized (LOCK)
+        {
+          table = table.with(key, malArea, op);
+        }
+      }
+    }
+
+    return op;
+  }
+
+  /**
+   * Removes all cached operations, releasing the areas that they were resolved from.
+   */
+  public static void clear()
+  {
+    synchronized (LOCK)
+    {
+      table = new Table(64);
+    }
+  }
+
+  private static MALOperation resolveOperation(final MALArea malArea,
+          final UShort service,
+          final UShort operation)
+  {
+    final MALService malService = malArea.getServiceByNumber(service);
+
+    if (null != malService)
+    {
+      return malService.getOperationByNumber(operation);
+    }
+
+    return null;
+  }
+
+  /**
+   * An open addressing hash table that is never modified once published.
+   */
+  private static final class Table
+  {
+    private final long[] keys;
+    private final MALArea[] areas;
+    private final MALOperation[] operations;
+    private final int mask;
+    private int size;
+
+    Table(final int capacity)
+    {
+      this.keys = new long[capacity];
+      this.areas = new MALArea[capacity];
+      this.operations = new MALOperation[capacity];
+      this.mask = capacity - 1;
+    }
+
+    private Table(final Table source, final int capacity, final long skipKey)
+    {
+      this(capacity);
+
+      for (int i = 0; i < source.keys.length; i++)
+      {
+        if ((null != source.operations[i]) && (skipKey != source.keys[i]))
+        {
+          insert(source.keys[i], source.areas[i], source.operations[i]);
+        }
+      }
+    }
+
+    MALOperation get(final long key, final MALArea area)
+    {
+      final int index = find(key);
+
+      if ((0 <= index) && (area == areas[index]))
+      {
+        return operations[index];
+      }
+
+      return null;
+    }
+
+    Table with(final long key, final MALArea area, final MALOperation operation)
+    {
+      final int index = find(key);
+
+      if ((0 <= index) && (area == areas[index]))
+      {
+        // added by another thread since it was looked up
+        return this;
+      }
+
+      // an entry of a replaced area is dropped, and the table kept at most half full so that probes stay short
+      final int newSize = (0 <= index) ? size : size + 1;
+      final Table copy = new Table(this, (newSize * 2 > keys.length) ? keys.length * 2 : keys.length, key);
+      copy.insert(key, area, operation);
+
+      return copy;
+    }
+
+    private int find(final long key)
+    {
+      int index = index(key);
+
+      while (null != operations[index])
+      {
+        if (key == keys[index])
+        {
+          return index;
+        }
+
+        index = (index + 1) & mask;
+      }
+
+      return -1;
+    }
+
+    private void insert(final long key, final MALArea area, final MALOperation operation)
+    {
+      int index = index(key);
+
+      while (null != operations[index])
+      {
+        index = (index + 1) & mask;
+      }
+
+      keys[index] = key;
+      areas[index] = area;
+      operations[index] = operation;
+      size++;
+    }
+
+    private int index(final long key)
+    {
+      return (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen.util;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of growable output buffers that messages are encoded into. A buffer is taken from the pool for each outgoing
+ * message and handed, without copying its contents, to the message sender. It is returned to the pool once the send has
+ * completed, so in steady state no buffer memory is allocated per message.
+ *
+ * Buffers that have grown beyond the maximum retained size, or that are never released, are left to the garbage
+ * collector.
+ */
+public class GENOutputBufferPool
+{
+  /**
+   * The initial size of new buffers.
+   */
+  public static final int INITIAL_BUFFER_SIZE = 4096;
+  /**
+   * The largest buffer size that is kept by the pool.
+   */
+  public static final int MAX_RETAINED_BUFFER_SIZE = 1048576;
+  private final int maxPooled;
+  private final Queue<GENOutputBuffer> buffers = new ConcurrentLinkedQueue<GENOutputBuffer>();
+  private final AtomicInteger pooledCount = new AtomicInteger();
+
+  /**
+   * Constructor.
+   *
+   * @param maxPooled The maximum number of free buffers held by the pool.
+   */
+  public GENOutputBufferPool(final int maxPooled)
+  {
+    this.maxPooled = maxPooled;
+  }
+
+  /**
+   * Returns an empty buffer.
+   *
+   * @return the buffer.
+   */
+  public GENOutputBuffer acquire()
+  {
+    GENOutputBuffer buf = buffers.poll();
+
+    if (null != buf)
+    {
+      pooledCount.decrementAndGet();
+      buf.reset();
+      return buf;
+    }
+
+    return new GENOutputBuffer(this);
+  }
+
+  /**
+   * Returns a buffer to the pool. The buffer must not be used by the caller afterwards.
+   *
+   * @param buf The buffer to return.
+   */
+  public void release(final GENOutputBuffer buf)
+  {
+    if ((null != buf) && (MAX_RETAINED_BUFFER_SIZE >= buf.getBuffer().length))
+    {
+      if (pooledCount.incrementAndGet() <= maxPooled)
+      {
+        buffers.add(buf);
+      }
+      else
+      {
+        pooledCount.decrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * A byte array output stream that gives access to its internal array, so that the encoded contents can be used without
+   * the copy made by toByteArray.
+   */
+  public static final class GENOutputBuffer extends ByteArrayOutputStream
+  {
+    private final GENOutputBufferPool pool;
+
+    private GENOutputBuffer(final GENOutputBufferPool pool)
+    {
+      super(INITIAL_BUFFER_SIZE);
+      this.pool = pool;
+    }
+
+    /**
+     * Returns the internal array, the valid contents are from zero to size().
+     *
+     * @return the internal array.
+     */
+    public byte[] getBuffer()
+    {
+      return buf;
+    }
+
+    /**
+     * Returns this buffer to the pool it came from.
+     */
+    public void release()
+    {
+      pool.release(this);
+    }
+  }
+}
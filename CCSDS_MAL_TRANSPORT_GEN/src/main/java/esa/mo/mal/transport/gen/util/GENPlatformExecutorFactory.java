@@ -0,0 +1,72 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The default executor factory, which creates named platform threads and fixed size thread pools.
+ */
+public class GENPlatformExecutorFactory implements GENExecutorFactory
+{
+  /**
+   * The factory used by classes created without one, creating non daemon threads.
+   */
+  public static final GENExecutorFactory DEFAULT = new GENPlatformExecutorFactory(false);
+  private final boolean daemon;
+
+  /**
+   * Constructor.
+   *
+   * @param daemon True if the threads are daemon threads.
+   */
+  public GENPlatformExecutorFactory(final boolean daemon)
+  {
+    this.daemon = daemon;
+  }
+
+  @Override
+  public Thread newThread(final String name, final Runnable task)
+  {
+    final Thread thread = new Thread(task, name);
+    thread.setDaemon(daemon);
+
+    return thread;
+  }
+
+  @Override
+  public ExecutorService newExecutor(final String name, final int threadCount)
+  {
+    return Executors.newFixedThreadPool(threadCount, new ThreadFactory()
+    {
+      private final AtomicInteger count = new AtomicInteger();
+
+      @Override
+      public Thread newThread(final Runnable task)
+      {
+        return GENPlatformExecutorFactory.this.newThread(name + "-" + count.incrementAndGet(), task);
+      }
+    });
+  }
+}
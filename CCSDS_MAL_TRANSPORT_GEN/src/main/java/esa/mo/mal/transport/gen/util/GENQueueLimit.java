@@ -0,0 +1,216 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen.util;
+
+/**
+ * Counts the messages and encoded bytes held in a queue and limits them. The owner of the queue acquires room for a
+ * message before adding it and releases the room once the message is taken off the queue. What happens to a message
+ * that does not fit is decided by the owner according to the overflow policy of the limit.
+ *
+ * A message is always let into an empty queue, even if it is bigger than the byte limit on its own.
+ */
+public class GENQueueLimit
+{
+  /**
+   * Overflow policy where the caller waits until there is room in the queue.
+   */
+  public static final int POLICY_BLOCK = 0;
+  /**
+   * Overflow policy where a message that does not fit is rejected.
+   */
+  public static final int POLICY_REJECT = 1;
+  /**
+   * Overflow policy where the oldest queued messages are dropped to make room for a new one.
+   */
+  public static final int POLICY_DROP_OLDEST = 2;
+  private final int maxMessages;
+  private final long maxBytes;
+  private final int policy;
+  private int messages = 0;
+  private long bytes = 0;
+  private boolean closed = false;
+
+  /**
+   * Constructor.
+   *
+   * @param maxMessages The maximum number of queued messages, 0 or less for no limit.
+   * @param maxBytes The maximum number of queued encoded bytes, 0 or less for no limit.
+   * @param policy The overflow policy.
+   */
+  public GENQueueLimit(final int maxMessages, final long maxBytes, final int policy)
+  {
+    this.maxMessages = (0 < maxMessages) ? maxMessages : Integer.MAX_VALUE;
+    this.maxBytes = (0 < maxBytes) ? maxBytes : Long.MAX_VALUE;
+    this.policy = policy;
+  }
+
+  /**
+   * Returns the overflow policy for a policy name, one of block, reject or dropoldest.
+   *
+   * @param name The policy name, may be null.
+   * @return the policy, or POLICY_BLOCK if the name is null or not known.
+   */
+  public static int parsePolicy(final String name)
+  {
+    if ("reject".equalsIgnoreCase(name))
+    {
+      return POLICY_REJECT;
+    }
+    else if ("dropoldest".equalsIgnoreCase(name))
+    {
+      return POLICY_DROP_OLDEST;
+    }
+
+    return POLICY_BLOCK;
+  }
+
+  /**
+   * Returns the overflow policy.
+   *
+   * @return the policy.
+   */
+  public int getPolicy()
+  {
+    return policy;
+  }
+
+  /**
+   * Returns the maximum number of queued messages.
+   *
+   * @return the limit, Integer.MAX_VALUE if there is none.
+   */
+  public int getMaxMessages()
+  {
+    return maxMessages;
+  }
+
+  /**
+   * Returns the maximum number of queued encoded bytes.
+   *
+   * @return the limit, Long.MAX_VALUE if there is none.
+   */
+  public long getMaxBytes()
+  {
+    return maxBytes;
+  }
+
+  /**
+   * Returns the number of messages currently queued.
+   *
+   * @return the message count.
+   */
+  public synchronized int getMessageCount()
+  {
+    return messages;
+  }
+
+  /**
+   * Returns the number of encoded bytes currently queued.
+   *
+   * @return the byte count.
+   */
+  public synchronized long getByteCount()
+  {
+    return bytes;
+  }
+
+  /**
+   * Takes room for a message if there is room.
+   *
+   * @param size The encoded size of the message.
+   * @return True if the room was taken.
+   */
+  public synchronized boolean tryAcquire(final int size)
+  {
+    if (!hasRoom(size))
+    {
+      return false;
+    }
+
+    add(size);
+    return true;
+  }
+
+  /**
+   * Takes room for a message, waiting until there is room.
+   *
+   * @param size The encoded size of the message.
+   * @return True if the room was taken, false if the limit has been closed.
+   * @throws InterruptedException If interrupted while waiting.
+   */
+  public synchronized boolean acquire(final int size) throws InterruptedException
+  {
+    while (!closed && !hasRoom(size))
+    {
+      wait();
+    }
+
+    if (closed)
+    {
+      return false;
+    }
+
+    add(size);
+    return true;
+  }
+
+  /**
+   * Takes room for a message whether there is room or not.
+   *
+   * @param size The encoded size of the message.
+   */
+  public synchronized void forceAcquire(final int size)
+  {
+    add(size);
+  }
+
+  /**
+   * Gives back the room of a message taken off the queue.
+   *
+   * @param size The encoded size of the message.
+   */
+  public synchronized void release(final int size)
+  {
+    --messages;
+    bytes -= size;
+    notifyAll();
+  }
+
+  /**
+   * Releases any threads waiting for room, which fail to acquire it from then on.
+   */
+  public synchronized void close()
+  {
+    closed = true;
+    notifyAll();
+  }
+
+  private boolean hasRoom(final int size)
+  {
+    return (0 == messages) || ((messages < maxMessages) && (bytes + size <= maxBytes));
+  }
+
+  private void add(final int size)
+  {
+    ++messages;
+    bytes += size;
+  }
+}
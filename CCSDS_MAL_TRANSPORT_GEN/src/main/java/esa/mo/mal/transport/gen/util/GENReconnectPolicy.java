@@ -0,0 +1,101 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen.util;
+
+import java.util.Random;
+
+/**
+ * Describes how a message sender that has lost its connection reconnects. Attempts are spaced by a delay that doubles
+ * from an initial delay up to a maximum, each delay being drawn at random from its upper half so that the senders of
+ * many transports do not reconnect in step.
+ *
+ * While disconnected the pending messages are kept for at most the retention window, after which they are failed, and
+ * the sender gives up and reports the communication error once a whole window has passed without a connection. The
+ * retention byte budget limits the encoded bytes kept meanwhile, the least urgent messages being failed first.
+ */
+public class GENReconnectPolicy
+{
+  private static final Random JITTER = new Random();
+  private final long initialDelay;
+  private final long maxDelay;
+  private final long retentionMillis;
+  private final long retentionBytes;
+
+  /**
+   * Constructor.
+   *
+   * @param initialDelay The delay before the first attempt in milliseconds.
+   * @param maxDelay The maximum delay between attempts in milliseconds.
+   * @param retentionMillis The retention window in milliseconds.
+   * @param retentionBytes The maximum number of encoded bytes retained, 0 or less for no limit.
+   */
+  public GENReconnectPolicy(final long initialDelay,
+          final long maxDelay,
+          final long retentionMillis,
+          final long retentionBytes)
+  {
+    this.initialDelay = Math.max(1, initialDelay);
+    this.maxDelay = Math.max(this.initialDelay, maxDelay);
+    this.retentionMillis = retentionMillis;
+    this.retentionBytes = (0 < retentionBytes) ? retentionBytes : Long.MAX_VALUE;
+  }
+
+  /**
+   * Returns the delay before a reconnection attempt.
+   *
+   * @param attempt The number of attempts already made since the connection was lost.
+   * @return the delay in milliseconds.
+   */
+  public long getDelay(final int attempt)
+  {
+    long delay = initialDelay;
+
+    for (int i = 0; (i < attempt) && (delay < maxDelay); i++)
+    {
+      delay <<= 1;
+    }
+
+    delay = Math.min(delay, maxDelay);
+    final long half = delay / 2;
+
+    return half + (long) (JITTER.nextDouble() * (delay - half));
+  }
+
+  /**
+   * Returns the retention window.
+   *
+   * @return the window in milliseconds.
+   */
+  public long getRetentionMillis()
+  {
+    return retentionMillis;
+  }
+
+  /**
+   * Returns the maximum number of encoded bytes retained while disconnected.
+   *
+   * @return the limit, Long.MAX_VALUE if there is none.
+   */
+  public long getRetentionBytes()
+  {
+    return retentionBytes;
+  }
+}
@@ -0,0 +1,116 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed set of counters that can be updated by many threads at once without contending on the same memory. Each
+ * thread adds to one of several stripes, picked from its thread id, and the stripes are summed when the counters are
+ * read. The stripes are spaced a cache line apart, so each stripe holds up to eight counters in one line.
+ *
+ * Reading is not atomic across the counters, a sum taken while other threads add to a counter may miss their updates.
+ */
+public final class GENStripedCounters
+{
+  /**
+   * The maximum number of stripes.
+   */
+  private static final int MAX_STRIPES = 16;
+  /**
+   * The number of longs in the cache lines between stripes.
+   */
+  private static final int LINE = 8;
+  private final AtomicLongArray cells;
+  private final int counterCount;
+  private final int stride;
+  private final int mask;
+
+  /**
+   * Constructor.
+   *
+   * @param counterCount The number of counters.
+   */
+  public GENStripedCounters(final int counterCount)
+  {
+    int stripes = 1;
+
+    while ((stripes < MAX_STRIPES) && (stripes < Runtime.getRuntime().availableProcessors()))
+    {
+      stripes <<= 1;
+    }
+
+    this.counterCount = counterCount;
+    this.stride = ((counterCount + LINE - 1) / LINE) * LINE;
+    this.mask = stripes - 1;
+    // one extra line at the front keeps the first stripe apart from other objects
+    this.cells = new AtomicLongArray(LINE + (stripes * stride));
+  }
+
+  /**
+   * Adds a value to a counter.
+   *
+   * @param counter The index of the counter.
+   * @param value The value to add.
+   */
+  public void add(final int counter, final long value)
+  {
+    cells.getAndAdd(LINE + ((int) Thread.currentThread().getId() & mask) * stride + counter, value);
+  }
+
+  /**
+   * Adds one to a counter.
+   *
+   * @param counter The index of the counter.
+   */
+  public void increment(final int counter)
+  {
+    add(counter, 1);
+  }
+
+  /**
+   * Returns the value of a counter.
+   *
+   * @param counter The index of the counter.
+   * @return the sum of the counter over all stripes.
+   */
+  public long sum(final int counter)
+  {
+    long sum = 0;
+
+    for (int i = LINE + counter; i < cells.length(); i += stride)
+    {
+      sum += cells.get(i);
+    }
+
+    return sum;
+  }
+
+  /**
+   * Returns the number of counters.
+   *
+   * @return the number of counters.
+   */
+  public int getCounterCount()
+  {
+    return counterCount;
+  }
+}
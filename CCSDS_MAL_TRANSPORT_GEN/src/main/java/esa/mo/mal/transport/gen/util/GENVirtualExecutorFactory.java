@@ -0,0 +1,136 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO Generic Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.gen.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * An executor factory that creates virtual threads, for JVMs that support them. Blocking loops such as message pollers
+ * and senders then do not hold a platform thread each while they wait. Executors keep their fixed number of threads,
+ * as the dispatchers rely on it to bound concurrency and to keep order, but their threads are virtual.
+ *
+ * Virtual threads are created through reflection so that the transport still runs on older JVMs, where
+ * isSupported returns false. As the JVMs that only offer virtual threads as a preview feature have the methods but
+ * throw UnsupportedOperationException from them unless preview features are enabled, support is decided by creating
+ * a virtual thread once.
+ */
+public class GENVirtualExecutorFactory extends GENPlatformExecutorFactory
+{
+  private static final Method OF_VIRTUAL;
+  private static final Method NAME;
+  private static final Method UNSTARTED;
+
+  static
+  {
+    Method ofVirtual = null;
+    Method name = null;
+    Method unstarted = null;
+
+    try
+    {
+      final Class<?> builder = Class.forName("java.lang.Thread$Builder");
+      ofVirtual = Thread.class.getMethod("ofVirtual");
+      name = builder.getMethod("name", String.class);
+      unstarted = builder.getMethod("unstarted", Runnable.class);
+
+      // the thread is never started
+      unstarted.invoke(name.invoke(ofVirtual.invoke(null), "probe"), new Runnable()
+      {
+        @Override
+        public void run()
+        {
+        }
+      });
+    }
+    catch (ClassNotFoundException ex)
+    {
+      // not supported by this JVM
+      unstarted = null;
+    }
+    catch (NoSuchMethodException ex)
+    {
+      // not supported by this JVM
+      unstarted = null;
+    }
+    catch (IllegalAccessException ex)
+    {
+      // not supported by this JVM
+      unstarted = null;
+    }
+    catch (InvocationTargetException ex)
+    {
+      // a preview feature that is not enabled
+      unstarted = null;
+    }
+    catch (RuntimeException ex)
+    {
+      // not supported by this JVM
+      unstarted = null;
+    }
+
+    OF_VIRTUAL = ofVirtual;
+    NAME = name;
+    UNSTARTED = unstarted;
+  }
+
+  /**
+   * Constructor.
+   *
+   * @throws UnsupportedOperationException if the JVM does not support virtual threads.
+   */
+  public GENVirtualExecutorFactory()
+  {
+    super(true);
+
+    if (!isSupported())
+    {
+      throw new UnsupportedOperationException("Virtual threads are not supported by this JVM");
+    }
+  }
+
+  /**
+   * Returns true if the JVM supports virtual threads.
+   *
+   * @return true if supported.
+   */
+  public static boolean isSupported()
+  {
+    return null != UNSTARTED;
+  }
+
+  @Override
+  public Thread newThread(final String name, final Runnable task)
+  {
+    try
+    {
+      return (Thread) UNSTARTED.invoke(NAME.invoke(OF_VIRTUAL.invoke(null), name), task);
+    }
+    catch (IllegalAccessException ex)
+    {
+      throw new IllegalStateException("Could not create virtual thread", ex);
+    }
+    catch (InvocationTargetException ex)
+    {
+      throw new IllegalStateException("Could not create virtual thread", ex.getCause());
+    }
+  }
+}
@@ -221,13 +221,13 @@ public class RMITransport extends GENTransport
     catch (NotBoundException e)
     {
       RLOGGER.log(Level.WARNING, "RMI could not connect to :" + remoteRootURI, e);
-      throw new MALTransmitErrorException(msg.getHeader(), new MALStandardError(MALHelper.DESTINATION_UNKNOWN_ERROR_NUMBER, null), null);
+      throw new MALTransmitErrorException((null != msg) ? msg.getHeader() : null, new MALStandardError(MALHelper.DESTINATION_UNKNOWN_ERROR_NUMBER, null), null);
 
     }
     catch (IOException e)
     {
       RLOGGER.log(Level.WARNING, "RMI could not connect to :" + remoteRootURI, e);
-      throw new MALTransmitErrorException(msg.getHeader(), new MALStandardError(MALHelper.DELIVERY_FAILED_ERROR_NUMBER, null), null);
+      throw new MALTransmitErrorException((null != msg) ? msg.getHeader() : null, new MALStandardError(MALHelper.DELIVERY_FAILED_ERROR_NUMBER, null), null);
     }
   }
 
@@ -157,14 +157,7 @@ public class SPPBinaryDecoder extends esa.mo.mal.encoder.binary.fixed.FixedBinar
   public Time decodeTime() throws MALException
   {
     long s = sourceBuffer.getUnsignedLong32() * 1000;
-    byte[] ss = sourceBuffer.directGetBytes(3);
-
-    byte[] b = new byte[4];
-    b[0] = 0;
-    b[1] = ss[0];
-    b[2] = ss[1];
-    b[3] = ss[2];
-    int ms = java.nio.ByteBuffer.wrap(b).getInt();
+    int ms = (int) ((FixedBufferHolder) sourceBuffer).getBigEndian(3);
 
     s += ms;
     return new Time(s);
@@ -185,14 +178,7 @@ public class SPPBinaryDecoder extends esa.mo.mal.encoder.binary.fixed.FixedBinar
   public FineTime decodeFineTime() throws MALException
   {
     long s = sourceBuffer.getUnsignedLong32() * 1000;
-    byte[] ss = sourceBuffer.directGetBytes(3);
-
-    byte[] b = new byte[4];
-    b[0] = 0;
-    b[1] = ss[0];
-    b[2] = ss[1];
-    b[3] = ss[2];
-    int ms = java.nio.ByteBuffer.wrap(b).getInt();
+    int ms = (int) ((FixedBufferHolder) sourceBuffer).getBigEndian(3);
 
     s += ms;
     return new FineTime(s);
@@ -213,14 +199,7 @@ public class SPPBinaryDecoder extends esa.mo.mal.encoder.binary.fixed.FixedBinar
   public Duration decodeDuration() throws MALException
   {
     long s = sourceBuffer.getUnsignedLong32() * 1000;
-    byte[] ss = sourceBuffer.directGetBytes(3);
-
-    byte[] b = new byte[4];
-    b[0] = 0;
-    b[1] = ss[0];
-    b[2] = ss[1];
-    b[3] = ss[2];
-    int ms = java.nio.ByteBuffer.wrap(b).getInt();
+    int ms = (int) ((FixedBufferHolder) sourceBuffer).getBigEndian(3);
 
     s += ms;
     return new Duration(((double) s)/1000.0);
@@ -270,6 +249,24 @@ public class SPPBinaryDecoder extends esa.mo.mal.encoder.binary.fixed.FixedBinar
     return null;
   }
 
+  @Override
+  public void skipNullableIdentifier() throws MALException
+  {
+    if (sourceBuffer.getBool())
+    {
+      sourceBuffer.skipString();
+    }
+  }
+
+  @Override
+  public void skipNullableURI() throws MALException
+  {
+    if (sourceBuffer.getBool())
+    {
+      sourceBuffer.skipString();
+    }
+  }
+
   @Override
   protected int internalDecodeAttributeType(byte value) throws MALException
   {
@@ -327,5 +324,24 @@ public class SPPBinaryDecoder extends esa.mo.mal.encoder.binary.fixed.FixedBinar
         return super.getString();
       }
     }
+
+    @Override
+    public void skipString() throws MALException
+    {
+      if (smallLengthField)
+      {
+        final int len = getSignedShort();
+
+        if (len > 0)
+        {
+          checkBuffer(len);
+          offset += len;
+        }
+      }
+      else
+      {
+        super.skipString();
+      }
+    }
   }
 }
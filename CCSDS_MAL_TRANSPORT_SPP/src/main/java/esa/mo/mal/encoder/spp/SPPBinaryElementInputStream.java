@@ -20,6 +20,7 @@
  */
 package esa.mo.mal.encoder.spp;
 
+import esa.mo.mal.encoder.gen.GENOperationStagePlan;
 import org.ccsds.moims.mo.mal.MALException;
 import org.ccsds.moims.mo.mal.MALListDecoder;
 import org.ccsds.moims.mo.mal.MALPubSubOperation;
@@ -84,7 +85,7 @@ public class SPPBinaryElementInputStream extends esa.mo.mal.encoder.binary.fixed
           }
           else
           {
-            Object sf = ctx.getOperation().getOperationStage(ctx.getHeader().getInteractionStage()).getElementShortForms()[ctx.getBodyElementIndex()];
+            Object sf = GENOperationStagePlan.getPlan(ctx).getShortForm(ctx.getBodyElementIndex());
             return decodePubSubPublishUpdate((Long) sf);
           }
         }
@@ -101,7 +102,7 @@ public class SPPBinaryElementInputStream extends esa.mo.mal.encoder.binary.fixed
           }
           else
           {
-            Object sf = ctx.getOperation().getOperationStage(ctx.getHeader().getInteractionStage()).getElementShortForms()[ctx.getBodyElementIndex()];
+            Object sf = GENOperationStagePlan.getPlan(ctx).getShortForm(ctx.getBodyElementIndex());
             return decodeSubElement((Long) sf, ctx);
           }
         }
@@ -21,6 +21,7 @@
 package esa.mo.mal.encoder.spp;
 
 import esa.mo.mal.encoder.gen.GENEncoder;
+import esa.mo.mal.encoder.gen.GENOperationStagePlan;
 import java.io.ByteArrayOutputStream;
 import org.ccsds.moims.mo.mal.MALException;
 import org.ccsds.moims.mo.mal.MALListEncoder;
@@ -89,7 +90,7 @@ public class SPPBinaryElementOutputStream extends esa.mo.mal.encoder.binary.fixe
           }
           return;
         case MALPubSubOperation._NOTIFY_STAGE:
-          if ((1 < ctx.getBodyElementIndex()) && (null == ctx.getOperation().getOperationStage(ctx.getHeader().getInteractionStage()).getElementShortForms()[ctx.getBodyElementIndex() - 2]))
+          if ((1 < ctx.getBodyElementIndex()) && GENOperationStagePlan.getPlan(ctx).isAbstract(ctx.getBodyElementIndex() - 2))
           {
             encodeSubElement((Element) element, null, null);
           }
@@ -112,7 +113,7 @@ public class SPPBinaryElementOutputStream extends esa.mo.mal.encoder.binary.fixe
   {
     ElementList<Element> updateList = (ElementList<Element>) element;
 
-    if (null == ctx.getOperation().getOperationStage(ctx.getHeader().getInteractionStage()).getElementShortForms()[ctx.getBodyElementIndex()])
+    if (GENOperationStagePlan.getPlan(ctx).isAbstract(ctx.getBodyElementIndex()))
     {
       enc.encodeLong(updateList.getShortForm());
     }
@@ -165,8 +165,8 @@ public class SPPBinaryEncoder extends GENEncoder
 
     try
     {
-      outputStream.directAdd(java.nio.ByteBuffer.allocate(4).putInt(s).array(), 0, 4);
-      outputStream.directAdd(java.nio.ByteBuffer.allocate(4).putInt(ms).array(), 1, 3);
+      outputStream.addUnsignedInt(s);
+      ((FixedStreamHolder) outputStream).addBigEndian(ms, 3);
     }
     catch (IOException ex)
     {
@@ -184,8 +184,8 @@ public class SPPBinaryEncoder extends GENEncoder
 
     try
     {
-      outputStream.directAdd(java.nio.ByteBuffer.allocate(4).putInt(s).array(), 0, 4);
-      outputStream.directAdd(java.nio.ByteBuffer.allocate(4).putInt(ms).array(), 1, 3);
+      outputStream.addUnsignedInt(s);
+      ((FixedStreamHolder) outputStream).addBigEndian(ms, 3);
     }
     catch (IOException ex)
     {
@@ -203,8 +203,8 @@ public class SPPBinaryEncoder extends GENEncoder
 
     try
     {
-      outputStream.directAdd(java.nio.ByteBuffer.allocate(4).putInt(s).array(), 0, 4);
-      outputStream.directAdd(java.nio.ByteBuffer.allocate(4).putInt(ms).array(), 1, 3);
+      outputStream.addUnsignedInt(s);
+      ((FixedStreamHolder) outputStream).addBigEndian(ms, 3);
     }
     catch (IOException ex)
     {
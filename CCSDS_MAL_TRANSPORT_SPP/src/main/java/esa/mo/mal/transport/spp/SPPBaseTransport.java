@@ -151,13 +151,15 @@ public abstract class SPPBaseTransport<T> extends GENTransport
   }
 
   @Override
-  public String getRoutingPart(String uriValue)
+  protected int getRoutingPartStart(String uriValue)
   {
-    String endpointUriPart = uriValue;
-    int iFirst = endpointUriPart.indexOf(protocolDelim) + 1;
+    return uriValue.indexOf(protocolDelim) + 1;
+  }
 
-    System.out.println("GRP: " + uriValue + "  :  " + endpointUriPart.substring(iFirst));
-    return endpointUriPart.substring(iFirst);
+  @Override
+  protected int getRoutingPartEnd(String uriValue)
+  {
+    return uriValue.length();
   }
 
   @Override
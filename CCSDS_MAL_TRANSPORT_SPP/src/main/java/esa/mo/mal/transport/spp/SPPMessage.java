@@ -22,6 +22,7 @@ package esa.mo.mal.transport.spp;
 
 import esa.mo.mal.transport.gen.GENMessage;
 import esa.mo.mal.transport.gen.GENMessageHeader;
+import esa.mo.mal.transport.gen.util.GENOutputBufferPool.GENOutputBuffer;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -91,6 +92,18 @@ public class SPPMessage extends GENMessage
           final OutputStream lowLevelOutputStream,
           final boolean writeHeader) throws MALException
   {
+    if (lowLevelOutputStream instanceof GENOutputBuffer)
+    {
+      // encode straight into the pooled buffer and then set the CCSDS packet length in place.
+      final GENOutputBuffer buffer = (GENOutputBuffer) lowLevelOutputStream;
+      final int start = buffer.size();
+
+      super.encodeMessage(streamFactory, enc, buffer, writeHeader);
+
+      java.nio.ByteBuffer.wrap(buffer.getBuffer()).putShort(start + 4, (short) (buffer.size() - start - 7));
+      return;
+    }
+
     try
     {
       final ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -0,0 +1,711 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO TCP/IP Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.tcpip;
+
+import esa.mo.mal.transport.gen.GENCompactMessageHeader;
+import esa.mo.mal.transport.gen.GENMessageHeader;
+import esa.mo.mal.transport.gen.GENReceptionHandler;
+import esa.mo.mal.transport.gen.receivers.GENIncomingByteBufferMessageDecoderFactory;
+import esa.mo.mal.transport.gen.receivers.GENIncomingByteMessageDecoderFactory;
+import esa.mo.mal.transport.gen.receivers.GENIncomingCompactByteBufferMessageDecoderFactory;
+import esa.mo.mal.transport.gen.receivers.GENIncomingCompactByteMessageDecoderFactory;
+import esa.mo.mal.transport.gen.receivers.GENIncomingMessageDecoderFactory;
+import esa.mo.mal.transport.gen.sending.GENAsyncMessageSender;
+import esa.mo.mal.transport.gen.sending.GENMessageSender;
+import esa.mo.mal.transport.gen.sending.GENOutgoingMessageHolder;
+import esa.mo.mal.transport.gen.sending.GENOutgoingMessageListener;
+import esa.mo.mal.transport.gen.util.GENBufferPool;
+import esa.mo.mal.transport.gen.util.GENChunkedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.logging.Level;
+import org.ccsds.moims.mo.mal.MALException;
+
+import static esa.mo.mal.transport.tcpip.TCPIPTransport.RLOGGER;
+
+/**
+ * A TCPIP connection handled by a NIO reactor. It uses the same framing as the TCPIPTransportDataTransceiver class,
+ * |size|message|, but reads and writes without blocking so that it does not need a thread of its own.
+ *
+ * Outgoing messages are queued and written by the reactor thread when the socket can accept more data, so sending
+ * returns as soon as the message is queued. The queued frame refers to the encoded message rather than copying it, and
+ * the result of the message is only reported, see GENAsyncMessageSender, once the frame has been written, or failed
+ * when the connection is closed before it could be. The reactor writes up to MAX_GATHERED_WRITES buffers of queued
+ * frames with one gathering write. Once WRITE_QUEUE_LIMIT bytes are queued senders block until the reactor has written
+ * enough of them, so that a slow peer holds back the sending threads of the transport rather than filling memory.
+ * Write errors close the connection and are reported to the transport.
+ *
+ * Compact headers are negotiated with the capability frame as by TCPIPTransportDataTransceiver, whose handling of
+ * flagged and unflagged frames this connection shares. Once the peer has announced them the header of each message is
+ * encoded against the dictionary of the connection as the message is queued and sent in a compact frame, otherwise
+ * the message is encoded again with its full header.
+ *
+ * The chunked frames of streamed messages are read chunk by chunk as they arrive, as the reactor cannot wait for the
+ * rest of a frame, and reassembled up to the maximum chunked frame length of the transport. The complete message is
+ * then decoded like that of any other frame, aborted frames are dropped.
+ */
+public class TCPIPNIOConnection implements TCPIPNIOReactor.SelectionHandler, GENReceptionHandler, GENAsyncMessageSender
+{
+  private static final int READ_BUFFER_SIZE = 65536;
+  private static final int WRITE_QUEUE_LIMIT = 1048576;
+  private static final int MAX_GATHERED_WRITES = 64;
+  private final TCPIPTransport transport;
+  private final TCPIPNIOReactor reactor;
+  private final SocketChannel channel;
+  private final GENIncomingMessageDecoderFactory<byte[]> decoderFactory;
+  private final GENIncomingMessageDecoderFactory<ByteBuffer> bufferDecoderFactory;
+  private final GENCompactMessageHeader.Dictionary headerDictionary;
+  private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+  private final Queue<OutgoingFrame> writeQueue = new ArrayDeque<OutgoingFrame>();
+  private final ByteBuffer[] writeBuffers = new ByteBuffer[MAX_GATHERED_WRITES];
+  private final List<OutgoingFrame> writtenFrames = new ArrayList<OutgoingFrame>();
+  private final Runnable enableWriteTask = new Runnable()
+  {
+    @Override
+    public void run()
+    {
+      if ((null != key) && key.isValid())
+      {
+        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+      }
+    }
+  };
+  private boolean writeScheduled = false;
+  private int queuedBytes = 0;
+  private volatile boolean closed = false;
+  private volatile GENOutgoingMessageListener sendListener = null;
+  private volatile boolean peerCompactHeaders = false;
+  private SelectionKey key = null;
+  private ByteBuffer frame = null;
+  private byte[] chunkedFrame = null;
+  private int chunkedFrameLength = 0;
+  private int chunkRemaining = 0;
+  /**
+   * the remote URI (client) this connection is associated to. This is volatile as it is potentially set by a different
+   * thread after its creation
+   */
+  private volatile String remoteURI = null;
+
+  /**
+   * Constructor.
+   *
+   * @param transport The parent TCPIP transport.
+   * @param reactor The reactor that handles the IO of this connection.
+   * @param channel The connected socket channel, configured as non-blocking.
+   */
+  public TCPIPNIOConnection(TCPIPTransport transport, TCPIPNIOReactor reactor, SocketChannel channel)
+  {
+    this.transport = transport;
+    this.reactor = reactor;
+    this.channel = channel;
+
+    if (transport.isHeaderEncodedBySender())
+    {
+      this.decoderFactory = new GENIncomingCompactByteMessageDecoderFactory();
+      this.bufferDecoderFactory = new GENIncomingCompactByteBufferMessageDecoderFactory();
+      this.headerDictionary = new GENCompactMessageHeader.Dictionary();
+
+      // announce compact headers, written once the connection is registered
+      ByteBuffer capabilities = ByteBuffer.allocate(8);
+      capabilities.putInt(TCPIPTransportDataTransceiver.CAPABILITY_FRAME);
+      capabilities.putInt(TCPIPTransportDataTransceiver.COMPACT_HEADERS_CAPABILITY);
+      capabilities.flip();
+
+      writeQueue.add(new OutgoingFrame(null, capabilities));
+      queuedBytes = 8;
+      writeScheduled = true;
+    }
+    else
+    {
+      this.decoderFactory = new GENIncomingByteMessageDecoderFactory();
+      this.bufferDecoderFactory = new GENIncomingByteBufferMessageDecoderFactory();
+      this.headerDictionary = null;
+    }
+  }
+
+  /**
+   * Registers this connection with its reactor so that it starts reading messages.
+   */
+  public void start()
+  {
+    reactor.register(channel, SelectionKey.OP_READ, this);
+  }
+
+  @Override
+  public void registered(SelectionKey key)
+  {
+    this.key = key;
+
+    synchronized (writeQueue)
+    {
+      if (writeScheduled)
+      {
+        enableWriteTask.run();
+      }
+    }
+  }
+
+  @Override
+  public void setSendListener(GENOutgoingMessageListener listener)
+  {
+    this.sendListener = listener;
+  }
+
+  @Override
+  public void sendEncodedMessage(GENOutgoingMessageHolder packetData) throws IOException
+  {
+    if (closed)
+    {
+      throw new IOException("Connection closed");
+    }
+
+    OutgoingFrame outgoing = null;
+
+    if (null == headerDictionary)
+    {
+      outgoing = createFrame(packetData, null);
+    }
+    else if (!peerCompactHeaders)
+    {
+      byte[] message = TCPIPTransportDataTransceiver.encodeFullMessage(transport.getStreamFactory(), packetData);
+      outgoing = new OutgoingFrame(packetData, createPrefix(message.length), ByteBuffer.wrap(message));
+    }
+
+    boolean schedule;
+    synchronized (writeQueue)
+    {
+      awaitWriteQueueSpace();
+
+      if (null == outgoing)
+      {
+        // headers are encoded in queue order so that the dictionary at the other end stays in step
+        outgoing = createFrame(packetData, encodeCompactHeader(packetData));
+      }
+
+      writeQueue.add(outgoing);
+      queuedBytes += outgoing.length;
+
+      schedule = !writeScheduled;
+      writeScheduled = true;
+    }
+
+    if (schedule)
+    {
+      reactor.execute(enableWriteTask);
+    }
+  }
+
+  @Override
+  public void handleSelection(SelectionKey key) throws IOException
+  {
+    if (key.isReadable())
+    {
+      handleRead();
+    }
+
+    if (key.isValid() && key.isWritable())
+    {
+      handleWrite();
+    }
+  }
+
+  @Override
+  public void handleError(IOException ex)
+  {
+    if (ex instanceof EOFException)
+    {
+      RLOGGER.log(Level.INFO, "Client closing connection: {0}", remoteURI);
+      transport.connectionLost(remoteURI, this);
+    }
+    else
+    {
+      RLOGGER.log(Level.WARNING, "Cannot read or write message from client", ex);
+      transport.communicationError(remoteURI, this);
+    }
+
+    close();
+  }
+
+  @Override
+  public String getRemoteURI()
+  {
+    return remoteURI;
+  }
+
+  @Override
+  public void setRemoteURI(String remoteURI)
+  {
+    this.remoteURI = remoteURI;
+  }
+
+  @Override
+  public GENMessageSender getMessageSender()
+  {
+    return this;
+  }
+
+  @Override
+  public void close()
+  {
+    List<OutgoingFrame> dropped = null;
+
+    synchronized (writeQueue)
+    {
+      if (!closed)
+      {
+        closed = true;
+        dropped = new ArrayList<OutgoingFrame>(writeQueue);
+        writeQueue.clear();
+        queuedBytes = 0;
+        writeQueue.notifyAll();
+      }
+    }
+
+    if (null != dropped)
+    {
+      try
+      {
+        channel.close();
+      }
+      catch (IOException e)
+      {
+        // ignore
+      }
+
+      // the frames that were not written are failed in the order they were queued
+      for (OutgoingFrame outgoing : dropped)
+      {
+        if (null != outgoing.message)
+        {
+          messageSent(outgoing.message, false);
+        }
+      }
+    }
+  }
+
+  private void messageSent(GENOutgoingMessageHolder message, boolean successful)
+  {
+    final GENOutgoingMessageListener listener = sendListener;
+
+    if (null != listener)
+    {
+      listener.messageSent(message, successful);
+    }
+    else
+    {
+      message.setResult(successful ? Boolean.TRUE : Boolean.FALSE);
+    }
+  }
+
+  private void awaitWriteQueueSpace() throws IOException
+  {
+    // the reactor thread never waits for itself, frames queued from it may go over the limit
+    if (!reactor.isReactorThread())
+    {
+      try
+      {
+        while (!closed && (WRITE_QUEUE_LIMIT <= queuedBytes))
+        {
+          writeQueue.wait();
+        }
+      }
+      catch (InterruptedException ex)
+      {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted waiting to queue message");
+      }
+    }
+
+    if (closed)
+    {
+      throw new IOException("Connection closed");
+    }
+  }
+
+  private byte[] encodeCompactHeader(GENOutgoingMessageHolder packetData) throws IOException
+  {
+    try
+    {
+      return GENCompactMessageHeader.encodeHeader(transport.getStreamFactory(),
+              (GENMessageHeader) packetData.getOriginalMessage().getHeader(), headerDictionary);
+    }
+    catch (MALException ex)
+    {
+      throw new IOException("Unable to encode compact message header", ex);
+    }
+  }
+
+  private void handleRead() throws IOException
+  {
+    if (0 > channel.read(readBuffer))
+    {
+      throw new EOFException();
+    }
+
+    readBuffer.flip();
+
+    while (true)
+    {
+      if (null != chunkedFrame)
+      {
+        if (!readChunk())
+        {
+          break;
+        }
+
+        continue;
+      }
+
+      if (null == frame)
+      {
+        if (4 > readBuffer.remaining())
+        {
+          break;
+        }
+
+        if (TCPIPTransportDataTransceiver.CAPABILITY_FRAME == readBuffer.getInt(readBuffer.position()))
+        {
+          if (8 > readBuffer.remaining())
+          {
+            break;
+          }
+
+          readBuffer.getInt();
+          peerCompactHeaders = 0 != (readBuffer.getInt() & TCPIPTransportDataTransceiver.COMPACT_HEADERS_CAPABILITY);
+          RLOGGER.log(Level.FINE, "TCPIP peer compact headers : {0}", peerCompactHeaders);
+          continue;
+        }
+
+        int packetSize = readBuffer.getInt();
+
+        if (TCPIPTransportDataTransceiver.CHUNKED_FRAME == packetSize)
+        {
+          // chunked frames always carry the full header
+          chunkedFrame = new byte[READ_BUFFER_SIZE];
+          chunkedFrameLength = (null != headerDictionary) ? putInt(chunkedFrame, GENCompactMessageHeader.FULL_HEADER) : 0;
+          continue;
+        }
+
+        boolean fullHeader = TCPIPTransportDataTransceiver.isFullHeaderFrame(packetSize, null != headerDictionary);
+        int length = (packetSize & ~TCPIPTransportDataTransceiver.COMPACT_FRAME) + (fullHeader ? 4 : 0);
+
+        GENBufferPool pool = transport.getReceiveBufferPool();
+        frame = (null != pool) ? pool.acquire(length) : ByteBuffer.wrap(new byte[length]);
+
+        if (fullHeader)
+        {
+          // passed on as a message with its full header, see GENCompactMessageHeader
+          frame.putInt(GENCompactMessageHeader.FULL_HEADER);
+        }
+      }
+
+      if (readBuffer.remaining() <= frame.remaining())
+      {
+        frame.put(readBuffer);
+      }
+      else
+      {
+        int limit = readBuffer.limit();
+        readBuffer.limit(readBuffer.position() + frame.remaining());
+        frame.put(readBuffer);
+        readBuffer.limit(limit);
+      }
+
+      if (frame.hasRemaining())
+      {
+        break;
+      }
+
+      ByteBuffer data = frame;
+      frame = null;
+      data.flip();
+      receiveFrame(data);
+    }
+
+    readBuffer.compact();
+  }
+
+  /**
+   * Reads the next chunk length, or as much of the current chunk as has arrived, of a chunked frame.
+   *
+   * @return false if more data must be read first.
+   * @throws IOException if the chunk length is invalid or the frame is longer than the maximum chunked frame length.
+   */
+  private boolean readChunk() throws IOException
+  {
+    if (0 == chunkRemaining)
+    {
+      if (4 > readBuffer.remaining())
+      {
+        return false;
+      }
+
+      int length = readBuffer.getInt();
+
+      if (GENChunkedOutputStream.END == length)
+      {
+        byte[] data = chunkedFrame;
+        int dataLength = chunkedFrameLength;
+        chunkedFrame = null;
+        receiveChunkedFrame(data, dataLength);
+        return true;
+      }
+
+      if (GENChunkedOutputStream.ABORTED == length)
+      {
+        chunkedFrame = null;
+        RLOGGER.fine("Aborted chunked frame dropped");
+        return true;
+      }
+
+      if (0 > length)
+      {
+        throw new IOException("Invalid chunk length: " + length);
+      }
+
+      long maxLength = Math.min(transport.getMaxChunkedFrameLength(), Integer.MAX_VALUE - 8);
+      int headerLength = (null != headerDictionary) ? 4 : 0;
+      if (maxLength < (long) chunkedFrameLength - headerLength + length)
+      {
+        throw new IOException("Chunked data exceeds the maximum length of " + maxLength + " bytes");
+      }
+
+      if (chunkedFrame.length < chunkedFrameLength + length)
+      {
+        chunkedFrame = Arrays.copyOf(chunkedFrame,
+                (int) Math.max(chunkedFrameLength + length, Math.min(2L * chunkedFrame.length, maxLength + headerLength)));
+      }
+
+      chunkRemaining = length;
+    }
+
+    int count = Math.min(chunkRemaining, readBuffer.remaining());
+    if (0 == count)
+    {
+      return false;
+    }
+
+    readBuffer.get(chunkedFrame, chunkedFrameLength, count);
+    chunkedFrameLength += count;
+    chunkRemaining -= count;
+
+    return true;
+  }
+
+  private void receiveChunkedFrame(byte[] data, int length)
+  {
+    GENBufferPool pool = transport.getReceiveBufferPool();
+
+    if (null != pool)
+    {
+      ByteBuffer buffer = pool.acquire(length);
+      buffer.put(data, 0, length);
+      buffer.flip();
+      receiveFrame(buffer);
+    }
+    else
+    {
+      receiveFrame(ByteBuffer.wrap((data.length == length) ? data : Arrays.copyOf(data, length)));
+    }
+  }
+
+  private void receiveFrame(ByteBuffer data)
+  {
+    if (null != transport.getReceiveBufferPool())
+    {
+      transport.receive(this, bufferDecoderFactory.createDecoder(transport, this, data));
+    }
+    else
+    {
+      transport.receive(this, decoderFactory.createDecoder(transport, this, data.array()));
+    }
+  }
+
+  private void handleWrite() throws IOException
+  {
+    while (true)
+    {
+      int count = 0;
+
+      synchronized (writeQueue)
+      {
+        for (OutgoingFrame outgoing : writeQueue)
+        {
+          if (writeBuffers.length - count < outgoing.buffers.length)
+          {
+            break;
+          }
+
+          for (ByteBuffer buffer : outgoing.buffers)
+          {
+            writeBuffers[count++] = buffer;
+          }
+
+          writtenFrames.add(outgoing);
+        }
+
+        if (0 == count)
+        {
+          writeScheduled = false;
+          key.interestOps(SelectionKey.OP_READ);
+          return;
+        }
+      }
+
+      // gather the queued frames into one write
+      channel.write(writeBuffers, 0, count);
+      Arrays.fill(writeBuffers, 0, count, null);
+
+      int written = 0;
+      while ((written < writtenFrames.size()) && writtenFrames.get(written).isWritten())
+      {
+        written++;
+      }
+
+      boolean complete = written == writtenFrames.size();
+      writtenFrames.subList(written, writtenFrames.size()).clear();
+
+      synchronized (writeQueue)
+      {
+        Iterator<OutgoingFrame> it = writtenFrames.iterator();
+        while (it.hasNext())
+        {
+          OutgoingFrame outgoing = it.next();
+
+          if (writeQueue.peek() == outgoing)
+          {
+            writeQueue.poll();
+            queuedBytes -= outgoing.length;
+          }
+          else
+          {
+            // a close from another thread has failed the frame already
+            it.remove();
+          }
+        }
+
+        writeQueue.notifyAll();
+      }
+
+      for (OutgoingFrame outgoing : writtenFrames)
+      {
+        if (null != outgoing.message)
+        {
+          messageSent(outgoing.message, true);
+        }
+      }
+
+      writtenFrames.clear();
+
+      if (!complete)
+      {
+        // socket buffer is full, wait until it can take more
+        return;
+      }
+    }
+  }
+
+  private static int putInt(byte[] buffer, int value)
+  {
+    buffer[0] = (byte) (value >>> 24);
+    buffer[1] = (byte) (value >>> 16);
+    buffer[2] = (byte) (value >>> 8);
+    buffer[3] = (byte) value;
+    return 4;
+  }
+
+  private static OutgoingFrame createFrame(GENOutgoingMessageHolder packetData, byte[] header)
+  {
+    int length = packetData.getEncodedMessageLength();
+    ByteBuffer prefix;
+
+    if (null != header)
+    {
+      prefix = ByteBuffer.allocate(8 + header.length);
+      prefix.putInt(TCPIPTransportDataTransceiver.COMPACT_FRAME | (4 + header.length + length));
+      prefix.putInt(header.length);
+      prefix.put(header);
+      prefix.flip();
+    }
+    else
+    {
+      prefix = createPrefix(length);
+    }
+
+    // the encoded message is held until the result of the message is set, so it is not copied
+    return new OutgoingFrame(packetData, prefix, ByteBuffer.wrap(packetData.getEncodedMessageBuffer(), 0, length));
+  }
+
+  private static ByteBuffer createPrefix(int length)
+  {
+    ByteBuffer prefix = ByteBuffer.allocate(4);
+    prefix.putInt(length);
+    prefix.flip();
+
+    return prefix;
+  }
+
+  /**
+   * A queued frame, the message it carries, if any, and its buffers.
+   */
+  private static final class OutgoingFrame
+  {
+    private final GENOutgoingMessageHolder message;
+    private final ByteBuffer[] buffers;
+    private final int length;
+
+    OutgoingFrame(GENOutgoingMessageHolder message, ByteBuffer... buffers)
+    {
+      int total = 0;
+      for (ByteBuffer buffer : buffers)
+      {
+        total += buffer.remaining();
+      }
+
+      this.message = message;
+      this.buffers = buffers;
+      this.length = total;
+    }
+
+    boolean isWritten()
+    {
+      for (ByteBuffer buffer : buffers)
+      {
+        if (buffer.hasRemaining())
+        {
+          return false;
+        }
+      }
+
+      return true;
+    }
+  }
+}
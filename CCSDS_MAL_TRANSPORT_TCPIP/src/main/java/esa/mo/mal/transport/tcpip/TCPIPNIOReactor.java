@@ -0,0 +1,228 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO TCP/IP Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.tcpip;
+
+import esa.mo.mal.transport.gen.util.GENExecutorFactory;
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+
+import static esa.mo.mal.transport.tcpip.TCPIPTransport.RLOGGER;
+
+/**
+ * A reactor for the NIO mode of the TCPIP transport. Each reactor owns a selector and performs all the socket IO for
+ * the channels registered with it, so a small fixed number of reactors can serve any number of connections. It runs
+ * on its own thread, created by the executor factory of the transport.
+ *
+ * Other threads interact with the channels of a reactor by submitting tasks, which are run on the reactor thread.
+ */
+public class TCPIPNIOReactor implements Runnable
+{
+  private final Selector selector;
+  private final Queue<Runnable> pendingTasks = new ConcurrentLinkedQueue<Runnable>();
+  private final Thread thread;
+
+  /**
+   * Constructor.
+   *
+   * @param executorFactory The factory of the reactor thread.
+   * @param index The index of this reactor, used for the thread name.
+   * @throws IOException if the selector cannot be opened.
+   */
+  public TCPIPNIOReactor(GENExecutorFactory executorFactory, int index) throws IOException
+  {
+    this.selector = Selector.open();
+    this.thread = executorFactory.newThread(getClass().getName() + " - Reactor " + index, this);
+  }
+
+  /**
+   * Starts the reactor thread.
+   */
+  public void start()
+  {
+    thread.start();
+  }
+
+  /**
+   * Returns true if called from the reactor thread.
+   *
+   * @return true if the current thread is the reactor thread.
+   */
+  public boolean isReactorThread()
+  {
+    return Thread.currentThread() == thread;
+  }
+
+  /**
+   * Registers a channel with this reactor. The registration is performed on the reactor thread.
+   *
+   * @param channel The non-blocking channel.
+   * @param ops The initial interest set.
+   * @param handler The handler for the events of the channel.
+   */
+  public void register(final SelectableChannel channel, final int ops, final SelectionHandler handler)
+  {
+    execute(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        try
+        {
+          handler.registered(channel.register(selector, ops, handler));
+        }
+        catch (ClosedChannelException ex)
+        {
+          handler.close();
+        }
+      }
+    });
+  }
+
+  /**
+   * Runs a task on the reactor thread.
+   *
+   * @param task The task.
+   */
+  public void execute(Runnable task)
+  {
+    pendingTasks.add(task);
+    selector.wakeup();
+  }
+
+  /**
+   * Stops the reactor, closing all channels registered with it.
+   */
+  public void close()
+  {
+    thread.interrupt();
+    selector.wakeup();
+  }
+
+  @Override
+  public void run()
+  {
+    while (!Thread.interrupted())
+    {
+      try
+      {
+        selector.select();
+
+        Runnable task;
+        while (null != (task = pendingTasks.poll()))
+        {
+          try
+          {
+            task.run();
+          }
+          catch (RuntimeException ex)
+          {
+            RLOGGER.log(Level.WARNING, "TCPIP reactor task failed", ex);
+          }
+        }
+
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext())
+        {
+          SelectionKey key = keys.next();
+          keys.remove();
+
+          SelectionHandler handler = (SelectionHandler) key.attachment();
+
+          try
+          {
+            if (key.isValid())
+            {
+              handler.handleSelection(key);
+            }
+          }
+          catch (IOException ex)
+          {
+            handler.handleError(ex);
+          }
+          catch (RuntimeException ex)
+          {
+            // such as a cancelled key or a failed decode, only the channel it happened on is lost
+            handler.handleError(new IOException("Unexpected error handling channel", ex));
+          }
+        }
+      }
+      catch (IOException ex)
+      {
+        RLOGGER.log(Level.WARNING, "TCPIP reactor selection failed", ex);
+      }
+    }
+
+    for (SelectionKey key : selector.keys())
+    {
+      ((SelectionHandler) key.attachment()).close();
+    }
+
+    try
+    {
+      selector.close();
+    }
+    catch (IOException ex)
+    {
+      // ignore
+    }
+  }
+
+  /**
+   * Interface for the handlers of the channels registered with a reactor. All methods except close are called from the
+   * reactor thread.
+   */
+  public static interface SelectionHandler
+  {
+    /**
+     * Called once the channel has been registered with the selector.
+     *
+     * @param key The selection key of the channel.
+     */
+    void registered(SelectionKey key);
+
+    /**
+     * Called when the channel is ready for one of the operations in its interest set.
+     *
+     * @param key The selection key of the channel.
+     * @throws IOException if there is an IO error on the channel.
+     */
+    void handleSelection(SelectionKey key) throws IOException;
+
+    /**
+     * Called when handleSelection has failed.
+     *
+     * @param ex The error.
+     */
+    void handleError(IOException ex);
+
+    /**
+     * Closes the channel.
+     */
+    void close();
+  }
+}
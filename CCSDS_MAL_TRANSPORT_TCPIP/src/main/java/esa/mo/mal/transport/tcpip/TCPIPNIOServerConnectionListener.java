@@ -0,0 +1,91 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2015      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : CCSDS MO TCP/IP Transport Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under the European Space Agency Public License, Version 2.0
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mal.transport.tcpip;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.logging.Level;
+
+import static esa.mo.mal.transport.tcpip.TCPIPTransport.RLOGGER;
+
+/**
+ * Server socket handler for the NIO mode of the TCPIP transport.
+ *
+ * This handler is registered with a reactor and accepts new connections on the server channel, handing each one to the
+ * next reactor of the transport rather than to a dedicated thread.
+ */
+public class TCPIPNIOServerConnectionListener implements TCPIPNIOReactor.SelectionHandler
+{
+  private final TCPIPTransport transport;
+  private final ServerSocketChannel serverChannel;
+
+  /**
+   * Constructor.
+   *
+   * @param transport The parent TCPIP transport.
+   * @param serverChannel The bound, non-blocking, server channel.
+   */
+  public TCPIPNIOServerConnectionListener(TCPIPTransport transport, ServerSocketChannel serverChannel)
+  {
+    this.transport = transport;
+    this.serverChannel = serverChannel;
+  }
+
+  @Override
+  public void registered(SelectionKey key)
+  {
+    // nothing to do
+  }
+
+  @Override
+  public void handleSelection(SelectionKey key) throws IOException
+  {
+    SocketChannel channel;
+
+    while (null != (channel = serverChannel.accept()))
+    {
+      channel.configureBlocking(false);
+
+      new TCPIPNIOConnection(transport, transport.nextReactor(), channel).start();
+    }
+  }
+
+  @Override
+  public void handleError(IOException ex)
+  {
+    RLOGGER.log(Level.WARNING, "Error while accepting connection", ex);
+  }
+
+  @Override
+  public void close()
+  {
+    try
+    {
+      serverChannel.close();
+    }
+    catch (IOException e)
+    {
+      // ignore
+    }
+  }
+}
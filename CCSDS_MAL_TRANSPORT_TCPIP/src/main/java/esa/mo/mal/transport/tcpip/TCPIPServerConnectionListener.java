@@ -20,7 +20,6 @@
  */
 package esa.mo.mal.transport.tcpip;
 
-import esa.mo.mal.transport.gen.receivers.GENIncomingByteMessageDecoderFactory;
 import esa.mo.mal.transport.gen.util.GENMessagePoller;
 import java.io.IOException;
 import java.net.ServerSocket;
@@ -46,7 +45,7 @@ public class TCPIPServerConnectionListener extends Thread
   /**
    * Holds the list of data poller threads
    */
-  private final List<Thread> pollerThreads = new ArrayList<Thread>();
+  private final List<GENMessagePoller> pollerThreads = new ArrayList<GENMessagePoller>();
 
   /**
    * Constructor.
@@ -84,7 +83,7 @@ public class TCPIPServerConnectionListener extends Thread
         // handle socket in separate thread
         TCPIPTransportDataTransceiver tc = transport.createDataTransceiver(socket);
 
-        GENMessagePoller poller = new GENMessagePoller<byte[]>(transport, tc, tc, new GENIncomingByteMessageDecoderFactory());
+        GENMessagePoller poller = transport.createMessagePoller(tc);
         pollerThreads.add(poller);
         poller.start();
       }
@@ -98,7 +97,7 @@ public class TCPIPServerConnectionListener extends Thread
       }
     }
 
-    for (Thread pollerThread : pollerThreads)
+    for (GENMessagePoller pollerThread : pollerThreads)
     {
       synchronized (pollerThread)
       {
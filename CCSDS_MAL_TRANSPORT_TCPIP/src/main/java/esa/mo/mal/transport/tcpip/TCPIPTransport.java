@@ -23,8 +23,12 @@ package esa.mo.mal.transport.tcpip;
 import esa.mo.mal.transport.gen.GENMessage;
 import esa.mo.mal.transport.gen.GENTransport;
 import static esa.mo.mal.transport.gen.GENTransport.LOGGER;
+import esa.mo.mal.transport.gen.receivers.GENIncomingByteBufferMessageDecoderFactory;
 import esa.mo.mal.transport.gen.receivers.GENIncomingByteMessageDecoderFactory;
+import esa.mo.mal.transport.gen.receivers.GENIncomingCompactByteBufferMessageDecoderFactory;
+import esa.mo.mal.transport.gen.receivers.GENIncomingCompactByteMessageDecoderFactory;
 import esa.mo.mal.transport.gen.sending.GENMessageSender;
+import esa.mo.mal.transport.gen.util.GENBufferPool;
 import esa.mo.mal.transport.gen.util.GENMessagePoller;
 import java.io.IOException;
 import java.net.Inet4Address;
@@ -32,11 +36,17 @@ import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.rmi.server.UID;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.ccsds.moims.mo.mal.MALException;
@@ -62,7 +72,16 @@ import org.ccsds.moims.mo.mal.transport.MALTransportFactory;
  * raw MAL messages org.ccsds.moims.mo.mal.transport.tcpip.host == adapter (host / IP Address) that the transport will
  * use for incoming connections. In case of a pure client (i.e. not offering any services) this property should be
  * omitted. org.ccsds.moims.mo.mal.transport.tcpip.port == port that the transport listens to. In case this is a pure
- * client, this property should be omitted.
+ * client, this property should be omitted. org.ccsds.moims.mo.mal.transport.tcpip.nio == if true, connections are
+ * served by a small fixed pool of NIO selector threads instead of one blocking thread per connection.
+ * org.ccsds.moims.mo.mal.transport.tcpip.reactorthreads == number of NIO selector threads, defaults to 1.
+ * org.ccsds.moims.mo.mal.transport.tcpip.compactheaders == if true, the URIs, domain, network zone and session name of
+ * message headers are sent in full only once per connection and then as an index into a per connection dictionary.
+ * Compact headers are negotiated per connection, so they are only used once the peer has announced that it has this
+ * property set too, and messages are sent with their full header otherwise. It cannot be used with the line encoding
+ * which does not encode headers through their encode method.
+ * org.ccsds.moims.mo.mal.transport.tcpip.maxchunkedframelength == maximum total length in bytes of a received chunked
+ * frame, which carries a streamed message, longer frames close the connection. Defaults to 268435456.
  *
  * The general logic is the following : The transport at first initialises the server listen port (if this is a server,
  * offering services).
@@ -80,6 +99,11 @@ import org.ccsds.moims.mo.mal.transport.MALTransportFactory;
  * In the case of malformed MAL messages or communication errors, all resources related to the remote URI are released
  * and need to be reestablished.
  *
+ * In NIO mode the URIs and the wire format are unchanged, each connection is registered with one of the reactor threads
+ * which perform all of the reads and writes without blocking. NIO mode always uses the standard framing, so transports
+ * that override createDataTransceiver should not enable it. NIO connections do not stream messages, but they read the
+ * chunked frames of streamed messages from transports that do, reassembling each frame before it is decoded.
+ *
  * URIs:
  *
  * The TCPIP Transport, generates URIs, in the for of : {@code tcpip://<host>:<port or client ID>-<service id>}
@@ -124,6 +148,36 @@ public class TCPIPTransport extends GENTransport
    */
   private final List<GENMessagePoller> pollerThreads = new ArrayList<GENMessagePoller>();
 
+  /**
+   * True if connections are handled by the NIO reactors rather than by poller threads.
+   */
+  private final boolean useNIO;
+
+  /**
+   * The NIO reactor threads, empty if NIO is not used.
+   */
+  private final TCPIPNIOReactor[] reactors;
+
+  /**
+   * Used to assign new connections to the NIO reactors in turn.
+   */
+  private final AtomicInteger nextReactorIndex = new AtomicInteger();
+
+  /**
+   * Holds the NIO server connection listener
+   */
+  private TCPIPNIOServerConnectionListener nioServerConnectionListener = null;
+
+  /**
+   * True if message headers are encoded in compact form by the connections.
+   */
+  private final boolean compactHeaders;
+
+  /**
+   * The maximum total length of a received chunked frame.
+   */
+  private final long maxChunkedFrameLength;
+
   /*
    * Constructor.
    *
@@ -139,6 +193,11 @@ public class TCPIPTransport extends GENTransport
   {
     super(protocol, serviceDelim, supportsRouting, false, factory, properties);
 
+    boolean lUseNIO = false;
+    int lReactorThreads = 1;
+    boolean lCompactHeaders = false;
+    long lMaxChunkedFrameLength = 268435456;
+
     // decode configuration
     if (properties != null)
     {
@@ -170,6 +229,30 @@ public class TCPIPTransport extends GENTransport
           this.serverPort = 0; //0 means this is a client
         }
       }
+
+      // NIO mode
+      if (properties.containsKey("org.ccsds.moims.mo.mal.transport.tcpip.nio"))
+      {
+        lUseNIO = Boolean.parseBoolean((String) properties.get("org.ccsds.moims.mo.mal.transport.tcpip.nio"));
+      }
+
+      // number of NIO reactor threads
+      if (properties.containsKey("org.ccsds.moims.mo.mal.transport.tcpip.reactorthreads"))
+      {
+        lReactorThreads = Integer.parseInt((String) properties.get("org.ccsds.moims.mo.mal.transport.tcpip.reactorthreads"));
+      }
+
+      // compact message headers
+      if (properties.containsKey("org.ccsds.moims.mo.mal.transport.tcpip.compactheaders"))
+      {
+        lCompactHeaders = Boolean.parseBoolean((String) properties.get("org.ccsds.moims.mo.mal.transport.tcpip.compactheaders"));
+      }
+
+      // maximum length of received chunked frames
+      if (properties.containsKey("org.ccsds.moims.mo.mal.transport.tcpip.maxchunkedframelength"))
+      {
+        lMaxChunkedFrameLength = Long.parseLong((String) properties.get("org.ccsds.moims.mo.mal.transport.tcpip.maxchunkedframelength"));
+      }
     }
     else
     {
@@ -178,7 +261,15 @@ public class TCPIPTransport extends GENTransport
       this.serverHost = null; //null means this is a client
     }
 
+    this.useNIO = lUseNIO;
+    this.reactors = new TCPIPNIOReactor[lUseNIO ? Math.max(1, lReactorThreads) : 0];
+    this.compactHeaders = lCompactHeaders;
+    this.maxChunkedFrameLength = lMaxChunkedFrameLength;
+
     RLOGGER.log(Level.INFO, "TCPIP Wrapping body parts set to  : {0}", this.wrapBodyParts);
+    RLOGGER.log(Level.INFO, "TCPIP NIO reactor threads set to  : {0}", this.reactors.length);
+    RLOGGER.log(Level.INFO, "TCPIP Compact headers set to  : {0}", this.compactHeaders);
+    RLOGGER.log(Level.INFO, "TCPIP Maximum chunked frame length set to  : {0}", this.maxChunkedFrameLength);
   }
 
   @Override
@@ -186,6 +277,22 @@ public class TCPIPTransport extends GENTransport
   {
     super.init();
 
+    if (useNIO)
+    {
+      try
+      {
+        for (int i = 0; i < reactors.length; i++)
+        {
+          reactors[i] = new TCPIPNIOReactor(getExecutorFactory(), i);
+          reactors[i].start();
+        }
+      }
+      catch (IOException ex)
+      {
+        throw new MALException("Error initialising TCP NIO reactors", ex);
+      }
+    }
+
     if (serverHost != null)
     {
       // this is also a server (i.e. provides some services)
@@ -195,13 +302,30 @@ public class TCPIPTransport extends GENTransport
       try
       {
         InetAddress serverHostAddr = InetAddress.getByName(serverHost);
-        ServerSocket serverSocket = new ServerSocket(serverPort, 0, serverHostAddr);
 
-        // create thread that will listen for connections
-        synchronized (this)
+        if (useNIO)
         {
-          serverConnectionListener = new TCPIPServerConnectionListener(this, serverSocket);
-          serverConnectionListener.start();
+          ServerSocketChannel serverChannel = ServerSocketChannel.open();
+          serverChannel.socket().bind(new InetSocketAddress(serverHostAddr, serverPort));
+          serverChannel.configureBlocking(false);
+
+          // the first reactor also listens for connections
+          synchronized (this)
+          {
+            nioServerConnectionListener = new TCPIPNIOServerConnectionListener(this, serverChannel);
+            reactors[0].register(serverChannel, SelectionKey.OP_ACCEPT, nioServerConnectionListener);
+          }
+        }
+        else
+        {
+          ServerSocket serverSocket = new ServerSocket(serverPort, 0, serverHostAddr);
+
+          // create thread that will listen for connections
+          synchronized (this)
+          {
+            serverConnectionListener = new TCPIPServerConnectionListener(this, serverSocket);
+            serverConnectionListener.start();
+          }
         }
 
         RLOGGER.log(Level.INFO, "Started TCP Server Transport on port {0}", serverPort);
@@ -264,6 +388,19 @@ public class TCPIPTransport extends GENTransport
       {
         serverConnectionListener.interrupt();
       }
+
+      if (null != nioServerConnectionListener)
+      {
+        nioServerConnectionListener.close();
+      }
+
+      for (TCPIPNIOReactor reactor : reactors)
+      {
+        if (null != reactor)
+        {
+          reactor.close();
+        }
+      }
     }
   }
 
@@ -303,16 +440,33 @@ public class TCPIPTransport extends GENTransport
       String host = targetAddress.split(":")[0];
       int port = Integer.parseInt(targetAddress.split(":")[1]);
 
+      if (useNIO)
+      {
+        // connect blocking, then hand the connection to a reactor for all further IO
+        SocketChannel channel = SocketChannel.open(new InetSocketAddress(InetAddress.getByName(host), port));
+        channel.configureBlocking(false);
+
+        TCPIPNIOConnection conn = new TCPIPNIOConnection(this, nextReactor(), channel);
+        conn.setRemoteURI(remoteRootURI);
+        conn.start();
+
+        return conn;
+      }
+
       //create a message sender and receiver for the socket
       TCPIPTransportDataTransceiver trans = createDataTransceiver(new Socket(host, port));
 
       // create also a data reader thread for this socket in order to read messages from it 
       // no need to register this as it will automatically terminate when the uunderlying connection is terminated.
-      GENMessagePoller rcvr = new GENMessagePoller<byte[]>(this, trans, trans, new GENIncomingByteMessageDecoderFactory());
+      GENMessagePoller rcvr = createMessagePoller(trans);
       rcvr.setRemoteURI(remoteRootURI);
       rcvr.start();
 
-      pollerThreads.add(rcvr);
+      // connections to different URIs are created concurrently
+      synchronized (this)
+      {
+        pollerThreads.add(rcvr);
+      }
 
       return trans;
     }
@@ -325,20 +479,19 @@ public class TCPIPTransport extends GENTransport
     {
       LOGGER.log(Level.WARNING, "TCPIP could not find host :{0}", remoteRootURI);
       LOGGER.log(Level.FINE, "TCPIP could not find host :" + remoteRootURI, e);
-      throw new MALTransmitErrorException(msg.getHeader(), new MALStandardError(MALHelper.DESTINATION_UNKNOWN_ERROR_NUMBER, null), null);
+      throw new MALTransmitErrorException((null != msg) ? msg.getHeader() : null, new MALStandardError(MALHelper.DESTINATION_UNKNOWN_ERROR_NUMBER, null), null);
     }
     catch (java.net.ConnectException e)
     {
       LOGGER.log(Level.WARNING, "TCPIP could not connect to :{0}", remoteRootURI);
       LOGGER.log(Level.FINE, "TCPIP could not connect to :" + remoteRootURI, e);
-      throw new MALTransmitErrorException(msg.getHeader(), new MALStandardError(MALHelper.DESTINATION_TRANSIENT_ERROR_NUMBER, null), null);
+      throw new MALTransmitErrorException((null != msg) ? msg.getHeader() : null, new MALStandardError(MALHelper.DESTINATION_TRANSIENT_ERROR_NUMBER, null), null);
     }
     catch (IOException e)
     {
-      //there was a communication problem, we need to clean up the objects we created in the meanwhile
-      communicationError(remoteRootURI, null);
-
-      //rethrow for higher MAL leyers
+      // nothing has been registered yet, and a sender reconnecting to the URI must keep its channel, so only rethrow
+      LOGGER.log(Level.WARNING, "TCPIP could not connect to :{0}", remoteRootURI);
+      LOGGER.log(Level.FINE, "TCPIP could not connect to :" + remoteRootURI, e);
       throw new MALException("IO Exception", e);
     }
   }
@@ -353,7 +506,64 @@ public class TCPIPTransport extends GENTransport
    */
   protected TCPIPTransportDataTransceiver createDataTransceiver(Socket socket) throws IOException
   {
-    return new TCPIPTransportDataTransceiver(socket);
+    return new TCPIPTransportDataTransceiver(socket, compactHeaders ? getStreamFactory() : null);
+  }
+
+  /**
+   * Creates the thread that reads messages from a transceiver, using pooled receive buffers if they are enabled.
+   *
+   * @param trans the transceiver
+   * @return the new poller, not yet started
+   */
+  protected GENMessagePoller createMessagePoller(TCPIPTransportDataTransceiver trans)
+  {
+    GENBufferPool pool = getReceiveBufferPool();
+    GENMessagePoller poller;
+
+    if (null != pool)
+    {
+      poller = new GENMessagePoller<ByteBuffer>(this, trans,
+              new TCPIPTransportDataTransceiver.BufferReceiver(trans, pool),
+              compactHeaders ? new GENIncomingCompactByteBufferMessageDecoderFactory()
+                      : new GENIncomingByteBufferMessageDecoderFactory());
+    }
+    else
+    {
+      poller = new GENMessagePoller<byte[]>(this, trans, trans,
+              compactHeaders ? new GENIncomingCompactByteMessageDecoderFactory()
+                      : new GENIncomingByteMessageDecoderFactory());
+    }
+
+    // messages of chunked frames are decoded by the poller thread as they are read
+    trans.setStreamedMessageReceiver(this, poller, maxChunkedFrameLength);
+
+    return poller;
+  }
+
+  @Override
+  protected boolean isHeaderEncodedBySender()
+  {
+    return compactHeaders;
+  }
+
+  /**
+   * Returns the maximum total length of a received chunked frame.
+   *
+   * @return the maximum length.
+   */
+  protected long getMaxChunkedFrameLength()
+  {
+    return maxChunkedFrameLength;
+  }
+
+  /**
+   * Returns the NIO reactor that should handle the next new connection.
+   *
+   * @return the reactor.
+   */
+  protected TCPIPNIOReactor nextReactor()
+  {
+    return reactors[(nextReactorIndex.getAndIncrement() & 0x7FFFFFFF) % reactors.length];
   }
 
   /**
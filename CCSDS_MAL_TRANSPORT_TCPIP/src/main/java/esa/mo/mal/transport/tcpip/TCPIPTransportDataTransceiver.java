@@ -20,12 +20,33 @@
  */
 package esa.mo.mal.transport.tcpip;
 
-import esa.mo.mal.transport.gen.sending.GENMessageSender;
+import esa.mo.mal.transport.gen.GENCompactMessageHeader;
+import esa.mo.mal.transport.gen.GENMessage;
+import esa.mo.mal.transport.gen.GENMessageHeader;
+import esa.mo.mal.transport.gen.GENReceptionHandler;
+import esa.mo.mal.transport.gen.GENTransport;
+import esa.mo.mal.transport.gen.receivers.GENIncomingMessageDecoder;
+import esa.mo.mal.transport.gen.receivers.GENIncomingMessageHolder;
+import esa.mo.mal.transport.gen.receivers.GENIncomingStreamMessageDecoderFactory;
+import esa.mo.mal.transport.gen.sending.GENBatchMessageSender;
 import esa.mo.mal.transport.gen.sending.GENOutgoingMessageHolder;
+import esa.mo.mal.transport.gen.sending.GENStreamingMessageSender;
+import esa.mo.mal.transport.gen.util.GENBufferPool;
+import esa.mo.mal.transport.gen.util.GENChunkedInputStream;
+import esa.mo.mal.transport.gen.util.GENChunkedOutputStream;
+import esa.mo.mal.transport.gen.util.GENMessagePoller;
+import static esa.mo.mal.transport.tcpip.TCPIPTransport.RLOGGER;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.logging.Level;
+import org.ccsds.moims.mo.mal.MALException;
+import org.ccsds.moims.mo.mal.encoding.MALElementStreamFactory;
 
 /**
  * This class implements the low level data (MAL Message) transport protocol. In order to differentiate messages with
@@ -33,12 +54,65 @@ import java.net.Socket;
  *
  * If the protocol uses a different message encoding this class can be replaced in the TCPIPTransport.
  *
+ * The socket is written through a buffered stream, so the messages of a batch are written one after the other without
+ * copying them together and then sent with a single flush.
+ *
+ * Incoming messages can also be read into buffers taken from a pool, using the BufferReceiver adapter, so that no array
+ * is allocated per message.
+ *
+ * Compact headers are negotiated per connection. A connection with compact headers enabled first sends a capability
+ * frame, |CAPABILITY_FRAME|capabilities|, announcing that it decodes them, and every connection reads capability frames
+ * whether it uses compact headers or not. Only once the peer has announced COMPACT_HEADERS_CAPABILITY does the
+ * transceiver encode the header of each message against the dictionary of its connection, the transport then only
+ * encoding the message body, and send the message as |size|header length|header|body|, with the COMPACT_FRAME flag set
+ * in the size. Until then, and for good with a peer that does not use compact headers, messages are encoded again with
+ * their full header and sent in standard frames, which a connection with compact headers decodes as messages with
+ * their full header. A connection without compact headers still fails on a flagged frame rather than decoding it as a
+ * full message.
+ *
+ * Streamed messages, encoded as they are sent, are framed as |CHUNKED_FRAME|chunk|...|end| where each chunk is
+ * |length|bytes|, see GENChunkedOutputStream. They always carry their full header, even with compact headers, so the
+ * header dictionaries are not involved. The receiver decodes the message from the chunks as they arrive, on the reading
+ * thread, rather than reassembling the frame, and passes it to the transport already decoded. Aborted frames are
+ * dropped, and frames longer than the maximum chunked frame length close the connection. Both ends must support chunked
+ * frames for streaming to be enabled.
+ *
  */
-public class TCPIPTransportDataTransceiver implements esa.mo.mal.transport.gen.util.GENMessagePoller.GENMessageReceiver<byte[]>, GENMessageSender
+public class TCPIPTransportDataTransceiver implements esa.mo.mal.transport.gen.util.GENMessagePoller.GENMessageReceiver<byte[]>, GENBatchMessageSender, GENStreamingMessageSender
 {
+  /**
+   * The packet size that marks a chunked frame.
+   */
+  public static final int CHUNKED_FRAME = -1;
+  /**
+   * The packet size that marks a capability frame.
+   */
+  public static final int CAPABILITY_FRAME = -2;
+  /**
+   * The capability of decoding messages with compact headers, announced in a capability frame.
+   */
+  public static final int COMPACT_HEADERS_CAPABILITY = 1;
+  /**
+   * The flag set in the packet size of frames whose message has a compact header.
+   */
+  public static final int COMPACT_FRAME = 0x80000000;
+  /**
+   * The size of the chunks of streamed messages.
+   */
+  protected static final int STREAM_CHUNK_SIZE = 65536;
+  /**
+   * The size of the buffer of the socket output stream.
+   */
+  protected static final int WRITE_BUFFER_SIZE = 65536;
   protected final Socket socket;
   protected final DataOutputStream socketWriteIf;
   protected final DataInputStream socketReadIf;
+  protected final MALElementStreamFactory headerStreamFactory;
+  protected final GENCompactMessageHeader.Dictionary headerDictionary;
+  private GENTransport transport = null;
+  private GENReceptionHandler receptionHandler = null;
+  private long maxChunkedFrameLength = 0;
+  private volatile boolean peerCompactHeaders = false;
 
   /**
    * Constructor.
@@ -47,22 +121,100 @@ public class TCPIPTransportDataTransceiver implements esa.mo.mal.transport.gen.u
    * @throws IOException if there is an error.
    */
   public TCPIPTransportDataTransceiver(Socket socket) throws IOException
+  {
+    this(socket, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param socket the TCPIP socket.
+   * @param headerStreamFactory the stream factory to encode compact headers with, or null to send messages as encoded
+   * by the transport. If set the capability frame is sent straight away.
+   * @throws IOException if there is an error.
+   */
+  public TCPIPTransportDataTransceiver(Socket socket, MALElementStreamFactory headerStreamFactory) throws IOException
   {
     this.socket = socket;
-    socketWriteIf = new DataOutputStream(socket.getOutputStream());
+    this.headerStreamFactory = headerStreamFactory;
+    this.headerDictionary = (null == headerStreamFactory) ? null : new GENCompactMessageHeader.Dictionary();
+    socketWriteIf = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), WRITE_BUFFER_SIZE));
     socketReadIf = new DataInputStream(socket.getInputStream());
+
+    if (null != headerStreamFactory)
+    {
+      socketWriteIf.writeInt(CAPABILITY_FRAME);
+      socketWriteIf.writeInt(COMPACT_HEADERS_CAPABILITY);
+      socketWriteIf.flush();
+    }
+  }
+
+  /**
+   * Sets the transport and the reception handler that messages received in chunked frames are passed to. As these
+   * messages are decoded from the connection as their chunks arrive they are not returned by readEncodedMessage, they
+   * are decoded by the reading thread and passed to the transport directly. Without a reception handler chunked frames
+   * close the connection.
+   *
+   * @param transport the transport to pass the messages to.
+   * @param receptionHandler the reception handler of this connection.
+   * @param maxChunkedFrameLength the maximum total length of the chunks of a frame.
+   */
+  public void setStreamedMessageReceiver(GENTransport transport, GENReceptionHandler receptionHandler,
+          long maxChunkedFrameLength)
+  {
+    this.transport = transport;
+    this.receptionHandler = receptionHandler;
+    this.maxChunkedFrameLength = maxChunkedFrameLength;
   }
 
   @Override
-  public void sendEncodedMessage(GENOutgoingMessageHolder packetData) throws IOException
+  public synchronized void sendEncodedMessage(GENOutgoingMessageHolder packetData) throws IOException
   {
-    // write packet length and then the packet
-    socketWriteIf.writeInt(packetData.getEncodedMessage().length);
+    writeMessage(packetData);
+    socketWriteIf.flush();
+  }
+
+  @Override
+  public synchronized void sendEncodedMessages(List<GENOutgoingMessageHolder> packets) throws IOException
+  {
+    // headers are encoded in sending order so that the dictionary at the other end stays in step
+    for (GENOutgoingMessageHolder packetData : packets)
+    {
+      writeMessage(packetData);
+    }
 
-    socketWriteIf.write(packetData.getEncodedMessage());
     socketWriteIf.flush();
   }
 
+  @Override
+  public synchronized boolean sendStreamedMessage(GENOutgoingMessageHolder packetData) throws IOException
+  {
+    // write the chunked frame marker and then the packet in chunks as it is encoded
+    socketWriteIf.writeInt(CHUNKED_FRAME);
+    final GENChunkedOutputStream chunks = new GENChunkedOutputStream(socketWriteIf, STREAM_CHUNK_SIZE);
+
+    try
+    {
+      packetData.encodeMessage(chunks);
+    }
+    catch (MALException ex)
+    {
+      if (chunks.isFailed())
+      {
+        throw new IOException("Unable to send streamed message", ex);
+      }
+
+      RLOGGER.log(Level.WARNING, "Unable to encode streamed message, frame aborted", ex);
+      chunks.abort();
+      socketWriteIf.flush();
+      return false;
+    }
+
+    chunks.finish();
+    socketWriteIf.flush();
+    return true;
+  }
+
   @Override
   public byte[] readEncodedMessage() throws IOException
   {
@@ -70,8 +222,105 @@ public class TCPIPTransportDataTransceiver implements esa.mo.mal.transport.gen.u
     {
       // read packet length and then the packet
       int packetSize = socketReadIf.readInt();
-      byte[] data = new byte[packetSize];
-      socketReadIf.readFully(data);
+
+      if (CHUNKED_FRAME == packetSize)
+      {
+        receiveChunkedFrame();
+        return null;
+      }
+
+      if (CAPABILITY_FRAME == packetSize)
+      {
+        receiveCapabilities(socketReadIf.readInt());
+        return null;
+      }
+
+      boolean fullHeader = isFullHeaderFrame(packetSize, null != headerDictionary);
+      int length = packetSize & ~COMPACT_FRAME;
+      byte[] data = new byte[fullHeader ? 4 + length : length];
+      int offset = fullHeader ? putInt(data, 0, GENCompactMessageHeader.FULL_HEADER) : 0;
+      socketReadIf.readFully(data, offset, length);
+      return data;
+    }
+    catch (java.net.SocketException ex)
+    {
+      if (socket.isClosed())
+      {
+        // socket has been closed to throw EOF exception higher
+        throw new java.io.EOFException();
+      }
+
+      throw ex;
+    }
+  }
+
+  /**
+   * Reads an encoded message into a buffer taken from the pool. The returned buffer is positioned at the start of the
+   * message and limited to its end.
+   *
+   * @param pool The pool to take the buffer from.
+   * @return the buffer containing the message, null if a chunked or capability frame was read.
+   * @throws IOException in case the encoded message cannot be read
+   */
+  public ByteBuffer readEncodedMessage(GENBufferPool pool) throws IOException
+  {
+    try
+    {
+      // read packet length and then the packet
+      int packetSize = socketReadIf.readInt();
+
+      if (CHUNKED_FRAME == packetSize)
+      {
+        receiveChunkedFrame();
+        return null;
+      }
+
+      if (CAPABILITY_FRAME == packetSize)
+      {
+        receiveCapabilities(socketReadIf.readInt());
+        return null;
+      }
+
+      boolean fullHeader = isFullHeaderFrame(packetSize, null != headerDictionary);
+      int length = packetSize & ~COMPACT_FRAME;
+      ByteBuffer data = pool.acquire(fullHeader ? 4 + length : length);
+
+      try
+      {
+        if (data.hasArray())
+        {
+          int offset = 0;
+          if (fullHeader)
+          {
+            data.putInt(0, GENCompactMessageHeader.FULL_HEADER);
+            offset = 4;
+          }
+
+          socketReadIf.readFully(data.array(), data.arrayOffset() + offset, length);
+        }
+        else
+        {
+          if (fullHeader)
+          {
+            data.putInt(GENCompactMessageHeader.FULL_HEADER);
+          }
+
+          byte[] chunk = new byte[Math.min(length, 8192)];
+          while (data.hasRemaining())
+          {
+            int count = Math.min(chunk.length, data.remaining());
+            socketReadIf.readFully(chunk, 0, count);
+            data.put(chunk, 0, count);
+          }
+          data.flip();
+        }
+      }
+      catch (IOException ex)
+      {
+        pool.release(data);
+        throw ex;
+      }
+
       return data;
     }
     catch (java.net.SocketException ex)
@@ -98,4 +347,237 @@ public class TCPIPTransportDataTransceiver implements esa.mo.mal.transport.gen.u
       // ignore
     }
   }
+
+  /**
+   * Writes the frame of a message to the buffered socket stream without flushing it.
+   *
+   * @param packetData The outgoing message.
+   * @throws IOException if the message cannot be written.
+   */
+  private void writeMessage(GENOutgoingMessageHolder packetData) throws IOException
+  {
+    if ((null != headerDictionary) && !peerCompactHeaders)
+    {
+      byte[] message = encodeFullMessage(headerStreamFactory, packetData);
+
+      socketWriteIf.writeInt(message.length);
+      socketWriteIf.write(message);
+      return;
+    }
+
+    if (null != headerDictionary)
+    {
+      byte[] header = encodeCompactHeader(packetData);
+
+      // write flagged packet length, header length and header, and then the body
+      socketWriteIf.writeInt(COMPACT_FRAME | (4 + header.length + packetData.getEncodedMessageLength()));
+      socketWriteIf.writeInt(header.length);
+      socketWriteIf.write(header);
+    }
+    else
+    {
+      // write packet length and then the packet
+      socketWriteIf.writeInt(packetData.getEncodedMessageLength());
+    }
+
+    socketWriteIf.write(packetData.getEncodedMessageBuffer(), 0, packetData.getEncodedMessageLength());
+  }
+
+  /**
+   * Encodes the header of an outgoing message against the dictionary of this connection.
+   *
+   * @param packetData The outgoing message.
+   * @return the encoded header.
+   * @throws IOException if the header cannot be encoded.
+   */
+  protected byte[] encodeCompactHeader(GENOutgoingMessageHolder packetData) throws IOException
+  {
+    try
+    {
+      return GENCompactMessageHeader.encodeHeader(headerStreamFactory,
+              (GENMessageHeader) packetData.getOriginalMessage().getHeader(), headerDictionary);
+    }
+    catch (MALException ex)
+    {
+      throw new IOException("Unable to encode compact message header", ex);
+    }
+  }
+
+  /**
+   * Encodes an outgoing message again with its full header. As the transport only encodes the message body when
+   * compact headers are enabled, this is needed for a peer that has not announced that it decodes compact headers.
+   *
+   * @param streamFactory The stream factory to use for encoding.
+   * @param packetData The outgoing message.
+   * @return the encoded message.
+   * @throws IOException if the message cannot be encoded.
+   */
+  static byte[] encodeFullMessage(MALElementStreamFactory streamFactory, GENOutgoingMessageHolder packetData)
+          throws IOException
+  {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream(packetData.getEncodedMessageLength() + 256);
+
+    try
+    {
+      ((GENMessage) packetData.getOriginalMessage()).encodeMessage(streamFactory,
+              streamFactory.createOutputStream(baos), baos, true);
+    }
+    catch (MALException ex)
+    {
+      throw new IOException("Unable to encode message with its full header", ex);
+    }
+
+    return baos.toByteArray();
+  }
+
+  /**
+   * Records the capabilities announced by the peer in a capability frame.
+   *
+   * @param capabilities The capabilities.
+   */
+  private void receiveCapabilities(int capabilities)
+  {
+    peerCompactHeaders = 0 != (capabilities & COMPACT_HEADERS_CAPABILITY);
+
+    RLOGGER.log(Level.FINE, "TCPIP peer compact headers : {0}", peerCompactHeaders);
+  }
+
+  /**
+   * Checks that the header form of a frame is understood by this connection. On a connection with compact headers a
+   * frame without the COMPACT_FRAME flag holds a message with its full header, which is passed on preceded by
+   * FULL_HEADER.
+   *
+   * @param packetSize The packet size of the frame.
+   * @param compactHeaders True if the connection uses compact headers.
+   * @return true if the message has its full header on a connection with compact headers.
+   * @throws IOException if the frame has a compact header but the connection does not use compact headers.
+   */
+  static boolean isFullHeaderFrame(int packetSize, boolean compactHeaders) throws IOException
+  {
+    if (0 <= packetSize)
+    {
+      return compactHeaders;
+    }
+
+    if (!compactHeaders)
+    {
+      throw new IOException("Received a message with a compact header, "
+              + "org.ccsds.moims.mo.mal.transport.tcpip.compactheaders is not set at this end");
+    }
+
+    return false;
+  }
+
+  /**
+   * Decodes the message of a chunked frame as its chunks are read and passes it to the transport. The body is decoded
+   * before returning as it is read from the connection. Aborted frames and messages that cannot be decoded are dropped,
+   * after reading the rest of their frame.
+   *
+   * @throws IOException if the frame cannot be read or is longer than the maximum chunked frame length.
+   */
+  private void receiveChunkedFrame() throws IOException
+  {
+    if (null == receptionHandler)
+    {
+      throw new IOException("Chunked frame received by a connection that does not accept them");
+    }
+
+    final GENChunkedInputStream chunks = new GENChunkedInputStream(socketReadIf, maxChunkedFrameLength);
+    GENIncomingMessageHolder msg = null;
+    Exception failure = null;
+
+    try
+    {
+      msg = new GENIncomingStreamMessageDecoderFactory.GENIncomingStreamMessageDecoder(transport, chunks)
+              .decodeAndCreateMessage();
+
+      // the body must be read before the next frame
+      msg.malMsg.getBody().getElementCount();
+    }
+    catch (MALException ex)
+    {
+      failure = ex;
+    }
+    catch (RuntimeException ex)
+    {
+      failure = ex;
+    }
+
+    // rethrows any failure of the connection the decoder has wrapped
+    chunks.skipToEnd();
+
+    if (chunks.isAborted())
+    {
+      RLOGGER.fine("Aborted chunked frame dropped");
+    }
+    else if (null != failure)
+    {
+      RLOGGER.log(Level.WARNING, "Unable to decode message of chunked frame, message dropped", failure);
+    }
+    else
+    {
+      transport.receive(receptionHandler, new DecodedMessage(msg));
+    }
+  }
+
+  private static int putInt(byte[] buffer, int offset, int value)
+  {
+    buffer[offset] = (byte) (value >>> 24);
+    buffer[offset + 1] = (byte) (value >>> 16);
+    buffer[offset + 2] = (byte) (value >>> 8);
+    buffer[offset + 3] = (byte) value;
+    return offset + 4;
+  }
+
+  /**
+   * Passes on a message that has already been decoded.
+   */
+  private static final class DecodedMessage implements GENIncomingMessageDecoder
+  {
+    private final GENIncomingMessageHolder msg;
+
+    DecodedMessage(GENIncomingMessageHolder msg)
+    {
+      this.msg = msg;
+    }
+
+    @Override
+    public GENIncomingMessageHolder decodeAndCreateMessage()
+    {
+      return msg;
+    }
+  }
+
+  /**
+   * Adapts a transceiver to read its messages into pooled buffers.
+   */
+  public static class BufferReceiver implements GENMessagePoller.GENMessageReceiver<ByteBuffer>
+  {
+    private final TCPIPTransportDataTransceiver transceiver;
+    private final GENBufferPool pool;
+
+    /**
+     * Constructor.
+     *
+     * @param transceiver The transceiver to read from.
+     * @param pool The pool to take the buffers from.
+     */
+    public BufferReceiver(TCPIPTransportDataTransceiver transceiver, GENBufferPool pool)
+    {
+      this.transceiver = transceiver;
+      this.pool = pool;
+    }
+
+    @Override
+    public ByteBuffer readEncodedMessage() throws IOException
+    {
+      return transceiver.readEncodedMessage(pool);
+    }
+
+    @Override
+    public void close()
+    {
+      transceiver.close();
+    }
+  }
 }